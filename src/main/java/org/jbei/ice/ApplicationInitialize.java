@@ -1,11 +1,13 @@
 package org.jbei.ice;
 
+import org.jbei.ice.lib.access.PermissionsController;
 import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.config.ConfigurationController;
 import org.jbei.ice.lib.entry.sequence.annotation.AutoAnnotationBlastDbBuildTask;
 import org.jbei.ice.lib.executor.IceExecutorService;
 import org.jbei.ice.lib.group.GroupController;
 import org.jbei.ice.lib.search.blast.BlastPlus;
+import org.jbei.ice.lib.search.kmer.RebuildKmerIndexTask;
 
 /**
  * Responsible for initializing the ICE application
@@ -32,8 +34,13 @@ public class ApplicationInitialize {
         ConfigurationController configurationController = new ConfigurationController();
         configurationController.initPropertyValues();
 
+        // check for and build the entry access index
+        PermissionsController permissionsController = new PermissionsController();
+        permissionsController.initializeEntryAccessIndex();
+
         // check blast
         BlastPlus.scheduleBlastIndexRebuildTask(false);
+        IceExecutorService.getInstance().runTask(new RebuildKmerIndexTask(false));
 
         AutoAnnotationBlastDbBuildTask autoAnnotationBlastDbBuildTask = new AutoAnnotationBlastDbBuildTask();
         IceExecutorService.getInstance().runTask(autoAnnotationBlastDbBuildTask);
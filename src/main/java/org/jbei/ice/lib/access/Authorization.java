@@ -1,7 +1,7 @@
 package org.jbei.ice.lib.access;
 
 import org.jbei.ice.lib.account.AccountType;
-import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.lib.account.PrincipalContext;
 import org.jbei.ice.storage.DataModel;
 import org.jbei.ice.storage.IDataTransferModel;
 import org.jbei.ice.storage.IRepository;
@@ -24,7 +24,7 @@ public class Authorization<T extends DataModel> {
         if (userId == null)
             return null;
 
-        Account account = DAOFactory.getAccountDAO().getByEmail(userId);
+        Account account = PrincipalContext.getAccount(userId);
         if (account == null)
             throw new IllegalArgumentException("Could not retrieve account information for user " + userId);
         return account;
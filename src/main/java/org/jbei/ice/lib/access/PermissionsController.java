@@ -43,6 +43,20 @@ public class PermissionsController {
         accountDAO = DAOFactory.getAccountDAO();
     }
 
+    /**
+     * Builds the effective entry permission index from the existing permissions and folder contents if it has not
+     * been built yet (e.g. on the first start after an upgrade). Once built, the index is maintained incrementally
+     */
+    public void initializeEntryAccessIndex() {
+        EntryAccessDAO entryAccessDAO = DAOFactory.getEntryAccessDAO();
+        if (!entryAccessDAO.isEmpty())
+            return;
+
+        Logger.info("Building entry access index");
+        int count = entryAccessDAO.rebuild();
+        Logger.info("Built entry access index with " + count + " rows");
+    }
+
     public Permission addPermission(String userId, AccessPermission access) {
         if (access.isEntry()) {
             Entry entry = DAOFactory.getEntryDAO().get(access.getTypeId());
@@ -323,13 +337,9 @@ public class PermissionsController {
         if (permissions.isEmpty())
             return true;
 
-        // if propagate, add permissions to entries contained in here  //TODO : inefficient for large entries/perms
+        // if propagate, add permissions to entries contained in here
         if (add) {
-            for (Entry entry : folder.getContents()) {
-                for (AccessPermission accessPermission : permissions) {
-                    addPermission(accessPermission, entry, null, null);
-                }
-            }
+            dao.propagateFolderPermissions(folder, folderDAO.getFolderContentIds(folder.getId(), null, false));
         } else {
             // else remove permissions
             for (Entry entry : folder.getContents()) {
@@ -88,6 +88,7 @@ public class AccountController {
         }
 
         AccountTransfer result = dao.update(account).toDataTransferObject();
+        PrincipalCache.getInstance().invalidate(account.getEmail());
         result.setAdmin(isAdministrator(account.getEmail()));
         return result;
     }
@@ -352,8 +353,7 @@ public class AccountController {
             return false;
         }
 
-        final Account account = getByEmail(userId);
-        return account != null && account.getType() == AccountType.ADMIN;
+        return PrincipalContext.isAdministrator(userId);
     }
 
     /**
@@ -404,6 +404,7 @@ public class AccountController {
                     }
                 }
                 dao.update(account);
+                PrincipalCache.getInstance().invalidate(account.getEmail());
             }
         } catch (Exception e) {
             Logger.error(e);
@@ -478,5 +479,6 @@ public class AccountController {
         }
         account.getGroups().remove(group);
         dao.update(account);
+        PrincipalCache.getInstance().invalidate(email);
     }
 }
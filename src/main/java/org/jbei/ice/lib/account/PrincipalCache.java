@@ -0,0 +1,168 @@
+package org.jbei.ice.lib.account;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jbei.ice.lib.group.GroupController;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.model.Account;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cross-request cache of the values that determine what a user is allowed to see; the database identifier of the
+ * account, whether it has administrative privileges and the groups it is a member of. These are otherwise looked up
+ * from the database on every search and authorization check.
+ * <p>
+ * Entries for an account are invalidated when the account type or its group memberships are changed, and all
+ * entries expire after {@link #EXPIRY_MINUTES} as a safeguard against changes made outside the application. Since a
+ * concurrent request can read the old values until the change is committed, entries are invalidated again once the
+ * current transaction commits and values read before an invalidation are not cached
+ *
+ * @author Hector Plahar
+ */
+public class PrincipalCache {
+
+    private static final long EXPIRY_MINUTES = 5;
+    private static final PrincipalCache INSTANCE = new PrincipalCache();
+
+    private final ConcurrentHashMap<String, Principal> cache;
+    private final AtomicLong invalidations;
+
+    private PrincipalCache() {
+        cache = new ConcurrentHashMap<>();
+        invalidations = new AtomicLong();
+    }
+
+    public static PrincipalCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param userId unique identifier (email) for user
+     * @return true if the account has administrative privileges, false otherwise or if the account does not exist
+     */
+    public boolean isAdministrator(String userId) {
+        if (StringUtils.isEmpty(userId))
+            return false;
+        return get(userId).admin;
+    }
+
+    /**
+     * @param userId unique identifier (email) for user
+     * @return unmodifiable set of the uuids of the groups the user is a member of, including the public group
+     */
+    public Set<String> getGroupUUIDs(String userId) {
+        return get(userId).groupUUIDs;
+    }
+
+    /**
+     * @param userId unique identifier (email) for user
+     * @return unmodifiable set of the ids of the groups the user is a member of, including their parent groups and
+     * the public group
+     */
+    public Set<Long> getGroupIds(String userId) {
+        return get(userId).groupIds;
+    }
+
+    /**
+     * @param userId unique identifier (email) for user
+     * @return database identifier of the account for the user, or null if the account does not exist
+     */
+    public Long getAccountId(String userId) {
+        return get(userId).accountId;
+    }
+
+    /**
+     * Removes the cached values for an account. Call when the account type or its group memberships change
+     *
+     * @param userId unique identifier (email) for user
+     */
+    public void invalidate(String userId) {
+        if (userId == null)
+            return;
+
+        final String key = userId.toLowerCase();
+        remove(key);
+        HibernateUtil.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                remove(key);
+            }
+        });
+    }
+
+    /**
+     * Removes the cached values for all accounts. Call when a change (e.g. deleting a group) affects many accounts
+     */
+    public void invalidateAll() {
+        clear();
+        HibernateUtil.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                clear();
+            }
+        });
+    }
+
+    private void remove(String key) {
+        invalidations.incrementAndGet();
+        cache.remove(key);
+    }
+
+    private void clear() {
+        invalidations.incrementAndGet();
+        cache.clear();
+    }
+
+    private Principal get(String userId) {
+        String key = userId.toLowerCase();
+        Principal principal = cache.get(key);
+        if (principal != null && principal.expires > System.currentTimeMillis())
+            return principal;
+
+        // read from the database directly; the controller methods consult this cache when a request is active
+        long invalidation = invalidations.get();
+        GroupController groupController = new GroupController();
+        Account account = DAOFactory.getAccountDAO().getByEmail(userId);
+        Set<String> groupUUIDs = new HashSet<>();
+        groupUUIDs.add(GroupController.PUBLIC_GROUP_UUID);
+        if (account == null) {
+            Set<Long> groupIds = new HashSet<>();
+            groupIds.add(groupController.createOrRetrievePublicGroup().getId());
+
+            // not cached since the account may be created later
+            return new Principal(null, false, groupUUIDs, groupIds);
+        }
+
+        groupUUIDs.addAll(DAOFactory.getGroupDAO().getMemberGroupUUIDs(account));
+        Set<Long> groupIds = groupController.getAllAccountGroups(account);
+        principal = new Principal(account.getId(), account.getType() == AccountType.ADMIN, groupUUIDs, groupIds);
+
+        // values may be stale if an invalidation happened while they were read (or before they were cached)
+        cache.put(key, principal);
+        if (invalidations.get() != invalidation)
+            cache.remove(key, principal);
+        return principal;
+    }
+
+    private static class Principal {
+        private final Long accountId;
+        private final boolean admin;
+        private final Set<String> groupUUIDs;
+        private final Set<Long> groupIds;
+        private final long expires;
+
+        Principal(Long accountId, boolean admin, Set<String> groupUUIDs, Set<Long> groupIds) {
+            this.accountId = accountId;
+            this.admin = admin;
+            this.groupUUIDs = Collections.unmodifiableSet(groupUUIDs);
+            this.groupIds = Collections.unmodifiableSet(groupIds);
+            this.expires = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(EXPIRY_MINUTES);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.jbei.ice.lib.account;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jbei.ice.lib.group.GroupController;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.model.Account;
+
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Principal information for the request being handled by the current thread; the user the request was authenticated
+ * as together with the accounts, administrative status and groups (including parent groups and the public group) of
+ * the users that are checked while handling the request.
+ * <p>
+ * Api keys do not carry a scope: a request authenticated with a key acts as the key's owner (or, for keys owned by
+ * an administrator, as the user named in the request) with that user's full permissions. The context therefore
+ * records the resolved user only.
+ * <p>
+ * A context is started and ended by the filters that wrap each request in a transaction. While a context is active,
+ * the administrative status and group ids of an account are obtained from the {@link PrincipalCache} and accounts are
+ * loaded by their database identifier, once per request, instead of being looked up by email on every authorization
+ * check. Outside a request (e.g. background tasks and tests) the values are read from the database on every call
+ *
+ * @author Hector Plahar
+ */
+public class PrincipalContext {
+
+    private static final ThreadLocal<PrincipalContext> CURRENT = new ThreadLocal<>();
+
+    private String sessionId;
+    private String userId;
+    private final HashMap<String, Account> accounts;
+
+    private PrincipalContext() {
+        accounts = new HashMap<>();
+    }
+
+    /**
+     * Starts a new context for the request handled by the current thread, replacing any existing context
+     */
+    public static void begin() {
+        CURRENT.set(new PrincipalContext());
+    }
+
+    /**
+     * Ends the context for the current thread. Must be called when the request is complete since request threads
+     * are pooled
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return context for the current thread or null if the thread is not handling a request
+     */
+    public static PrincipalContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Retrieves the account for a user
+     *
+     * @param userId unique identifier (email) for user
+     * @return account, or null if none exists
+     */
+    public static Account getAccount(String userId) {
+        if (StringUtils.isEmpty(userId))
+            return null;
+
+        PrincipalContext context = current();
+        if (context == null)
+            return DAOFactory.getAccountDAO().getByEmail(userId);
+
+        String key = userId.toLowerCase();
+        Account account = context.accounts.get(key);
+        if (account != null)
+            return account;
+
+        Long accountId = PrincipalCache.getInstance().getAccountId(userId);
+        if (accountId == null)
+            return null;
+
+        account = DAOFactory.getAccountDAO().get(accountId);
+        if (account != null)
+            context.accounts.put(key, account);
+        return account;
+    }
+
+    /**
+     * @param userId unique identifier (email) for user
+     * @return true if the account has administrative privileges, false otherwise or if the account does not exist
+     */
+    public static boolean isAdministrator(String userId) {
+        if (StringUtils.isEmpty(userId))
+            return false;
+
+        if (current() != null)
+            return PrincipalCache.getInstance().isAdministrator(userId);
+
+        Account account = DAOFactory.getAccountDAO().getByEmail(userId);
+        return account != null && account.getType() == AccountType.ADMIN;
+    }
+
+    /**
+     * @param account account
+     * @return ids of the groups the account is a member of, including their parent groups and the public group
+     */
+    public static Set<Long> getGroupIds(Account account) {
+        if (current() != null)
+            return PrincipalCache.getInstance().getGroupIds(account.getEmail());
+        return new GroupController().getAllAccountGroups(account);
+    }
+
+    /**
+     * Records the user that the request is authenticated as
+     *
+     * @param sessionId session id (if any) the user was resolved from
+     * @param userId    unique identifier for user
+     */
+    public void setPrincipal(String sessionId, String userId) {
+        this.sessionId = sessionId;
+        this.userId = userId;
+    }
+
+    /**
+     * @param sessionId session id
+     * @return true if the user for the specified session id has already been resolved in this request
+     */
+    public boolean isResolved(String sessionId) {
+        return userId != null && StringUtils.equals(this.sessionId, sessionId);
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+}
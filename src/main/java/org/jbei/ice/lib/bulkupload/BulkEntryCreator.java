@@ -7,14 +7,17 @@ import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.dto.DNASequence;
+import org.jbei.ice.lib.dto.FeaturedDNASequence;
 import org.jbei.ice.lib.dto.bulkupload.EditMode;
 import org.jbei.ice.lib.dto.entry.EntryField;
 import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.entry.PartData;
+import org.jbei.ice.lib.dto.entry.PlasmidData;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.lib.dto.sample.PartSample;
 import org.jbei.ice.lib.entry.*;
 import org.jbei.ice.lib.entry.sample.SampleService;
+import org.jbei.ice.lib.entry.sequence.FeatureResolver;
 import org.jbei.ice.lib.entry.sequence.SequenceController;
 import org.jbei.ice.lib.search.blast.BlastPlus;
 import org.jbei.ice.lib.utils.Emailer;
@@ -23,6 +26,7 @@ import org.jbei.ice.servlet.InfoToModelFactory;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.dao.BulkUploadDAO;
 import org.jbei.ice.storage.hibernate.dao.EntryDAO;
+import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
 import org.jbei.ice.storage.model.*;
 
 import java.io.File;
@@ -448,6 +452,72 @@ public class BulkEntryCreator {
         return uploadInfo;
     }
 
+    /**
+     * Creates a draft entry of the specified type, with a sequence, for each of the parsed sequence records and adds
+     * them to the bulk upload. All records are created in the current transaction; inserts are written out in
+     * JDBC batches when the session is flushed, and features common to the records are looked up and created once.
+     * The unique identifier of the created entry is set on each record
+     *
+     * @param userId       unique identifier for user performing the import. Must have write access to the upload
+     * @param bulkUploadId unique identifier for bulk upload
+     * @param type         type of entries to create
+     * @param extension    extension for the names of the sequence files of the records
+     * @param records      parsed records. Records without a parsed sequence are skipped
+     * @throws IllegalArgumentException if the bulk upload does not exist
+     */
+    void createSequenceEntries(String userId, long bulkUploadId, EntryType type, String extension,
+                               List<SequenceRecord> records) {
+        BulkUpload upload = dao.get(bulkUploadId);
+        if (upload == null)
+            throw new IllegalArgumentException("Could not retrieve bulk upload with id \"" + bulkUploadId + "\"");
+
+        authorization.expectWrite(userId, upload);
+        Account account = accountController.getByEmail(userId);
+        SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
+        FeatureResolver featureResolver = new FeatureResolver();
+        List<Long> entryIds = new ArrayList<>(records.size());
+
+        for (SequenceRecord record : records) {
+            FeaturedDNASequence dnaSequence = record.getSequence();
+            if (dnaSequence == null)
+                continue;
+
+            PartData data = new PartData(type);
+            data.setName(dnaSequence.getName());
+            if (StringUtils.isBlank(dnaSequence.getDescription()))
+                data.setShortDescription(dnaSequence.getName());
+            else
+                data.setShortDescription(dnaSequence.getDescription());
+            if (type == EntryType.PLASMID) {
+                PlasmidData plasmidData = new PlasmidData();
+                plasmidData.setCircular(dnaSequence.getIsCircular());
+                data.setPlasmidData(plasmidData);
+            }
+
+            Entry entry = InfoToModelFactory.infoToEntry(data);
+            entry.setVisibility(Visibility.DRAFT.getValue());
+            entry.setOwner(account.getFullName());
+            entry.setOwnerEmail(account.getEmail());
+            entry = entryDAO.create(entry);
+            addWritePermission(account, entry);
+
+            // drafts are not searchable; the sequences are added to the blast index when the upload is approved
+            // (see BulkUploadController#approveBulkImport)
+            Sequence sequence = SequenceController.dnaSequenceToSequence(dnaSequence);
+            sequence.setSequenceUser(record.getText());
+            sequence.setEntry(entry);
+            sequence.setFileName(record.getFileName(extension));
+            sequenceDAO.saveSequence(sequence, featureResolver);
+
+            record.setEntryId(entry.getId());
+            entryIds.add(entry.getId());
+        }
+
+        dao.addEntries(upload, entryIds);
+        upload.setLastUpdateTime(new Date());
+        dao.update(upload);
+    }
+
     protected void addWritePermission(Account account, Entry entry) {
         Permission permission = new Permission();
         permission.setCanWrite(true);
@@ -466,6 +536,7 @@ public class BulkEntryCreator {
         authorization.expectWrite(userId, draft);
         SampleService sampleService = new SampleService();
         EntryAuthorization entryAuthorization = new EntryAuthorization();
+        FeatureResolver featureResolver = new FeatureResolver();
 
         for (PartWithSample partWithSample : data) {
             if (partWithSample == null)
@@ -504,7 +575,7 @@ public class BulkEntryCreator {
                         addWritePermission(account, linkedEntry);
 
                         // check for attachments and sequences for linked entry
-                        saveFiles(linked, linkedEntry, files);
+                        saveFiles(linked, linkedEntry, files, featureResolver);
                         entry.getLinkedEntries().add(linkedEntry);
                     }
                 }
@@ -541,7 +612,7 @@ public class BulkEntryCreator {
             dao.update(draft);
 
             // save files
-            saveFiles(partData, entry, files);
+            saveFiles(partData, entry, files, featureResolver);
 
             // save sample, if available
             PartSample partSample = partWithSample.getPartSample();
@@ -554,7 +625,8 @@ public class BulkEntryCreator {
         return true;
     }
 
-    protected void saveFiles(PartData data, Entry entry, HashMap<String, InputStream> files) {
+    protected void saveFiles(PartData data, Entry entry, HashMap<String, InputStream> files,
+                             FeatureResolver featureResolver) {
         // check sequence
         try {
             String sequenceName = data.getSequenceFileName();
@@ -569,9 +641,9 @@ public class BulkEntryCreator {
                     sequence.setSequenceUser(sequenceString);
                     sequence.setEntry(entry);
                     sequence.setFileName(sequenceName);
-                    Sequence result = DAOFactory.getSequenceDAO().saveSequence(sequence);
+                    Sequence result = DAOFactory.getSequenceDAO().saveSequence(sequence, featureResolver);
                     if (result != null)
-                        BlastPlus.scheduleBlastIndexRebuildTask(true);
+                        BlastPlus.scheduleBlastIndexUpdateTask(result);
                 }
             }
         } catch (IOException e) {
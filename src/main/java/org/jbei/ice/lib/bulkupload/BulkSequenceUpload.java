@@ -0,0 +1,106 @@
+package org.jbei.ice.lib.bulkupload;
+
+import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.executor.IceExecutorService;
+import org.jbei.ice.lib.parsers.genbank.GenBankParser;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Bulk upload with a multi-record FASTA or genbank file. A draft entry (with sequence) is created for each record
+ * in the file by a {@link BulkSequenceUploadTask}, so that large sequence libraries can be imported in a single
+ * request
+ *
+ * @author Hector Plahar
+ */
+public class BulkSequenceUpload {
+
+    private static final String[] EXTENSIONS = {".fasta", ".fa", ".fna", ".gb", ".gbk", ".genbank"};
+
+    private final Path filePath;
+    private final EntryType addType;
+    private final String userId;
+
+    public BulkSequenceUpload(String userId, Path path, EntryType addType) {
+        this.userId = userId;
+        this.filePath = path;
+        this.addType = addType;
+    }
+
+    /**
+     * @param fileName name of uploaded file
+     * @return true if the file name has one of the extensions for sequence files that are imported by this class
+     */
+    public static boolean isSequenceFile(String fileName) {
+        String lowerCase = fileName.toLowerCase();
+        for (String extension : EXTENSIONS) {
+            if (lowerCase.endsWith(extension))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates the bulk upload and submits the task that imports the records in the file. The bulk upload is
+     * committed before the task is submitted so that it is visible to the task
+     *
+     * @return processed upload with the id of the new bulk upload, or with <code>success</code> set to false if the
+     * file is not a FASTA or genbank file or if the import could not be started because the server is busy
+     * @throws IOException on exception reading the file
+     */
+    public ProcessedBulkUpload processUpload() throws IOException {
+        ProcessedBulkUpload processedBulkUpload = new ProcessedBulkUpload();
+        String fileName = filePath.toFile().getName();
+        BulkSequenceUploadTask.Format format = detectFormat();
+        if (format == null) {
+            processedBulkUpload.setSuccess(false);
+            processedBulkUpload.setUserMessage("File \"" + fileName + "\" is not a FASTA or genbank file");
+            return processedBulkUpload;
+        }
+
+        long uploadId = new BulkEntryCreator().createBulkUpload(userId, addType);
+        HibernateUtil.commitTransaction();
+        HibernateUtil.beginTransaction();
+
+        BulkSequenceUploadTask task = new BulkSequenceUploadTask(userId, uploadId, filePath, fileName, addType,
+                format);
+        if (!IceExecutorService.getInstance().runTask(task)) {
+            // remove the empty upload so that it is not left behind
+            new BulkUploadDeleteTask(userId, uploadId).execute();
+            processedBulkUpload.setSuccess(false);
+            processedBulkUpload.setUserMessage("Server is busy. Could not import sequences from \"" + fileName
+                    + "\". Please try again later");
+            return processedBulkUpload;
+        }
+        processedBulkUpload.setUploadId(uploadId);
+        processedBulkUpload.setUserMessage("Importing sequences from \"" + fileName + "\"");
+        return processedBulkUpload;
+    }
+
+    /**
+     * Determines the format of the file from its first non-blank line
+     *
+     * @return format of file or null if it is not recognized
+     */
+    protected BulkSequenceUploadTask.Format detectFormat() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(filePath, Charset.defaultCharset())) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty())
+                    continue;
+
+                if (line.startsWith(">"))
+                    return BulkSequenceUploadTask.Format.FASTA;
+                if (line.startsWith(GenBankParser.LOCUS_TAG))
+                    return BulkSequenceUploadTask.Format.GENBANK;
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,318 @@
+package org.jbei.ice.lib.bulkupload;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.FeaturedDNASequence;
+import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.executor.TaskType;
+import org.jbei.ice.lib.parsers.InvalidFormatParserException;
+import org.jbei.ice.lib.parsers.fasta.FastaParser;
+import org.jbei.ice.lib.parsers.genbank.GenBankParser;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Task to import the records in a (multi-record) FASTA or genbank file as draft entries of a bulk upload, with one
+ * entry and sequence per record.
+ * <p>
+ * The file is streamed; records are parsed on a pool of {@link #PARSE_THREADS} threads, at most
+ * {@link #PARSE_WINDOW} records ahead of the records being saved, and the parsed records are saved in batches of
+ * {@link #BATCH_SIZE} with a transaction per batch. If a batch fails to save, its records are saved individually
+ * so that the failure is isolated to the offending record(s). Records that cannot be parsed or saved are reported
+ * and skipped.
+ * <p>
+ * Batches that have been committed are not rolled back if the task is cancelled
+ *
+ * @author Hector Plahar
+ */
+public class BulkSequenceUploadTask extends Task {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int PARSE_THREADS = 4;
+    private static final int PARSE_WINDOW = 2 * BATCH_SIZE;
+
+    private final String userId;
+    private final long uploadId;
+    private final Path filePath;
+    private final String fileName;
+    private final EntryType addType;
+    private final Format format;
+    private final List<String> errors;
+    private volatile int created;
+    private String nextHeader;      // header line of the next FASTA record, if already read
+
+    public BulkSequenceUploadTask(String userId, long uploadId, Path filePath, String fileName, EntryType addType,
+                                  Format format) {
+        this.userId = userId;
+        this.uploadId = uploadId;
+        this.filePath = filePath;
+        this.fileName = fileName;
+        this.addType = addType;
+        this.format = format;
+        this.errors = Collections.synchronizedList(new ArrayList<String>());
+    }
+
+    @Override
+    public void execute() {
+        int total;
+        try {
+            total = countRecords();
+        } catch (IOException e) {
+            Logger.error(e);
+            errors.add("Could not read file " + fileName + ": " + e.getMessage());
+            return;
+        }
+        setProgress(0, total);
+
+        BulkEntryCreator creator = new BulkEntryCreator();
+        ExecutorService executor = Executors.newFixedThreadPool(PARSE_THREADS, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "sequence-import");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        Deque<Future<SequenceRecord>> pending = new ArrayDeque<>();
+        List<SequenceRecord> batch = new ArrayList<>(BATCH_SIZE);
+        int processed = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(filePath, Charset.defaultCharset())) {
+            String text;
+            int index = 0;
+            while (!isCancelled() && (text = readRecord(reader)) != null) {
+                index += 1;
+                final SequenceRecord record = new SequenceRecord(index, text);
+                pending.add(executor.submit(new Callable<SequenceRecord>() {
+                    @Override
+                    public SequenceRecord call() throws Exception {
+                        parse(record);
+                        return record;
+                    }
+                }));
+
+                if (pending.size() < PARSE_WINDOW)
+                    continue;
+
+                batch.add(getParsed(pending.poll()));
+                if (batch.size() >= BATCH_SIZE) {
+                    processed += save(creator, batch);
+                    setProgress(processed, total);
+                }
+            }
+
+            while (!isCancelled() && !pending.isEmpty()) {
+                batch.add(getParsed(pending.poll()));
+                if (batch.size() >= BATCH_SIZE || pending.isEmpty()) {
+                    processed += save(creator, batch);
+                    setProgress(processed, total);
+                }
+            }
+        } catch (IOException e) {
+            Logger.error(e);
+            errors.add("Exception reading file " + fileName + ": " + e.getMessage());
+        } finally {
+            executor.shutdownNow();
+            for (Future<SequenceRecord> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    @Override
+    public TaskType getType() {
+        return TaskType.BULK;
+    }
+
+    @Override
+    public String getName() {
+        return "Import of sequences from " + fileName;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public long getUploadId() {
+        return uploadId;
+    }
+
+    /**
+     * @return number of entries created so far
+     */
+    public int getCreated() {
+        return created;
+    }
+
+    /**
+     * @return messages for the records that could not be parsed or saved
+     */
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    /**
+     * Saves the parsed records in the batch, committing the current transaction and beginning a new one
+     *
+     * @return number of records processed
+     */
+    private int save(BulkEntryCreator creator, List<SequenceRecord> batch) {
+        List<SequenceRecord> parsed = new ArrayList<>(batch.size());
+        for (SequenceRecord record : batch) {
+            if (record.getError() == null)
+                parsed.add(record);
+            else
+                errors.add(record.getLabel() + ": " + record.getError());
+        }
+
+        try {
+            creator.createSequenceEntries(userId, uploadId, addType, format.getExtension(), parsed);
+            HibernateUtil.commitTransaction();
+            created += parsed.size();
+        } catch (RuntimeException e) {
+            Logger.error("Exception saving imported sequences. Retrying individually", e);
+            HibernateUtil.rollbackTransaction();
+            for (SequenceRecord record : parsed) {
+                HibernateUtil.beginTransaction();
+                try {
+                    creator.createSequenceEntries(userId, uploadId, addType, format.getExtension(),
+                            Collections.singletonList(record));
+                    HibernateUtil.commitTransaction();
+                    created += 1;
+                } catch (RuntimeException re) {
+                    HibernateUtil.rollbackTransaction();
+                    record.setEntryId(0);
+                    errors.add(record.getLabel() + ": " + re.getMessage());
+                }
+            }
+        }
+
+        HibernateUtil.beginTransaction();
+        int count = batch.size();
+        batch.clear();
+        return count;
+    }
+
+    private SequenceRecord getParsed(Future<SequenceRecord> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing sequences");
+        } catch (ExecutionException e) {
+            // parse() records its failures on the record
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Parses the text of a record. Failures are recorded on the record
+     */
+    private void parse(SequenceRecord record) {
+        try {
+            FeaturedDNASequence sequence;
+            if (format == Format.GENBANK) {
+                sequence = new GenBankParser().parseNext(new BufferedReader(new StringReader(record.getText())));
+            } else {
+                String header = StringUtils.substringBefore(record.getText(), "\n").substring(1).trim();
+                sequence = new FastaParser().parse(record.getText());
+                sequence.setName(StringUtils.substringBefore(header, " "));
+                sequence.setDescription(StringUtils.substringAfter(header, " ").trim());
+            }
+
+            if (sequence == null || StringUtils.isEmpty(sequence.getSequence()))
+                record.setError("No sequence found");
+            record.setSequence(sequence);
+        } catch (InvalidFormatParserException | IOException | RuntimeException e) {
+            record.setError("Could not parse record: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the text of the next record in the file
+     *
+     * @return text of the next record or null if there are no more records
+     */
+    private String readRecord(BufferedReader reader) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        String line;
+
+        if (format == Format.GENBANK) {
+            while ((line = reader.readLine()) != null) {
+                if (builder.length() == 0 && line.trim().isEmpty())
+                    continue;
+
+                builder.append(line).append('\n');
+                if (line.trim().equals(GenBankParser.END_TAG))
+                    break;
+            }
+            return builder.length() == 0 ? null : builder.toString();
+        }
+
+        // fasta
+        String header = nextHeader;
+        nextHeader = null;
+        while (header == null && (line = reader.readLine()) != null) {
+            if (line.startsWith(">"))
+                header = line;
+        }
+        if (header == null)
+            return null;
+
+        builder.append(header).append('\n');
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(">")) {
+                nextHeader = line;
+                break;
+            }
+            if (!line.startsWith(";"))
+                builder.append(line).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Counts the records in the file, for reporting progress, by counting the lines that start a record
+     */
+    private int countRecords() throws IOException {
+        String start = format == Format.GENBANK ? GenBankParser.LOCUS_TAG : ">";
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(filePath, Charset.defaultCharset())) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(start))
+                    count += 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Supported formats for multi-record sequence files
+     */
+    public enum Format {
+        FASTA(".fasta"), GENBANK(".gb");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+}
@@ -9,13 +9,16 @@ import org.jbei.ice.lib.account.AccountTransfer;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.dto.DNASequence;
+import org.jbei.ice.lib.dto.TaskInfo;
 import org.jbei.ice.lib.dto.access.AccessPermission;
 import org.jbei.ice.lib.dto.entry.*;
 import org.jbei.ice.lib.entry.EntryController;
 import org.jbei.ice.lib.entry.attachment.AttachmentController;
 import org.jbei.ice.lib.entry.sequence.SequenceController;
 import org.jbei.ice.lib.executor.IceExecutorService;
+import org.jbei.ice.lib.executor.Task;
 import org.jbei.ice.lib.group.GroupController;
+import org.jbei.ice.lib.search.blast.BlastPlus;
 import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.ModelToInfoFactory;
@@ -371,13 +374,16 @@ public class BulkUploadController {
 
         // go through passed contents
         // TODO : this needs to go into a task that auto updates
+        List<Entry> approved = new ArrayList<>();
         for (Entry entry : bulkUpload.getContents()) {
             entry.setVisibility(Visibility.OK.getValue());
+            approved.add(entry);
             Set<Entry> linked = entry.getLinkedEntries();
             Entry plasmid = null;
             if (linked != null && !linked.isEmpty()) {
                 plasmid = (Entry) linked.toArray()[0];
                 plasmid.setVisibility(Visibility.OK.getValue());
+                approved.add(plasmid);
             }
 
             // set permissions
@@ -396,6 +402,9 @@ public class BulkUploadController {
                 entryController.update(userId, plasmid);
         }
 
+        // drafts are not in the blast index; add the sequences of the approved entries
+        BlastPlus.scheduleBlastIndexVisibilityTasks(approved);
+
         // when done approving, delete the bulk upload record but not the entries associated with it.
         bulkUpload.getContents().clear();
         dao.delete(bulkUpload);
@@ -561,6 +570,48 @@ public class BulkUploadController {
         return dao.update(upload) != null;
     }
 
+    /**
+     * Retrieves the status and progress of the import of a multi-record sequence file into a bulk upload
+     *
+     * @param userId   unique identifier for user making request
+     * @param uploadId unique identifier for bulk upload the sequences are being imported into
+     * @return task information or null if the import task is not found
+     * @throws PermissionException if the import was started by another user and the user is not an administrator
+     */
+    public TaskInfo getSequenceImportStatus(String userId, long uploadId) {
+        BulkSequenceUploadTask task = getSequenceImportTask(userId, uploadId);
+        return task == null ? null : task.toDataTransferObject();
+    }
+
+    /**
+     * Retrieves the messages for the records of a multi-record sequence file that could not be imported
+     *
+     * @param userId   unique identifier for user making request
+     * @param uploadId unique identifier for bulk upload the sequences are being imported into
+     * @return list of messages or null if the import task is not found
+     * @throws PermissionException if the import was started by another user and the user is not an administrator
+     */
+    public List<String> getSequenceImportErrors(String userId, long uploadId) {
+        BulkSequenceUploadTask task = getSequenceImportTask(userId, uploadId);
+        return task == null ? null : task.getErrors();
+    }
+
+    private BulkSequenceUploadTask getSequenceImportTask(String userId, long uploadId) {
+        for (Task task : IceExecutorService.getInstance().getTasks()) {
+            if (!(task instanceof BulkSequenceUploadTask))
+                continue;
+
+            BulkSequenceUploadTask uploadTask = (BulkSequenceUploadTask) task;
+            if (uploadTask.getUploadId() != uploadId)
+                continue;
+
+            if (!uploadTask.getUserId().equalsIgnoreCase(userId) && !accountController.isAdministrator(userId))
+                throw new PermissionException("Cannot access sequence import for upload " + uploadId);
+            return uploadTask;
+        }
+        return null;
+    }
+
     /**
      * Retrieves part numbers that match the token passed in the parameter, that are compatible with the type
      * in the parameter. Two entry types are compatible if they can be associated with specific entries (as descendants)
@@ -33,6 +33,8 @@ public class FileBulkUpload {
      * to contain exactly 1 csv file and optional attachment/sequence files whose names are referenced
      * in the csv file</li>
      * <li>Files with a <code>.xml</code> extension are processed as SBOL files</li>
+     * <li>Files with a FASTA or genbank extension (e.g. <code>.fasta</code>, <code>.gb</code>) are processed as
+     * multi-record sequence files, with an entry created for each record</li>
      * </ul>
      *
      * @return
@@ -62,6 +64,12 @@ public class FileBulkUpload {
             return processedBulkUpload;
         }
 
+        // process multi-record sequence file
+        if (BulkSequenceUpload.isSequenceFile(fileName)) {
+            BulkSequenceUpload upload = new BulkSequenceUpload(account, filePath, addType);
+            return upload.processUpload();
+        }
+
         throw new IOException("Unsupported file type " + fileName);
     }
 
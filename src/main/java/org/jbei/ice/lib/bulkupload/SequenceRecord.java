@@ -0,0 +1,78 @@
+package org.jbei.ice.lib.bulkupload;
+
+import org.jbei.ice.lib.dto.FeaturedDNASequence;
+
+/**
+ * A single record (e.g. a FASTA or genbank record) read from a multi-record sequence file that is being imported
+ *
+ * @author Hector Plahar
+ */
+class SequenceRecord {
+
+    private final int index;
+    private final String text;
+    private FeaturedDNASequence sequence;
+    private String error;
+    private long entryId;
+
+    SequenceRecord(int index, String text) {
+        this.index = index;
+        this.text = text;
+    }
+
+    /**
+     * @return (1-based) position of the record in the file
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return original text of the record
+     */
+    String getText() {
+        return text;
+    }
+
+    FeaturedDNASequence getSequence() {
+        return sequence;
+    }
+
+    void setSequence(FeaturedDNASequence sequence) {
+        this.sequence = sequence;
+    }
+
+    String getError() {
+        return error;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    long getEntryId() {
+        return entryId;
+    }
+
+    void setEntryId(long entryId) {
+        this.entryId = entryId;
+    }
+
+    /**
+     * @return name for the sequence file of the record, based on the record name
+     */
+    String getFileName(String extension) {
+        if (sequence == null || sequence.getName() == null || sequence.getName().isEmpty())
+            return "record" + index + extension;
+        return sequence.getName() + extension;
+    }
+
+    /**
+     * @return name of the record for reporting, if it has been parsed
+     */
+    String getLabel() {
+        if (sequence == null || sequence.getName() == null || sequence.getName().isEmpty())
+            return "record " + index;
+        return "record " + index + " (" + sequence.getName() + ")";
+    }
+}
@@ -26,6 +26,7 @@ public enum ConfigurationKey implements IDataTransferModel {
     PART_NUMBER_DELIMITER("_"),
 
     BLAST_INSTALL_DIR(""),
+    BLAST_MAX_CONCURRENT_SEARCHES("4"),
 
     NEW_REGISTRATION_ALLOWED("NO"),
     PASSWORD_CHANGE_ALLOWED("YES"),
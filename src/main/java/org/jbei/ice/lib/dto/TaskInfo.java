@@ -0,0 +1,95 @@
+package org.jbei.ice.lib.dto;
+
+import org.jbei.ice.lib.executor.TaskStatus;
+import org.jbei.ice.lib.executor.TaskType;
+import org.jbei.ice.storage.IDataTransferModel;
+
+/**
+ * Data transfer object for a background task; its status, progress and timings
+ *
+ * @author Hector Plahar
+ */
+public class TaskInfo implements IDataTransferModel {
+
+    private long id;
+    private String name;
+    private TaskType type;
+    private TaskStatus status;
+    private long completed;
+    private long total;
+    private long submitTime;
+    private long startTime;
+    private long endTime;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public TaskType getType() {
+        return type;
+    }
+
+    public void setType(TaskType type) {
+        this.type = type;
+    }
+
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TaskStatus status) {
+        this.status = status;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getSubmitTime() {
+        return submitTime;
+    }
+
+    public void setSubmitTime(long submitTime) {
+        this.submitTime = submitTime;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(long endTime) {
+        this.endTime = endTime;
+    }
+}
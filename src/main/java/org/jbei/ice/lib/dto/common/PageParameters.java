@@ -11,6 +11,8 @@ import org.jbei.ice.lib.shared.ColumnField;
  * <li><code>asc</code>      sort order for folder content retrieval; ascending if true</li>
  * <li><code>start</code>    index of first item in retrieval</li>
  * <li><code>limit</code>    upper limit count of items to be retrieval</li>
+ * <li><code>continuation</code> token returned with the previous page for retrieving the page that follows it
+ * instead of retrieving by offset. An empty value retrieves the first page. Offset paging is used if not set</li>
  * </ul>
  *
  * @author Hector Plahar
@@ -22,6 +24,7 @@ public class PageParameters {
     private ColumnField sortField;
     private boolean ascending;
     private String filter;
+    private String continuation;
 
     public PageParameters() {
     }
@@ -73,4 +76,12 @@ public class PageParameters {
     public void setFilter(String filter) {
         this.filter = filter;
     }
+
+    public String getContinuation() {
+        return continuation;
+    }
+
+    public void setContinuation(String continuation) {
+        this.continuation = continuation;
+    }
 }
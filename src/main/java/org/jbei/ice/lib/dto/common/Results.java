@@ -14,6 +14,7 @@ public class Results<T extends IDataTransferModel> implements IDataTransferModel
 
     private long resultCount;
     private List<T> data;
+    private String continuation;
 
     public Results() {
         this.data = new LinkedList<>();
@@ -37,4 +38,16 @@ public class Results<T extends IDataTransferModel> implements IDataTransferModel
     public void setData(List<T> data) {
         this.data = data;
     }
+
+    /**
+     * @return token for retrieving the page that follows this one when paging by continuation token, or null if
+     * this is the last page or the page was retrieved by offset
+     */
+    public String getContinuation() {
+        return continuation;
+    }
+
+    public void setContinuation(String continuation) {
+        this.continuation = continuation;
+    }
 }
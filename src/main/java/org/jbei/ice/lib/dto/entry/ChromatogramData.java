@@ -0,0 +1,125 @@
+package org.jbei.ice.lib.dto.entry;
+
+import org.jbei.ice.storage.IDataTransferModel;
+
+import java.util.ArrayList;
+
+/**
+ * A range of the chromatogram of a sequence trace, downsampled into bins of <code>binSize</code> trace points
+ * with the minimum and maximum value of each channel in each bin. A bin size of 1 is the trace at full resolution
+ *
+ * @author Hector Plahar
+ */
+public class ChromatogramData implements IDataTransferModel {
+
+    private int traceLength;
+    private int start;
+    private int end;
+    private int binSize;
+    private ArrayList<Channel> channels = new ArrayList<>();
+    private ArrayList<Integer> basecallPositions = new ArrayList<>();
+    private String bases;
+
+    public int getTraceLength() {
+        return traceLength;
+    }
+
+    public void setTraceLength(int traceLength) {
+        this.traceLength = traceLength;
+    }
+
+    /**
+     * @return first trace point covered by the bins (inclusive)
+     */
+    public int getStart() {
+        return start;
+    }
+
+    public void setStart(int start) {
+        this.start = start;
+    }
+
+    /**
+     * @return last trace point covered by the bins (exclusive)
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    public void setEnd(int end) {
+        this.end = end;
+    }
+
+    public int getBinSize() {
+        return binSize;
+    }
+
+    public void setBinSize(int binSize) {
+        this.binSize = binSize;
+    }
+
+    public ArrayList<Channel> getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return trace positions of the base calls in the range
+     */
+    public ArrayList<Integer> getBasecallPositions() {
+        return basecallPositions;
+    }
+
+    /**
+     * @return called bases in the range, one for each basecall position
+     */
+    public String getBases() {
+        return bases;
+    }
+
+    public void setBases(String bases) {
+        this.bases = bases;
+    }
+
+    /**
+     * Downsampled values for the trace of a single base
+     */
+    public static class Channel implements IDataTransferModel {
+
+        private String base;
+        private int[] minima;
+        private int[] maxima;
+
+        public Channel() {
+        }
+
+        public Channel(String base, int[] minima, int[] maxima) {
+            this.base = base;
+            this.minima = minima;
+            this.maxima = maxima;
+        }
+
+        public String getBase() {
+            return base;
+        }
+
+        public void setBase(String base) {
+            this.base = base;
+        }
+
+        public int[] getMinima() {
+            return minima;
+        }
+
+        public void setMinima(int[] minima) {
+            this.minima = minima;
+        }
+
+        public int[] getMaxima() {
+            return maxima;
+        }
+
+        public void setMaxima(int[] maxima) {
+            this.maxima = maxima;
+        }
+    }
+}
@@ -22,6 +22,7 @@ public class FolderDetails extends AbstractFolder {
     private boolean canEdit;
     private FolderDetails parent;
     private RegistryPartner remotePartner;
+    private String continuation;      // token for the page of entries that follows this one
 
     public FolderDetails() {
         super();
@@ -114,4 +115,12 @@ public class FolderDetails extends AbstractFolder {
     public void setRemotePartner(RegistryPartner remotePartner) {
         this.remotePartner = remotePartner;
     }
+
+    public String getContinuation() {
+        return continuation;
+    }
+
+    public void setContinuation(String continuation) {
+        this.continuation = continuation;
+    }
 }
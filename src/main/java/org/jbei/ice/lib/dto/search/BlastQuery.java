@@ -13,6 +13,7 @@ public class BlastQuery implements IDataTransferModel {
 
     private BlastProgram blastProgram;
     private String sequence;
+    private boolean exactOnly;
 
     // required no arg constructor
     public BlastQuery() {
@@ -39,4 +40,17 @@ public class BlastQuery implements IDataTransferModel {
     public void setSequence(String sequence) {
         this.sequence = sequence;
     }
+
+    /**
+     * @return true if only exact and near exact (blastn) matches of the whole query are requested. These are found
+     * using the k-mer index without running blast, which is still run if the index cannot answer the query. Partial
+     * and local alignments are not returned
+     */
+    public boolean isExactOnly() {
+        return exactOnly;
+    }
+
+    public void setExactOnly(boolean exactOnly) {
+        this.exactOnly = exactOnly;
+    }
 }
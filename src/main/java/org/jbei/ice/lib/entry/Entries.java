@@ -12,6 +12,7 @@ import org.jbei.ice.lib.dto.search.SearchResult;
 import org.jbei.ice.lib.dto.search.SearchResults;
 import org.jbei.ice.lib.group.GroupController;
 import org.jbei.ice.lib.search.SearchController;
+import org.jbei.ice.lib.search.blast.BlastPlus;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.dao.EntryDAO;
 import org.jbei.ice.storage.hibernate.dao.PermissionDAO;
@@ -42,6 +43,7 @@ public class Entries extends HasEntry {
         if (!new AccountController().isAdministrator(userId) && !permissionDAO.canWrite(account, accountGroups, entryIds))
             return false;
 
+        List<Entry> changed = new ArrayList<>();
         for (long entryId : entryIds) {
             Entry entry = dao.get(entryId);
             if (entry.getVisibility() == visibility.getValue())
@@ -49,8 +51,11 @@ public class Entries extends HasEntry {
 
             entry.setVisibility(visibility.getValue());
             dao.update(entry);
+            changed.add(entry);
         }
 
+        BlastPlus.scheduleBlastIndexVisibilityTasks(changed);
+
         return true;
     }
 
@@ -2,43 +2,65 @@ package org.jbei.ice.lib.entry;
 
 import com.opencsv.CSVWriter;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.jbei.ice.lib.account.AccountType;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.dto.entry.EntryField;
 import org.jbei.ice.lib.dto.entry.EntryType;
-import org.jbei.ice.lib.entry.sequence.ByteArrayWrapper;
+import org.jbei.ice.lib.entry.sequence.InputStreamWrapper;
 import org.jbei.ice.lib.entry.sequence.SequenceController;
+import org.jbei.ice.lib.executor.IceExecutorService;
+import org.jbei.ice.lib.executor.TaskType;
 import org.jbei.ice.lib.group.GroupController;
 import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
 import org.jbei.ice.storage.hibernate.dao.EntryDAO;
 import org.jbei.ice.storage.hibernate.dao.PermissionDAO;
+import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
 import org.jbei.ice.storage.model.Account;
 import org.jbei.ice.storage.model.Entry;
 import org.jbei.ice.storage.model.Group;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipOutputStream;
 
 /**
- * Representation of a list of entries as a CSV file
+ * Representation of a list of entries as a CSV file, or, if sequence formats are specified, as a zip file
+ * containing the CSV file and the sequence files of the entries in those formats.
+ * <p>
+ * The output is streamed using constant memory regardless of the number of entries: entries are loaded in batches of
+ * {@link #BATCH_SIZE} and evicted from the session once written, and sequence files are formatted on a small pool
+ * of threads and copied straight into the zip output. The export can be written directly to a response (see
+ * {@link #prepare(String, EntrySelection)}) or to a temporary file.
  *
  * @author Hector Plahar
  */
 public class EntriesAsCSV {
 
+    private static final int BATCH_SIZE = 500;
+    private static final int FORMAT_WINDOW = 32;           // sequence files formatted ahead of the zip output
+    private static final int SUBMIT_RETRIES = 50;
+    private static final long SUBMIT_RETRY_MS = 100;
+    private static final long PREPARED_EXPIRY_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final ConcurrentHashMap<String, EntriesAsCSV> PREPARED = new ConcurrentHashMap<>();
+
     private Path csvPath;
     private List<Long> entries;
     private boolean includeSequences;
     private String[] formats;
     private EntryDAO dao;
+    private String userId;
+    private long preparedTime;
 
     public EntriesAsCSV(String... formats) {
         this.includeSequences = formats.length > 0;
@@ -86,34 +108,142 @@ public class EntriesAsCSV {
     }
 
     /**
-     * Iterate through list of entries and extract values
+     * Resolves the entries in the selection that the user can read, and keeps the export so that it can be streamed
+     * in a separate request using {@link #getPrepared(String)} and {@link #write(OutputStream)}. Prepared exports
+     * that are not retrieved expire after {@link #PREPARED_EXPIRY_MS}
+     *
+     * @param userId    identifier of user making request
+     * @param selection selection indicating source of entries
+     * @return unique token for retrieving the prepared export
+     */
+    public String prepare(String userId, EntrySelection selection) {
+        Entries retriever = new Entries();
+        this.entries = retriever.getEntriesFromSelectionContext(userId, selection);
+        this.userId = userId;
+        filterEntries(userId);
+
+        long now = System.currentTimeMillis();
+        Iterator<EntriesAsCSV> iterator = PREPARED.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().preparedTime + PREPARED_EXPIRY_MS < now)
+                iterator.remove();
+        }
+
+        this.preparedTime = now;
+        String token = Utils.generateUUID();
+        PREPARED.put(token, this);
+        return token;
+    }
+
+    /**
+     * Retrieves (and removes) a prepared export
+     *
+     * @param token unique token returned by {@link #prepare(String, EntrySelection)}
+     * @return the prepared export, or null if it does not exist or has expired
+     */
+    public static EntriesAsCSV getPrepared(String token) {
+        EntriesAsCSV export = PREPARED.remove(token);
+        if (export == null || export.preparedTime + PREPARED_EXPIRY_MS < System.currentTimeMillis())
+            return null;
+        return export;
+    }
+
+    /**
+     * @return name for the export file; a csv file or a zip file if sequences are included
+     */
+    public String getFileName() {
+        return includeSequences ? "entries.zip" : "entries.csv";
+    }
+
+    /**
+     * Iterate through list of entries and extract values to a temporary file
      *
      * @param userId identifier of user making request
      * @throws IOException on Exception write values to file
      */
     private void writeList(String userId) throws IOException {
+        this.userId = userId;
+        filterEntries(userId);
+        if (entries == null) {
+            Logger.warn("No entries to convert to csv format");
+            return;
+        }
+
+        Path tmpPath = Paths.get(Utils.getConfigValue(ConfigurationKey.TEMPORARY_DIRECTORY));
+        File tmpFile = includeSequences ? File.createTempFile("zip-", ".zip", tmpPath.toFile())
+                : File.createTempFile("ice-", ".csv", tmpPath.toFile());
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tmpFile))) {
+            write(outputStream);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmpFile.toPath());
+            throw e;
+        }
+        csvPath = tmpFile.toPath();
+    }
+
+    /**
+     * Filters the entries based on what the user is allowed to see if the user is not an admin
+     */
+    private void filterEntries(String userId) {
+        if (entries == null)
+            return;
 
-        // filter entries based on what the user is allowed to see if the user is not an admin
         Account account = DAOFactory.getAccountDAO().getByEmail(userId);
+        if (account.getType() == AccountType.ADMIN)
+            return;
+
         PermissionDAO permissionDAO = DAOFactory.getPermissionDAO();
         Set<Group> accountGroups = new GroupController().getAllGroups(account);
-        if (account.getType() != AccountType.ADMIN)
-            entries = permissionDAO.getCanReadEntries(account, accountGroups, entries);
+        Set<Long> readable = new HashSet<>();
+        for (int i = 0; i < entries.size(); i += BATCH_SIZE) {
+            List<Long> batch = entries.subList(i, Math.min(i + BATCH_SIZE, entries.size()));
+            readable.addAll(permissionDAO.getCanReadEntries(account, accountGroups, batch));
+        }
 
-        if (entries == null) {
-            Logger.warn("No entries to convert to csv format");
+        List<Long> filtered = new ArrayList<>(readable.size());
+        for (Long entryId : entries) {
+            if (readable.remove(entryId))
+                filtered.add(entryId);
+        }
+        entries = filtered;
+    }
+
+    /**
+     * Writes the export to the output stream. If sequences are included, the output is a zip file with the csv file
+     * as its first entry followed by the sequence files. The output stream is not closed
+     *
+     * @param outputStream stream to write the export to
+     * @throws IOException on exception writing to the stream
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        if (entries == null)
+            entries = new ArrayList<>();
+
+        List<EntryField> fields = getEntryFields();
+        if (!includeSequences) {
+            writeCSV(outputStream, fields);
             return;
         }
 
-        // write headers
-        Path tmpPath = Paths.get(Utils.getConfigValue(ConfigurationKey.TEMPORARY_DIRECTORY));
-        File tmpFile = File.createTempFile("ice-", ".csv", tmpPath.toFile());
-        csvPath = tmpFile.toPath();
-        FileWriter fileWriter = new FileWriter(tmpFile);
+        ZipOutputStream zos = new ZipOutputStream(new CloseShieldOutputStream(outputStream));
+        zos.putNextEntry(new ZipEntry("entries.csv"));
+        List<Long> sequenceEntries = writeCSV(zos, fields);
+        zos.closeEntry();
+        writeSequences(zos, sequenceEntries);
+        zos.close();
+    }
 
-        try (CSVWriter writer = new CSVWriter(fileWriter)) {
+    /**
+     * Writes the csv file, loading the entries in batches
+     *
+     * @return ids of the entries that have sequences, in the order they were written
+     */
+    private List<Long> writeCSV(OutputStream outputStream, List<EntryField> fields) throws IOException {
+        SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
+        List<Long> sequenceEntries = new ArrayList<>();
 
-            List<EntryField> fields = getEntryFields();
+        Writer streamWriter = new OutputStreamWriter(new CloseShieldOutputStream(outputStream));
+        try (CSVWriter writer = new CSVWriter(streamWriter)) {
 
             // get headers
             String[] headers = new String[fields.size() + 2];
@@ -126,88 +256,118 @@ public class EntriesAsCSV {
             headers[i + 1] = "Sequence File";
             writer.writeNext(headers);
 
-            Set<Long> sequenceSet = new HashSet<>();
-
             // write entry fields
-            for (long entryId : entries) {
-                Entry entry = dao.get(entryId);
-
-                //  get contents and write data out
-                String[] line = new String[fields.size() + 2];
-                line[0] = entry.getPartNumber();
-                i = 0;
-                for (EntryField field : fields) {
-                    line[i + 1] = EntryUtil.entryFieldToValue(entry, field);
-                    i += 1;
+            for (int start = 0; start < entries.size(); start += BATCH_SIZE) {
+                List<Long> batch = entries.subList(start, Math.min(start + BATCH_SIZE, entries.size()));
+                List<Entry> batchEntries = dao.getEntriesForExport(batch);
+                Map<Long, Entry> entryMap = new HashMap<>();
+                for (Entry entry : batchEntries) {
+                    entryMap.put(entry.getId(), entry);
                 }
 
-                if (this.includeSequences && DAOFactory.getSequenceDAO().hasSequence(entryId)) {
-                    line[i + 1] = DAOFactory.getSequenceDAO().getSequenceFilename(entry);
-                    // todo : get sequences
-                    sequenceSet.add(entryId);
-                } else {
-                    line[i + 1] = "";
+                Map<Long, String> sequenceFileNames = this.includeSequences
+                        ? sequenceDAO.getSequenceFilenames(batch) : new HashMap<Long, String>();
+
+                for (long entryId : batch) {
+                    Entry entry = entryMap.get(entryId);
+                    if (entry == null)
+                        continue;
+
+                    //  get contents and write data out
+                    String[] line = new String[fields.size() + 2];
+                    line[0] = entry.getPartNumber();
+                    i = 0;
+                    for (EntryField field : fields) {
+                        line[i + 1] = EntryUtil.entryFieldToValue(entry, field);
+                        i += 1;
+                    }
+
+                    String sequenceFileName = sequenceFileNames.get(entryId);
+                    if (sequenceFileName != null) {
+                        line[i + 1] = sequenceFileName;
+                        sequenceEntries.add(entryId);
+                    } else {
+                        line[i + 1] = "";
+                    }
+
+                    writer.writeNext(line);
                 }
 
-                writer.writeNext(line);
+                writer.flush();
+                dao.evict(batchEntries);
             }
-
-            writer.close();
-            writeZip(userId, sequenceSet);
         }
+        return sequenceEntries;
     }
 
-    private boolean writeZip(String userId, Set<Long> sequenceSet) {
-        SequenceController sequenceController = new SequenceController();
-        Path tmpPath = Paths.get(Utils.getConfigValue(ConfigurationKey.TEMPORARY_DIRECTORY));
-        try {
-            File tmpZip = File.createTempFile("zip-", ".zip", tmpPath.toFile());
-
-            // out
-            FileOutputStream fos = new FileOutputStream(tmpZip);
-            ZipOutputStream zos = new ZipOutputStream(fos);
+    /**
+     * Writes the sequence files for the entries to the zip output in each of the formats. Files are formatted (or
+     * retrieved from the sequence file cache) on the shared {@link TaskType#EXPORT} pool, each with its own session,
+     * at most {@link #FORMAT_WINDOW} files ahead of the output. If the export is aborted, the files that have been
+     * formatted but not written are closed
+     */
+    private void writeSequences(ZipOutputStream zos, List<Long> sequenceEntries) throws IOException {
+        if (sequenceEntries.isEmpty())
+            return;
 
-            // get sequence formats
-            for (long entryId : sequenceSet) {
+        Deque<SequenceFile> pending = new ArrayDeque<>();
+        try {
+            for (long entryId : sequenceEntries) {
                 for (String format : formats) {
-                    ByteArrayWrapper wrapper = sequenceController.getSequenceFile(userId, entryId, format);
-                    putZipEntry(wrapper, zos);
+                    SequenceFile file = new SequenceFile(userId, entryId, format);
+                    submit(file, pending, zos);
+                    pending.add(file);
+
+                    if (pending.size() >= FORMAT_WINDOW)
+                        putZipEntry(pending.poll().future, zos);
                 }
             }
 
-            // write the csv file
-            FileInputStream fis = new FileInputStream(csvPath.toFile());
-            ByteArrayWrapper wrapper = new ByteArrayWrapper(IOUtils.toByteArray(fis), "entries.csv");
-            putZipEntry(wrapper, zos);
-            zos.close();
-            csvPath = tmpZip.toPath();
-            return true;
-        } catch (Exception e) {
-            Logger.error(e);
-            return false;
+            while (!pending.isEmpty()) {
+                putZipEntry(pending.poll().future, zos);
+            }
+        } finally {
+            for (SequenceFile file : pending) {
+                file.discard();
+            }
         }
     }
 
-    protected void putZipEntry(ByteArrayWrapper wrapper, ZipOutputStream zos) {
-        try {
-            byte[] buffer = new byte[1024];
+    /**
+     * Submits the file to be formatted. When the export pool's queue is full (e.g. other exports are running),
+     * pending files are written to make room before retrying; if there are none the submission is retried after
+     * a pause
+     */
+    private void submit(SequenceFile file, Deque<SequenceFile> pending, ZipOutputStream zos) throws IOException {
+        int retries = 0;
+        while (true) {
+            try {
+                file.future = IceExecutorService.getInstance().submit(TaskType.EXPORT, file);
+                return;
+            } catch (RejectedExecutionException e) {
+                if (!pending.isEmpty()) {
+                    putZipEntry(pending.poll().future, zos);
+                    continue;
+                }
 
-            zos.putNextEntry(new ZipEntry(wrapper.getName()));
+                if (++retries > SUBMIT_RETRIES)
+                    throw new IOException("Could not format sequences for export: " + e.getMessage());
 
-            ByteArrayInputStream bis = new ByteArrayInputStream(wrapper.getBytes());
-            int length;
-            while ((length = bis.read(buffer)) > 0) {
-                zos.write(buffer, 0, length);
+                try {
+                    Thread.sleep(SUBMIT_RETRY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while formatting sequence");
+                }
             }
-            bis.close();
-            zos.closeEntry();
-        } catch (Exception e) {
-            Logger.error(e);
         }
     }
 
     protected List<EntryField> getEntryFields() {
-        Set<String> recordTypes = new HashSet<>(dao.getRecordTypes(entries));
+        Set<String> recordTypes = new HashSet<>();
+        for (int i = 0; i < entries.size(); i += BATCH_SIZE) {
+            recordTypes.addAll(dao.getRecordTypes(entries.subList(i, Math.min(i + BATCH_SIZE, entries.size()))));
+        }
         List<EntryField> fields = EntryFields.getCommonFields();
 
         for (String recordType : recordTypes) {
@@ -238,4 +398,64 @@ public class EntriesAsCSV {
     public Path getFilePath() {
         return csvPath;
     }
+
+    /**
+     * Sequence file of an entry in one of the formats, formatted on the export pool. A file that is discarded
+     * before it starts is not formatted, and the stream of one that is discarded after it has started is closed
+     * once it has been formatted
+     */
+    private static class SequenceFile implements Callable<InputStreamWrapper> {
+
+        private final String userId;
+        private final long entryId;
+        private final String format;
+        private final AtomicBoolean claimed;
+        private Future<InputStreamWrapper> future;
+
+        SequenceFile(String userId, long entryId, String format) {
+            this.userId = userId;
+            this.entryId = entryId;
+            this.format = format;
+            this.claimed = new AtomicBoolean(false);
+        }
+
+        @Override
+        public InputStreamWrapper call() throws Exception {
+            if (!claimed.compareAndSet(false, true))
+                return null;
+
+            HibernateUtil.beginTransaction();
+            try {
+                SequenceController sequenceController = new SequenceController();
+                InputStreamWrapper wrapper = sequenceController.getSequenceFileStream(userId, entryId, format);
+                HibernateUtil.commitTransaction();
+                return wrapper;
+            } catch (Exception e) {
+                HibernateUtil.rollbackTransaction();
+                throw e;
+            }
+        }
+
+        void discard() {
+            if (future == null)
+                return;
+
+            // not started; it will not be run
+            if (claimed.compareAndSet(false, true)) {
+                future.cancel(false);
+                return;
+            }
+
+            try {
+                InputStreamWrapper wrapper = future.get();
+                if (wrapper != null)
+                    IOUtils.closeQuietly(wrapper.getInputStream());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Logger.warn("Interrupted while discarding sequence file for entry " + entryId);
+            } catch (ExecutionException e) {
+                // nothing to close
+            }
+        }
+    }
 }
@@ -1,16 +1,15 @@
 package org.jbei.ice.lib.entry;
 
 import org.jbei.ice.lib.access.Authorization;
-import org.jbei.ice.lib.access.PermissionsController;
-import org.jbei.ice.lib.dto.folder.FolderType;
+import org.jbei.ice.lib.account.PrincipalContext;
 import org.jbei.ice.lib.group.GroupController;
 import org.jbei.ice.storage.DAOFactory;
-import org.jbei.ice.storage.hibernate.dao.PermissionDAO;
+import org.jbei.ice.storage.hibernate.dao.EntryAccessDAO;
 import org.jbei.ice.storage.model.Account;
 import org.jbei.ice.storage.model.Entry;
-import org.jbei.ice.storage.model.Folder;
-import org.jbei.ice.storage.model.Group;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -18,58 +17,37 @@ import java.util.Set;
  */
 public class EntryAuthorization extends Authorization<Entry> {
 
-    private final PermissionDAO permissionDAO;
+    private final EntryAccessDAO entryAccessDAO;
     private final GroupController groupController;
 
     public EntryAuthorization() {
         super(DAOFactory.getEntryDAO());
-        permissionDAO = DAOFactory.getPermissionDAO();
+        entryAccessDAO = DAOFactory.getEntryAccessDAO();
         groupController = new GroupController();
     }
 
+    /**
+     * Determines if the user can read the entry. Without a user, only entries that have been shared with the public
+     * group through a permission on the entry itself can be read; entries that are only in public folders (or in
+     * folders shared with the public group) cannot. {@link #filterReadable(String, Collection)} applies the same rules
+     *
+     * @param userId unique identifier for user. Can be null
+     * @param entry  entry being read
+     * @return true if the user can read the entry
+     */
     public boolean canRead(String userId, Entry entry) {
+        if (userId == null)
+            return entryAccessDAO.isSharedWithGroups(entry.getId(), getPublicGroupIds());
+
         // super checks for owner or admin
-        if (userId == null) {
-            return new PermissionsController().isPubliclyVisible(entry);
-        }
 
         if (super.canRead(userId, entry) || super.canWrite(userId, entry))
             return true;
 
+        // read or write permission for the account or any of its groups (or their parent groups), set on the entry
+        // or on a folder that contains it, or entry is in a public folder
         Account account = getAccount(userId);
-
-        // get groups for account. if account is null, this will return everyone group
-        Set<Group> accountGroups = groupController.getAllGroups(account);
-
-        // check read permission through group membership
-        // ie. belongs to group that has read privileges for entry (or a group whose parent group does)
-        if (permissionDAO.hasPermissionMulti(entry, null, null, accountGroups, true, false))
-            return true;
-
-        if (permissionDAO.hasPermissionMulti(entry, null, null, accountGroups, false, true))
-            return true;
-
-        // check explicit read permission
-        if (permissionDAO.hasPermissionMulti(entry, null, account, null, true, false))
-            return true;
-
-        Set<Folder> entryFolders = entry.getFolders();
-
-        // is in a public folder
-        for (Folder folder : entryFolders) {
-            if (folder.getType() == FolderType.PUBLIC)
-                return true;
-        }
-
-        // can any group that account belongs to read any folder that entry is contained in?
-        if (permissionDAO.hasPermissionMulti(null, entryFolders, null, accountGroups, true, false))
-            return true;
-
-        // can account read any folder that entry is contained in?
-        if (permissionDAO.hasPermissionMulti(null, entryFolders, account, null, true, false))
-            return true;
-
-        return canWrite(userId, entry);
+        return entryAccessDAO.hasReadAccess(entry.getId(), account, getGroupIds(account));
     }
 
     @Override
@@ -80,10 +58,7 @@ public class EntryAuthorization extends Authorization<Entry> {
         Account account = getAccount(userId);
 
         // check explicit write permission
-        if (permissionDAO.hasPermissionMulti(entry, null, account, null, false, true))
-            return true;
-
-        return false;
+        return entryAccessDAO.hasEntryWriteAccess(entry.getId(), account);
     }
 
     public boolean canWriteThoroughCheck(String userId, Entry entry) {
@@ -94,29 +69,91 @@ public class EntryAuthorization extends Authorization<Entry> {
         if (super.canWrite(userId, entry))
             return true;
 
+        // write permission for the account or any of its groups, set on the entry or on a folder that contains it
         Account account = getAccount(userId);
+        return entryAccessDAO.hasWriteAccess(entry.getId(), account, getGroupIds(account));
+    }
 
-        // check write accounts for entry
-        if (permissionDAO.hasPermission(entry, null, null, account, null, false, true))
-            return true;
+    /**
+     * Retrieves the subset of the specified entries that the user can read. This is the set based equivalent of
+     * calling {@link #canRead(String, Entry)} for each entry and uses a single lookup for every batch of entries
+     *
+     * @param userId  unique identifier for user. If null, only entries that have been shared with the public group
+     *                through a permission on the entry itself are returned
+     * @param entries entries to filter
+     * @return ids of the entries that the user can read
+     */
+    public Set<Long> filterReadable(String userId, Collection<Entry> entries) {
+        Set<Long> readable = new HashSet<>();
+        Set<Long> toCheck = new HashSet<>();
+        boolean isAdmin = userId != null && isAdmin(userId);
+
+        for (Entry entry : entries) {
+            if (entry == null)
+                continue;
+
+            if (isAdmin || (userId != null && isOwner(userId, entry)))
+                readable.add(entry.getId());
+            else
+                toCheck.add(entry.getId());
+        }
 
-        // get groups for account
-        Set<Group> accountGroups = groupController.getAllGroups(account);
+        if (toCheck.isEmpty())
+            return readable;
 
-        // check group permissions
-        if (permissionDAO.hasPermissionMulti(entry, null, null, accountGroups, false, true))
-            return true;
+        if (userId == null) {
+            readable.addAll(entryAccessDAO.filterSharedWithGroups(getPublicGroupIds(), toCheck));
+            return readable;
+        }
 
-        Set<Folder> entryFolders = entry.getFolders();
-        if (entryFolders == null || entryFolders.isEmpty())
-            return false;
+        Account account = getAccount(userId);
+        readable.addAll(entryAccessDAO.filterReadable(account, getGroupIds(account), toCheck));
+        return readable;
+    }
 
-        // can any group that account belongs to read any folder that entry is contained in?
-        if (permissionDAO.hasPermissionMulti(null, entryFolders, null, accountGroups, false, true))
-            return true;
+    /**
+     * Retrieves the subset of the specified entries that the user can write. This is the set based equivalent of
+     * calling {@link #canWriteThoroughCheck(String, Entry)} for each entry and uses a single lookup for every batch
+     * of entries
+     *
+     * @param userId  unique identifier for user. If null, no entries are returned
+     * @param entries entries to filter
+     * @return ids of the entries that the user can write
+     */
+    public Set<Long> filterWritable(String userId, Collection<Entry> entries) {
+        Set<Long> writable = new HashSet<>();
+        if (userId == null)
+            return writable;
+
+        Set<Long> toCheck = new HashSet<>();
+        boolean isAdmin = isAdmin(userId);
+        for (Entry entry : entries) {
+            if (entry == null)
+                continue;
+
+            if (isAdmin || isOwner(userId, entry))
+                writable.add(entry.getId());
+            else
+                toCheck.add(entry.getId());
+        }
+
+        if (toCheck.isEmpty())
+            return writable;
+
+        Account account = getAccount(userId);
+        writable.addAll(entryAccessDAO.filterWritable(account, getGroupIds(account), toCheck));
+        return writable;
+    }
+
+    // ids of the groups (including parent groups and the public group) that the account belongs to
+    private Set<Long> getGroupIds(Account account) {
+        return PrincipalContext.getGroupIds(account);
+    }
 
-        // can account read any folder that entry is contained in?
-        return permissionDAO.hasPermissionMulti(null, entryFolders, account, null, false, true);
+    private Set<Long> getPublicGroupIds() {
+        Set<Long> publicGroup = new HashSet<>();
+        publicGroup.add(groupController.createOrRetrievePublicGroup().getId());
+        return publicGroup;
     }
 
     @Override
@@ -16,6 +16,7 @@ import org.jbei.ice.lib.dto.sample.PartSample;
 import org.jbei.ice.lib.dto.user.PreferenceKey;
 import org.jbei.ice.lib.dto.web.RegistryPartner;
 import org.jbei.ice.lib.entry.sequence.SequenceAnalysisController;
+import org.jbei.ice.lib.search.blast.BlastPlus;
 import org.jbei.ice.servlet.InfoToModelFactory;
 import org.jbei.ice.storage.DAOException;
 import org.jbei.ice.storage.DAOFactory;
@@ -71,12 +72,17 @@ public class EntryController extends HasEntry {
 
         Entry entry = InfoToModelFactory.updateEntryField(part, existing);
         entry.setModificationTime(Calendar.getInstance().getTime());
+        boolean published = false;
         if (entry.getVisibility() == Visibility.DRAFT.getValue()) {
             List<EntryField> invalidFields = EntryUtil.validates(part);
-            if (invalidFields.isEmpty())
+            if (invalidFields.isEmpty()) {
                 entry.setVisibility(Visibility.OK.getValue());
+                published = true;
+            }
         }
         entry = dao.update(entry);
+        if (published)
+            BlastPlus.scheduleBlastIndexVisibilityTasks(Collections.singletonList(entry));
 
         // check pi email
         String piEmail = entry.getPrincipalInvestigatorEmail();
@@ -104,9 +110,14 @@ public class EntryController extends HasEntry {
         authorization.expectWrite(userId, entry);
 
         entry.setModificationTime(Calendar.getInstance().getTime());
-        if (entry.getVisibility() == null)
+        boolean published = false;
+        if (entry.getVisibility() == null) {
             entry.setVisibility(Visibility.OK.getValue());
+            published = true;
+        }
         entry = dao.update(entry);
+        if (published)
+            BlastPlus.scheduleBlastIndexVisibilityTasks(Collections.singletonList(entry));
 
         // check pi email
         String piEmail = entry.getPrincipalInvestigatorEmail();
@@ -268,6 +279,7 @@ public class EntryController extends HasEntry {
                 entry.setVisibility(Visibility.DELETED.getValue());
                 dao.update(entry);
             }
+            BlastPlus.scheduleBlastIndexVisibilityTasks(toTrash);
         } catch (DAOException de) {
             Logger.error(de);
             return false;
@@ -393,12 +405,19 @@ public class EntryController extends HasEntry {
         // retrieve more information about linked entries if any (default only contains id)
         if (partData.getLinkedParts() != null) {
             ArrayList<PartData> newLinks = new ArrayList<>();
+            List<Entry> linkedEntries = new ArrayList<>(partData.getLinkedParts().size());
             for (PartData link : partData.getLinkedParts()) {
                 Entry linkedEntry = dao.get(link.getId());
-                if (!authorization.canRead(userId, linkedEntry))
+                if (linkedEntry != null)
+                    linkedEntries.add(linkedEntry);
+            }
+
+            Set<Long> readable = authorization.filterReadable(userId, linkedEntries);
+            for (Entry linkedEntry : linkedEntries) {
+                if (!readable.contains(linkedEntry.getId()))
                     continue;
 
-                link = ModelToInfoFactory.createTipView(linkedEntry);
+                PartData link = ModelToInfoFactory.createTipView(linkedEntry);
                 String sequenceString = sequenceDAO.getSequenceString(linkedEntry);
 
                 if (sequenceString != null) {
@@ -417,8 +436,9 @@ public class EntryController extends HasEntry {
         if (parents == null)
             return partData;
 
+        Set<Long> readableParents = authorization.filterReadable(userId, parents);
         for (Entry parent : parents) {
-            if (!authorization.canRead(userId, parent))
+            if (!readableParents.contains(parent.getId()))
                 continue;
 
             if (parent.getVisibility() != Visibility.OK.getValue() && !authorization.canWriteThoroughCheck(userId, entry))
@@ -450,6 +470,7 @@ public class EntryController extends HasEntry {
             return false;
         }
 
+        List<TraceSequence> traceSequences = new ArrayList<>();
         if (uploadFileName.toLowerCase().endsWith(".zip")) {
             try (ZipInputStream zis = new ZipInputStream(inputStream)) {
                 ZipEntry zipEntry;
@@ -465,7 +486,7 @@ public class EntryController extends HasEntry {
                             }
 
                             boolean parsed = parseTraceSequence(userId, entry, zipEntry.getName(),
-                                    byteArrayOutputStream.toByteArray());
+                                    byteArrayOutputStream.toByteArray(), traceSequences);
                             if (!parsed) {
                                 String errMsg = ("Could not parse \"" + zipEntry.getName()
                                         + "\". Only Fasta, GenBank & ABI files are supported.");
@@ -484,7 +505,8 @@ public class EntryController extends HasEntry {
             }
         } else {
             try {
-                boolean parsed = parseTraceSequence(userId, entry, uploadFileName, IOUtils.toByteArray(inputStream));
+                boolean parsed = parseTraceSequence(userId, entry, uploadFileName, IOUtils.toByteArray(inputStream),
+                        traceSequences);
                 if (!parsed) {
                     String errMsg = ("Could not parse \"" + uploadFileName
                             + "\". Only Fasta, GenBank & ABI files are supported.");
@@ -497,11 +519,16 @@ public class EntryController extends HasEntry {
             }
         }
 
+        // align all the uploaded traces together so that the alignments are computed in parallel
+        Sequence sequence = DAOFactory.getSequenceDAO().getByEntry(entry);
+        if (sequence != null)
+            sequenceAnalysisController.rebuildAlignments(traceSequences, sequence);
         return true;
     }
 
-    // uploads trace sequence file and builds or rebuilds alignment
-    private boolean parseTraceSequence(String userId, Entry entry, String fileName, byte[] bytes) {
+    // uploads trace sequence file. The alignment is built by the caller
+    private boolean parseTraceSequence(String userId, Entry entry, String fileName, byte[] bytes,
+                                       List<TraceSequence> traceSequences) {
         DNASequence dnaSequence = sequenceAnalysisController.parse(bytes);
         if (dnaSequence == null || dnaSequence.getSequence() == null) {
             String errMsg = ("Could not parse \"" + fileName
@@ -516,10 +543,7 @@ public class EntryController extends HasEntry {
         if (traceSequence == null)
             return false;
 
-        Sequence sequence = DAOFactory.getSequenceDAO().getByEntry(entry);
-        if (sequence == null)
-            return true;
-        sequenceAnalysisController.buildOrRebuildAlignment(traceSequence, sequence);
+        traceSequences.add(traceSequence);
         return true;
     }
 }
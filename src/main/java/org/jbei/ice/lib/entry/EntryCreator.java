@@ -115,9 +115,9 @@ public class EntryCreator {
             }
         }
 
-        // rebuild blast database
+        // update blast database
         if (sequenceDAO.hasSequence(entry.getId())) {
-            BlastPlus.scheduleBlastIndexRebuildTask(true);
+            BlastPlus.scheduleBlastIndexUpdateTask(sequenceDAO.getByEntry(entry));
         }
 
         return entry;
@@ -227,8 +227,8 @@ public class EntryCreator {
             FeaturedDNASequence dnaSequence = sequenceController.sequenceToDNASequence(sequence);
             sequence = SequenceController.dnaSequenceToSequence(dnaSequence);
             sequence.setEntry(entry);
-            sequenceDAO.saveSequence(sequence);
-            BlastPlus.scheduleBlastIndexRebuildTask(true);
+            sequence = sequenceDAO.saveSequence(sequence);
+            BlastPlus.scheduleBlastIndexUpdateTask(sequence);
         }
 
         return entry.getId();
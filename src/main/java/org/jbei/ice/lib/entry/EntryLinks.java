@@ -9,6 +9,7 @@ import org.jbei.ice.storage.model.Entry;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents a main part and the hierarchical links that it is involved in.
@@ -145,8 +146,9 @@ public class EntryLinks {
      */
     public List<PartData> getChildren() {
         List<PartData> children = new ArrayList<>(this.entry.getLinkedEntries().size());
+        Set<Long> readable = entryAuthorization.filterReadable(this.userId, this.entry.getLinkedEntries());
         for (Entry childEntry : this.entry.getLinkedEntries()) {
-            if (!entryAuthorization.canRead(this.userId, childEntry))
+            if (!readable.contains(childEntry.getId()))
                 continue;
             children.add(childEntry.toDataTransferObject());
         }
@@ -161,8 +163,9 @@ public class EntryLinks {
     public List<PartData> getParents() {
         List<Entry> parents = this.entryDAO.getParents(this.entry.getId());
         List<PartData> parentData = new ArrayList<>(parents.size());
+        Set<Long> readable = entryAuthorization.filterReadable(this.userId, parents);
         for (Entry parent : parents) {
-            if (!entryAuthorization.canRead(this.userId, parent))
+            if (!readable.contains(parent.getId()))
                 continue;
             parentData.add(parent.toDataTransferObject());
         }
@@ -1,5 +1,7 @@
 package org.jbei.ice.lib.entry;
 
+import org.jbei.ice.lib.dto.common.PageParameters;
+import org.jbei.ice.lib.dto.common.Results;
 import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.group.GroupController;
 import org.jbei.ice.lib.shared.ColumnField;
@@ -7,11 +9,11 @@ import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.ModelToInfoFactory;
 import org.jbei.ice.storage.hibernate.dao.AccountDAO;
 import org.jbei.ice.storage.hibernate.dao.EntryDAO;
+import org.jbei.ice.storage.hibernate.dao.EntryKeyset;
 import org.jbei.ice.storage.model.Account;
 import org.jbei.ice.storage.model.Entry;
 import org.jbei.ice.storage.model.Group;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -59,10 +61,20 @@ public class OwnerEntries {
     }
 
     public List<PartData> retrieveOwnerEntries(ColumnField sort, boolean asc, int start, int limit, String filter) {
+        return retrieveOwnerEntries(new PageParameters(start, limit, sort, asc, filter)).getData();
+    }
+
+    /**
+     * Retrieves a page of the owner's entries that the requester can read
+     *
+     * @param pageParameters paging parameters; pages are retrieved by offset or by continuation token
+     * @return wrapper around the page of entries and, when paging by continuation token, the token for the next page
+     */
+    public Results<PartData> retrieveOwnerEntries(PageParameters pageParameters) {
         List<Entry> entries;
 
         if (this.isAdmin || this.isSelf) {
-            entries = entryDAO.retrieveOwnerEntries(this.ownerAccount.getEmail(), sort, asc, start, limit, filter);
+            entries = entryDAO.retrieveOwnerEntries(this.ownerAccount.getEmail(), pageParameters);
         } else {
             Set<Group> accountGroups = new HashSet<>(account.getGroups());
             GroupController controller = new GroupController();
@@ -70,15 +82,16 @@ public class OwnerEntries {
             accountGroups.add(everybodyGroup);
             // retrieve entries for user that can be read by others
             entries = entryDAO.retrieveUserEntries(account, this.ownerAccount.getEmail(),
-                    accountGroups, sort, asc, start, limit, filter);
+                    accountGroups, pageParameters);
         }
 
-        ArrayList<PartData> data = new ArrayList<>();
+        Results<PartData> data = new Results<>();
         for (Entry entry : entries) {
             PartData info = ModelToInfoFactory.createTableViewData(account.getEmail(), entry, false);
             info.setViewCount(DAOFactory.getAuditDAO().getHistoryCount(entry));
-            data.add(info);
+            data.getData().add(info);
         }
+        data.setContinuation(EntryKeyset.createContinuation(pageParameters, entries));
         return data;
     }
 
@@ -1,16 +1,18 @@
 package org.jbei.ice.lib.entry;
 
+import org.jbei.ice.lib.dto.common.PageParameters;
+import org.jbei.ice.lib.dto.common.Results;
 import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.group.GroupController;
 import org.jbei.ice.lib.shared.ColumnField;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.ModelToInfoFactory;
 import org.jbei.ice.storage.hibernate.dao.EntryDAO;
+import org.jbei.ice.storage.hibernate.dao.EntryKeyset;
 import org.jbei.ice.storage.model.Account;
 import org.jbei.ice.storage.model.Entry;
 import org.jbei.ice.storage.model.Group;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -41,18 +43,29 @@ public class SharedEntries {
     }
 
     public List<PartData> getEntries(ColumnField field, boolean asc, int start, int limit, String filter) {
+        return getEntries(new PageParameters(start, limit, field, asc, filter)).getData();
+    }
+
+    /**
+     * Retrieves a page of the entries shared with the user
+     *
+     * @param pageParameters paging parameters; pages are retrieved by offset or by continuation token
+     * @return wrapper around the page of entries and, when paging by continuation token, the token for the next page
+     */
+    public Results<PartData> getEntries(PageParameters pageParameters) {
         GroupController groupController = new GroupController();
         Group publicGroup = groupController.createOrRetrievePublicGroup();
         Set<Group> accountGroups = account.getGroups();
         accountGroups.remove(publicGroup);
-        List<Entry> entries = this.entryDAO.sharedWithUserEntries(account, accountGroups, field, asc, start, limit, filter);
+        List<Entry> entries = this.entryDAO.sharedWithUserEntries(account, accountGroups, pageParameters);
 
-        ArrayList<PartData> data = new ArrayList<>();
+        Results<PartData> data = new Results<>();
         for (Entry entry : entries) {
             PartData info = ModelToInfoFactory.createTableViewData(account.getEmail(), entry, false);
             info.setViewCount(DAOFactory.getAuditDAO().getHistoryCount(entry));
-            data.add(info);
+            data.getData().add(info);
         }
+        data.setContinuation(EntryKeyset.createContinuation(pageParameters, entries));
         return data;
     }
 }
@@ -1,16 +1,18 @@
 package org.jbei.ice.lib.entry;
 
+import org.jbei.ice.lib.dto.common.PageParameters;
+import org.jbei.ice.lib.dto.common.Results;
 import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.group.GroupController;
 import org.jbei.ice.lib.shared.ColumnField;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.ModelToInfoFactory;
 import org.jbei.ice.storage.hibernate.dao.EntryDAO;
+import org.jbei.ice.storage.hibernate.dao.EntryKeyset;
 import org.jbei.ice.storage.model.Account;
 import org.jbei.ice.storage.model.Entry;
 import org.jbei.ice.storage.model.Group;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -38,27 +40,37 @@ public class VisibleEntries {
     }
 
     public List<PartData> getEntries(ColumnField field, boolean asc, int start, int limit, String filter) {
+        return getEntries(new PageParameters(start, limit, field, asc, filter)).getData();
+    }
+
+    /**
+     * Retrieves a page of the entries visible to the user
+     *
+     * @param pageParameters paging parameters; pages are retrieved by offset or by continuation token
+     * @return wrapper around the page of entries and, when paging by continuation token, the token for the next page
+     */
+    public Results<PartData> getEntries(PageParameters pageParameters) {
         Set<Entry> results;
 
         if (isAdmin) {
             // no filters
-            results = dao.retrieveAllEntries(field, asc, start, limit, filter);
+            results = dao.retrieveAllEntries(pageParameters);
         } else {
             // retrieve groups for account and filter by permission
             Set<Group> accountGroups = new HashSet<>(account.getGroups());
             GroupController controller = new GroupController();
             Group everybodyGroup = controller.createOrRetrievePublicGroup();
             accountGroups.add(everybodyGroup);
-            results = dao.retrieveVisibleEntries(account, accountGroups, field, asc, start, limit, filter);
+            results = dao.retrieveVisibleEntries(account, accountGroups, pageParameters);
         }
 
-        ArrayList<PartData> data = new ArrayList<>();
+        Results<PartData> data = new Results<>();
         for (Entry entry : results) {
             PartData info = ModelToInfoFactory.createTableViewData(account.getEmail(), entry, false);
             info.setViewCount(DAOFactory.getAuditDAO().getHistoryCount(entry));
-            data.add(info);
+            data.getData().add(info);
         }
-
+        data.setContinuation(EntryKeyset.createContinuation(pageParameters, results));
         return data;
     }
 
@@ -0,0 +1,141 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.utils.SequenceUtils;
+import org.jbei.ice.lib.utils.UtilityException;
+import org.jbei.ice.storage.DAOException;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.dao.FeatureDAO;
+import org.jbei.ice.storage.model.Feature;
+import org.jbei.ice.storage.model.SequenceFeature;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Resolves the features of sequences being saved to the unique {@link Feature} stored for each feature sequence,
+ * creating the features that do not exist yet. A feature matches a stored feature whose hash is the hash of either
+ * the feature sequence or its reverse complement.
+ * <p>
+ * The stored features for all the features of a sequence are looked up with a single batched query
+ * (see {@link #prefetch(Collection)}) rather than one query per feature, and the resolved features are kept in
+ * memory. A resolver is not thread safe and is valid only for the session in which it is used; a bulk operation that
+ * saves many sequences in the same transaction can share one resolver so features common to the sequences are looked
+ * up and created only once
+ *
+ * @author Hector Plahar
+ */
+public class FeatureResolver {
+
+    private final FeatureDAO dao;
+
+    // hash -> stored (or newly created) feature with that hash
+    private final HashMap<String, Feature> features;
+
+    // hashes known not to match any stored feature
+    private final HashSet<String> missing;
+
+    // hash of feature sequence -> hash of its reverse complement (null if the sequence has no reverse complement)
+    private final HashMap<String, String> reverseHashes;
+
+    public FeatureResolver() {
+        this.dao = DAOFactory.getFeatureDAO();
+        this.features = new HashMap<>();
+        this.missing = new HashSet<>();
+        this.reverseHashes = new HashMap<>();
+    }
+
+    /**
+     * Looks up, in a single batch, the stored features for all the specified sequence features that have not already
+     * been resolved
+     *
+     * @param sequenceFeatures sequence features whose features are about to be resolved
+     * @throws DAOException on exception retrieving the features
+     */
+    public void prefetch(Collection<SequenceFeature> sequenceFeatures) {
+        if (sequenceFeatures == null)
+            return;
+
+        Set<String> hashes = new HashSet<>();
+        for (SequenceFeature sequenceFeature : sequenceFeatures) {
+            Feature feature = sequenceFeature.getFeature();
+            if (feature == null || feature.getSequence() == null)
+                continue;
+
+            String hash = SequenceUtils.calculateSequenceHash(feature.getSequence());
+            addUnknown(hashes, hash);
+            addUnknown(hashes, getReverseHash(hash, feature.getSequence()));
+        }
+
+        lookup(hashes);
+    }
+
+    /**
+     * Retrieves the stored feature with the same sequence (on either strand) as the specified feature, or saves the
+     * specified feature if there is none. Features that have not been prefetched are looked up individually
+     *
+     * @param feature feature to resolve
+     * @return stored feature for the sequence of the specified feature. This is the specified feature if it was saved
+     * @throws DAOException if the feature does not match a stored feature and its sequence is not a valid dna
+     *                      sequence, or on exception retrieving or saving the feature
+     */
+    public Feature resolve(Feature feature) {
+        String hash = SequenceUtils.calculateSequenceHash(feature.getSequence());
+        String reverseHash = getReverseHash(hash, feature.getSequence());
+        Set<String> hashes = new HashSet<>();
+        addUnknown(hashes, hash);
+        addUnknown(hashes, reverseHash);
+        lookup(hashes);
+
+        Feature existing = features.get(hash);
+        if (existing == null && reverseHash != null)
+            existing = features.get(reverseHash);
+        if (existing != null)
+            return existing;
+
+        if (reverseHash == null)
+            throw new DAOException("Failed to get Feature by sequence!");
+
+        Feature created = dao.create(feature);
+        features.put(hash, created);
+        missing.remove(hash);
+        return created;
+    }
+
+    private void lookup(Set<String> hashes) {
+        if (hashes.isEmpty())
+            return;
+
+        missing.addAll(hashes);
+        for (Feature feature : dao.getByHashes(hashes)) {
+            features.put(feature.getHash(), feature);
+            missing.remove(feature.getHash());
+        }
+    }
+
+    private boolean isKnown(String hash) {
+        return features.containsKey(hash) || missing.contains(hash);
+    }
+
+    private void addUnknown(Set<String> hashes, String hash) {
+        if (hash != null && !isKnown(hash))
+            hashes.add(hash);
+    }
+
+    private String getReverseHash(String hash, String sequence) {
+        if (reverseHashes.containsKey(hash))
+            return reverseHashes.get(hash);
+
+        String reverseHash;
+        try {
+            reverseHash = SequenceUtils.calculateReverseComplementSequenceHash(sequence.trim().toLowerCase());
+        } catch (UtilityException e) {
+            Logger.warn("Could not reverse complement feature sequence: " + e.getMessage());
+            reverseHash = null;
+        }
+        reverseHashes.put(hash, reverseHash);
+        return reverseHash;
+    }
+}
@@ -0,0 +1,28 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import java.io.InputStream;
+
+/**
+ * Wrapper around a stream of file contents, and the name of the file.
+ * The stream should be closed by the caller once it has been read
+ *
+ * @author Hector Plahar
+ */
+public class InputStreamWrapper {
+
+    private final InputStream inputStream;
+    private final String name;
+
+    public InputStreamWrapper(InputStream inputStream, String name) {
+        this.inputStream = inputStream;
+        this.name = name;
+    }
+
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -84,7 +84,8 @@ public class PartSequence extends HasEntry {
             sequence.setFileName(name);
 
         Sequence result = sequenceDAO.saveSequence(sequence);
-        BlastPlus.scheduleBlastIndexRebuildTask(true);
+        BlastPlus.scheduleBlastIndexUpdateTask(result);
+        SequenceAnalysisController.scheduleAlignmentRebuildTask(result);
         SequenceInfo info = result.toDataTransferObject();
         info.setSequence(dnaSequence);
         return info;
@@ -0,0 +1,101 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.executor.IceExecutorService;
+import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.executor.TaskType;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.model.Entry;
+import org.jbei.ice.storage.model.TraceSequence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Task to rebuild the trace alignments of an entry whose sequence has changed. Only the alignments that are stale
+ * (computed against a different version of the sequence, as recorded by the sequence hash on the alignment) are
+ * rebuilt.
+ * <p>
+ * The sequence is passed to the task rather than read from the database so that the task does not depend on the
+ * transaction that changed the sequence having been committed. At most one task is pending for each entry; a task
+ * that is superseded by a newer version of the sequence before it runs does nothing
+ *
+ * @author Hector Plahar
+ */
+public class RebuildTraceAlignmentsTask extends Task {
+
+    // entry id -> hash of the sequence version of the latest scheduled task
+    private static final ConcurrentHashMap<Long, String> PENDING = new ConcurrentHashMap<>();
+
+    private final long entryId;
+    private final String sequence;
+    private final String sequenceHash;
+    private final boolean circular;
+
+    public RebuildTraceAlignmentsTask(long entryId, String sequence, String sequenceHash, boolean circular) {
+        this.entryId = entryId;
+        this.sequence = sequence;
+        this.sequenceHash = sequenceHash;
+        this.circular = circular;
+    }
+
+    /**
+     * Schedules a rebuild for the specified version of the entry's sequence, unless one is already pending
+     */
+    static void schedule(long entryId, String sequence, String sequenceHash, boolean circular) {
+        String previous = PENDING.put(entryId, sequenceHash);
+        if (sequenceHash.equals(previous))
+            return;
+
+        IceExecutorService.getInstance().runTask(new RebuildTraceAlignmentsTask(entryId, sequence, sequenceHash,
+                circular));
+    }
+
+    @Override
+    public void execute() {
+        try {
+            if (!sequenceHash.equals(PENDING.get(entryId)))
+                return;
+
+            Entry entry = DAOFactory.getEntryDAO().get(entryId);
+            if (entry == null)
+                return;
+
+            List<TraceSequence> stale = new ArrayList<>();
+            for (TraceSequence traceSequence : DAOFactory.getTraceSequenceDAO().getByEntry(entry, 0,
+                    Integer.MAX_VALUE)) {
+                if (SequenceAnalysisController.isStale(traceSequence, sequenceHash))
+                    stale.add(traceSequence);
+            }
+
+            if (stale.isEmpty())
+                return;
+
+            setProgress(0, stale.size());
+            int saved = new SequenceAnalysisController().rebuildAlignments(stale, sequence, sequenceHash, circular);
+            setProgress(stale.size(), stale.size());
+            Logger.info("Rebuilt " + saved + " of " + stale.size() + " trace alignments for entry " + entryId);
+        } finally {
+            PENDING.remove(entryId, sequenceHash);
+        }
+    }
+
+    /**
+     * Clears the pending marker so that the rebuild is scheduled again on the next change or request
+     */
+    @Override
+    protected void rejected() {
+        PENDING.remove(entryId, sequenceHash);
+    }
+
+    @Override
+    public TaskType getType() {
+        return TaskType.BULK;
+    }
+
+    @Override
+    public String getName() {
+        return "Rebuild of trace alignments for entry " + entryId;
+    }
+}
@@ -3,9 +3,12 @@ package org.jbei.ice.lib.entry.sequence;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.dto.DNASequence;
+import org.jbei.ice.lib.dto.entry.ChromatogramData;
+import org.jbei.ice.lib.entry.EntryAuthorization;
 import org.jbei.ice.lib.parsers.ABIParser;
 import org.jbei.ice.lib.parsers.GeneralParser;
 import org.jbei.ice.lib.parsers.InvalidFormatParserException;
+import org.jbei.ice.lib.parsers.abi.ABITrace;
 import org.jbei.ice.lib.parsers.bl2seq.Bl2SeqException;
 import org.jbei.ice.lib.parsers.bl2seq.Bl2SeqParser;
 import org.jbei.ice.lib.parsers.bl2seq.Bl2SeqResult;
@@ -17,10 +20,16 @@ import org.jbei.ice.storage.hibernate.dao.TraceSequenceDAO;
 import org.jbei.ice.storage.model.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.*;
 
 /**
  * ABI to manipulate DNA sequence trace analysis
@@ -29,6 +38,22 @@ import java.util.List;
  */
 public class SequenceAnalysisController {
 
+    private static final int ALIGNMENT_THREADS = 4;
+    private static final int ALIGNMENT_QUEUE_SIZE = 64;
+
+    // shared so that the number of concurrent alignments (and bl2seq processes) is bounded across requests. When
+    // the queue is full the submitting thread runs the alignment itself
+    private static final ExecutorService ALIGNMENT_EXECUTOR = new ThreadPoolExecutor(ALIGNMENT_THREADS,
+            ALIGNMENT_THREADS, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(ALIGNMENT_QUEUE_SIZE),
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "trace-alignment");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+
     private final TraceSequenceDAO traceDao;
 
     public static final String TRACES_DIR_NAME = "traces";
@@ -67,7 +92,9 @@ public class SequenceAnalysisController {
 
         TraceSequence traceSequence = new TraceSequence(entry, uuid, filename, depositor, sequence, date);
         File tracesDir = Paths.get(Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY), TRACES_DIR_NAME).toFile();
-        return traceDao.create(tracesDir, traceSequence, inputStream);
+        TraceSequence result = traceDao.create(tracesDir, traceSequence, inputStream);
+        buildChromatogram(result);
+        return result;
     }
 
     /**
@@ -98,10 +125,16 @@ public class SequenceAnalysisController {
 
         File tracesDir = Paths.get(Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY), TRACES_DIR_NAME).toFile();
         traceDao.delete(tracesDir, traceSequence);
+        try {
+            Files.deleteIfExists(getChromatogramFile(traceSequence));
+        } catch (IOException e) {
+            Logger.warn("Could not delete chromatogram for trace " + traceSequence.getFileId());
+        }
     }
 
     /**
-     * Retrieve the {@link TraceSequence} associated with the given {@link Entry} entry.
+     * Retrieve the {@link TraceSequence} associated with the given {@link Entry} entry. Alignments against an older
+     * version of the entry's sequence are rebuilt in the background (see {@link #scheduleAlignmentRebuildTask})
      *
      * @param entry entry object
      * @return Retrieved TraceSequence
@@ -110,32 +143,17 @@ public class SequenceAnalysisController {
         if (entry == null)
             return null;
 
-        List<TraceSequence> traces;
+        List<TraceSequence> traces = traceDao.getByEntry(entry, 0, Integer.MAX_VALUE);
         Sequence sequence = DAOFactory.getSequenceDAO().getByEntry(entry);
+        if (sequence == null)
+            return traces;
 
-        if (sequence == null) { // it will remove invalid alignments
-            rebuildAllAlignments(entry);
-
-            traces = traceDao.getByEntry(entry, 0, Integer.MAX_VALUE);
-        } else {
-            traces = traceDao.getByEntry(entry, 0, Integer.MAX_VALUE);
-
-            boolean wasUpdated = false;
-            for (TraceSequence traceSequence : traces) {
-                if (traceSequence.getTraceSequenceAlignment() == null
-                        || traceSequence.getTraceSequenceAlignment().getSequenceHash() == null
-                        || traceSequence.getTraceSequenceAlignment().getSequenceHash().isEmpty()
-                        || !traceSequence.getTraceSequenceAlignment().getSequenceHash().equals(sequence.getFwdHash())) {
-                    buildOrRebuildAlignment(traceSequence, sequence);
-                    wasUpdated = true;
-                }
-            }
-
-            if (wasUpdated) { // fetch again because alignment has been updated
-                traces = traceDao.getByEntry(entry, 0, Integer.MAX_VALUE);
+        for (TraceSequence traceSequence : traces) {
+            if (isStale(traceSequence, sequence.getFwdHash())) {
+                scheduleAlignmentRebuildTask(sequence);
+                break;
             }
         }
-
         return traces;
     }
 
@@ -143,6 +161,67 @@ public class SequenceAnalysisController {
         return traceDao.getByFileId(fileId);
     }
 
+    /**
+     * Retrieves a range of the chromatogram of an ABI trace, downsampled to the specified width. The chromatogram
+     * file is built from the trace file if it does not exist (e.g. for traces uploaded before chromatograms were
+     * precomputed)
+     *
+     * @param userId unique identifier of user making request
+     * @param fileId unique file identifier of the trace
+     * @param start  first trace point of the range
+     * @param end    last trace point of the range (exclusive). Values less than 1 select the end of the trace
+     * @param width  maximum number of points to return
+     * @return chromatogram data or null if the trace does not exist or is not an ABI trace
+     * @throws org.jbei.ice.lib.access.PermissionException if the user does not have read access to the trace's entry
+     */
+    public ChromatogramData getChromatogram(String userId, String fileId, int start, int end, int width) {
+        TraceSequence traceSequence = traceDao.getByFileId(fileId);
+        if (traceSequence == null)
+            return null;
+
+        new EntryAuthorization().expectRead(userId, traceSequence.getEntry());
+
+        Path chromatogram = getChromatogramFile(traceSequence);
+        if (!Files.exists(chromatogram) && !buildChromatogram(traceSequence))
+            return null;
+
+        try {
+            return TraceChromatogram.read(chromatogram, start, end, width);
+        } catch (IOException e) {
+            Logger.error(e);
+            return null;
+        }
+    }
+
+    /**
+     * Builds the chromatogram file for the trace, if the trace is an ABI trace
+     *
+     * @param traceSequence trace sequence
+     * @return true if the chromatogram was built
+     */
+    private boolean buildChromatogram(TraceSequence traceSequence) {
+        ABITrace abiTrace;
+        try {
+            abiTrace = new ABITrace(getFile(traceSequence));
+        } catch (IOException | RuntimeException e) {
+            // not an ABI trace
+            return false;
+        }
+
+        try {
+            TraceChromatogram.build(abiTrace, getChromatogramFile(traceSequence));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Logger.error("Could not build chromatogram for trace " + traceSequence.getFileId(), e);
+            return false;
+        }
+    }
+
+    private Path getChromatogramFile(TraceSequence traceSequence) {
+        return Paths.get(Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY), TRACES_DIR_NAME,
+                traceSequence.getFileId() + TraceChromatogram.FILE_EXTENSION);
+    }
+
     /**
      * Parses a given sequence file (Genbank, Fasta, ABI) and return an {@link DNASequence}.
      *
@@ -183,9 +262,42 @@ public class SequenceAnalysisController {
                 traceSequence.getFileId()).toFile();
     }
 
+    /**
+     * Checks if the alignment for the trace sequence is missing or was computed against a different version of the
+     * entry sequence
+     *
+     * @param traceSequence trace sequence
+     * @param sequenceHash  hash of the current entry sequence
+     * @return true if the alignment for the trace needs to be (re)built
+     */
+    public static boolean isStale(TraceSequence traceSequence, String sequenceHash) {
+        TraceSequenceAlignment alignment = traceSequence.getTraceSequenceAlignment();
+        return alignment == null || alignment.getSequenceHash() == null || alignment.getSequenceHash().isEmpty()
+                || !alignment.getSequenceHash().equals(sequenceHash);
+    }
+
+    /**
+     * Schedules a task to rebuild the stale alignments of the traces of the sequence's entry against the sequence,
+     * if the entry has any traces. A rebuild that is already pending for the same version of the sequence is not
+     * scheduled again
+     *
+     * @param sequence sequence that was created or updated
+     */
+    public static void scheduleAlignmentRebuildTask(Sequence sequence) {
+        if (sequence == null || sequence.getEntry() == null || sequence.getSequence() == null)
+            return;
+
+        Entry entry = sequence.getEntry();
+        if (DAOFactory.getTraceSequenceDAO().getCountByEntry(entry) == 0)
+            return;
+
+        boolean isCircular = (entry instanceof Plasmid) && ((Plasmid) entry).getCircular();
+        RebuildTraceAlignmentsTask.schedule(entry.getId(), sequence.getSequence(), sequence.getFwdHash(), isCircular);
+    }
+
     /**
      * Calculate sequence alignment between the given {@link TraceSequence} and {@link Sequence}
-     * using bl2seq, and save the result into the database.
+     * and save the result into the database.
      *
      * @param traceSequence traceSequence
      * @param sequence      sequence
@@ -195,113 +307,188 @@ public class SequenceAnalysisController {
             throw new IllegalArgumentException("Failed to rebuild alignment for null trace sequence!");
         }
 
+        rebuildAlignments(Collections.singletonList(traceSequence), sequence);
+    }
+
+    /**
+     * Calculate sequence alignments between the given {@link TraceSequence}s and {@link Sequence}
+     * and save the results into the database.
+     *
+     * @param traceSequences trace sequences to align
+     * @param sequence       sequence
+     */
+    public void rebuildAlignments(List<TraceSequence> traceSequences, Sequence sequence) {
         // if sequence is null => delete alignment
         if (sequence == null || sequence.getEntry() == null) {
             return;
         }
 
-        // actually build alignment
-        String traceSequenceString = traceSequence.getSequence();
-        String entrySequenceString = sequence.getSequence();
-
-        int entrySequenceLength = entrySequenceString.length();
         boolean isCircular = (sequence.getEntry() instanceof Plasmid) && ((Plasmid) sequence.getEntry()).getCircular();
+        rebuildAlignments(traceSequences, sequence.getSequence(), sequence.getFwdHash(), isCircular);
+    }
 
-        if (isCircular) {
-            entrySequenceString += entrySequenceString;
+    /**
+     * Calculate sequence alignments between the given {@link TraceSequence}s and the entry sequence. The
+     * alignments are computed in parallel on a bounded pool (short reads in process using
+     * {@link SmithWatermanAligner} and longer ones using bl2seq) while the results are saved on the calling
+     * thread, since that is the thread bound to the current session.
+     *
+     * @param traceSequences trace sequences to align
+     * @param entrySequence  entry sequence
+     * @param sequenceHash   hash of entry sequence that is recorded with the alignments
+     * @param isCircular     whether the entry sequence is circular
+     * @return number of alignments saved
+     */
+    public int rebuildAlignments(List<TraceSequence> traceSequences, final String entrySequence,
+                                 String sequenceHash, final boolean isCircular) {
+        if (traceSequences == null || traceSequences.isEmpty() || entrySequence == null || entrySequence.isEmpty())
+            return 0;
+
+        // alignment only needs the sequence strings, so the entities never leave this thread
+        List<Future<Bl2SeqResult>> futures = new ArrayList<>(traceSequences.size());
+        for (TraceSequence traceSequence : traceSequences) {
+            final String traceSequenceString = traceSequence.getSequence();
+            futures.add(ALIGNMENT_EXECUTOR.submit(new Callable<Bl2SeqResult>() {
+                @Override
+                public Bl2SeqResult call() throws Exception {
+                    return align(entrySequence, traceSequenceString, isCircular);
+                }
+            }));
         }
 
+        int saved = 0;
+        try {
+            for (int i = 0; i < traceSequences.size(); i += 1) {
+                Bl2SeqResult result;
+                try {
+                    result = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    Logger.error(e.getCause());
+                    continue;
+                }
+
+                if (result == null)
+                    continue;
+
+                saveAlignment(traceSequences.get(i), result, entrySequence.length(), isCircular, sequenceHash);
+                saved += 1;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Future<Bl2SeqResult> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Aligns the trace sequence against the entry sequence (which is doubled if it is circular, so that reads that
+     * span the origin align)
+     *
+     * @return the longest alignment or null if the sequences do not align
+     */
+    private static Bl2SeqResult align(String entrySequence, String traceSequence, boolean isCircular) {
+        if (traceSequence == null || traceSequence.isEmpty())
+            return null;
+
+        String query = isCircular ? entrySequence + entrySequence : entrySequence;
+        if (SmithWatermanAligner.canAlign(query.length(), traceSequence.length()))
+            return SmithWatermanAligner.align(query, traceSequence);
+
         String bl2seqOutput;
         try {
-            bl2seqOutput = BlastPlus.runBlast2Seq(entrySequenceString, traceSequenceString);
+            bl2seqOutput = BlastPlus.runBlast2Seq(query, traceSequence);
         } catch (BlastException e) {
             Logger.error(e);
-            return;
+            return null;
         }
 
         if (bl2seqOutput == null || bl2seqOutput.isEmpty()) {
-            return;
+            return null;
         }
 
         try {
             List<Bl2SeqResult> bl2seqAlignmentResults = Bl2SeqParser.parse(bl2seqOutput);
+            int maxAlignedSequenceLength = -1;
+            Bl2SeqResult maxBl2SeqResult = null;
 
-            if (bl2seqAlignmentResults.size() > 0) {
-                int maxAlignedSequenceLength = -1;
-                Bl2SeqResult maxBl2SeqResult = null;
-
-                for (Bl2SeqResult bl2seqResult : bl2seqAlignmentResults) {
-                    int querySequenceLength = bl2seqResult.getQuerySequence().length();
+            for (Bl2SeqResult bl2seqResult : bl2seqAlignmentResults) {
+                int querySequenceLength = bl2seqResult.getQuerySequence().length();
 
-                    if (maxAlignedSequenceLength < querySequenceLength) {
-                        maxAlignedSequenceLength = querySequenceLength;
-                        maxBl2SeqResult = bl2seqResult;
-                    }
-                }
-
-                if (maxBl2SeqResult != null) {
-                    int strand = maxBl2SeqResult.getOrientation() == 0 ? 1 : -1;
-                    TraceSequenceAlignment traceSequenceAlignment = traceSequence.getTraceSequenceAlignment();
-                    int queryStart = maxBl2SeqResult.getQueryStart();
-                    int queryEnd = maxBl2SeqResult.getQueryEnd();
-                    int subjectStart = maxBl2SeqResult.getSubjectStart();
-                    int subjectEnd = maxBl2SeqResult.getSubjectEnd();
-
-                    if (isCircular) {
-                        if (queryStart > entrySequenceLength - 1) {
-                            queryStart = queryStart - entrySequenceLength;
-                        }
-
-                        if (queryEnd > entrySequenceLength - 1) {
-                            queryEnd = queryEnd - entrySequenceLength;
-                        }
-
-                        if (subjectEnd > entrySequenceLength - 1) {
-                            subjectEnd = subjectEnd - entrySequenceLength;
-                        }
-
-                        if (subjectStart > entrySequenceLength - 1) {
-                            subjectStart = subjectStart - entrySequenceLength;
-                        }
-                    }
-
-                    if (traceSequenceAlignment == null) {
-                        traceSequenceAlignment = new TraceSequenceAlignment(traceSequence,
-                                maxBl2SeqResult.getScore(), strand,
-                                queryStart, queryEnd,
-                                subjectStart, subjectEnd,
-                                maxBl2SeqResult.getQuerySequence(),
-                                maxBl2SeqResult.getSubjectSequence(),
-                                sequence.getFwdHash(),
-                                new Date());
-
-                        traceSequence.setTraceSequenceAlignment(traceSequenceAlignment);
-                    } else {
-                        traceSequenceAlignment.setModificationTime(new Date());
-                        traceSequenceAlignment.setScore(maxBl2SeqResult.getScore());
-                        traceSequenceAlignment.setStrand(strand);
-                        traceSequenceAlignment.setQueryStart(queryStart);
-                        traceSequenceAlignment.setQueryEnd(queryEnd);
-                        traceSequenceAlignment.setSubjectStart(subjectStart);
-                        traceSequenceAlignment.setSubjectEnd(subjectEnd);
-                        traceSequenceAlignment.setQueryAlignment(maxBl2SeqResult.getQuerySequence());
-                        traceSequenceAlignment.setSubjectAlignment(maxBl2SeqResult.getSubjectSequence());
-                        traceSequenceAlignment.setSequenceHash(sequence.getFwdHash());
-                    }
-
-                    traceDao.save(traceSequence);
+                if (maxAlignedSequenceLength < querySequenceLength) {
+                    maxAlignedSequenceLength = querySequenceLength;
+                    maxBl2SeqResult = bl2seqResult;
                 }
             }
+            return maxBl2SeqResult;
         } catch (Bl2SeqException e) {
             Logger.error(e);
+            return null;
         }
     }
 
+    private void saveAlignment(TraceSequence traceSequence, Bl2SeqResult maxBl2SeqResult, int entrySequenceLength,
+                               boolean isCircular, String sequenceHash) {
+        int strand = maxBl2SeqResult.getOrientation() == 0 ? 1 : -1;
+
+        // the alignment may be saved concurrently by a background rebuild and by an upload
+        traceDao.lock(traceSequence);
+        TraceSequenceAlignment traceSequenceAlignment = traceSequence.getTraceSequenceAlignment();
+        int queryStart = maxBl2SeqResult.getQueryStart();
+        int queryEnd = maxBl2SeqResult.getQueryEnd();
+        int subjectStart = maxBl2SeqResult.getSubjectStart();
+        int subjectEnd = maxBl2SeqResult.getSubjectEnd();
+
+        if (isCircular) {
+            if (queryStart > entrySequenceLength - 1) {
+                queryStart = queryStart - entrySequenceLength;
+            }
+
+            if (queryEnd > entrySequenceLength - 1) {
+                queryEnd = queryEnd - entrySequenceLength;
+            }
+
+            if (subjectEnd > entrySequenceLength - 1) {
+                subjectEnd = subjectEnd - entrySequenceLength;
+            }
+
+            if (subjectStart > entrySequenceLength - 1) {
+                subjectStart = subjectStart - entrySequenceLength;
+            }
+        }
+
+        if (traceSequenceAlignment == null) {
+            traceSequenceAlignment = new TraceSequenceAlignment(traceSequence,
+                    maxBl2SeqResult.getScore(), strand,
+                    queryStart, queryEnd,
+                    subjectStart, subjectEnd,
+                    maxBl2SeqResult.getQuerySequence(),
+                    maxBl2SeqResult.getSubjectSequence(),
+                    sequenceHash,
+                    new Date());
+
+            traceSequence.setTraceSequenceAlignment(traceSequenceAlignment);
+        } else {
+            traceSequenceAlignment.setModificationTime(new Date());
+            traceSequenceAlignment.setScore(maxBl2SeqResult.getScore());
+            traceSequenceAlignment.setStrand(strand);
+            traceSequenceAlignment.setQueryStart(queryStart);
+            traceSequenceAlignment.setQueryEnd(queryEnd);
+            traceSequenceAlignment.setSubjectStart(subjectStart);
+            traceSequenceAlignment.setSubjectEnd(subjectEnd);
+            traceSequenceAlignment.setQueryAlignment(maxBl2SeqResult.getQuerySequence());
+            traceSequenceAlignment.setSubjectAlignment(maxBl2SeqResult.getSubjectSequence());
+            traceSequenceAlignment.setSequenceHash(sequenceHash);
+        }
+
+        traceDao.save(traceSequence);
+    }
+
     /**
      * Calculate sequence alignments between the sequence associated with an {@link Entry} entry
      * with all the {@link TraceSequence}s associated with that entry.
-     * <p>
-     * Calls buildOrReplaceAlignment on each TraceSequence.
      *
      * @param entry entry object
      */
@@ -314,9 +501,7 @@ public class SequenceAnalysisController {
             return;
         }
 
-        List<TraceSequence> traceSequences = getTraceSequences(entry);
-        for (TraceSequence traceSequence : traceSequences) {
-            buildOrRebuildAlignment(traceSequence, sequence);
-        }
+        List<TraceSequence> traceSequences = traceDao.getByEntry(entry, 0, Integer.MAX_VALUE);
+        rebuildAlignments(traceSequences, sequence);
     }
 }
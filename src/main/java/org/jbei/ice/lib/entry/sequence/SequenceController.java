@@ -22,14 +22,14 @@ import org.jbei.ice.lib.parsers.GeneralParser;
 import org.jbei.ice.lib.search.blast.BlastPlus;
 import org.jbei.ice.lib.utils.SequenceUtils;
 import org.jbei.ice.lib.utils.UtilityException;
+import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
 import org.jbei.ice.storage.model.*;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.net.URI;
+import java.io.*;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 
@@ -87,7 +87,8 @@ public class SequenceController {
             sequence.setFileName(name);
 
         Sequence result = dao.saveSequence(sequence);
-        BlastPlus.scheduleBlastIndexRebuildTask(true);
+        BlastPlus.scheduleBlastIndexUpdateTask(result);
+        SequenceAnalysisController.scheduleAlignmentRebuildTask(result);
         SequenceInfo info = result.toDataTransferObject();
         info.setSequence(dnaSequence);
         return info;
@@ -104,7 +105,8 @@ public class SequenceController {
     public Sequence save(String userId, Sequence sequence) {
         authorization.expectWrite(userId, sequence.getEntry());
         Sequence result = dao.saveSequence(sequence);
-        BlastPlus.scheduleBlastIndexRebuildTask(true);
+        BlastPlus.scheduleBlastIndexUpdateTask(result);
+        SequenceAnalysisController.scheduleAlignmentRebuildTask(result);
         return result;
     }
 
@@ -174,7 +176,8 @@ public class SequenceController {
             result = dao.updateSequence(oldSequence, sequence.getSequenceFeatures());
         }
 
-        BlastPlus.scheduleBlastIndexRebuildTask(true);
+        BlastPlus.scheduleBlastIndexUpdateTask(result);
+        SequenceAnalysisController.scheduleAlignmentRebuildTask(result);
         return result;
     }
 
@@ -186,9 +189,8 @@ public class SequenceController {
         if (sequence == null)
             return true;
 
-        String tmpDir = new ConfigurationController().getPropertyValue(ConfigurationKey.TEMPORARY_DIRECTORY);
-        dao.deleteSequence(sequence, tmpDir);
-//        BlastPlus.scheduleBlastIndexRebuildTask(true);  // todo : update is delete and save which is not right
+        dao.deleteSequence(sequence);
+        BlastPlus.scheduleBlastIndexDeleteTask(partId);
         return true;
     }
 
@@ -451,10 +453,29 @@ public class SequenceController {
     }
 
     public ByteArrayWrapper getSequenceFile(String userId, long partId, String type) {
+        InputStreamWrapper wrapper = getSequenceFileStream(userId, partId, type);
+        try (InputStream inputStream = wrapper.getInputStream()) {
+            return new ByteArrayWrapper(IOUtils.toByteArray(inputStream), wrapper.getName());
+        } catch (IOException e) {
+            Logger.error("Failed to read sequence file for download!", e);
+            return new ByteArrayWrapper(new byte[]{'\0'}, "no_sequence");
+        }
+    }
+
+    /**
+     * Retrieves the sequence of an entry in the specified format. Composed formats (genbank, fasta and sbol) are
+     * streamed from the {@link SequenceFileCache}, and composed first if not already cached
+     *
+     * @param userId unique identifier for user making request
+     * @param partId unique identifier for entry
+     * @param type   format of the sequence file
+     * @return wrapper around a stream of the file contents and the file name. The stream must be closed by the caller
+     */
+    public InputStreamWrapper getSequenceFileStream(String userId, long partId, String type) {
         Entry entry = retriever.get(userId, partId);
         Sequence sequence = dao.getByEntry(entry);
         if (sequence == null)
-            return new ByteArrayWrapper(new byte[]{'\0'}, "no_sequence");
+            return new InputStreamWrapper(new ByteArrayInputStream(new byte[]{'\0'}), "no_sequence");
 
         String name;
         String sequenceString;
@@ -471,35 +492,25 @@ public class SequenceController {
                     GenbankFormatter genbankFormatter = new GenbankFormatter(entry.getName());
                     // TODO
                     genbankFormatter.setCircular((entry instanceof Plasmid) ? ((Plasmid) entry).getCircular() : false);
-                    sequenceString = compose(sequence, genbankFormatter);
-                    name = entry.getName() + ".gb";
-                    break;
+                    return getComposedFile(entry, sequence, "genbank", genbankFormatter, entry.getName() + ".gb");
 
                 case "fasta":
                     FastaFormatter formatter = new FastaFormatter(sequence.getEntry().getName());
-                    sequenceString = compose(sequence, formatter);
-                    name = entry.getName() + ".fasta";
-                    break;
+                    return getComposedFile(entry, sequence, "fasta", formatter, entry.getName() + ".fasta");
 
                 case "sbol1":
-                    sequenceString = compose(sequence, new SBOLFormatter(true));
-                    name = entry.getName() + ".xml";
-                    break;
+                    return getComposedFile(entry, sequence, "sbol1", new SBOLFormatter(true),
+                            entry.getName() + ".xml");
 
                 case "sbol2":
-                    sequenceString = compose(sequence, new SBOLFormatter(false));
-                    name = entry.getName() + ".xml";
-                    break;
+                    return getComposedFile(entry, sequence, "sbol2", new SBOLFormatter(false),
+                            entry.getName() + ".xml");
 
                 case "pigeoni":
-                    try {
-                        URI uri = PigeonSBOLv.generatePigeonVisual(sequence);
-                        byte[] bytes = IOUtils.toByteArray(uri.toURL().openStream());
-                        return new ByteArrayWrapper(bytes, entry.getName() + ".png");
-                    } catch (Exception e) {
-                        Logger.error(e);
-                        return new ByteArrayWrapper(new byte[]{'\0'}, "no_sequence");
-                    }
+                    InputStream png = PigeonSBOLv.generatePigeonImage(sequence);
+                    if (png == null)
+                        return new InputStreamWrapper(new ByteArrayInputStream(new byte[]{'\0'}), "no_sequence");
+                    return new InputStreamWrapper(png, entry.getName() + ".png");
 
                 case "pigeons":
                     sequenceString = PigeonSBOLv.generatePigeonScript(sequence);
@@ -508,9 +519,47 @@ public class SequenceController {
             }
         } catch (Exception e) {
             Logger.error("Failed to generate genbank file for download!", e);
-            return new ByteArrayWrapper(new byte[]{'\0'}, "no_sequence");
+            return new InputStreamWrapper(new ByteArrayInputStream(new byte[]{'\0'}), "no_sequence");
         }
 
-        return new ByteArrayWrapper(sequenceString.getBytes(), name);
+        return new InputStreamWrapper(new ByteArrayInputStream(sequenceString.getBytes()), name);
+    }
+
+    /**
+     * Retrieves the composed file for the sequence from the cache. Falls back to composing in memory if the cached
+     * file cannot be written or read
+     */
+    private InputStreamWrapper getComposedFile(Entry entry, Sequence sequence, String format, IFormatter formatter,
+                                               String name) {
+        String featureVersion = DAOFactory.getSequenceFeatureDAO().getFeatureSetVersion(sequence.getId());
+        String key = getComposedFileKey(entry, sequence, format, featureVersion,
+                Utils.getConfigValue(ConfigurationKey.URI_PREFIX));
+
+        try {
+            Path file = SequenceFileCache.getInstance().get(sequence, format, key, formatter);
+            return new InputStreamWrapper(new BufferedInputStream(Files.newInputStream(file)), name);
+        } catch (IOException e) {
+            Logger.error("Could not cache sequence file for entry " + entry.getId(), e);
+            return new InputStreamWrapper(new ByteArrayInputStream(compose(sequence, formatter).getBytes()), name);
+        }
+    }
+
+    /**
+     * Derives the key of a composed file in the {@link SequenceFileCache}. The key covers the sequence and its
+     * feature set as well as the entry values that are included in the composed output
+     *
+     * @param entry          entry the sequence belongs to
+     * @param sequence       sequence
+     * @param format         name of the format
+     * @param featureVersion version of the feature set of the sequence
+     * @param uriPrefix      configured uri prefix
+     * @return hash of the values that determine the composed output
+     */
+    static String getComposedFileKey(Entry entry, Sequence sequence, String format, String featureVersion,
+                                     String uriPrefix) {
+        boolean circular = (entry instanceof Plasmid) && Boolean.TRUE.equals(((Plasmid) entry).getCircular());
+        return Utils.encryptSHA(StringUtils.join(new Object[]{format, sequence.getId(), sequence.getFwdHash(),
+                featureVersion, entry.getName(), circular, entry.getPartNumber(), entry.getShortDescription(),
+                sequence.getComponentUri(), sequence.getUri(), sequence.getIdentifier(), uriPrefix}, "\n"));
     }
 }
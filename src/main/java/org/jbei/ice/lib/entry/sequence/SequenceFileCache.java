@@ -0,0 +1,110 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.apache.commons.io.FileUtils;
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.entry.sequence.composers.formatters.FormatterException;
+import org.jbei.ice.lib.entry.sequence.composers.formatters.IFormatter;
+import org.jbei.ice.lib.utils.Utils;
+import org.jbei.ice.storage.model.Sequence;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * On disk cache of composed sequence files (e.g. genbank, fasta or sbol) so that repeated downloads and exports do
+ * not re-run the formatters over the sequence and its features.
+ * <p>
+ * Files are content addressed: the key is a hash of every value that affects the composed output (see
+ * {@link SequenceController}), including the hash of the sequence and the version of its feature set, so a changed
+ * sequence or entry never matches a stale file. Files are grouped in a folder per sequence which is removed when the
+ * sequence is updated or deleted, and a folder keeps a single file per format: composing a file for a new key (e.g.
+ * after the entry name changed) removes the file it supersedes. The space used is therefore bounded by the number of
+ * sequences and formats.
+ *
+ * @author Hector Plahar
+ */
+public class SequenceFileCache {
+
+    private static final String CACHE_FOLDER = "sequence-cache";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final SequenceFileCache INSTANCE = new SequenceFileCache();
+
+    private SequenceFileCache() {
+    }
+
+    public static SequenceFileCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Retrieves the cached file for the specified key, composing it using the formatter if it is not already cached.
+     * The file is composed to a temporary file that is moved into place when complete, so a partially written file
+     * is never returned
+     *
+     * @param sequence  sequence to compose
+     * @param format    name of the format. Files for other keys in the same format are superseded
+     * @param key       hash of the values that determine the composed output
+     * @param formatter formatter for composing the sequence
+     * @return path to the cached file
+     * @throws IOException on exception composing or writing the file
+     */
+    public Path get(Sequence sequence, String format, String key, IFormatter formatter) throws IOException {
+        Path folder = getSequenceFolder(sequence.getId());
+        String prefix = format + "-";
+        Path file = Paths.get(folder.toString(), prefix + key);
+        if (Files.exists(file))
+            return file;
+
+        Files.createDirectories(folder);
+        Path tmpFile = Files.createTempFile(folder, prefix + key, TMP_SUFFIX);
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tmpFile))) {
+                formatter.format(sequence, outputStream);
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            removeSuperseded(folder, prefix, file);
+            return file;
+        } catch (FormatterException e) {
+            throw new IOException(e);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    /**
+     * Removes the other files in the same format from the folder. A reader that cannot open a file because it was
+     * removed composes the sequence in memory instead (see {@link SequenceController})
+     */
+    private void removeSuperseded(Path folder, final String prefix, Path file) {
+        final String name = file.getFileName().toString();
+        File[] superseded = folder.toFile().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String fileName) {
+                return fileName.startsWith(prefix) && !fileName.endsWith(TMP_SUFFIX) && !fileName.equals(name);
+            }
+        });
+        if (superseded == null)
+            return;
+
+        for (File supersededFile : superseded) {
+            FileUtils.deleteQuietly(supersededFile);
+        }
+    }
+
+    /**
+     * Removes all cached files for the specified sequence
+     *
+     * @param sequenceId unique identifier for sequence
+     */
+    public void invalidate(long sequenceId) {
+        FileUtils.deleteQuietly(getSequenceFolder(sequenceId).toFile());
+    }
+
+    private Path getSequenceFolder(long sequenceId) {
+        String dataDir = Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY);
+        return Paths.get(dataDir, CACHE_FOLDER, Long.toString(sequenceId));
+    }
+}
@@ -0,0 +1,322 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.parsers.bl2seq.Bl2SeqResult;
+
+/**
+ * In-JVM local aligner (Smith-Waterman with affine gaps) for aligning short reads such as sanger traces against an
+ * entry sequence without forking a bl2seq process.
+ * <p>
+ * Uses the blastn scoring defaults (match 2, mismatch -3, gap existence 5, gap extension 2) and reports the result
+ * the way bl2seq does, with the entry sequence as the query: 1-based inclusive coordinates, the subject aligned on the
+ * plus or minus strand and, for the minus strand, subject coordinates that run from high to low and a subject
+ * alignment that is the reverse complement of the read.
+ * <p>
+ * Alignments are only reported when bl2seq would report them: the expect value of the score, computed with the
+ * Karlin-Altschul parameters for the scoring system, must not exceed the blast default of {@link #EXPECT} and the
+ * alignment must contain an identical run of at least {@link #WORD_SIZE} bases, the seed that blastn requires by
+ * default.
+ * <p>
+ * The end of the best alignment is found with a linear space pass over the whole query, after which the alignment
+ * is traced back in a window that is bounded by the length of the read, so memory use does not depend on the length
+ * of the entry sequence
+ *
+ * @author Hector Plahar
+ */
+public class SmithWatermanAligner {
+
+    public static final int MAX_SUBJECT_LENGTH = 2000;
+    private static final long MAX_CELLS = 100000000L;
+    private static final double EXPECT = 10;
+    private static final int WORD_SIZE = 28;
+
+    // Karlin-Altschul parameters for the scoring below, as tabulated by blast
+    private static final double LAMBDA = 0.625;
+    private static final double K = 0.41;
+
+    private static final int MATCH = 2;
+    private static final int MISMATCH = -3;
+    private static final int GAP_OPEN = 5;
+    private static final int GAP_EXTEND = 2;
+    private static final int NEGATIVE_INFINITY = Integer.MIN_VALUE / 2;
+
+    // traceback flags
+    private static final int STOP = 0;
+    private static final int DIAGONAL = 1;
+    private static final int GAP_IN_QUERY = 2;       // consumes subject
+    private static final int GAP_IN_SUBJECT = 3;     // consumes query
+    private static final int DIRECTION = 3;
+    private static final int EXTEND_QUERY_GAP = 4;
+    private static final int EXTEND_SUBJECT_GAP = 8;
+
+    private SmithWatermanAligner() {
+    }
+
+    /**
+     * @param queryLength   length of the query (entry) sequence
+     * @param subjectLength length of the subject (read) sequence
+     * @return true if sequences of the specified lengths are small enough to be aligned in process
+     */
+    public static boolean canAlign(int queryLength, int subjectLength) {
+        return subjectLength > 0 && subjectLength <= MAX_SUBJECT_LENGTH
+                && (long) queryLength * subjectLength <= MAX_CELLS;
+    }
+
+    /**
+     * Aligns the subject (on both strands) against the query
+     *
+     * @param query   query (entry) sequence
+     * @param subject subject (read) sequence
+     * @return best local alignment or null if there is no alignment that is significant enough to be reported
+     */
+    public static Bl2SeqResult align(String query, String subject) {
+        if (query == null || subject == null || query.isEmpty() || subject.isEmpty())
+            return null;
+
+        String lowerQuery = query.toLowerCase();
+        String plus = subject.toLowerCase();
+        String minus = reverseComplement(plus);
+
+        int[] plusEnd = findEnd(lowerQuery, plus);
+        int[] minusEnd = findEnd(lowerQuery, minus);
+        boolean isMinus = minusEnd[0] > plusEnd[0];
+        int[] end = isMinus ? minusEnd : plusEnd;
+        if (end[0] <= 0 || expectValue(end[0], query.length(), subject.length()) > EXPECT)
+            return null;
+
+        Bl2SeqResult result = traceback(lowerQuery, isMinus ? minus : plus, end[0], end[1], end[2], isMinus);
+        if (longestIdenticalRun(result.getQuerySequence(), result.getSubjectSequence()) < WORD_SIZE)
+            return null;
+        return result;
+    }
+
+    /**
+     * @return number of alignments with at least the specified score that are expected by chance when aligning
+     * sequences of the specified lengths
+     */
+    static double expectValue(int score, int queryLength, int subjectLength) {
+        return K * queryLength * subjectLength * Math.exp(-LAMBDA * score);
+    }
+
+    /**
+     * @return length of the longest run of identical columns in the alignment
+     */
+    private static int longestIdenticalRun(String queryAlignment, String subjectAlignment) {
+        int longest = 0;
+        int run = 0;
+        for (int i = 0; i < queryAlignment.length(); i += 1) {
+            if (score(queryAlignment.charAt(i), subjectAlignment.charAt(i)) == MATCH) {
+                run += 1;
+                longest = Math.max(longest, run);
+            } else {
+                run = 0;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Linear space pass that finds the score and end of the best local alignment
+     *
+     * @return score, query end and subject end (1-based) of the best alignment
+     */
+    private static int[] findEnd(String query, String subject) {
+        int m = subject.length();
+        int[] h = new int[m + 1];
+        int[] f = new int[m + 1];
+        for (int j = 0; j <= m; j += 1) {
+            f[j] = NEGATIVE_INFINITY;
+        }
+
+        int best = 0;
+        int bestI = 0;
+        int bestJ = 0;
+
+        for (int i = 1; i <= query.length(); i += 1) {
+            char a = query.charAt(i - 1);
+            int diagonal = 0;
+            int left = 0;
+            int e = NEGATIVE_INFINITY;
+
+            for (int j = 1; j <= m; j += 1) {
+                int up = h[j];
+                f[j] = Math.max(f[j] - GAP_EXTEND, up - GAP_OPEN - GAP_EXTEND);
+                e = Math.max(e - GAP_EXTEND, left - GAP_OPEN - GAP_EXTEND);
+                int value = Math.max(0, diagonal + score(a, subject.charAt(j - 1)));
+                value = Math.max(value, Math.max(e, f[j]));
+
+                diagonal = up;
+                h[j] = value;
+                left = value;
+
+                if (value > best) {
+                    best = value;
+                    bestI = i;
+                    bestJ = j;
+                }
+            }
+        }
+        return new int[]{best, bestI, bestJ};
+    }
+
+    /**
+     * Recomputes the alignment in a window that ends at the best cell, recording the traceback, and traces it back.
+     * An alignment that covers <code>n</code> subject bases and scores above zero cannot span more than
+     * <code>n + n * MATCH / GAP_EXTEND</code> query bases, which bounds the window
+     */
+    private static Bl2SeqResult traceback(String query, String subject, int best, int queryEnd, int subjectEnd,
+                                          boolean isMinus) {
+        int columns = subjectEnd;
+        int queryOffset = Math.max(0, queryEnd - (columns + (columns * MATCH) / GAP_EXTEND + 1));
+        int rows = queryEnd - queryOffset;
+
+        byte[] trace = new byte[(rows + 1) * (columns + 1)];
+        int[] h = new int[columns + 1];
+        int[] f = new int[columns + 1];
+        for (int j = 0; j <= columns; j += 1) {
+            f[j] = NEGATIVE_INFINITY;
+        }
+
+        for (int i = 1; i <= rows; i += 1) {
+            char a = query.charAt(queryOffset + i - 1);
+            int diagonal = 0;
+            int left = 0;
+            int e = NEGATIVE_INFINITY;
+
+            for (int j = 1; j <= columns; j += 1) {
+                int up = h[j];
+                int flags = 0;
+
+                int extend = f[j] - GAP_EXTEND;
+                int open = up - GAP_OPEN - GAP_EXTEND;
+                if (extend >= open) {
+                    f[j] = extend;
+                    flags |= EXTEND_SUBJECT_GAP;
+                } else {
+                    f[j] = open;
+                }
+
+                extend = e - GAP_EXTEND;
+                open = left - GAP_OPEN - GAP_EXTEND;
+                if (extend >= open) {
+                    e = extend;
+                    flags |= EXTEND_QUERY_GAP;
+                } else {
+                    e = open;
+                }
+
+                int value = 0;
+                int direction = STOP;
+                int match = diagonal + score(a, subject.charAt(j - 1));
+                if (match > value) {
+                    value = match;
+                    direction = DIAGONAL;
+                }
+                if (e > value) {
+                    value = e;
+                    direction = GAP_IN_QUERY;
+                }
+                if (f[j] > value) {
+                    value = f[j];
+                    direction = GAP_IN_SUBJECT;
+                }
+
+                trace[i * (columns + 1) + j] = (byte) (flags | direction);
+                diagonal = up;
+                h[j] = value;
+                left = value;
+            }
+        }
+
+        StringBuilder queryAlignment = new StringBuilder();
+        StringBuilder subjectAlignment = new StringBuilder();
+        int i = rows;
+        int j = columns;
+        int state = DIAGONAL;
+
+        while (i > 0 && j > 0) {
+            int flags = trace[i * (columns + 1) + j];
+            if (state == DIAGONAL) {
+                int direction = flags & DIRECTION;
+                if (direction == STOP)
+                    break;
+
+                if (direction != DIAGONAL) {
+                    state = direction;
+                    continue;
+                }
+                queryAlignment.append(query.charAt(queryOffset + i - 1));
+                subjectAlignment.append(subject.charAt(j - 1));
+                i -= 1;
+                j -= 1;
+            } else if (state == GAP_IN_QUERY) {
+                queryAlignment.append('-');
+                subjectAlignment.append(subject.charAt(j - 1));
+                if ((flags & EXTEND_QUERY_GAP) == 0)
+                    state = DIAGONAL;
+                j -= 1;
+            } else {
+                queryAlignment.append(query.charAt(queryOffset + i - 1));
+                subjectAlignment.append('-');
+                if ((flags & EXTEND_SUBJECT_GAP) == 0)
+                    state = DIAGONAL;
+                i -= 1;
+            }
+        }
+
+        int queryStart = queryOffset + i + 1;
+        int subjectStart = j + 1;
+        if (isMinus) {
+            // report positions on the original (plus strand) read
+            int length = subject.length();
+            subjectStart = length - subjectStart + 1;
+            subjectEnd = length - subjectEnd + 1;
+        }
+
+        return new Bl2SeqResult(best, queryStart, queryEnd, queryAlignment.reverse().toString(), subjectStart,
+                subjectEnd, subjectAlignment.reverse().toString(), isMinus ? 1 : 0);
+    }
+
+    private static int score(char a, char b) {
+        return a == b && a != 'n' ? MATCH : MISMATCH;
+    }
+
+    private static String reverseComplement(String sequence) {
+        StringBuilder builder = new StringBuilder(sequence.length());
+        for (int i = sequence.length() - 1; i >= 0; i -= 1) {
+            builder.append(complement(sequence.charAt(i)));
+        }
+        return builder.toString();
+    }
+
+    private static char complement(char c) {
+        switch (c) {
+            case 'a':
+                return 't';
+            case 't':
+            case 'u':
+                return 'a';
+            case 'c':
+                return 'g';
+            case 'g':
+                return 'c';
+            case 'r':
+                return 'y';
+            case 'y':
+                return 'r';
+            case 'k':
+                return 'm';
+            case 'm':
+                return 'k';
+            case 'b':
+                return 'v';
+            case 'v':
+                return 'b';
+            case 'd':
+                return 'h';
+            case 'h':
+                return 'd';
+            default:
+                return c;
+        }
+    }
+}
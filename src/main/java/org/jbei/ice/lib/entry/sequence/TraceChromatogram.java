@@ -0,0 +1,221 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.dto.entry.ChromatogramData;
+import org.jbei.ice.lib.parsers.abi.ABITrace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precomputed multi-resolution representation of the chromatogram of an ABI trace, stored next to the trace file.
+ * <p>
+ * The file holds a min/max pyramid: level 0 has one bin per trace point and each following level combines
+ * {@link #FAN_OUT} bins of the previous one, keeping the minimum and maximum of each channel, until a level has at
+ * most {@link #MIN_BINS} bins. A range of the chromatogram at a requested width is read from the finest level
+ * whose bins in the range fit in the width, so the amount of data read and returned is bounded by the width rather
+ * than by the length of the trace. The file is memory mapped when read.
+ * <p>
+ * Layout (big endian): magic, version, trace length, sequence length and number of levels; for each level its bin
+ * size, bin count and offset; the basecall positions (int) and called bases (byte); then the bins of each level,
+ * with the minimum and maximum (short) of the A, C, G and T channels for each bin
+ *
+ * @author Hector Plahar
+ */
+public class TraceChromatogram {
+
+    public static final String FILE_EXTENSION = ".chrom";
+    public static final int DEFAULT_WIDTH = 1000;
+    public static final int MAX_WIDTH = 10000;
+
+    private static final int MAGIC = 0x49434852;   // ICHR
+    private static final int VERSION = 1;
+    private static final int FAN_OUT = 4;
+    private static final int MIN_BINS = 256;
+    private static final int CHANNELS = 4;
+    private static final int BIN_BYTES = CHANNELS * 2 * 2;
+    private static final char[] BASES = {'A', 'C', 'G', 'T'};
+
+    private TraceChromatogram() {
+    }
+
+    /**
+     * Builds the chromatogram file for the trace. The file is written to a temporary file that is moved into place
+     * when complete
+     *
+     * @param trace ABI trace
+     * @param file  path of chromatogram file to write
+     * @throws IOException on exception writing the file
+     */
+    public static void build(ABITrace trace, Path file) throws IOException {
+        int traceLength = trace.getTraceLength();
+
+        // level 0, read point by point from the trace without decoding whole channels
+        short[] bins = new short[traceLength * CHANNELS * 2];
+        for (int x = 0; x < traceLength; x += 1) {
+            for (int channel = 0; channel < CHANNELS; channel += 1) {
+                short value = (short) trace.getTraceValue(BASES[channel], x);
+                bins[(x * CHANNELS + channel) * 2] = value;
+                bins[(x * CHANNELS + channel) * 2 + 1] = value;
+            }
+        }
+
+        List<short[]> levels = new ArrayList<>();
+        levels.add(bins);
+        int binCount = traceLength;
+        while (binCount > MIN_BINS) {
+            bins = downsample(bins, binCount);
+            binCount = (binCount + FAN_OUT - 1) / FAN_OUT;
+            levels.add(bins);
+        }
+
+        int[] basecalls = trace.getBasecalls();
+        String sequence = trace.getSequence().seqString();
+        int seqLength = Math.min(basecalls.length, sequence.length());
+
+        long offset = 5 * 4 + levels.size() * 16 + seqLength * 5L;
+        Path tmpFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(tmpFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(traceLength);
+                out.writeInt(seqLength);
+                out.writeInt(levels.size());
+
+                int binSize = 1;
+                for (short[] level : levels) {
+                    int count = level.length / (CHANNELS * 2);
+                    out.writeInt(binSize);
+                    out.writeInt(count);
+                    out.writeLong(offset);
+                    offset += (long) count * BIN_BYTES;
+                    binSize *= FAN_OUT;
+                }
+
+                for (int i = 0; i < seqLength; i += 1) {
+                    out.writeInt(basecalls[i]);
+                }
+                for (int i = 0; i < seqLength; i += 1) {
+                    out.writeByte(sequence.charAt(i));
+                }
+
+                for (short[] level : levels) {
+                    for (short value : level) {
+                        out.writeShort(value);
+                    }
+                }
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    /**
+     * Reads a range of the chromatogram
+     *
+     * @param file  chromatogram file
+     * @param start first trace point of the range (inclusive)
+     * @param end   last trace point of the range (exclusive). Values less than 1 select the end of the trace
+     * @param width maximum number of bins to return (typically the width of the view in pixels). The finest level
+     *              with at most this many bins in the range is used, or the coarsest level if there is none
+     * @return chromatogram data for the range
+     * @throws IOException on exception reading the file or if the file is not a chromatogram file
+     */
+    public static ChromatogramData read(Path file, int start, int end, int width) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.limit() < 20 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IOException("Not a valid chromatogram file");
+
+        int traceLength = buffer.getInt(8);
+        int seqLength = buffer.getInt(12);
+        int levelCount = buffer.getInt(16);
+
+        start = Math.max(0, Math.min(start, traceLength));
+        end = end < 1 ? traceLength : Math.max(start, Math.min(end, traceLength));
+        width = Math.max(1, Math.min(width, MAX_WIDTH));
+
+        // finest level whose bins in the range fit in the width
+        int level = levelCount - 1;
+        for (int i = 0; i < levelCount; i += 1) {
+            int binSize = buffer.getInt(20 + i * 16);
+            if ((end - start + binSize - 1) / binSize <= width) {
+                level = i;
+                break;
+            }
+        }
+
+        int binSize = buffer.getInt(20 + level * 16);
+        int binCount = buffer.getInt(20 + level * 16 + 4);
+        long offset = buffer.getLong(20 + level * 16 + 8);
+
+        int firstBin = start / binSize;
+        int lastBin = end == start ? firstBin - 1 : Math.min(binCount - 1, (end - 1) / binSize);
+        int count = Math.max(0, lastBin - firstBin + 1);
+
+        ChromatogramData data = new ChromatogramData();
+        data.setTraceLength(traceLength);
+        data.setBinSize(binSize);
+        data.setStart(firstBin * binSize);
+        data.setEnd(Math.min(traceLength, (lastBin + 1) * binSize));
+
+        for (int channel = 0; channel < CHANNELS; channel += 1) {
+            int[] minima = new int[count];
+            int[] maxima = new int[count];
+            for (int i = 0; i < count; i += 1) {
+                int position = (int) (offset + (long) (firstBin + i) * BIN_BYTES + channel * 4);
+                minima[i] = buffer.getShort(position);
+                maxima[i] = buffer.getShort(position + 2);
+            }
+            data.getChannels().add(new ChromatogramData.Channel(String.valueOf(BASES[channel]), minima, maxima));
+        }
+
+        int basecallOffset = 20 + levelCount * 16;
+        StringBuilder bases = new StringBuilder();
+        for (int i = 0; i < seqLength; i += 1) {
+            int position = buffer.getInt(basecallOffset + i * 4);
+            if (position < data.getStart() || position >= data.getEnd())
+                continue;
+
+            data.getBasecallPositions().add(position);
+            bases.append((char) buffer.get(basecallOffset + seqLength * 4 + i));
+        }
+        data.setBases(bases.toString());
+        return data;
+    }
+
+    /**
+     * Combines every {@link #FAN_OUT} bins into one
+     */
+    private static short[] downsample(short[] bins, int binCount) {
+        int count = (binCount + FAN_OUT - 1) / FAN_OUT;
+        short[] result = new short[count * CHANNELS * 2];
+        for (int bin = 0; bin < count; bin += 1) {
+            for (int channel = 0; channel < CHANNELS; channel += 1) {
+                short min = Short.MAX_VALUE;
+                short max = Short.MIN_VALUE;
+                for (int i = bin * FAN_OUT; i < Math.min(binCount, (bin + 1) * FAN_OUT); i += 1) {
+                    min = (short) Math.min(min, bins[(i * CHANNELS + channel) * 2]);
+                    max = (short) Math.max(max, bins[(i * CHANNELS + channel) * 2 + 1]);
+                }
+                result[(bin * CHANNELS + channel) * 2] = min;
+                result[(bin * CHANNELS + channel) * 2 + 1] = max;
+            }
+        }
+        return result;
+    }
+}
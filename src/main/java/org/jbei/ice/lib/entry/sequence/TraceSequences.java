@@ -8,6 +8,7 @@ import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.dao.TraceSequenceDAO;
 import org.jbei.ice.storage.model.Account;
 import org.jbei.ice.storage.model.Entry;
+import org.jbei.ice.storage.model.Sequence;
 import org.jbei.ice.storage.model.TraceSequence;
 
 import java.util.List;
@@ -39,7 +40,14 @@ public class TraceSequences {
         if (sequences == null)
             return results;
 
+        // alignments against an older version of the sequence are rebuilt in the background
+        Sequence sequence = DAOFactory.getSequenceDAO().getByEntry(entry);
+        boolean hasStale = false;
+
         for (TraceSequence traceSequence : sequences) {
+            if (sequence != null && SequenceAnalysisController.isStale(traceSequence, sequence.getFwdHash()))
+                hasStale = true;
+
             TraceSequenceAnalysis analysis = traceSequence.toDataTransferObject();
             AccountTransfer accountTransfer = new AccountTransfer();
 
@@ -60,6 +68,9 @@ public class TraceSequences {
             results.getData().add(analysis);
         }
 
+        if (hasStale)
+            SequenceAnalysisController.scheduleAlignmentRebuildTask(sequence);
+
         // get count
         int count = dao.getCountByEntry(entry);
         results.setResultCount(count);
@@ -6,19 +6,21 @@ import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.DNAFeature;
 import org.jbei.ice.lib.dto.DNAFeatures;
 import org.jbei.ice.lib.dto.FeaturedDNASequence;
+import org.jbei.ice.lib.dto.TaskInfo;
 import org.jbei.ice.lib.dto.common.Results;
+import org.jbei.ice.lib.dto.folder.FolderAuthorization;
+import org.jbei.ice.lib.dto.folder.FolderType;
 import org.jbei.ice.lib.dto.search.BlastQuery;
 import org.jbei.ice.lib.executor.IceExecutorService;
+import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.executor.TaskStatus;
 import org.jbei.ice.lib.search.blast.BlastException;
 import org.jbei.ice.lib.search.blast.BlastPlus;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.dao.*;
 import org.jbei.ice.storage.model.*;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  * ICE Annotations with support for generating potential annotations for a specified entry
@@ -27,6 +29,9 @@ import java.util.Set;
  */
 public class Annotations {
 
+    private static final int BATCH_SIZE = 200;              // sequences per blast run
+    private static final int PERMISSION_BATCH_SIZE = 1000;
+
     private final SequenceDAO sequenceDAO;
     private final String userId;
     private final FeatureDAO featureDAO;
@@ -103,26 +108,194 @@ public class Annotations {
             Account account = accountDAO.getByEmail(userId);
             Set<Group> groups = new HashSet<>(this.groupDAO.retrieveMemberGroups(account));
 
+            Map<Long, List<DNAFeature>> hits = new HashMap<>();
+            hits.put(entryId, features);
+            resolveFeatureEntries(hits, isAdministrator(), account, groups);
+            dnaSequence.getFeatures().addAll(hits.get(entryId));
+            dnaSequence.setLength(sequenceString.length());
+            return dnaSequence;
+        } catch (BlastException e) {
+            Logger.error(e);
+            return null;
+        }
+    }
+
+    /**
+     * Submits a task to generate annotations for the sequences of the specified entries. Only entries that the
+     * user can read are annotated
+     *
+     * @param entryIds unique (local) identifiers for entries
+     * @return information about the submitted task, including its id which is used to retrieve the annotations
+     * when it completes
+     */
+    public TaskInfo generateBulk(List<Long> entryIds) {
+        BulkAnnotationTask task = new BulkAnnotationTask(userId, new ArrayList<>(new LinkedHashSet<>(entryIds)));
+        IceExecutorService.getInstance().runTask(task);
+        return task.toDataTransferObject();
+    }
+
+    /**
+     * Submits a task to generate annotations for the sequences of the (visible) entries in the specified folder
+     *
+     * @param folderId unique identifier for folder
+     * @return information about the submitted task
+     * @throws IllegalArgumentException if the folder does not exist
+     * @throws PermissionException      if the user does not have read permissions on the folder
+     */
+    public TaskInfo generateBulkForFolder(long folderId) {
+        Folder folder = DAOFactory.getFolderDAO().get(folderId);
+        if (folder == null)
+            throw new IllegalArgumentException("Could not retrieve folder with id \"" + folderId + "\"");
+
+        // should have permission to read folder
+        new FolderAuthorization().expectRead(userId, folder);
+
+        boolean visibleOnly = folder.getType() != FolderType.TRANSFERRED;
+        return generateBulk(DAOFactory.getFolderDAO().getFolderContentIds(folderId, null, visibleOnly));
+    }
+
+    /**
+     * Retrieves the status and progress of a bulk annotation task submitted by the user
+     *
+     * @param taskId unique identifier for bulk annotation task
+     * @return task information or null if the task is not found
+     * @throws PermissionException if the task was submitted by another user and the user is not an administrator
+     */
+    public TaskInfo getBulkStatus(long taskId) {
+        BulkAnnotationTask task = getBulkTask(taskId);
+        return task == null ? null : task.toDataTransferObject();
+    }
+
+    /**
+     * Retrieves the annotations generated by a completed bulk annotation task submitted by the user
+     *
+     * @param taskId unique identifier for bulk annotation task
+     * @return map of entry id to generated annotations, or null if the task is not found, has not completed or its
+     * annotations have been released
+     * @throws PermissionException if the task was submitted by another user and the user is not an administrator
+     */
+    public Map<Long, FeaturedDNASequence> getBulkResults(long taskId) {
+        BulkAnnotationTask task = getBulkTask(taskId);
+        if (task == null || task.getStatus() != TaskStatus.COMPLETED)
+            return null;
+        return task.getResults();
+    }
+
+    private BulkAnnotationTask getBulkTask(long taskId) {
+        Task task = IceExecutorService.getInstance().getTask(taskId);
+        if (!(task instanceof BulkAnnotationTask))
+            return null;
+
+        BulkAnnotationTask bulkTask = (BulkAnnotationTask) task;
+        if (!bulkTask.getUserId().equalsIgnoreCase(userId) && !isAdministrator())
+            throw new PermissionException("Cannot access annotation task " + taskId);
+        return bulkTask;
+    }
+
+    /**
+     * Generates annotations for the sequences of the specified entries. The sequences are checked against the
+     * features database in batches of {@link #BATCH_SIZE}, with a single blast run per batch, and the entries
+     * containing the hit features are resolved for all sequences in the batch at once
+     *
+     * @param entryIds unique (local) identifiers for entries. Entries the user cannot read are skipped
+     * @param task     task generating the annotations, for reporting progress. Optional
+     * @return map of entry id to generated annotations for each entry with a sequence
+     */
+    Map<Long, FeaturedDNASequence> generate(List<Long> entryIds, BulkAnnotationTask task) {
+        Map<Long, FeaturedDNASequence> results = new HashMap<>();
+        Account account = accountDAO.getByEmail(userId);
+        if (account == null)
+            return results;
+
+        boolean isAdministrator = account.getType() == AccountType.ADMIN;
+        Set<Group> groups = new HashSet<>(this.groupDAO.retrieveMemberGroups(account));
+
+        for (int i = 0; i < entryIds.size(); i += BATCH_SIZE) {
+            if (task != null && task.isCancelled())
+                break;
+
+            List<Long> batch = entryIds.subList(i, Math.min(i + BATCH_SIZE, entryIds.size()));
+            if (!isAdministrator)
+                batch = this.permissionDAO.getCanReadEntries(account, groups, batch);
+
+            Map<Long, String> sequences = new HashMap<>();
+            for (Object[] row : this.sequenceDAO.getSequencesForEntries(batch)) {
+                sequences.put((Long) row[0], (String) row[5]);
+            }
+
+            try {
+                Map<Long, List<DNAFeature>> hits = BlastPlus.runCheckFeatures(sequences);
+                resolveFeatureEntries(hits, isAdministrator, account, groups);
+
+                for (Map.Entry<Long, String> entry : sequences.entrySet()) {
+                    FeaturedDNASequence dnaSequence = new FeaturedDNASequence();
+                    List<DNAFeature> features = hits.get(entry.getKey());
+                    if (features != null)
+                        dnaSequence.getFeatures().addAll(features);
+                    dnaSequence.setLength(entry.getValue().length());
+                    results.put(entry.getKey(), dnaSequence);
+                }
+            } catch (BlastException e) {
+                Logger.error(e);
+            }
+
+            if (task != null)
+                task.reportProgress(Math.min(i + BATCH_SIZE, entryIds.size()), entryIds.size());
+        }
+        return results;
+    }
+
+    /**
+     * Sets the entries (that the user can read) that contain each of the hit features, and removes the features
+     * that are not contained in any such entry. The entries and permissions are resolved for all hits at once
+     *
+     * @param hits            map of query identifier to features that were found in its sequence
+     * @param isAdministrator whether the user has administrative privileges, and can therefore read all entries
+     * @param account         account of the user
+     * @param groups          groups the user is a member of
+     */
+    private void resolveFeatureEntries(Map<Long, List<DNAFeature>> hits, boolean isAdministrator, Account account,
+                                       Set<Group> groups) {
+        Set<Long> featureIds = new HashSet<>();
+        for (List<DNAFeature> features : hits.values()) {
             for (DNAFeature dnaFeature : features) {
-                Feature feature = this.featureDAO.get(dnaFeature.getId());
-                if (feature == null)
+                featureIds.add(dnaFeature.getId());
+            }
+        }
+
+        Map<Long, Set<Long>> featureEntries = this.sequenceFeatureDAO.getEntryIdsByFeatures(featureIds);
+        Set<Long> readable = null;
+        if (!isAdministrator) {
+            Set<Long> entryIds = new HashSet<>();
+            for (Set<Long> ids : featureEntries.values()) {
+                entryIds.addAll(ids);
+            }
+
+            readable = new HashSet<>();
+            List<Long> entryIdList = new ArrayList<>(entryIds);
+            for (int i = 0; i < entryIdList.size(); i += PERMISSION_BATCH_SIZE) {
+                List<Long> batch = entryIdList.subList(i, Math.min(i + PERMISSION_BATCH_SIZE, entryIdList.size()));
+                readable.addAll(this.permissionDAO.getCanReadEntries(account, groups, batch));
+            }
+        }
+
+        for (List<DNAFeature> features : hits.values()) {
+            Iterator<DNAFeature> iterator = features.iterator();
+            while (iterator.hasNext()) {
+                DNAFeature dnaFeature = iterator.next();
+                Set<Long> entries = featureEntries.get(dnaFeature.getId());
+                if (entries == null) {
+                    iterator.remove();
                     continue;
-                List<Long> entries = this.sequenceFeatureDAO.getEntryIdsByFeature(feature);
-                if (!isAdministrator()) {
-                    entries = this.permissionDAO.getCanReadEntries(account, groups, entries);
                 }
 
-                if (entries != null && !entries.isEmpty()) {
-                    dnaFeature.getEntries().addAll(entries);
-                    dnaSequence.getFeatures().add(dnaFeature);
+                for (Long entryId : entries) {
+                    if (readable == null || readable.contains(entryId))
+                        dnaFeature.getEntries().add(entryId);
                 }
+                if (dnaFeature.getEntries().isEmpty())
+                    iterator.remove();
             }
-
-            dnaSequence.setLength(sequenceString.length());
-            return dnaSequence;
-        } catch (BlastException e) {
-            Logger.error(e);
-            return null;
         }
     }
 
@@ -2,6 +2,7 @@ package org.jbei.ice.lib.entry.sequence.annotation;
 
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.executor.TaskType;
 import org.jbei.ice.lib.search.blast.BlastPlus;
 
 import java.io.IOException;
@@ -35,6 +36,11 @@ public class AutoAnnotationBlastDbBuildTask extends Task {
         this(false);
     }
 
+    @Override
+    public TaskType getType() {
+        return TaskType.INDEX;
+    }
+
     @Override
     public void execute() {
         Logger.info("Running Annotation rebuild task");
@@ -0,0 +1,73 @@
+package org.jbei.ice.lib.entry.sequence.annotation;
+
+import org.jbei.ice.lib.dto.FeaturedDNASequence;
+import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.executor.TaskType;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Task to generate annotations for a (potentially large) set of entries. The generated annotations are kept with
+ * the task and can be retrieved by the user that submitted it once it has completed. Since completed tasks remain in
+ * the executor's history, only the annotations of the last {@link #RETAINED_RESULTS} completed tasks are kept;
+ * those of older tasks are released
+ *
+ * @author Hector Plahar
+ */
+public class BulkAnnotationTask extends Task {
+
+    static final int RETAINED_RESULTS = 10;
+    private static final LinkedList<BulkAnnotationTask> RETAINED = new LinkedList<>();
+
+    private final String userId;
+    private final List<Long> entryIds;
+    private volatile Map<Long, FeaturedDNASequence> results;
+
+    public BulkAnnotationTask(String userId, List<Long> entryIds) {
+        this.userId = userId;
+        this.entryIds = entryIds;
+    }
+
+    @Override
+    public void execute() {
+        Annotations annotations = new Annotations(userId);
+        results = annotations.generate(entryIds, this);
+        retain(this);
+    }
+
+    private static void retain(BulkAnnotationTask task) {
+        synchronized (RETAINED) {
+            RETAINED.addFirst(task);
+            if (RETAINED.size() > RETAINED_RESULTS)
+                RETAINED.removeLast().results = null;
+        }
+    }
+
+    @Override
+    public TaskType getType() {
+        return TaskType.BULK;
+    }
+
+    @Override
+    public String getName() {
+        return "Annotation of " + entryIds.size() + " entries";
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return map of entry id to the annotations generated for its sequence, or null if the task has not completed
+     * or its annotations have been released
+     */
+    public Map<Long, FeaturedDNASequence> getResults() {
+        return results;
+    }
+
+    void reportProgress(long completed, long total) {
+        setProgress(completed, total);
+    }
+}
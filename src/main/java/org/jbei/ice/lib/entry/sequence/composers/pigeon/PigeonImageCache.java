@@ -0,0 +1,225 @@
+package org.jbei.ice.lib.entry.sequence.composers.pigeon;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.utils.Utils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On disk cache of SBOL visual images rendered from pigeon scripts by {@link PigeonRenderer}.
+ * <p>
+ * Images are keyed by a hash of the script (and the renderer version) so identical designs share an image and a
+ * changed design never matches a stale image. Rendering is done on a small bounded pool; concurrent requests for the
+ * same script wait on a single render and requests that cannot be queued are rejected rather than piling up threads.
+ * When the total size of the cached images exceeds {@link #MAX_SIZE}, the least recently used images are evicted
+ * until it is below {@link #LOW_WATER_SIZE}. Images are opened under the same lock as eviction, so an image that is
+ * returned cannot be deleted before it is opened
+ *
+ * @author Hector Plahar
+ */
+public class PigeonImageCache {
+
+    private static final String CACHE_FOLDER = "pigeon";
+    private static final String RENDERER_VERSION = "1";
+    private static final int RENDER_THREADS = 2;
+    private static final int RENDER_QUEUE_SIZE = 100;
+    private static final long RENDER_TIMEOUT_SECONDS = 30;
+    private static final long MAX_SIZE = 64L * 1024 * 1024;
+    private static final long LOW_WATER_SIZE = MAX_SIZE * 3 / 4;
+    private static final PigeonImageCache INSTANCE = new PigeonImageCache();
+
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, Future<File>> rendering;
+    private final AtomicLong size;
+    private volatile boolean sizeInitialized;
+
+    private PigeonImageCache() {
+        executor = new ThreadPoolExecutor(RENDER_THREADS, RENDER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(RENDER_QUEUE_SIZE), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "pigeon-render");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        rendering = new ConcurrentHashMap<>();
+        size = new AtomicLong();
+    }
+
+    public static PigeonImageCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Opens the image for the specified pigeon script, rendering it if it is not already cached
+     *
+     * @param script pigeon script
+     * @return stream of the png image, or null if the image could not be rendered or the render pool is saturated.
+     * The stream must be closed by the caller
+     */
+    public InputStream open(String script) {
+        String key = Utils.encryptSHA(RENDERER_VERSION + script);
+        File file = getFolder().resolve(key + ".png").toFile();
+
+        // an image can be evicted after it is rendered and before it is opened, in which case it is rendered again
+        InputStream inputStream = openCached(file);
+        for (int attempt = 0; inputStream == null && attempt < 2; attempt += 1) {
+            if (render(key, script, file) == null)
+                return null;
+            inputStream = openCached(file);
+        }
+        return inputStream;
+    }
+
+    /**
+     * Opens the cached image and marks it as recently used. Synchronized with eviction
+     *
+     * @return stream of the image or null if it is not cached
+     */
+    private synchronized InputStream openCached(File file) {
+        if (!file.exists())
+            return null;
+
+        if (!file.setLastModified(System.currentTimeMillis()))
+            Logger.warn("Could not update last modified time for " + file.getName());
+        try {
+            return new BufferedInputStream(new FileInputStream(file));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Renders the image on the render pool, waiting on a render of the same script that is already in progress
+     *
+     * @return rendered image file, or null if the image could not be rendered or the render pool is saturated
+     */
+    private File render(final String key, final String script, final File file) {
+        FutureTask<File> task = new FutureTask<>(new Callable<File>() {
+            @Override
+            public File call() throws Exception {
+                try {
+                    return renderToFile(script, file);
+                } finally {
+                    rendering.remove(key);
+                }
+            }
+        });
+
+        Future<File> future = rendering.putIfAbsent(key, task);
+        if (future == null) {
+            future = task;
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                rendering.remove(key);
+                Logger.warn("Pigeon render queue is full. Rejecting render request");
+                return null;
+            }
+        }
+
+        try {
+            return future.get(RENDER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            Logger.error("Exception rendering pigeon image", e);
+            return null;
+        }
+    }
+
+    /**
+     * Renders the script to a temporary file that is moved into place when complete, so that a partially written
+     * image is never returned
+     */
+    private File renderToFile(String script, File file) throws IOException {
+        if (file.exists())
+            return file;
+
+        Path folder = file.toPath().getParent();
+        Files.createDirectories(folder);
+        initializeSize(folder);
+
+        Path tmpFile = Files.createTempFile(folder, file.getName(), ".tmp");
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tmpFile))) {
+                PigeonRenderer.render(script, outputStream);
+            }
+            long length = Files.size(tmpFile);
+            Files.move(tmpFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (size.addAndGet(length) > MAX_SIZE)
+                evict(folder);
+            return file;
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    /**
+     * Sums the size of the images left in the cache folder by a previous run
+     */
+    private void initializeSize(Path folder) {
+        if (sizeInitialized)
+            return;
+
+        synchronized (this) {
+            if (sizeInitialized)
+                return;
+
+            File[] files = folder.toFile().listFiles();
+            if (files != null) {
+                for (File image : files) {
+                    size.addAndGet(image.length());
+                }
+            }
+            sizeInitialized = true;
+        }
+    }
+
+    /**
+     * Deletes the least recently used images until the total size is below the low water mark
+     */
+    private synchronized void evict(Path folder) {
+        if (size.get() <= MAX_SIZE)
+            return;
+
+        File[] files = folder.toFile().listFiles();
+        if (files == null)
+            return;
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return Long.compare(o1.lastModified(), o2.lastModified());
+            }
+        });
+
+        for (File image : files) {
+            if (size.get() <= LOW_WATER_SIZE)
+                break;
+
+            if (!image.getName().endsWith(".png"))
+                continue;
+
+            long length = image.length();
+            if (image.delete())
+                size.addAndGet(-length);
+        }
+    }
+
+    private Path getFolder() {
+        String tmpDir = Utils.getConfigValue(ConfigurationKey.TEMPORARY_DIRECTORY);
+        return Paths.get(tmpDir, CACHE_FOLDER);
+    }
+}
@@ -0,0 +1,238 @@
+package org.jbei.ice.lib.entry.sequence.composers.pigeon;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders the design section of a pigeon script (as generated by {@link PigeonSBOLv#generatePigeonScript}) to a
+ * PNG image using Java2D, in place of the remote pigeon web service.
+ * <p>
+ * Each line of the script is of the form <code>[&lt;]glyph name color [nl]</code>, where the optional
+ * <code>&lt;</code> places the part on the reverse strand, <code>color</code> is an index into the pigeon palette
+ * and <code>nl</code> suppresses the label. Parts are drawn left to right along a backbone using SBOL visual glyphs;
+ * arcs (the section following the <code># Arcs</code> line) are not rendered
+ *
+ * @author Hector Plahar
+ */
+class PigeonRenderer {
+
+    private static final int MARGIN = 10;
+    private static final int SPACING = 6;
+    private static final int BACKBONE_Y = 40;
+    private static final int GLYPH_HEIGHT = 20;
+    private static final int HEIGHT = 80;
+    private static final int LABEL_HEIGHT = 16;
+    private static final Color BACKBONE_COLOR = new Color(0x33, 0x33, 0x33);
+
+    // pigeon color indexes 1 - 14
+    private static final Color[] PALETTE = {
+            new Color(0x2E, 0x86, 0xC1), new Color(0xE6, 0x7E, 0x22), new Color(0x27, 0xAE, 0x60),
+            new Color(0xC0, 0x39, 0x2B), new Color(0x8E, 0x44, 0xAD), new Color(0xF1, 0xC4, 0x0F),
+            new Color(0x16, 0xA0, 0x85), new Color(0xD3, 0x54, 0x00), new Color(0x7F, 0x8C, 0x8D),
+            new Color(0x1A, 0x52, 0x76), new Color(0xEC, 0x70, 0x63), new Color(0x58, 0xD6, 0x8D),
+            new Color(0x5D, 0x6D, 0x7E), new Color(0xAF, 0x7A, 0xC5)
+    };
+
+    private PigeonRenderer() {
+    }
+
+    /**
+     * Renders the script as a PNG image
+     *
+     * @param script pigeon script
+     * @param out    stream to write the image to. It is not closed
+     * @throws IOException on exception writing the image
+     */
+    static void render(String script, OutputStream out) throws IOException {
+        List<Part> parts = parse(script);
+
+        int width = MARGIN * 2;
+        boolean labels = false;
+        for (Part part : parts) {
+            width += part.getWidth() + SPACING;
+            labels = labels || part.label;
+        }
+        width = Math.max(width, 100);
+        int height = HEIGHT + (labels ? LABEL_HEIGHT : 0);
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+
+            g.setColor(BACKBONE_COLOR);
+            g.setStroke(new BasicStroke(2));
+            g.drawLine(MARGIN / 2, BACKBONE_Y, width - MARGIN / 2, BACKBONE_Y);
+
+            int x = MARGIN;
+            for (Part part : parts) {
+                drawPart(g, part, x);
+                x += part.getWidth() + SPACING;
+            }
+        } finally {
+            g.dispose();
+        }
+
+        ImageIO.write(image, "png", out);
+    }
+
+    /**
+     * Parses the design section of the script
+     *
+     * @param script pigeon script
+     * @return parts in the design, in order
+     */
+    static List<Part> parse(String script) {
+        List<Part> parts = new ArrayList<>();
+        if (script == null)
+            return parts;
+
+        for (String line : script.split("\\r?\\n")) {
+            line = line.trim();
+            if (line.startsWith("# Arcs"))
+                break;
+
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            String[] tokens = line.split("\\s+");
+            Part part = new Part();
+            String glyph = tokens[0];
+            if (glyph.length() > 1 && glyph.startsWith("<")) {
+                part.reverse = true;
+                glyph = glyph.substring(1);
+            }
+            part.glyph = glyph.charAt(0);
+            if (tokens.length > 1)
+                part.name = tokens[1].replace('_', ' ');
+            if (tokens.length > 2) {
+                try {
+                    part.color = Integer.parseInt(tokens[2]);
+                } catch (NumberFormatException e) {
+                    part.color = 13;
+                }
+            }
+            part.label = !(tokens.length > 3 && "nl".equalsIgnoreCase(tokens[3]));
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    private static void drawPart(Graphics2D g, Part part, int x) {
+        int w = part.getWidth();
+        int h = GLYPH_HEIGHT;
+        Color color = PALETTE[Math.max(0, Math.min(PALETTE.length, part.color) - 1)];
+
+        // glyphs are drawn above the backbone, with y increasing downwards. Reverse parts are rotated about the
+        // centre of the glyph on the backbone
+        AffineTransform saved = g.getTransform();
+        g.translate(x, BACKBONE_Y);
+        if (part.reverse)
+            g.rotate(Math.PI, w / 2.0, 0);
+
+        g.setStroke(new BasicStroke(2));
+        g.setColor(color);
+        switch (part.glyph) {
+            case 'p':   // promoter: bent arrow
+                Path2D.Double promoter = new Path2D.Double();
+                promoter.moveTo(w * 0.2, 0);
+                promoter.lineTo(w * 0.2, -h);
+                promoter.lineTo(w * 0.75, -h);
+                g.draw(promoter);
+                Path2D.Double head = new Path2D.Double();
+                head.moveTo(w * 0.75, -h - 5);
+                head.lineTo(w, -h);
+                head.lineTo(w * 0.75, -h + 5);
+                head.closePath();
+                g.fill(head);
+                break;
+
+            case 'r':   // ribosome binding site: half circle
+                g.fill(new Arc2D.Double(0, -h * 0.6, w, h * 1.2, 0, 180, Arc2D.CHORD));
+                break;
+
+            case 'c':   // coding sequence: block arrow
+                Path2D.Double cds = new Path2D.Double();
+                cds.moveTo(0, -h * 0.6);
+                cds.lineTo(w - 12, -h * 0.6);
+                cds.lineTo(w, 0);
+                cds.lineTo(w - 12, h * 0.6);
+                cds.lineTo(0, h * 0.6);
+                cds.closePath();
+                g.fill(cds);
+                break;
+
+            case 't':   // terminator: T
+                g.drawLine(w / 2, 0, w / 2, -h);
+                g.drawLine(0, -h, w, -h);
+                break;
+
+            case 'o':   // operator: box on the backbone
+                g.fillRect((int) (w * 0.1), -h / 2, (int) (w * 0.8), h / 2);
+                break;
+
+            case 'z':   // origin of replication: circle centered on the backbone
+                g.fill(new Ellipse2D.Double(w / 2.0 - 8, -8, 16, 16));
+                break;
+
+            case 'x':   // restriction site: cross
+                g.drawLine((int) (w * 0.2), -8, (int) (w * 0.8), 8);
+                g.drawLine((int) (w * 0.2), 8, (int) (w * 0.8), -8);
+                break;
+
+            case '|':   // insulator / scar: bar across the backbone
+                g.drawLine(w / 2, -h / 2, w / 2, h / 2);
+                break;
+
+            case 's':   // spacer: open circle on the backbone
+                g.draw(new Ellipse2D.Double(w / 2.0 - 6, -6, 12, 12));
+                break;
+
+            default:    // user defined: open box above the backbone
+                g.drawRect(0, -(int) (h * 0.6), w, (int) (h * 0.6));
+                break;
+        }
+        g.setTransform(saved);
+
+        if (part.label && !part.name.isEmpty()) {
+            g.setColor(BACKBONE_COLOR);
+            g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 10));
+            FontMetrics metrics = g.getFontMetrics();
+            int labelX = x + (w - metrics.stringWidth(part.name)) / 2;
+            g.drawString(part.name, labelX, BACKBONE_Y + h + LABEL_HEIGHT);
+        }
+    }
+
+    /**
+     * A part in the design section of the script
+     */
+    static class Part {
+        char glyph = '?';
+        String name = "";
+        int color = 13;
+        boolean reverse;
+        boolean label = true;
+
+        int getWidth() {
+            switch (glyph) {
+                case 'c':
+                    return 60;
+                case 'p':
+                    return 30;
+                default:
+                    return 20;
+            }
+        }
+    }
+}
@@ -1,31 +1,24 @@
 package org.jbei.ice.lib.entry.sequence.composers.pigeon;
 
-import com.google.gson.Gson;
-import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.entry.sequence.composers.formatters.SBOLVisitor;
 import org.jbei.ice.storage.model.Sequence;
 import org.sbolstandard.core.DnaComponent;
 import org.sbolstandard.core.SequenceAnnotation;
 import org.sbolstandard.core.StrandType;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.io.InputStream;
 import java.net.URI;
-import java.net.URL;
 import java.util.HashMap;
 import java.util.Iterator;
 
 /**
- * Sends post request to pigeon to generate SBOLv
+ * Generates pigeon scripts for sequences and renders them to SBOLv images
  *
  * @author Hector Plahar
  */
 public class PigeonSBOLv {
 
     private static final String NEWLINE = System.getProperty("line.separator");
-    private static final String PIGEON_URL = "http://128.197.173.22:5801/dev/perch2.php";
     private static final HashMap<String, String> map = new HashMap<>();
 
     static {
@@ -104,17 +97,15 @@ public class PigeonSBOLv {
         map.put("SO_0005850", "?, 13");
     }
 
-    public static URI generatePigeonVisual(Sequence sequence) {
-        SBOLVisitor visitor = new SBOLVisitor();
-        visitor.visit(sequence);
-
-        StringBuilder sb = new StringBuilder();
-        if (visitor.getDnaComponent() != null) {
-            sb.append(toPigeon(visitor.getDnaComponent(), null, false));
-        }
-
-        sb.append("# Arcs").append(NEWLINE);
-        return postToPigeon(sb.toString());
+    /**
+     * Renders the SBOL visual for the sequence locally, using the image cache
+     *
+     * @param sequence sequence to render
+     * @return stream of the png image, or null if the image could not be rendered. The stream must be closed by the
+     * caller
+     */
+    public static InputStream generatePigeonImage(Sequence sequence) {
+        return PigeonImageCache.getInstance().open(generatePigeonScript(sequence));
     }
 
     public static String generatePigeonScript(Sequence sequence) {
@@ -170,87 +161,4 @@ public class PigeonSBOLv {
 
         return sb.toString();
     }
-
-    public static URI postToPigeon(String pigeonScript) {
-        try {
-            URL obj = new URL(PIGEON_URL);
-            HttpURLConnection con = (HttpURLConnection) obj.openConnection();
-
-            //add request header
-            con.setRequestMethod("POST");
-            con.setRequestProperty("Accept-Language", "en-US,en;q=0.5");
-            String urlParameters = "specification=" + pigeonScript;
-
-            // Send post request
-            con.setDoOutput(true);
-            DataOutputStream wr = new DataOutputStream(con.getOutputStream());
-            wr.writeBytes(urlParameters);
-            wr.flush();
-            wr.close();
-
-//            int responseCode = con.getResponseCode();
-
-            BufferedReader in = new BufferedReader(new InputStreamReader(con.getInputStream()));
-            StringBuilder response = new StringBuilder();
-
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
-            }
-            in.close();
-
-            //print result
-            String responseString = response.toString();
-            PigeonImage image = new Gson().fromJson(responseString, PigeonImage.class);
-            if (image.statusCode == 0 && "OK".equalsIgnoreCase(image.statusMessage)) {
-                return new URI(image.getFileURL());
-            } else
-                Logger.error("Pigeon returned response of " + image.getStatusMessage());
-        } catch (Exception e) {
-            Logger.error(e);
-        }
-        return null;
-    }
-
-    /**
-     * Object representation of the json return for the pigeon image
-     */
-    private static class PigeonImage {
-        private int statusCode;
-        private String statusMessage;
-        private String fileURL;
-        private String pigeonCode;
-
-        public String getPigeonCode() {
-            return pigeonCode;
-        }
-
-        public void setPigeonCode(String pigeonCode) {
-            this.pigeonCode = pigeonCode;
-        }
-
-        public int getStatusCode() {
-            return statusCode;
-        }
-
-        public void setStatusCode(int statusCode) {
-            this.statusCode = statusCode;
-        }
-
-        public String getStatusMessage() {
-            return statusMessage;
-        }
-
-        public void setStatusMessage(String statusMessage) {
-            this.statusMessage = statusMessage;
-        }
-
-        public String getFileURL() {
-            return fileURL;
-        }
-
-        public void setFileURL(String fileURL) {
-            this.fileURL = fileURL;
-        }
-    }
 }
@@ -1,29 +1,52 @@
 package org.jbei.ice.lib.executor;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
-
 import org.jbei.ice.lib.common.logging.Logger;
 
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
+ * Runs {@link Task}s in the background. Each {@link TaskType} has its own pool of threads and bounded queue; tasks
+ * that are submitted when the queue for their type is full are rejected, which is reported to the task (see
+ * {@link Task#rejected()}) and to the caller. Submitted tasks are tracked (with their
+ * progress and timings) while pending or running, and the most recently finished tasks are retained so that they
+ * can be inspected and cancelled by administrators
+ *
  * @author Hector Plahar
  */
 public class IceExecutorService {
 
+    private static final int HISTORY_SIZE = 100;
     private static final IceExecutorService INSTANCE = new IceExecutorService();
-    private final ExecutorService pool;
+
+    private final Map<TaskType, ThreadPoolExecutor> pools;
+    private final ConcurrentHashMap<Long, TaskFuture> active;
+    private final LinkedList<Task> history;
+    private final AtomicLong nextId;
 
     private IceExecutorService() {
-        pool = Executors.newFixedThreadPool(5, new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread thread = new Thread(r);
-                thread.setPriority(Thread.MIN_PRIORITY);
-                return thread;
-            }
-        });
+        pools = new EnumMap<>(TaskType.class);
+        for (final TaskType type : TaskType.values()) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(type.getThreads(), type.getThreads(), 0L,
+                    TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(type.getQueueCapacity()),
+                    new ThreadFactory() {
+                        private final AtomicLong count = new AtomicLong(0);
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "ice-" + type.name().toLowerCase() + "-"
+                                    + count.incrementAndGet());
+                            thread.setPriority(type.getThreadPriority());
+                            return thread;
+                        }
+                    });
+            pools.put(type, pool);
+        }
+        active = new ConcurrentHashMap<>();
+        history = new LinkedList<>();
+        nextId = new AtomicLong(0);
     }
 
     public static IceExecutorService getInstance() {
@@ -32,28 +55,195 @@ public class IceExecutorService {
 
     public void stopService() {
         Logger.info("Shutting down executor service");
-        pool.shutdown(); // Disable new tasks from being submitted
+        for (ExecutorService pool : pools.values()) {
+            pool.shutdown(); // Disable new tasks from being submitted
+        }
+
         try {
-            // Wait a while for existing tasks to terminate
-            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
-                pool.shutdownNow(); // Cancel currently executing tasks
-                // Wait a while for tasks to respond to being cancelled
-                if (!pool.awaitTermination(10, TimeUnit.SECONDS))
-                    Logger.info("Executor service did not terminate");
+            for (ExecutorService pool : pools.values()) {
+                // Wait a while for existing tasks to terminate
+                if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                    pool.shutdownNow(); // Cancel currently executing tasks
+                    // Wait a while for tasks to respond to being cancelled
+                    if (!pool.awaitTermination(10, TimeUnit.SECONDS))
+                        Logger.info("Executor service did not terminate");
+                }
             }
         } catch (InterruptedException ie) {
             // (Re-)Cancel if current thread also interrupted
-            pool.shutdownNow();
+            for (ExecutorService pool : pools.values()) {
+                pool.shutdownNow();
+            }
             // Preserve interrupt status
             Thread.currentThread().interrupt();
         }
     }
 
-    public void runTask(Task task) {
-        Logger.info("Adding task");
+    /**
+     * Submits the task to the pool for its type. If the queue for the type is full, the task is not run, its
+     * status is set to {@link TaskStatus#REJECTED} and {@link Task#rejected()} is called on the current thread
+     *
+     * @param task task to run
+     * @return true if the task was accepted, false if it was rejected
+     */
+    public boolean runTask(Task task) {
         if (task == null)
-            return;
+            return false;
+
+        task.setId(nextId.incrementAndGet());
+        task.setSubmitTime(System.currentTimeMillis());
+        task.setStatus(TaskStatus.PENDING);
+        Logger.info("Adding " + task.getType() + " task " + task.getName() + " (" + task.getId() + ")");
+
+        TaskFuture future = new TaskFuture(task);
+        active.put(task.getId(), future);
+        try {
+            pools.get(task.getType()).execute(future);
+            return true;
+        } catch (RejectedExecutionException e) {
+            Logger.warn("Rejected " + task.getType() + " task " + task.getName() + ": queue is full");
+            active.remove(task.getId());
+            task.setStatus(TaskStatus.REJECTED);
+            task.setEndTime(System.currentTimeMillis());
+            addToHistory(task);
+            try {
+                task.rejected();
+            } catch (Exception re) {
+                Logger.error("Exception handling rejection of task " + task.getName(), re);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Submits work that is part of handling a request, and is therefore not tracked as a task, to the pool for the
+     * specified type. This bounds the number of threads used for the work across all requests
+     *
+     * @param type     type of pool to run the work on
+     * @param callable work to run
+     * @return future for the result of the work
+     * @throws RejectedExecutionException if the queue for the type is full or the service has been stopped
+     */
+    public <T> Future<T> submit(TaskType type, Callable<T> callable) {
+        return pools.get(type).submit(callable);
+    }
+
+    /**
+     * Cancels a pending or running task. Pending tasks are removed from the queue and the thread running a task is
+     * interrupted
+     *
+     * @param id unique identifier for task
+     * @return true if the task was cancelled, false if it is not pending or running
+     */
+    public boolean cancelTask(long id) {
+        TaskFuture future = active.get(id);
+        if (future == null)
+            return false;
+
+        future.getTask().cancel();
+        boolean cancelled = future.cancel(true);
+        if (cancelled)
+            pools.get(future.getTask().getType()).remove(future);
+        return cancelled;
+    }
+
+    /**
+     * @return the tasks that are pending or running, followed by the most recently finished tasks
+     */
+    public List<Task> getTasks() {
+        List<Task> tasks = new ArrayList<>();
+        for (TaskFuture future : active.values()) {
+            tasks.add(future.getTask());
+        }
+        Collections.sort(tasks, new Comparator<Task>() {
+            @Override
+            public int compare(Task o1, Task o2) {
+                return Long.compare(o1.getId(), o2.getId());
+            }
+        });
+
+        synchronized (history) {
+            tasks.addAll(history);
+        }
+        return tasks;
+    }
+
+    /**
+     * Retrieves a pending or running task, or one of the most recently finished tasks
+     *
+     * @param id unique identifier for task
+     * @return task with the specified id, or null if it is not found
+     */
+    public Task getTask(long id) {
+        TaskFuture future = active.get(id);
+        if (future != null)
+            return future.getTask();
+
+        synchronized (history) {
+            for (Task task : history) {
+                if (task.getId() == id)
+                    return task;
+            }
+        }
+        return null;
+    }
+
+    private void addToHistory(Task task) {
+        synchronized (history) {
+            history.addFirst(task);
+            if (history.size() > HISTORY_SIZE)
+                history.removeLast();
+        }
+    }
+
+    /**
+     * Tracks a submitted task until it is done (run, failed or cancelled). A task that is cancelled while it is
+     * running is only moved to the history once the thread running it has finished, since the future is done as soon
+     * as it is cancelled
+     */
+    private class TaskFuture extends FutureTask<Void> {
 
-        pool.execute(new TaskHandler(task));
+        private final Task task;
+        private final AtomicBoolean finished;
+        private volatile boolean started;
+
+        TaskFuture(Task task) {
+            super(new TaskHandler(task), null);
+            this.task = task;
+            this.finished = new AtomicBoolean(false);
+        }
+
+        Task getTask() {
+            return task;
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            try {
+                super.run();
+            } finally {
+                finish();
+            }
+        }
+
+        @Override
+        protected void done() {
+            // cancelled before it was started; run() is never called if it was removed from the queue
+            if (!started)
+                finish();
+        }
+
+        private void finish() {
+            if (!finished.compareAndSet(false, true))
+                return;
+
+            if (task.getStatus() == TaskStatus.PENDING) {
+                task.setStatus(TaskStatus.CANCELLED);
+                task.setEndTime(System.currentTimeMillis());
+            }
+            addToHistory(task);
+            active.remove(task.getId());
+        }
     }
 }
@@ -1,5 +1,7 @@
 package org.jbei.ice.lib.executor;
 
+import org.jbei.ice.lib.dto.TaskInfo;
+
 /**
  * Abstract class representing tasks that are run by the ice executor service
  *
@@ -7,10 +9,32 @@ package org.jbei.ice.lib.executor;
  */
 public abstract class Task {
 
-    private TaskStatus status = TaskStatus.NEW;
+    private volatile TaskStatus status = TaskStatus.NEW;
+    private volatile long id;
+    private volatile long submitTime;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile long completed;
+    private volatile long total;
+    private volatile boolean cancelled;
 
     public abstract void execute();
 
+    /**
+     * @return the class of the task, which determines the pool it is run on. Defaults to
+     * {@link TaskType#BACKGROUND}
+     */
+    public TaskType getType() {
+        return TaskType.BACKGROUND;
+    }
+
+    /**
+     * @return name of the task for display
+     */
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
     void setStatus(TaskStatus status) {
         this.status = status;
     }
@@ -18,4 +42,95 @@ public abstract class Task {
     public TaskStatus getStatus() {
         return this.status;
     }
+
+    void setId(long id) {
+        this.id = id;
+    }
+
+    /**
+     * @return unique identifier assigned when the task is submitted
+     */
+    public long getId() {
+        return this.id;
+    }
+
+    void setSubmitTime(long submitTime) {
+        this.submitTime = submitTime;
+    }
+
+    public long getSubmitTime() {
+        return submitTime;
+    }
+
+    void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    void setEndTime(long endTime) {
+        this.endTime = endTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Reports the progress of the task. Long running tasks should call this periodically
+     *
+     * @param completed number of units of work completed
+     * @param total     total number of units of work. Use 0 if unknown
+     */
+    protected void setProgress(long completed, long total) {
+        this.completed = completed;
+        this.total = total;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Called on the submitting thread when the task is rejected because the queue for its type is full. Tasks whose
+     * loss would leave state behind (e.g. stale indexes or markers for pending work) should override this to clean
+     * up, or to do their work on the submitting thread. Note that the submitting thread may have an active
+     * transaction so the task must not be run through the executor's transaction handling
+     */
+    protected void rejected() {
+    }
+
+    /**
+     * Long running tasks should check this periodically and stop if it returns true. The thread running the task is
+     * also interrupted when it is cancelled
+     *
+     * @return true if the task has been cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public TaskInfo toDataTransferObject() {
+        TaskInfo info = new TaskInfo();
+        info.setId(id);
+        info.setName(getName());
+        info.setType(getType());
+        info.setStatus(status);
+        info.setCompleted(completed);
+        info.setTotal(total);
+        info.setSubmitTime(submitTime);
+        info.setStartTime(startTime);
+        info.setEndTime(endTime);
+        return info;
+    }
 }
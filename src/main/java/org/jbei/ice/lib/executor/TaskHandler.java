@@ -16,18 +16,33 @@ class TaskHandler implements Runnable {
         this.task = task;
     }
 
+    Task getTask() {
+        return task;
+    }
+
     @Override
     public void run() {
+        if (task.isCancelled())
+            return;
+
+        task.setStartTime(System.currentTimeMillis());
         try {
             this.task.setStatus(TaskStatus.IN_PROGRESS);
             HibernateUtil.beginTransaction();
             task.execute();
-            HibernateUtil.commitTransaction();
-            this.task.setStatus(TaskStatus.COMPLETED);
+            if (task.isCancelled()) {
+                HibernateUtil.rollbackTransaction();
+                this.task.setStatus(TaskStatus.CANCELLED);
+            } else {
+                HibernateUtil.commitTransaction();
+                this.task.setStatus(TaskStatus.COMPLETED);
+            }
         } catch (Throwable caught) {
             Logger.error(caught);
             HibernateUtil.rollbackTransaction();
-            this.task.setStatus(TaskStatus.EXCEPTION);
+            this.task.setStatus(task.isCancelled() ? TaskStatus.CANCELLED : TaskStatus.EXCEPTION);
+        } finally {
+            task.setEndTime(System.currentTimeMillis());
         }
     }
 }
@@ -13,5 +13,7 @@ public enum TaskStatus {
 
     // terminal states
     COMPLETED,       // task run completed successfully
-    EXCEPTION       // an exception caused the task to stop
+    EXCEPTION,       // an exception caused the task to stop
+    CANCELLED,       // task was cancelled before or while running
+    REJECTED         // task was not accepted because the queue for its type is full
 }
@@ -0,0 +1,49 @@
+package org.jbei.ice.lib.executor;
+
+/**
+ * Classes of tasks run by the {@link IceExecutorService}. Each class is run on its own pool of threads with a
+ * bounded queue so that long running tasks of one class (e.g. rebuilding the search indexes) cannot starve the
+ * tasks of another
+ *
+ * @author Hector Plahar
+ */
+public enum TaskType {
+
+    // full rebuilds of the lucene and blast indexes. long running and rarely urgent
+    INDEX(1, 10, Thread.MIN_PRIORITY),
+
+    // tasks that communicate with other registries (transfers, web of registries)
+    NETWORK(3, 100, Thread.NORM_PRIORITY),
+
+    // long running jobs submitted by users, such as bulk sequence imports and annotation
+    BULK(2, 100, Thread.NORM_PRIORITY - 1),
+
+    // formatting of the files in exports that are streamed to users. submitted as work that is not tracked as a
+    // task (see IceExecutorService#submit)
+    EXPORT(4, 64, Thread.NORM_PRIORITY),
+
+    // short tasks such as incremental index updates and bulk upload clean up
+    BACKGROUND(2, 1000, Thread.NORM_PRIORITY - 1);
+
+    private final int threads;
+    private final int queueCapacity;
+    private final int threadPriority;
+
+    TaskType(int threads, int queueCapacity, int threadPriority) {
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.threadPriority = threadPriority;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getThreadPriority() {
+        return threadPriority;
+    }
+}
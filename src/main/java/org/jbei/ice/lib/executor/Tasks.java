@@ -0,0 +1,56 @@
+package org.jbei.ice.lib.executor;
+
+import org.jbei.ice.lib.access.PermissionException;
+import org.jbei.ice.lib.account.AccountType;
+import org.jbei.ice.lib.dto.TaskInfo;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.model.Account;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Administrative access to the tasks submitted to the {@link IceExecutorService}
+ *
+ * @author Hector Plahar
+ */
+public class Tasks {
+
+    private final String userId;
+
+    public Tasks(String userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * @return the pending and running tasks, followed by the most recently finished tasks
+     * @throws PermissionException if the user does not have administrative privileges
+     */
+    public List<TaskInfo> get() {
+        expectAdministrator();
+
+        List<TaskInfo> infos = new ArrayList<>();
+        for (Task task : IceExecutorService.getInstance().getTasks()) {
+            infos.add(task.toDataTransferObject());
+        }
+        return infos;
+    }
+
+    /**
+     * Cancels a pending or running task
+     *
+     * @param id unique identifier for task
+     * @return true if the task was cancelled, false if it is not pending or running
+     * @throws PermissionException if the user does not have administrative privileges
+     */
+    public boolean cancel(long id) {
+        expectAdministrator();
+        return IceExecutorService.getInstance().cancelTask(id);
+    }
+
+    protected void expectAdministrator() {
+        Account account = DAOFactory.getAccountDAO().getByEmail(this.userId);
+        if (account == null || account.getType() != AccountType.ADMIN)
+            throw new PermissionException("Administrative privileges required to access tasks");
+    }
+}
@@ -30,6 +30,11 @@ public class TransferTask extends Task {
         this.entrySelection = entrySelection;
     }
 
+    @Override
+    public TaskType getType() {
+        return TaskType.NETWORK;
+    }
+
     public void execute() {
         RemoteTransfer transfer = new RemoteTransfer();
         Account account = DAOFactory.getAccountDAO().getByEmail(userId);
@@ -24,8 +24,8 @@ import org.jbei.ice.lib.net.RemoteContact;
 import org.jbei.ice.lib.net.RemoteTransfer;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.ModelToInfoFactory;
+import org.jbei.ice.storage.hibernate.dao.EntryKeyset;
 import org.jbei.ice.storage.hibernate.dao.FolderDAO;
-import org.jbei.ice.storage.hibernate.dao.PermissionDAO;
 import org.jbei.ice.storage.hibernate.dao.RemoteAccessModelDAO;
 import org.jbei.ice.storage.hibernate.dao.RemoteShareModelDAO;
 import org.jbei.ice.storage.model.*;
@@ -172,7 +172,6 @@ public class FolderContents {
      */
     protected List<FolderDetails> addEntriesToFolders(String userId, List<Long> entries, List<FolderDetails> folders) {
         Account account = DAOFactory.getAccountDAO().getByEmail(userId);
-        PermissionDAO permissionDAO = DAOFactory.getPermissionDAO();
         Set<Group> accountGroups = new GroupController().getAllGroups(account);
         if (!folderAuthorization.isAdmin(userId))
             entries = DAOFactory.getPermissionDAO().getCanReadEntries(account, accountGroups, entries);
@@ -200,8 +199,7 @@ public class FolderContents {
                 List<Entry> entryModelList = DAOFactory.getEntryDAO().getEntriesByIdSet(entries);
                 folderDAO.addFolderContents(folder, entryModelList);
                 if (folder.isPropagatePermissions()) {
-                    Set<Permission> folderPermissions = permissionDAO.getFolderPermissions(folder);
-                    addEntryPermission(userId, folderPermissions, entryModelList);
+                    addEntryPermission(userId, folder, entryModelList);
                 }
 
                 details.setCount(folderDAO.getFolderSize(folder.getId(), null, true));
@@ -261,9 +259,13 @@ public class FolderContents {
         boolean visibleOnly = folder.getType() != FolderType.TRANSFERRED;
         FolderDetails details = folder.toDataTransferObject();
 
-        // all local entries at this point
-        long folderSize = folderDAO.getFolderSize(folderId, pageParameters.getFilter(), visibleOnly);
-        details.setCount(folderSize);
+        // all local entries at this point. the size is not retrieved for pages after the first continuation page
+        if (EntryKeyset.isContinuedPage(pageParameters)) {
+            details.setCount(-1);
+        } else {
+            long folderSize = folderDAO.getFolderSize(folderId, pageParameters.getFilter(), visibleOnly);
+            details.setCount(folderSize);
+        }
 
         if (userId != null) {
             ArrayList<AccessPermission> permissions = getAndFilterFolderPermissions(userId, folder);
@@ -283,6 +285,7 @@ public class FolderContents {
             PartData info = ModelToInfoFactory.createTableViewData(userId, entry, false);
             details.getEntries().add(info);
         }
+        details.setContinuation(EntryKeyset.createContinuation(pageParameters, results));
         return details;
     }
 
@@ -329,6 +332,7 @@ public class FolderContents {
         }
         details.setCount(remoteDetails.getCount());
         details.setEntries(remoteDetails.getEntries());
+        details.setContinuation(remoteDetails.getContinuation());
         return details;
     }
 
@@ -377,6 +381,7 @@ public class FolderContents {
             info.setCanEdit(canEdit);
             details.getEntries().add(info);
         }
+        details.setContinuation(EntryKeyset.createContinuation(pageParameters, results));
         return details;
     }
 
@@ -428,31 +433,12 @@ public class FolderContents {
         return filteredPermissions;
     }
 
-    private void addEntryPermission(String userId, Set<Permission> permissions, List<Entry> entries) {
-        PermissionDAO permissionDAO = DAOFactory.getPermissionDAO();
-        EntryAuthorization entryAuthorization = new EntryAuthorization();
-
-        for (Permission folderPermission : permissions) {
-            for (Entry entry : entries) {
-                if (!entryAuthorization.canWriteThoroughCheck(userId, entry))
-                    continue;
-
-                // does the permissions already exists
-                if (permissionDAO.hasPermission(entry, null, null, folderPermission.getAccount(),
-                        folderPermission.getGroup(), folderPermission.isCanRead(), folderPermission.isCanWrite())) {
-                    continue;
-                }
+    // copies the folder permissions to the entries that the user can write, in bulk
+    private void addEntryPermission(String userId, Folder folder, List<Entry> entries) {
+        Set<Long> writable = new EntryAuthorization().filterWritable(userId, entries);
+        if (writable.isEmpty())
+            return;
 
-                Permission permission = new Permission();
-                permission.setEntry(entry);
-                if (entry != null)
-                    entry.getPermissions().add(permission);
-                permission.setGroup(folderPermission.getGroup());
-                permission.setAccount(folderPermission.getAccount());
-                permission.setCanRead(folderPermission.isCanRead());
-                permission.setCanWrite(folderPermission.isCanWrite());
-                permissionDAO.create(permission);
-            }
-        }
+        DAOFactory.getPermissionDAO().propagateFolderPermissions(folder, writable);
     }
 }
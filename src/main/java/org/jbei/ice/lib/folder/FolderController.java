@@ -413,7 +413,9 @@ public class FolderController {
 
         folder.setType(FolderType.PUBLIC);
         folder.setModificationTime(new Date());
-        return dao.update(folder).toDataTransferObject();
+        folder = dao.update(folder);
+        DAOFactory.getEntryAccessDAO().indexFolder(folder.getId());
+        return folder.toDataTransferObject();
     }
 
     /**
@@ -434,6 +436,8 @@ public class FolderController {
         folder.setModificationTime(new Date());
         if (StringUtils.isBlank(folder.getOwnerEmail()))
             folder.setOwnerEmail(userId);
-        return dao.update(folder).toDataTransferObject();
+        folder = dao.update(folder);
+        DAOFactory.getEntryAccessDAO().indexFolder(folder.getId());
+        return folder.toDataTransferObject();
     }
 }
@@ -1,6 +1,7 @@
 package org.jbei.ice.lib.folder.collection;
 
 import org.jbei.ice.lib.access.PermissionException;
+import org.jbei.ice.lib.dto.common.PageParameters;
 import org.jbei.ice.lib.dto.common.Results;
 import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.dto.entry.Visibility;
@@ -9,8 +10,10 @@ import org.jbei.ice.lib.entry.SharedEntries;
 import org.jbei.ice.lib.entry.VisibleEntries;
 import org.jbei.ice.lib.shared.ColumnField;
 import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.InvalidContinuationException;
 import org.jbei.ice.storage.ModelToInfoFactory;
 import org.jbei.ice.storage.hibernate.dao.EntryDAO;
+import org.jbei.ice.storage.hibernate.dao.EntryKeyset;
 import org.jbei.ice.storage.model.Entry;
 
 import java.util.List;
@@ -60,96 +63,90 @@ public class CollectionEntries {
      * of such entries that are available
      */
     public Results<PartData> getEntries(ColumnField field, boolean asc, int offset, int limit, String filter) {
+        return this.getEntries(new PageParameters(offset, limit, field, asc, filter));
+    }
+
+    /**
+     * Retrieves a page of parts based on the type of collection. Pages are retrieved by offset, or by continuation
+     * token if one is specified in the parameters; the results then include the token for the next page
+     *
+     * @param pageParameters paging parameters
+     * @return wrapper around list of parts that conform to the parameters and the maximum number
+     * of such entries that are available. The number is not retrieved (and is -1) for pages after the first page
+     * when paging by continuation token
+     * @throws InvalidContinuationException if the continuation token is not valid for the sort parameters
+     */
+    public Results<PartData> getEntries(PageParameters pageParameters) {
         switch (this.type) {
             case PERSONAL:
             default:
-                return this.getPersonalEntries(field, asc, offset, limit, filter);
+                return this.getPersonalEntries(pageParameters);
 
             case AVAILABLE:
-                return this.getAvailableEntries(field, asc, offset, limit, filter);
+                return this.getAvailableEntries(pageParameters);
 
             case SHARED:
-                return this.getSharedEntries(field, asc, offset, limit, filter);
+                return this.getSharedEntries(pageParameters);
 
             case DELETED:
-                return this.getEntriesByVisibility(Visibility.DELETED, field, asc, offset, limit, this.userId, filter);
+                return this.getEntriesByVisibility(Visibility.DELETED, pageParameters, this.userId);
 
             case DRAFTS:
-                return this.getEntriesByVisibility(Visibility.DRAFT, field, asc, offset, limit, this.userId, filter);
+                return this.getEntriesByVisibility(Visibility.DRAFT, pageParameters, this.userId);
 
             case PENDING:
-                return this.getEntriesByVisibility(Visibility.PENDING, field, asc, offset, limit, null, filter);
+                return this.getEntriesByVisibility(Visibility.PENDING, pageParameters, null);
 
             case TRANSFERRED:
-                return this.getEntriesByVisibility(Visibility.TRANSFERRED, field, asc, offset, limit, null, filter);
+                return this.getEntriesByVisibility(Visibility.TRANSFERRED, pageParameters, null);
         }
     }
 
     /**
      * Retrieves entries owned by user
      *
-     * @param field  sort field
-     * @param asc    sort order
-     * @param offset paging start
-     * @param limit  maximum number of entries to retrieve
-     * @param filter optional text to filter entries by
+     * @param pageParameters paging parameters
      * @return wrapper around list of parts that conform to the parameters and the maximum number
      * of such entries that are available
      * @throws PermissionException on null user id which is required for owner entries
      */
-    protected Results<PartData> getPersonalEntries(ColumnField field, boolean asc, int offset, int limit,
-                                                   String filter) {
+    protected Results<PartData> getPersonalEntries(PageParameters pageParameters) {
         if (userId == null || userId.isEmpty())
             throw new PermissionException("User id is required to retrieve owner entries");
         OwnerEntries ownerEntries = new OwnerEntries(userId, userId);
-        final List<PartData> entries = ownerEntries.retrieveOwnerEntries(field, asc, offset, limit, filter);
-        final long count = ownerEntries.getNumberOfOwnerEntries();
-        Results<PartData> results = new Results<>();
-        results.setResultCount(count);
-        results.setData(entries);
+        Results<PartData> results = ownerEntries.retrieveOwnerEntries(pageParameters);
+        results.setResultCount(EntryKeyset.isContinuedPage(pageParameters) ? -1
+                : ownerEntries.getNumberOfOwnerEntries());
         return results;
     }
 
     /**
      * Retrieves entries available to user. "Availability" is determined by any permissions set on the entries
      *
-     * @param field  sort field
-     * @param asc    sort order
-     * @param offset paging start
-     * @param limit  maximum number of entries to retrieve
-     * @param filter optional text to filter entries by
+     * @param pageParameters paging parameters
      * @return wrapper around list of parts that conform to the parameters and the maximum number
      * of such entries that are available
      */
-    protected Results<PartData> getAvailableEntries(ColumnField field, boolean asc, int offset, int limit,
-                                                    String filter) {
+    protected Results<PartData> getAvailableEntries(PageParameters pageParameters) {
         VisibleEntries visibleEntries = new VisibleEntries(userId);
-        List<PartData> entries = visibleEntries.getEntries(field, asc, offset, limit, filter);
-        long count = visibleEntries.getEntryCount(filter);
-        Results<PartData> results = new Results<>();
-        results.setResultCount(count);
-        results.setData(entries);
+        Results<PartData> results = visibleEntries.getEntries(pageParameters);
+        results.setResultCount(EntryKeyset.isContinuedPage(pageParameters) ? -1
+                : visibleEntries.getEntryCount(pageParameters.getFilter()));
         return results;
     }
 
     /**
      * Retrieves entries shared with user.
      *
-     * @param field  sort field
-     * @param asc    sort order ascending if true, descending if false
-     * @param offset paging parameter start
-     * @param limit  maximum number of entries to retrieve
-     * @param filter optional text to filter entries by
+     * @param pageParameters paging parameters
      * @return wrapper around list of parts matching the parameters along with the maximum number of entries
      * available
      */
-    protected Results<PartData> getSharedEntries(ColumnField field, boolean asc, int offset, int limit, String filter) {
+    protected Results<PartData> getSharedEntries(PageParameters pageParameters) {
         SharedEntries sharedEntries = new SharedEntries(this.userId);
-        List<PartData> entries = sharedEntries.getEntries(field, asc, offset, limit, filter);
-        final long count = sharedEntries.getNumberOfEntries(filter);
-        Results<PartData> results = new Results<>();
-        results.setResultCount(count);
-        results.setData(entries);
+        Results<PartData> results = sharedEntries.getEntries(pageParameters);
+        results.setResultCount(EntryKeyset.isContinuedPage(pageParameters) ? -1
+                : sharedEntries.getNumberOfEntries(pageParameters.getFilter()));
         return results;
     }
 
@@ -157,25 +154,23 @@ public class CollectionEntries {
      * Retrieves entries by the specified visibility. {@link Visibility} is used to create
      * collections of entries
      *
-     * @param visibility visibility to retrieve entries by
-     * @param field      sort field
-     * @param asc        sort order
-     * @param offset     paging start
-     * @param limit      maximum number of entries to retrieve
-     * @param user       additional user filter
-     * @param filter     optional text to filter entries by
+     * @param visibility     visibility to retrieve entries by
+     * @param pageParameters paging parameters
+     * @param user           additional user filter
      * @return wrapper around list of parts that conform to the parameters and the maximum number
      * of such entries that are available
      */
-    protected Results<PartData> getEntriesByVisibility(Visibility visibility, ColumnField field, boolean asc,
-                                                       int offset, int limit, String user, String filter) {
-        List<Entry> entries = entryDAO.getByVisibility(user, visibility, field, asc, offset, limit, filter);
+    protected Results<PartData> getEntriesByVisibility(Visibility visibility, PageParameters pageParameters,
+                                                       String user) {
+        List<Entry> entries = entryDAO.getByVisibility(user, visibility, pageParameters);
         Results<PartData> results = new Results<>();
         for (Entry entry : entries) {
             PartData info = ModelToInfoFactory.createTableViewData(userId, entry, false);
             results.getData().add(info);
         }
-        results.setResultCount(entryDAO.getByVisibilityCount(user, visibility, filter));
+        results.setResultCount(EntryKeyset.isContinuedPage(pageParameters) ? -1
+                : entryDAO.getByVisibilityCount(user, visibility, pageParameters.getFilter()));
+        results.setContinuation(EntryKeyset.createContinuation(pageParameters, entries));
         return results;
     }
 }
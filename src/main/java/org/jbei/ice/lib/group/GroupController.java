@@ -4,6 +4,8 @@ import org.jbei.ice.lib.access.PermissionException;
 import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.account.AccountTransfer;
 import org.jbei.ice.lib.account.AccountType;
+import org.jbei.ice.lib.account.PrincipalCache;
+import org.jbei.ice.lib.account.PrincipalContext;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.group.GroupType;
 import org.jbei.ice.lib.dto.group.UserGroup;
@@ -52,6 +54,9 @@ public class GroupController {
     }
 
     public Set<String> retrieveAccountGroupUUIDs(String userId) {
+        if (PrincipalContext.current() != null)
+            return PrincipalCache.getInstance().getGroupUUIDs(userId);
+
         Account account = accountController.getByEmail(userId);
         Set<String> uuids = new HashSet<>();
         if (account != null) {
@@ -94,6 +99,7 @@ public class GroupController {
                 continue;
             memberAccount.getGroups().add(group);
             accountController.save(memberAccount);
+            PrincipalCache.getInstance().invalidate(memberAccount.getEmail());
         }
 
         info = group.toDataTransferObject();
@@ -124,6 +130,9 @@ public class GroupController {
 
         DAOFactory.getPermissionDAO().clearPermissions(group);
         dao.delete(group);
+
+        // members of child groups had this group as a parent
+        PrincipalCache.getInstance().invalidateAll();
         return true;
     }
 
@@ -162,7 +171,7 @@ public class GroupController {
             return groups;
         }
 
-        Set<Long> groupIds = getAllAccountGroups(account);
+        Set<Long> groupIds = PrincipalContext.getGroupIds(account);
         return dao.getByIdList(groupIds);
     }
 
@@ -172,7 +181,7 @@ public class GroupController {
      * @param account Account to query on.
      * @return Set of Group ids.
      */
-    protected Set<Long> getAllAccountGroups(Account account) {
+    public Set<Long> getAllAccountGroups(Account account) {
         HashSet<Long> accountGroups = new HashSet<>();
 
         for (Group group : account.getGroups()) {
@@ -5,6 +5,7 @@ import org.jbei.ice.lib.access.PermissionException;
 import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.account.AccountTransfer;
 import org.jbei.ice.lib.account.AccountType;
+import org.jbei.ice.lib.account.PrincipalCache;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.common.Results;
 import org.jbei.ice.lib.dto.group.GroupType;
@@ -135,6 +136,7 @@ public class Groups {
                 group.getMembers().add(memberAccount);
                 memberAccount.getGroups().add(group);
                 accountDAO.update(memberAccount);
+                PrincipalCache.getInstance().invalidate(memberAccount.getEmail());
             }
         }
 
@@ -248,6 +250,7 @@ public class Groups {
             group.getMembers().add(memberToAdd);
             memberToAdd.getGroups().add(group);
             accountDAO.update(memberToAdd);
+            PrincipalCache.getInstance().invalidate(email);
         }
 
         // all emails remaining should be removed
@@ -258,6 +261,7 @@ public class Groups {
             memberAccount.getGroups().remove(group);
             group.getMembers().remove(memberAccount);
             accountDAO.update(memberAccount);
+            PrincipalCache.getInstance().invalidate(memberEmail);
         }
 
         //
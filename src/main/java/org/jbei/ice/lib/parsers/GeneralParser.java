@@ -6,6 +6,7 @@ import org.jbei.ice.lib.parsers.genbank.GenBankParser;
 import org.jbei.ice.lib.parsers.sbol.SBOLParser;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Helper class to set up a list of parsers to iterate over, to try to parse the input file.
@@ -14,6 +15,7 @@ import java.util.ArrayList;
  */
 public class GeneralParser {
 
+    private static final int SNIFF_LENGTH = 1024;
     private static GeneralParser instance = null;
     private final ArrayList<AbstractParser> parsers = new ArrayList<>();
 
@@ -31,8 +33,9 @@ public class GeneralParser {
 
     public DNASequence parse(String sequence) {
         DNASequence parsedSequence = null;
+        String head = sequence.length() > SNIFF_LENGTH ? sequence.substring(0, SNIFF_LENGTH) : sequence;
 
-        for (AbstractParser parser : parsers) {
+        for (AbstractParser parser : getParsers(head)) {
             try {
                 parsedSequence = parser.parse(sequence);
                 break;
@@ -46,8 +49,9 @@ public class GeneralParser {
 
     public DNASequence parse(byte[] bytes) {
         DNASequence parsedSequence = null;
+        String head = new String(bytes, 0, Math.min(bytes.length, SNIFF_LENGTH));
 
-        for (AbstractParser parser : parsers) {
+        for (AbstractParser parser : getParsers(head)) {
             try {
                 parsedSequence = parser.parse(bytes);
                 break;
@@ -59,6 +63,38 @@ public class GeneralParser {
         return parsedSequence;
     }
 
+    /**
+     * Determines the likely format of the content from its first few characters and orders the registered parsers
+     * so that the parser for that format is tried first, since each failed attempt parses the entire content.
+     * The remaining parsers are still tried (in registration order) if the likely format is wrong
+     *
+     * @param head start of the content to parse
+     * @return list of parsers in the order in which they should be tried
+     */
+    private List<AbstractParser> getParsers(String head) {
+        Class<? extends AbstractParser> likely;
+        String start = head.trim();
+        String[] lines = start.split("\\r?\\n|\\r", 3);
+        if (lines[0].contains(GenBankParser.LOCUS_TAG)
+                || (lines.length > 1 && lines[1].contains(GenBankParser.LOCUS_TAG)))
+            likely = GenBankParser.class;
+        else if (start.startsWith(">") || start.startsWith(";"))
+            likely = FastaParser.class;
+        else if (start.startsWith("<"))
+            likely = SBOLParser.class;
+        else
+            likely = PlainParser.class;
+
+        List<AbstractParser> ordered = new ArrayList<>(parsers.size());
+        for (AbstractParser parser : parsers) {
+            if (parser.getClass() == likely)
+                ordered.add(0, parser);
+            else
+                ordered.add(parser);
+        }
+        return ordered;
+    }
+
     private void registerParsers() {
         parsers.add(new GenBankParser());
         parsers.add(new FastaParser());
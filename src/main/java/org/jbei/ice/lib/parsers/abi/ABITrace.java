@@ -24,14 +24,14 @@ package org.jbei.ice.lib.parsers.abi;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 import org.biojava.bio.BioError;
 import org.biojava.bio.seq.DNATools;
@@ -46,7 +46,9 @@ import org.biojava.bio.symbol.SymbolList;
  * it is capable of opening an ABI file and storing
  * the most important fields, which can be recalled as simple java types. It can also return
  * an image corresponding to the trace.
- * It has three constructors with input types <code>File, URL, and byte[]</code>.<br><br>
+ * It has three constructors with input types <code>File, URL, and byte[]</code>. Files are memory mapped rather
+ * than read into memory and the trace channels are only decoded when they are requested, so that the sequence,
+ * basecalls and individual trace values can be read without loading the whole file.<br><br>
  * ABI files contain two sets of basecall and sequence data, one that was originally
  * created programatically and the other, which is an editable copy. This version of this object
  * only references the original unedited data.<br>
@@ -64,8 +66,8 @@ public class ABITrace {
     private int A[], G[], C[], T[], Basecalls[];
     private int TraceLength, SeqLength;
 
-    //This is the actual file data.
-    private byte[] TraceData;
+    //This is the actual file data (big endian), either memory mapped or wrapping a byte array.
+    private ByteBuffer TraceData;
 
     private int maximum = 0;
 
@@ -90,19 +92,10 @@ public class ABITrace {
      * @throws IllegalArgumentException if the file is not a valid ABI file.
      */
     public ABITrace(File ABIFile) throws IOException {
-        byte[] bytes = null;
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        FileInputStream fis = new FileInputStream(ABIFile);
-        BufferedInputStream bis = new BufferedInputStream(fis);
-        int b;
-        while ((b = bis.read()) >= 0) {
-            baos.write(b);
+        // the mapping remains valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(ABIFile.toPath(), StandardOpenOption.READ)) {
+            initData(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
         }
-        bis.close();
-        fis.close();
-        baos.close();
-        bytes = baos.toByteArray();
-        initData(bytes);
     }
 
     /**
@@ -125,7 +118,7 @@ public class ABITrace {
         is.close();
         baos.close();
         bytes = baos.toByteArray();
-        initData(bytes);
+        initData(ByteBuffer.wrap(bytes));
     }
 
     /**
@@ -134,7 +127,7 @@ public class ABITrace {
      * @throws IllegalArgumentException if the data does not represent a valid ABI file.
      */
     public ABITrace(byte[] ABIFileData) {
-        initData(ABIFileData);
+        initData(ByteBuffer.wrap(ABIFileData));
     }
 
     /**
@@ -183,6 +176,7 @@ public class ABITrace {
      *          if the base is not valid
      */
     public int[] getTrace(AtomicSymbol base) throws IllegalSymbolException {
+        setTraces();
         if (base == DNATools.a()) {
             return A;
         } else if (base == DNATools.c()) {
@@ -197,6 +191,21 @@ public class ABITrace {
         }
     }
 
+    /**
+     * Returns a single value of one of the four traces, read directly from the file data without decoding the
+     * whole trace.
+     *
+     * @param base the base ('A', 'C', 'G' or 'T') to retrieve the trace value for
+     * @param x    the x-coordinate of the point, between 0 and <code>getTraceLength() - 1</code>
+     * @return the y-coordinate value of the point
+     * @throws IllegalArgumentException if the base is not valid
+     */
+    public int getTraceValue(char base, int x) {
+        if (x < 0 || x >= TraceLength)
+            throw new IndexOutOfBoundsException("Trace position " + x + " out of range");
+        return TraceData.getShort(getTraceStart(base) + 2 * x);
+    }
+
     /**
      * Returns a BufferedImage that represents the entire trace. The height can be set precisely in
      * pixels, the width in pixels is determined by the scaling factor times the number
@@ -207,6 +216,7 @@ public class ABITrace {
      * @param widthScale  indiates how many horizontal pixels to use to represent a single x-coordinate (try 2).
      */
     public BufferedImage getImage(int imageHeight, int widthScale) {
+        setTraces();
         BufferedImage out = new BufferedImage(TraceLength * widthScale, imageHeight, BufferedImage.TYPE_BYTE_INDEXED);
         Graphics2D g = out.createGraphics();
         Color acolor = Color.green.darker();
@@ -289,17 +299,18 @@ public class ABITrace {
     }
 
     /**
-     * Initialize all of the data fields for this object.
+     * Initialize all of the data fields for this object, except for the traces which are decoded when first
+     * requested.
      *
      * @throws IllegalArgumentException which will propagate to all of the constructors.
      */
-    private void initData(byte[] fileData) {
+    private void initData(ByteBuffer fileData) {
         TraceData = fileData;
         if (isABI()) {
             setIndex();
             setBasecalls();
             setSeq();
-            setTraces();
+            setTraceStarts();
         } else throw new IllegalArgumentException("Not a valid ABI file.");
     }
 
@@ -308,16 +319,14 @@ public class ABITrace {
      */
     private void getSubArray(byte[] b, int traceDataOffset) {
         for (int x = 0; x <= b.length - 1; x++) {
-            b[x] = TraceData[traceDataOffset + x];
+            b[x] = TraceData.get(traceDataOffset + x);
         }
     }
 
     /**
-     * Shuffle the pointers to point to the proper spots in the trace, then load the
-     * traces into their arrays.
+     * Shuffle the pointers to point to the proper spots in the trace.
      */
-    private void setTraces() {
-        int pointers[] = new int[4]; //alphabetical, 0=A, 1=C, 2=G, 3=T
+    private void setTraceStarts() {
         int datas[] = new int[4];
         char order[] = new char[4];
 
@@ -327,55 +336,79 @@ public class ABITrace {
         datas[3] = DATA12;
 
         for (int i = 0; i <= 3; i++) {
-            order[i] = (char) TraceData[FWO + i];
+            order[i] = (char) TraceData.get(FWO + i);
         }
 
         for (int i = 0; i <= 3; i++) {
             switch (order[i]) {
                 case 'A':
                 case 'a':
-                    pointers[0] = datas[i];
+                    ATraceStart = datas[i];
                     break;
                 case 'C':
                 case 'c':
-                    pointers[1] = datas[i];
+                    CTraceStart = datas[i];
                     break;
                 case 'G':
                 case 'g':
-                    pointers[2] = datas[i];
+                    GTraceStart = datas[i];
                     break;
                 case 'T':
                 case 't':
-                    pointers[3] = datas[i];
+                    TTraceStart = datas[i];
                     break;
                 default:
                     throw new IllegalArgumentException("Trace contains illegal values.");
             }
         }
 
-        A = new int[TraceLength];
-        C = new int[TraceLength];
-        G = new int[TraceLength];
-        T = new int[TraceLength];
+        int end = TraceData.limit() - TraceLength * 2;
+        if (ATraceStart > end || CTraceStart > end || GTraceStart > end || TTraceStart > end)
+            throw new IllegalArgumentException("Trace data extends past the end of the file.");
+    }
 
-        for (int i = 0; i <= 3; i++) {
-            byte[] qq = new byte[TraceLength * 2];
-            getSubArray(qq, pointers[i]);
-            DataInputStream dis = new DataInputStream(new ByteArrayInputStream(qq));
-            for (int x = 0; x <= TraceLength - 1; x++) {
-                try {
-                    if (i == 0) A[x] = (int) dis.readShort();
-                    if (i == 1) C[x] = (int) dis.readShort();
-                    if (i == 2) G[x] = (int) dis.readShort();
-                    if (i == 3) T[x] = (int) dis.readShort();
-                } catch (IOException e)//This shouldn't happen. If it does something must be seriously wrong.
-                {
-                    throw new IllegalStateException(
-                            "Unexpected IOException encountered while manipulating internal streams.");
-                }
-            }
+    /**
+     * Returns the file position of the trace for the base.
+     */
+    private int getTraceStart(char base) {
+        switch (base) {
+            case 'A':
+            case 'a':
+                return ATraceStart;
+            case 'C':
+            case 'c':
+                return CTraceStart;
+            case 'G':
+            case 'g':
+                return GTraceStart;
+            case 'T':
+            case 't':
+                return TTraceStart;
+            default:
+                throw new IllegalArgumentException("Don't know base: " + base);
         }
-        return;
+    }
+
+    /**
+     * Load the traces into their arrays, if they have not already been loaded.
+     */
+    private synchronized void setTraces() {
+        if (A != null)
+            return;
+
+        int[] a = decodeTrace(ATraceStart);
+        C = decodeTrace(CTraceStart);
+        G = decodeTrace(GTraceStart);
+        T = decodeTrace(TTraceStart);
+        A = a;
+    }
+
+    private int[] decodeTrace(int start) {
+        int[] trace = new int[TraceLength];
+        for (int x = 0; x <= TraceLength - 1; x++) {
+            trace[x] = TraceData.getShort(start + 2 * x);
+        }
+        return trace;
     }
 
     /**
@@ -384,7 +417,7 @@ public class ABITrace {
     private void setSeq() {
         char tempseq[] = new char[SeqLength];
         for (int x = 0; x <= SeqLength - 1; ++x) {
-            tempseq[x] = (char) TraceData[PBAS2 + x];
+            tempseq[x] = (char) TraceData.get(PBAS2 + x);
         }
         sequence = new String(tempseq);
     }
@@ -395,17 +428,8 @@ public class ABITrace {
      */
     private void setBasecalls() {
         Basecalls = new int[SeqLength];
-        byte[] qq = new byte[SeqLength * 2];
-        getSubArray(qq, PLOC);
-        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(qq));
         for (int i = 0; i <= SeqLength - 1; ++i) {
-            try {
-                Basecalls[i] = (int) dis.readShort();
-            } catch (IOException e)//This shouldn't happen. If it does something must be seriously wrong.
-            {
-                throw new IllegalStateException(
-                        "Unexpected IOException encountered while manipulating internal streams.");
-            }
+            Basecalls[i] = (int) TraceData.getShort(PLOC + 2 * i);
         }
     }
 
@@ -413,17 +437,7 @@ public class ABITrace {
      * Utility method to return an int beginning at <code>pointer</code> in the TraceData array.
      */
     private int getIntAt(int pointer) {
-        int out = 0;
-        byte[] temp = new byte[4];
-        getSubArray(temp, pointer);
-        try {
-            DataInputStream dis = new DataInputStream(new ByteArrayInputStream(temp));
-            out = dis.readInt();
-        } catch (IOException e) //This shouldn't happen. If it does something must be seriously wrong.
-        {
-            throw new IllegalStateException("Unexpected IOException encountered while manipulating internal streams.");
-        }
-        return out;
+        return TraceData.getInt(pointer);
     }
 
     /**
@@ -526,18 +540,16 @@ public class ABITrace {
      * due to binary FTP from an older macintosh system.
      */
     private boolean isABI() {
-        char ABI[] = new char[4];
+        if (TraceData.limit() < AbsIndexBase + 4)
+            return false;
 
-        for (int i = 0; i <= 2; i++) {
-            ABI[i] = (char) TraceData[i];
-        }
-        if (ABI[0] == 'A' && (ABI[1] == 'B' && ABI[2] == 'I')) {
+        if (TraceData.get(0) == 'A' && TraceData.get(1) == 'B' && TraceData.get(2) == 'I') {
             return true;
         } else {
-            for (int i = 128; i <= 130; i++) {
-                ABI[i] = (char) TraceData[i];
-            }
-            if (ABI[0] == 'A' && (ABI[1] == 'B' && ABI[2] == 'I')) {
+            if (TraceData.limit() < 128 + AbsIndexBase + 4)
+                return false;
+
+            if (TraceData.get(128) == 'A' && TraceData.get(129) == 'B' && TraceData.get(130) == 'I') {
                 MacJunk = 128;
                 return true;
             } else
@@ -545,4 +557,3 @@ public class ABITrace {
         }
     }
 }
-
@@ -7,6 +7,7 @@ import org.jbei.ice.lib.utils.FileUtils;
 import org.jbei.ice.lib.utils.UtilityException;
 import org.jbei.ice.lib.utils.Utils;
 
+import java.io.*;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -43,11 +44,14 @@ public class GenBankParser extends AbstractParser {
 
     // obsolete tags
     public static final String BASE_TAG = "BASE";
-    private static final String[] NORMAL_TAGS = {LOCUS_TAG, DEFINITION_TAG, ACCESSION_TAG,
-            VERSION_TAG, NID_TAG, PROJECT_TAG, DBLINK_TAG, KEYWORDS_TAG, SEGMENT_TAG, SOURCE_TAG,
+    private static final Set<String> NORMAL_TAGS = new HashSet<>(Arrays.asList(LOCUS_TAG, DEFINITION_TAG,
+            ACCESSION_TAG, VERSION_TAG, NID_TAG, PROJECT_TAG, DBLINK_TAG, KEYWORDS_TAG, SEGMENT_TAG, SOURCE_TAG,
             ORGANISM_TAG, REFERENCE_TAG, COMMENT_TAG, FEATURES_TAG, BASE_COUNT_TAG, CONTIG_TAG,
-            ORIGIN_TAG, END_TAG, BASE_TAG};
-    private static final String[] IGNORE_TAGS = {BASE_TAG,};
+            ORIGIN_TAG, END_TAG, BASE_TAG));
+
+    // upper bound on the sequence buffer allocated up front from the length declared on the LOCUS line; longer
+    // sequences grow the buffer as they are read so a bogus length cannot force a large allocation
+    private static final int MAX_PREALLOCATED_LENGTH = 4 << 20;
 
     private static final Pattern startStopPattern = Pattern.compile("[<>]*(\\d+)\\.\\.[<>]*(\\d+)");
     private static final Pattern startOnlyPattern = Pattern.compile("\\d+");
@@ -61,167 +65,165 @@ public class GenBankParser extends AbstractParser {
     // TODO parse source feature tag with xdb_ref
     @Override
     public DNASequence parse(String textSequence) throws InvalidFormatParserException {
-        FeaturedDNASequence sequence = null;
-        try {
-            textSequence = cleanSequence(textSequence);
-
-            ArrayList<Tag> tags = splitTags(textSequence, NORMAL_TAGS, IGNORE_TAGS);
-            tags = parseTags(tags);
-
-            sequence = new FeaturedDNASequence();
-            for (final Tag tag : tags) {
-                if (tag instanceof LocusTag) {
-                    sequence.setName(((LocusTag) tag).getLocusName());
-                    sequence.setIsCircular(((LocusTag) tag).isCircular());
-                } else if (tag instanceof OriginTag) {
-                    sequence.setSequence(((OriginTag) tag).getSequence());
-                } else if (tag instanceof FeaturesTag) {
-                    sequence.setFeatures(((FeaturesTag) tag).getFeatures());
-                }
-            }
+        try (BufferedReader reader = new BufferedReader(new StringReader(textSequence))) {
+            return parseRecord(reader);
+        } catch (IOException e) {
+            throw new InvalidFormatParserException(e);
         } catch (NullPointerException | StringIndexOutOfBoundsException e) {
             recordParsingError(textSequence, e);
         }
-        return sequence;
+        return null;
     }
 
-    /**
-     * If there is a parsing error of interest, write the file to disk, and send an email to admin.
-     */
-    private void recordParsingError(final String fileText, final Exception e)
-            throws InvalidFormatParserException {
-        final String message = "Error parsing genbank file. Please examine the recorded file.";
-        try {
-            FileUtils.recordAndReportFile(message, fileText, e);
-        } catch (final UtilityException e1) {
-            throw new InvalidFormatParserException("failed to write error");
+    @Override
+    public DNASequence parse(byte[] bytes) throws InvalidFormatParserException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes)))) {
+            return parseRecord(reader);
+        } catch (IOException e) {
+            throw new InvalidFormatParserException(e);
+        } catch (NullPointerException | StringIndexOutOfBoundsException e) {
+            recordParsingError(new String(bytes), e);
         }
+        return null;
     }
 
-    private ArrayList<Tag> splitTags(final String block, final String[] acceptedTags,
-                                     final String[] ignoredTags) throws InvalidFormatParserException {
-        final ArrayList<Tag> result = new ArrayList<>();
+    private FeaturedDNASequence parseRecord(BufferedReader reader) throws IOException, InvalidFormatParserException {
+        FeaturedDNASequence sequence = parseNext(reader);
+        if (sequence == null)
+            throw new InvalidFormatParserException("Not a valid Genbank format: No Locus line.");
+        return sequence;
+    }
 
-        StringBuilder rawBlock = new StringBuilder();
-        final String[] lines = block.split("\n");
-        String[] lineChunks;
-        Tag currentTag = null;
+    /**
+     * Reads the next genbank record (terminated by <code>//</code> or the end of the input) from the reader in a
+     * single pass. Lines are processed as they are read, and the sequence is accumulated in a buffer sized using
+     * the length on the LOCUS line so the input is never held in memory as a whole.
+     *
+     * @param reader source of genbank text, positioned at the start of a record
+     * @return parsed record or null if there are no more records in the reader
+     * @throws IOException                  on exception reading from the reader
+     * @throws InvalidFormatParserException if the record does not start with a LOCUS line
+     */
+    public FeaturedDNASequence parseNext(BufferedReader reader) throws IOException, InvalidFormatParserException {
+        FeaturedDNASequence sequence = null;
+        boolean locusFound = false;
+        int lineCount = 0;
+        int sequenceLength = 0;
+        String currentTag = null;
+        StringBuilder bases = null;
+        StringBuilder definition = null;
+        FeatureBlock featureBlock = null;
 
-        // see if first two lines contain the "LOCUS" keyword. If not, don't even bother
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty())
+                continue;
 
-        if (lines.length >= 1 && !lines[0].contains("LOCUS")) {
-            if (lines.length == 1 || !lines[1].contains("LOCUS")) {
-                throw new InvalidFormatParserException("Not a valid Genbank format: No Locus line.");
+            // see if first two lines contain the "LOCUS" keyword. If not, don't even bother
+            if (!locusFound) {
+                lineCount += 1;
+                locusFound = trimmed.contains(LOCUS_TAG);
+                if (!locusFound && lineCount >= 2)
+                    throw new InvalidFormatParserException("Not a valid Genbank format: No Locus line.");
+                if (sequence == null)
+                    sequence = new FeaturedDNASequence();
             }
-        }
 
-        for (final String line : lines) {
-            lineChunks = line.trim().split(" +");
-            final String putativeTag = lineChunks[0].trim();
-            if (Arrays.asList(acceptedTags).contains(putativeTag)) {
-                if (currentTag != null) { // deleteExpiredSessions previous tag
-                    currentTag.setRawBody(rawBlock.toString());
-                    if (!Arrays.asList(ignoredTags).contains(currentTag.getKey())) {
-                        result.add(currentTag);
-                    }
-                }
-
-                rawBlock = new StringBuilder();
-                rawBlock.append(line);
-                rawBlock.append("\n");
-                currentTag = new Tag(Tag.Type.REGULAR);
-                currentTag.setKey(putativeTag);
+            int space = trimmed.indexOf(' ');
+            String putativeTag = space == -1 ? trimmed : trimmed.substring(0, space);
+            if (!NORMAL_TAGS.contains(putativeTag)) {
+                if (ORIGIN_TAG.equals(currentTag))
+                    appendBases(trimmed, bases);
+                else if (FEATURES_TAG.equals(currentTag))
+                    featureBlock.addLine(line);
+                else if (DEFINITION_TAG.equals(currentTag))
+                    definition.append(' ').append(trimmed);
+                continue;
+            }
 
-            } else {
-                rawBlock.append(line);
-                rawBlock.append("\n");
+            // new tag; complete the previous one
+            if (featureBlock != null) {
+                sequence.setFeatures(featureBlock.close());
+                featureBlock = null;
             }
-        }
-        if (currentTag != null) {
-            currentTag.setRawBody(rawBlock.toString());
-            result.add(currentTag); // push the last one
-        }
-        return result;
-    }
+            currentTag = putativeTag;
 
-    private ArrayList<Tag> parseTags(final ArrayList<Tag> tags) throws InvalidFormatParserException {
-        for (int i = 0; i < tags.size(); i++) {
-            final Tag tag = tags.get(i);
-            switch (tag.getKey()) {
-                default:
-                    parseNormalTag(tag);
+            switch (putativeTag) {
+                case LOCUS_TAG:
+                    LocusTag locusTag = parseLocusTag(trimmed);
+                    sequence.setName(locusTag.getLocusName());
+                    sequence.setIsCircular(locusTag.isCircular());
+                    sequenceLength = locusTag.getSequenceLength();
                     break;
 
-                case ORIGIN_TAG:
-                    tags.set(i, parseOriginTag(tag));
+                case DEFINITION_TAG:
+                    definition = new StringBuilder(space == -1 ? "" : trimmed.substring(space + 1).trim());
                     break;
 
                 case FEATURES_TAG:
-                    tags.set(i, parseFeaturesTag(tag));
+                    featureBlock = new FeatureBlock();
                     break;
 
-                case REFERENCE_TAG:
-                    tags.set(i, parseReferenceTag(tag));
-                    break;
-
-                case LOCUS_TAG:
-                    tags.set(i, parseLocusTag(tag));
+                case ORIGIN_TAG:
+                    int capacity = sequenceLength > 0 ? Math.min(sequenceLength, MAX_PREALLOCATED_LENGTH) : 1024;
+                    bases = new StringBuilder(capacity);
                     break;
 
-                case SOURCE_TAG:
-                    // ??
-                    break;
+                case END_TAG:
+                    if (definition != null)
+                        sequence.setDescription(definition.toString());
+                    if (bases != null)
+                        sequence.setSequence(bases.toString());
+                    return sequence;
             }
         }
-        return tags;
+
+        if (!locusFound && lineCount > 0)
+            throw new InvalidFormatParserException("Not a valid Genbank format: No Locus line.");
+
+        if (featureBlock != null)
+            sequence.setFeatures(featureBlock.close());
+        if (definition != null)
+            sequence.setDescription(definition.toString());
+        if (bases != null)
+            sequence.setSequence(bases.toString());
+        return sequence;
     }
 
-    private Tag parseNormalTag(final Tag tag) {
-        String value = "";
-        final String[] lines = tag.getRawBody().split("\n");
-        final String[] firstLine = lines[0].split(" +");
-        if (firstLine.length == 1) {
-            // empty value
-            tag.setValue("");
-        } else {
-            firstLine[0] = "";
-            value = Utils.join(" ", Arrays.asList(firstLine));
-            lines[0] = "";
-            for (int i = 1; i < lines.length; i++) {
-                lines[i] = lines[i].trim();
-            }
-            value = value + " " + Utils.join(" ", Arrays.asList(lines));
+    /**
+     * If there is a parsing error of interest, write the file to disk, and send an email to admin.
+     */
+    private void recordParsingError(final String fileText, final Exception e)
+            throws InvalidFormatParserException {
+        final String message = "Error parsing genbank file. Please examine the recorded file.";
+        try {
+            FileUtils.recordAndReportFile(message, fileText, e);
+        } catch (final UtilityException e1) {
+            throw new InvalidFormatParserException("failed to write error");
         }
-        tag.setValue(value.trim());
-        return tag;
     }
 
-    private OriginTag parseOriginTag(final Tag tag) {
-        final OriginTag result = new OriginTag();
-        String value = "";
-        final StringBuilder sequence = new StringBuilder();
-
-        final String[] lines = tag.getRawBody().split("\n");
-        String[] chunks;
-
-        if (lines[0].startsWith(ORIGIN_TAG)) {
-            if (lines[0].split(" +").length > 1) { // grab value of origin
-                value = lines[0].split(" +")[1];
-            }
-        }
-        for (int i = 1; i < lines.length; i++) {
-            chunks = lines[i].trim().split(" +");
-            if (chunks[0].matches("\\d*")) { // sometimes sequence block is un-numbered fasta
-                chunks[0] = "";
-            }
-            sequence.append(Utils.join("", Arrays.asList(chunks)).toLowerCase());
+    /**
+     * Appends the bases on a line of the origin block to the sequence buffer. The line may start with the
+     * position of its first base, which is skipped, since sometimes sequence block is un-numbered fasta
+     *
+     * @param line  trimmed origin block line
+     * @param bases sequence buffer
+     */
+    private static void appendBases(String line, StringBuilder bases) {
+        int start = 0;
+        while (start < line.length() && Character.isDigit(line.charAt(start))) {
+            start += 1;
         }
+        if (start < line.length() && !Character.isWhitespace(line.charAt(start)))
+            start = 0;
 
-        result.setKey(tag.getKey());
-        result.setValue(value);
-        result.setSequence(sequence.toString());
-
-        return result;
+        for (int i = start; i < line.length(); i += 1) {
+            char c = line.charAt(i);
+            if (!Character.isWhitespace(c))
+                bases.append(Character.toLowerCase(c));
+        }
     }
 
     protected FeaturesTag parseFeaturesTag(final Tag tag) throws InvalidFormatParserException {
@@ -239,77 +241,11 @@ public class GenBankParser extends AbstractParser {
             return result;
         }
 
-        StringBuilder qualifierBlock = new StringBuilder();
-        DNAFeature dnaFeature = null;
-
+        FeatureBlock featureBlock = new FeatureBlock();
         for (int i = 1; i < lines.length; i += 1) {
-            String line = lines[i].trim();
-            boolean isQualifier = (line.startsWith("/") && line.contains("="));
-            if (isQualifier) {
-                if (!qualifierBlock.toString().isEmpty() && !qualifierBlock.toString().endsWith("\n"))  // and is not an empty string
-                    qualifierBlock.append("\n");
-                qualifierBlock.append(line);
-//                .append("\n");
-                continue;
-            }
-
-            // expect format to be TYPE\\s+location
-            String[] chunks = line.trim().split("\\s+");
-            if (chunks.length < 2) {
-                qualifierBlock.append(line);
-                continue;
-            }
-
-            if (dnaFeature != null) {
-                dnaFeature = parseQualifiers(qualifierBlock.toString(), dnaFeature);
-                result.getFeatures().add(dnaFeature);
-                qualifierBlock = new StringBuilder();
-            }
-
-            dnaFeature = new DNAFeature();
-            String type = chunks[0].trim();
-
-            // get location string
-            String locationString = chunks[1].trim();
-            boolean reversedLocations = false;
-            if (locationString.startsWith("complement(join")) {
-                reversedLocations = true; // standard compliant complement(join(location, location))
-            }
-
-            boolean complement = false;
-            if (locationString.startsWith("complement")) {
-                complement = true;
-                locationString = locationString.trim();
-                locationString = locationString.substring(11, locationString.length() - 1).trim();
-            }
-
-            // get location from string
-            List<GenbankLocation> genbankLocations = parseGenbankLocation(locationString);
-            if (reversedLocations) {
-                Collections.reverse(genbankLocations);
-            }
-
-            final LinkedList<DNAFeatureLocation> dnaFeatureLocations = new LinkedList<>();
-            for (final GenbankLocation genbankLocation : genbankLocations) {
-                final DNAFeatureLocation dnaFeatureLocation = new DNAFeatureLocation(
-                        genbankLocation.getGenbankStart(), genbankLocation.getEnd());
-                dnaFeatureLocations.add(dnaFeatureLocation);
-            }
-
-            dnaFeature.getLocations().addAll(dnaFeatureLocations);
-            dnaFeature.setType(type);
-
-            if (complement) {
-                dnaFeature.setStrand(-1);
-            } else {
-                dnaFeature.setStrand(1);
-            }
-        }
-
-        if (dnaFeature != null) {
-            dnaFeature = parseQualifiers(qualifierBlock.toString(), dnaFeature);
-            result.getFeatures().add(dnaFeature);
+            featureBlock.addLine(lines[i]);
         }
+        result.setFeatures(featureBlock.close());
         return result;
     }
 
@@ -483,35 +419,97 @@ public class GenBankParser extends AbstractParser {
         return result;
     }
 
-    // TODO
-    private ReferenceTag parseReferenceTag(final Tag tag) throws InvalidFormatParserException {
-        final String lines[] = tag.getRawBody().split("\n");
-        final String putativeValue = lines[0].split(" +")[1];
-        tag.setValue(putativeValue);
+    private LocusTag parseLocusTag(final String locusLine) {
+        final LocusTag result = new LocusTag();
+        result.setRawBody(locusLine);
+        result.setKey(LOCUS_TAG);
+        final List<String> locusChunks = Arrays.asList(locusLine.split(" +"));
+
+        result.setCircular(locusChunks.contains("circular") || locusChunks.contains("CIRCULAR"));
+
+        if (locusChunks.indexOf("bp") == 3) {
+            result.setLocusName(locusChunks.get(1));
+            try {
+                result.setSequenceLength(Integer.parseInt(locusChunks.get(2)));
+            } catch (NumberFormatException e) {
+                result.setSequenceLength(0);
+            }
+        } else {
+            result.setLocusName("undefined");
+        }
 
-        return null;
+        return result;
     }
 
-    private LocusTag parseLocusTag(final Tag tag) {
-        final LocusTag result = new LocusTag();
-        result.setRawBody(tag.getRawBody());
-        result.setKey(tag.getKey());
-        final String locusLine = tag.getRawBody();
-        final String[] locusChunks = locusLine.split(" +");
+    /**
+     * Incrementally builds the features in the FEATURES block of a record from its lines (excluding the
+     * first line, which is the FEATURES tag), so that the block does not need to be held in memory
+     */
+    private class FeatureBlock {
 
-        if (Arrays.asList(locusChunks).contains("circular")
-                || Arrays.asList(locusChunks).contains("CIRCULAR")) {
-            result.setCircular(true);
-        } else {
-            result.setCircular(false);
-        }
+        private final List<DNAFeature> features = new ArrayList<>();
+        private StringBuilder qualifierBlock = new StringBuilder();
+        private DNAFeature dnaFeature;
 
-        if (Arrays.asList(locusChunks).indexOf("bp") == 3) {
-            result.setLocusName(locusChunks[1]);
-        } else {
-            result.setLocusName("undefined");
+        void addLine(String line) throws InvalidFormatParserException {
+            line = line.trim();
+            boolean isQualifier = (line.startsWith("/") && line.contains("="));
+            if (isQualifier) {
+                if (qualifierBlock.length() > 0 && qualifierBlock.charAt(qualifierBlock.length() - 1) != '\n')
+                    qualifierBlock.append("\n");
+                qualifierBlock.append(line);
+                return;
+            }
+
+            // expect format to be TYPE\\s+location
+            String[] chunks = line.split("\\s+");
+            if (chunks.length < 2) {
+                qualifierBlock.append(line);
+                return;
+            }
+
+            if (dnaFeature != null) {
+                features.add(parseQualifiers(qualifierBlock.toString(), dnaFeature));
+                qualifierBlock = new StringBuilder();
+            }
+
+            dnaFeature = new DNAFeature();
+            String type = chunks[0].trim();
+
+            // get location string
+            String locationString = chunks[1].trim();
+            boolean reversedLocations = false;
+            if (locationString.startsWith("complement(join")) {
+                reversedLocations = true; // standard compliant complement(join(location, location))
+            }
+
+            boolean complement = false;
+            if (locationString.startsWith("complement")) {
+                complement = true;
+                locationString = locationString.substring(11, locationString.length() - 1).trim();
+            }
+
+            // get location from string
+            List<GenbankLocation> genbankLocations = parseGenbankLocation(locationString);
+            if (reversedLocations) {
+                Collections.reverse(genbankLocations);
+            }
+
+            for (final GenbankLocation genbankLocation : genbankLocations) {
+                dnaFeature.getLocations().add(new DNAFeatureLocation(genbankLocation.getGenbankStart(),
+                        genbankLocation.getEnd()));
+            }
+
+            dnaFeature.setType(type);
+            dnaFeature.setStrand(complement ? -1 : 1);
         }
 
-        return result;
+        List<DNAFeature> close() {
+            if (dnaFeature != null) {
+                features.add(parseQualifiers(qualifierBlock.toString(), dnaFeature));
+                dnaFeature = null;
+            }
+            return features;
+        }
     }
 }
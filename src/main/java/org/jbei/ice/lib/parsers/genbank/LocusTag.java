@@ -7,6 +7,7 @@ class LocusTag extends Tag {
 
     private String locusName = "";
     private boolean isCircular = true;
+    private int sequenceLength;
 
     public LocusTag() {
         super(Type.LOCUS);
@@ -27,4 +28,12 @@ class LocusTag extends Tag {
     public void setCircular(boolean isCircular) {
         this.isCircular = isCircular;
     }
+
+    public int getSequenceLength() {
+        return sequenceLength;
+    }
+
+    public void setSequenceLength(int sequenceLength) {
+        this.sequenceLength = sequenceLength;
+    }
 }
@@ -4,10 +4,14 @@ import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.search.FullTextSession;
 import org.hibernate.search.Search;
+import org.hibernate.search.batchindexing.MassIndexerProgressMonitor;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.executor.TaskType;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Task to rebuild lucene index
  *
@@ -15,14 +19,46 @@ import org.jbei.ice.storage.hibernate.HibernateUtil;
  */
 public class RebuildLuceneIndexTask extends Task {
 
+    @Override
+    public TaskType getType() {
+        return TaskType.INDEX;
+    }
+
     @Override
     public void execute() {
         Logger.info("Rebuilding lucene index in background");
         try {
             Session session = HibernateUtil.newSession();
             FullTextSession fullTextSession = Search.getFullTextSession(session);
-            fullTextSession.createIndexer().idFetchSize(20);
-            fullTextSession.createIndexer().startAndWait();
+            fullTextSession.createIndexer()
+                    .idFetchSize(20)
+                    .progressMonitor(new MassIndexerProgressMonitor() {
+                        private final AtomicLong total = new AtomicLong(0);
+                        private final AtomicLong added = new AtomicLong(0);
+
+                        @Override
+                        public void documentsAdded(long increment) {
+                            setProgress(added.addAndGet(increment), total.get());
+                        }
+
+                        @Override
+                        public void documentsBuilt(int number) {
+                        }
+
+                        @Override
+                        public void entitiesLoaded(int size) {
+                        }
+
+                        @Override
+                        public void addToTotalCount(long count) {
+                            setProgress(added.get(), total.addAndGet(count));
+                        }
+
+                        @Override
+                        public void indexingCompleted() {
+                        }
+                    })
+                    .startAndWait();
         } catch (HibernateException he) {
             Logger.error(he);
         } catch (InterruptedException e) {
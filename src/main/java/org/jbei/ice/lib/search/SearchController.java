@@ -4,12 +4,19 @@ import org.apache.commons.lang3.StringUtils;
 import org.jbei.ice.lib.account.AccountController;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.search.*;
+import org.jbei.ice.lib.entry.EntryAuthorization;
 import org.jbei.ice.lib.executor.IceExecutorService;
 import org.jbei.ice.lib.search.blast.BlastException;
 import org.jbei.ice.lib.search.blast.BlastPlus;
+import org.jbei.ice.lib.search.kmer.KmerIndex;
+import org.jbei.ice.lib.search.kmer.RebuildKmerIndexTask;
+import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.search.HibernateSearch;
+import org.jbei.ice.storage.model.Entry;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * Controller for running searches on the ice platform
@@ -37,10 +44,22 @@ public class SearchController {
             if (query.getBlastQuery().getBlastProgram() == null)
                 query.getBlastQuery().setBlastProgram(BlastProgram.BLAST_N);
 
-            try {
-                blastResults = BlastPlus.runBlast(query.getBlastQuery());
-            } catch (BlastException e) {
-                Logger.error("Exception running blast " + e.getMessage());
+            // when requested, exact and near exact nucleotide matches are found using the k-mer index without running
+            // blast. the index only returns complete hits, so blast is still run when none of them can be read by the
+            // user. other searches always run blast since they include partial and local alignments
+            if (query.getBlastQuery().isExactOnly()
+                    && query.getBlastQuery().getBlastProgram() == BlastProgram.BLAST_N) {
+                blastResults = KmerIndex.getInstance().search(query.getBlastQuery().getSequence());
+                if (blastResults != null && !hasReadableResult(userId, blastResults))
+                    blastResults = null;
+            }
+
+            if (blastResults == null || blastResults.isEmpty()) {
+                try {
+                    blastResults = BlastPlus.runBlast(query.getBlastQuery());
+                } catch (BlastException e) {
+                    Logger.error("Exception running blast " + e.getMessage());
+                }
             }
         }
 
@@ -66,6 +85,23 @@ public class SearchController {
         }
     }
 
+    /**
+     * @param userId  unique user identifier making the request. Can be null
+     * @param results search results keyed by entry id
+     * @return true if the user can read at least one of the entries in the results
+     */
+    private boolean hasReadableResult(String userId, HashMap<String, SearchResult> results) {
+        if (results.isEmpty())
+            return false;
+
+        List<Long> ids = new ArrayList<>(results.size());
+        for (String id : results.keySet()) {
+            ids.add(Long.decode(id));
+        }
+        List<Entry> entries = DAOFactory.getEntryDAO().getEntriesByIdSet(ids);
+        return !new EntryAuthorization().filterReadable(userId, entries).isEmpty();
+    }
+
     /**
      * Rebuilds the search indices. Admin privileges required
      *
@@ -83,6 +119,7 @@ public class SearchController {
         if (type == IndexType.LUCENE)
             IceExecutorService.getInstance().runTask(new RebuildLuceneIndexTask());
         else if (type == IndexType.BLAST) {
+            IceExecutorService.getInstance().runTask(new RebuildKmerIndexTask(true));
             try {
                 BlastPlus.rebuildDatabase(true);
             } catch (BlastException e) {
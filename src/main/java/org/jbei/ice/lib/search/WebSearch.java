@@ -6,18 +6,17 @@ import org.jbei.ice.lib.dto.search.SearchResult;
 import org.jbei.ice.lib.dto.search.SearchResults;
 import org.jbei.ice.lib.dto.web.RegistryPartner;
 import org.jbei.ice.lib.dto.web.RemotePartnerStatus;
-import org.jbei.ice.lib.executor.IceExecutorService;
-import org.jbei.ice.lib.executor.Task;
-import org.jbei.ice.lib.executor.TaskStatus;
 import org.jbei.ice.services.rest.IceRestClient;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.dao.RemotePartnerDAO;
 import org.jbei.ice.storage.model.RemotePartner;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import javax.ws.rs.client.InvocationCallback;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Search for other ICE instances
@@ -26,6 +25,11 @@ import java.util.List;
  */
 public class WebSearch {
 
+    // connect and read timeout for each partner
+    private static final int PARTNER_TIMEOUT_MS = 10000;
+    // maximum time to wait for all partners to respond. partial results are returned after this
+    private static final long SEARCH_DEADLINE_MS = 15000;
+
     private final RemotePartnerDAO remotePartnerDAO;
 
     public WebSearch() {
@@ -63,18 +67,12 @@ public class WebSearch {
         do {
             query.getParameters().setStart(perPageOffset);
             results = runSearch(partners, query);
+            if (results.getResults().isEmpty())
+                break;
             offsetCount += results.getResults().size();
             perPageOffset += RETRIEVE_COUNT_LIMIT_PER_INSTANCE;
         } while (offsetCount <= offset);
 
-        // sort the results
-//        Collections.sort(resultsList, new Comparator<SearchResult>() {
-//            @Override
-//            public int compare(SearchResult o1, SearchResult o2) {
-//                return Double.compare(o2.getScore(), o1.getScore());
-//            }
-//        });
-
         int toIndex = limit;
         int size = results.getResults().size();
 
@@ -87,75 +85,150 @@ public class WebSearch {
         return results;
     }
 
-    // the paging params need to be removed from the query object
+    /**
+     * Sends the query to all approved partners concurrently and merges the results that are received before
+     * {@link #SEARCH_DEADLINE_MS}. Requests to partners that have not responded by then are cancelled and their
+     * results are omitted. Since scores from different partners are not comparable, the merged results are ranked on
+     * each result's score relative to the max score of the partner that returned it
+     *
+     * @param partners registry partners to search
+     * @param query    search query. the paging params need to be removed from the query object
+     * @return merged results from the partners that responded in time
+     */
     protected SearchResults runSearch(List<RemotePartner> partners, SearchQuery query) {
-        List<Task> searchTasks = new LinkedList<>();
-        SearchResults searchResults = new SearchResults();
-        HashMap<Long, Long> partnerCounts = new HashMap<>();
-
+        List<RemotePartner> approved = new ArrayList<>();
         for (RemotePartner partner : partners) {
             if (partner.getUrl() == null || partner.getPartnerStatus() != RemotePartnerStatus.APPROVED)
                 continue;
-
-            searchTasks.add(runSearchThread(partner, query, searchResults, partnerCounts));
+            approved.add(partner);
         }
 
-        while (!searchTasks.isEmpty()) {
-            Iterator<Task> iterator = searchTasks.iterator();
-            while (iterator.hasNext()) {
-                TaskStatus status = iterator.next().getStatus();
-                if (status == TaskStatus.COMPLETED || status == TaskStatus.EXCEPTION)
-                    iterator.remove();
+        PartnerResults partnerResults = new PartnerResults(approved.size());
+        List<Future<SearchResults>> requests = new ArrayList<>();
+        IceRestClient client = IceRestClient.getInstance();
+        for (RemotePartner partner : approved) {
+            try {
+                requests.add(client.postAsync(partner.getUrl(), "/rest/search", query, PARTNER_TIMEOUT_MS,
+                        new PartnerSearchCallback(partner, partnerResults)));
+            } catch (Exception e) {
+                Logger.warn("Exception contacting partner " + partner.getUrl() + " : " + e.getMessage());
+                partnerResults.partnerDone();
             }
         }
 
-        long total = 0;
-        for (long id : partnerCounts.keySet()) {
-            total += partnerCounts.get(id);
+        List<SearchResult> results = partnerResults.await(SEARCH_DEADLINE_MS);
+        for (Future<SearchResults> request : requests) {
+            if (!request.isDone())
+                request.cancel(true);
         }
-        searchResults.setResultCount(total);
+
+        // rank on relevance relative to the partner that returned the result
+        Collections.sort(results, new Comparator<SearchResult>() {
+            @Override
+            public int compare(SearchResult o1, SearchResult o2) {
+                return Float.compare(relativeScore(o2), relativeScore(o1));
+            }
+        });
+
+        SearchResults searchResults = new SearchResults();
+        searchResults.setResults(results);
+        searchResults.setResultCount(partnerResults.getTotal());
         return searchResults;
     }
 
-    protected SearchTask runSearchThread(RemotePartner partner, SearchQuery query, SearchResults searchResults,
-                                         HashMap<Long, Long> counts) {
-        SearchTask searchTask = new SearchTask(partner, query, searchResults, counts);
-        IceExecutorService.getInstance().runTask(searchTask);
-        return searchTask;
+    protected static float relativeScore(SearchResult result) {
+        if (result.getMaxScore() <= 0)
+            return 0;
+        return result.getScore() / result.getMaxScore();
+    }
+
+    /**
+     * Results received from partners. Callbacks are invoked concurrently on client threads, and results that
+     * arrive after the deadline are dropped
+     */
+    protected static class PartnerResults {
+
+        private final List<SearchResult> results;
+        private final ConcurrentHashMap<Long, Long> counts;
+        private final CountDownLatch pending;
+        private boolean closed;
+
+        PartnerResults(int partnerCount) {
+            this.results = new ArrayList<>();
+            this.counts = new ConcurrentHashMap<>();
+            this.pending = new CountDownLatch(partnerCount);
+        }
+
+        synchronized void add(long partnerId, SearchResults partnerResults, RegistryPartner registryPartner) {
+            if (closed)
+                return;
+
+            for (SearchResult result : partnerResults.getResults()) {
+                result.setPartner(registryPartner);
+                results.add(result);
+            }
+            counts.put(partnerId, partnerResults.getResultCount());
+        }
+
+        void partnerDone() {
+            pending.countDown();
+        }
+
+        /**
+         * Waits until all partners have responded (or failed) or the deadline passes, whichever comes first
+         *
+         * @param deadline maximum time to wait in milliseconds
+         * @return results received before the deadline
+         */
+        List<SearchResult> await(long deadline) {
+            try {
+                if (!pending.await(deadline, TimeUnit.MILLISECONDS))
+                    Logger.warn(pending.getCount() + " partner(s) did not respond to search in " + deadline + "ms");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            synchronized (this) {
+                closed = true;
+                return new ArrayList<>(results);
+            }
+        }
+
+        long getTotal() {
+            long total = 0;
+            for (long count : counts.values()) {
+                total += count;
+            }
+            return total;
+        }
     }
 
-    public static class SearchTask extends Task {
+    protected static class PartnerSearchCallback implements InvocationCallback<SearchResults> {
 
         private final RemotePartner partner;
-        private final SearchQuery query;
-        private final SearchResults results;
-        private final HashMap<Long, Long> counts;
+        private final RegistryPartner registryPartner;
+        private final PartnerResults results;
 
-        public SearchTask(RemotePartner partner, SearchQuery query, SearchResults results, HashMap<Long, Long> counts) {
+        public PartnerSearchCallback(RemotePartner partner, PartnerResults results) {
             this.partner = partner;
-            this.query = query;
+            this.registryPartner = partner.toDataTransferObject();
             this.results = results;
-            this.counts = counts;
         }
 
         @Override
-        public void execute() {
+        public void completed(SearchResults searchResults) {
             try {
-                IceRestClient client = IceRestClient.getInstance();
-                SearchResults results = client.post(partner.getUrl(), "/rest/search", query, SearchResults.class, null);
-                if (results == null)
-                    return;
-
-                RegistryPartner registryPartner = partner.toDataTransferObject();
-                for (SearchResult result : results.getResults()) {
-                    result.setPartner(registryPartner);
-                    this.results.getResults().add(result);
-                }
-
-                counts.put(this.partner.getId(), results.getResultCount());
-            } catch (Exception e) {
-                Logger.warn("Exception contacting partner " + partner.getUrl() + " : " + e.getMessage());
+                if (searchResults != null && searchResults.getResults() != null)
+                    results.add(partner.getId(), searchResults, registryPartner);
+            } finally {
+                results.partnerDone();
             }
         }
+
+        @Override
+        public void failed(Throwable throwable) {
+            Logger.warn("Exception contacting partner " + partner.getUrl() + " : " + throwable.getMessage());
+            results.partnerDone();
+        }
     }
 }
@@ -0,0 +1,306 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.utils.Utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Incremental maintenance of the blast search database.
+ * <p>
+ * Entries whose sequences are created, updated or deleted after the last full rebuild of the main <code>ice</code>
+ * volume are recorded as tombstones, since their record in the main volume (if any) is now stale. The current
+ * sequences for those entries are written to a small delta volume and searches are run against an alias database
+ * that spans both volumes. Hits from the main volume for tombstoned entries are discarded when processing the blast
+ * output.
+ * <p>
+ * A full rebuild of the main volume acts as a compaction and drops all tombstones (and their delta records) that
+ * are older than the start of the rebuild. Changes are therefore stamped only once the transaction that made them
+ * has committed, so that a change with a stamp older than the start of the rebuild is guaranteed to be seen by it.
+ * A rebuild is scheduled automatically once the delta grows beyond {@link #MAX_DELTA_SIZE} entries.
+ *
+ * @author Hector Plahar
+ */
+class BlastDeltaIndex {
+
+    static final String DELTA_ID_SUFFIX = "d";
+    static final String ALIAS_DB_NAME = "ice_all";
+    private static final String DELTA_DB_NAME = "ice_delta";
+    private static final String DELTA_FASTA_FILE = "delta.fasta";
+    private static final String TOMBSTONES_FILE = "delta.tombstones";
+    private static final int MAX_DELTA_SIZE = 500;
+
+    private static final BlastDeltaIndex INSTANCE = new BlastDeltaIndex();
+    private static final AtomicLong LAST_CHANGE_TIME = new AtomicLong(0);
+
+    private final Map<Long, Long> tombstones;       // entry id -> time of change
+    private final Map<Long, String> records;        // entry id -> delta fasta record
+    private final AtomicBoolean compactionScheduled;
+    private volatile boolean loaded;
+
+    private BlastDeltaIndex() {
+        tombstones = new ConcurrentHashMap<>();
+        records = new LinkedHashMap<>();
+        compactionScheduled = new AtomicBoolean(false);
+    }
+
+    // empty index that is not backed by files, for tests
+    BlastDeltaIndex(boolean loaded) {
+        this();
+        this.loaded = loaded;
+    }
+
+    static BlastDeltaIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Determines if the record for the specified entry in the main blast volume has been superseded by a change
+     * since the last full rebuild
+     *
+     * @param entryId unique identifier for entry
+     * @return true if hits for the entry from the main volume should be discarded, false otherwise
+     */
+    boolean isStale(long entryId) {
+        load();
+        return tombstones.containsKey(entryId);
+    }
+
+    /**
+     * Returns a strictly increasing time stamp (in ms) for ordering changes and rebuilds. Changes are applied by
+     * tasks that may run out of order so this is obtained when the change is committed and not when it is applied
+     *
+     * @return time stamp for a change
+     */
+    public static long nextChangeTime() {
+        long now = System.currentTimeMillis();
+        long last;
+        do {
+            last = LAST_CHANGE_TIME.get();
+            if (now <= last)
+                now = last + 1;
+        } while (!LAST_CHANGE_TIME.compareAndSet(last, now));
+        return now;
+    }
+
+    /**
+     * Records a change to the sequence of the specified entry and rebuilds the delta volume. The change is ignored
+     * if a more recent change for the same entry has already been recorded.
+     *
+     * @param blastInstall installation directory for blast
+     * @param entryId      unique identifier for entry whose sequence changed
+     * @param record       new fasta record for the entry. Use <code>null</code> if the sequence was deleted or is no
+     *                     longer searchable
+     * @param changeTime   time stamp for the change obtained from {@link #nextChangeTime()}
+     * @throws BlastException on exception rebuilding the delta volume
+     */
+    synchronized void update(Path blastInstall, long entryId, String record, long changeTime) throws BlastException {
+        if (!record(entryId, record, changeTime))
+            return;
+
+        persist();
+        formatDelta(blastInstall);
+        BlastSearchService.getInstance().databaseChanged();
+
+        if (startCompaction()) {
+            Logger.info("Blast delta has " + tombstones.size() + " entries. Scheduling compaction");
+            if (!BlastPlus.scheduleBlastIndexRebuildTask(true))
+                compactionFinished();
+        }
+    }
+
+    /**
+     * Records a change in memory
+     *
+     * @return true if the change was recorded, false if a more recent change for the entry is already recorded
+     */
+    synchronized boolean record(long entryId, String record, long changeTime) {
+        load();
+        Long existing = tombstones.get(entryId);
+        if (existing != null && existing > changeTime)
+            return false;
+
+        tombstones.put(entryId, changeTime);
+        if (record == null)
+            records.remove(entryId);
+        else
+            records.put(entryId, record);
+        return true;
+    }
+
+    /**
+     * @return true if the delta is large enough to be compacted and no compaction is already scheduled; the caller
+     * is then responsible for scheduling it and calling {@link #compactionFinished()} when it is done or if it could
+     * not be scheduled
+     */
+    boolean startCompaction() {
+        return tombstones.size() > MAX_DELTA_SIZE && compactionScheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Called once a scheduled compaction has finished, whether or not it succeeded, so that another one can be
+     * scheduled
+     */
+    void compactionFinished() {
+        compactionScheduled.set(false);
+    }
+
+    /**
+     * Drops all changes that were recorded before the start of a full rebuild of the main volume, since those are
+     * now included in it, and rebuilds the delta volume with the remaining changes (if any)
+     *
+     * @param blastInstall installation directory for blast
+     * @param rebuildStart time stamp obtained from {@link #nextChangeTime()} before the full rebuild started reading
+     *                     sequences
+     * @throws BlastException on exception rebuilding the delta volume
+     */
+    synchronized void compact(Path blastInstall, long rebuildStart) throws BlastException {
+        drop(rebuildStart);
+        persist();
+        formatDelta(blastInstall);
+        BlastSearchService.getInstance().databaseChanged();
+    }
+
+    /**
+     * Drops the changes in memory that were stamped before the specified rebuild start
+     */
+    synchronized void drop(long rebuildStart) {
+        load();
+        Iterator<Map.Entry<Long, Long>> iterator = tombstones.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Long> tombstone = iterator.next();
+            if (tombstone.getValue() < rebuildStart) {
+                records.remove(tombstone.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
+    private static Path getBlastFolder() {
+        String dataDir = Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY);
+        return Paths.get(dataDir, BlastPlus.BLAST_DB_FOLDER);
+    }
+
+    /**
+     * Loads the tombstones and delta records from disk the first time they are needed
+     */
+    private void load() {
+        if (loaded)
+            return;
+
+        synchronized (this) {
+            if (loaded)
+                return;
+
+            Path blastFolder = getBlastFolder();
+            try {
+                Path tombstonesFile = Paths.get(blastFolder.toString(), TOMBSTONES_FILE);
+                if (Files.exists(tombstonesFile)) {
+                    for (String line : Files.readAllLines(tombstonesFile, Charset.defaultCharset())) {
+                        String[] values = line.split(BlastPlus.DELIMITER);
+                        if (values.length != 2)
+                            continue;
+                        tombstones.put(Long.decode(values[0]), Long.decode(values[1]));
+                    }
+                }
+
+                Path deltaFile = Paths.get(blastFolder.toString(), DELTA_FASTA_FILE);
+                if (Files.exists(deltaFile)) {
+                    long entryId = 0;
+                    StringBuilder record = new StringBuilder();
+                    for (String line : Files.readAllLines(deltaFile, Charset.defaultCharset())) {
+                        if (line.startsWith(">")) {
+                            if (record.length() > 0)
+                                records.put(entryId, record.toString());
+                            String idString = StringUtils.substringBefore(line.substring(1), BlastPlus.DELIMITER);
+                            entryId = Long.decode(StringUtils.removeEnd(idString, DELTA_ID_SUFFIX));
+                            record.setLength(0);
+                        }
+                        record.append(line).append("\n");
+                    }
+                    if (record.length() > 0)
+                        records.put(entryId, record.toString());
+                }
+            } catch (IOException | NumberFormatException e) {
+                Logger.error("Could not load blast delta. It will be rebuilt on next full rebuild", e);
+                tombstones.clear();
+                records.clear();
+            }
+            loaded = true;
+        }
+    }
+
+    /**
+     * Writes the tombstones and the delta fasta file to disk
+     *
+     * @throws BlastException on exception writing the files
+     */
+    private void persist() throws BlastException {
+        Path blastFolder = getBlastFolder();
+        try {
+            if (!Files.exists(blastFolder))
+                Files.createDirectories(blastFolder);
+
+            Path tombstonesFile = Paths.get(blastFolder.toString(), TOMBSTONES_FILE);
+            Path newTombstonesFile = Paths.get(blastFolder.toString(), TOMBSTONES_FILE + ".new");
+            try (BufferedWriter writer = Files.newBufferedWriter(newTombstonesFile, Charset.defaultCharset())) {
+                for (Map.Entry<Long, Long> tombstone : tombstones.entrySet()) {
+                    writer.write(tombstone.getKey() + BlastPlus.DELIMITER + tombstone.getValue() + "\n");
+                }
+            }
+            Files.move(newTombstonesFile, tombstonesFile, StandardCopyOption.REPLACE_EXISTING);
+
+            Path deltaFile = Paths.get(blastFolder.toString(), DELTA_FASTA_FILE);
+            Path newDeltaFile = Paths.get(blastFolder.toString(), DELTA_FASTA_FILE + ".new");
+            try (BufferedWriter writer = Files.newBufferedWriter(newDeltaFile, Charset.defaultCharset())) {
+                for (String record : records.values()) {
+                    writer.write(record);
+                }
+            }
+            Files.move(newDeltaFile, deltaFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new BlastException(e);
+        }
+    }
+
+    /**
+     * Re-creates the delta blast volume from the delta fasta file and the alias database that spans the main and
+     * delta volumes. Both are removed if there are no delta records
+     *
+     * @param blastInstall installation directory for blast
+     * @throws BlastException on exception running makeblastdb
+     */
+    private void formatDelta(Path blastInstall) throws BlastException {
+        Path blastFolder = getBlastFolder();
+        Path aliasFile = Paths.get(blastFolder.toString(), ALIAS_DB_NAME + ".nal");
+        try {
+            // searches fall back to the main volume while the delta volume is being rebuilt
+            Files.deleteIfExists(aliasFile);
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(blastFolder, DELTA_DB_NAME + ".*")) {
+                for (Path path : stream) {
+                    Files.deleteIfExists(path);
+                }
+            }
+
+            if (records.isEmpty())
+                return;
+
+            BlastPlus.formatBlastDb(blastFolder, blastInstall, DELTA_FASTA_FILE, DELTA_DB_NAME);
+            List<String> lines = new ArrayList<>();
+            lines.add("TITLE " + ALIAS_DB_NAME);
+            lines.add("DBLIST " + BlastPlus.BLAST_DB_NAME + " " + DELTA_DB_NAME);
+            Files.write(aliasFile, lines, Charset.defaultCharset());
+        } catch (IOException e) {
+            throw new BlastException(e);
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.jbei.ice.lib.dto.DNAFeature;
 import org.jbei.ice.lib.dto.DNAFeatureLocation;
 import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.entry.PartData;
+import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.lib.dto.search.BlastProgram;
 import org.jbei.ice.lib.dto.search.BlastQuery;
 import org.jbei.ice.lib.dto.search.SearchResult;
@@ -21,9 +22,10 @@ import org.jbei.ice.lib.executor.IceExecutorService;
 import org.jbei.ice.lib.utils.SequenceUtils;
 import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
 import org.jbei.ice.storage.hibernate.dao.FeatureDAO;
 import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
-import org.jbei.ice.storage.model.Feature;
+import org.jbei.ice.storage.model.Entry;
 import org.jbei.ice.storage.model.Sequence;
 
 import java.io.*;
@@ -44,11 +46,12 @@ import java.util.concurrent.TimeUnit;
  */
 public class BlastPlus {
 
-    private static final String BLAST_DB_FOLDER = "blast";
-    private static final String BLAST_DB_NAME = "ice";
-    private static final String DELIMITER = ",";
+    static final String BLAST_DB_FOLDER = "blast";
+    static final String BLAST_DB_NAME = "ice";
+    static final String DELIMITER = ",";
     private static final String LOCK_FILE_NAME = "write.lock";
     private static final String AUTO_ANNOTATION_FOLDER_NAME = "auto-annotation";
+    private static final int FASTA_BATCH_SIZE = 1000;
 
     /**
      * Runs a blast query in the specified database folder
@@ -62,6 +65,7 @@ public class BlastPlus {
      * @throws BlastException on exception running blast on the command line
      */
     static String runBlastQuery(String dbFolder, BlastQuery query, String... options) throws BlastException {
+        Process process = null;
         try {
             String command = Utils.getConfigValue(ConfigurationKey.BLAST_INSTALL_DIR) + File.separator
                     + query.getBlastProgram().getName();
@@ -71,24 +75,39 @@ public class BlastPlus {
                 return "";
             }
 
+            // include the delta volume with changes since the last full rebuild, if available
+            Path aliasDb = Paths.get(Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY), dbFolder,
+                    BlastDeltaIndex.ALIAS_DB_NAME);
+            if (Files.exists(Paths.get(aliasDb.toString() + ".nal")))
+                blastDb = aliasDb.toString();
+
             String[] blastCommand = new String[3 + options.length];
             blastCommand[0] = command;
             blastCommand[1] = "-db";
             blastCommand[2] = blastDb;
             System.arraycopy(options, 0, blastCommand, 3, options.length);
 
-            Process process = Runtime.getRuntime().exec(blastCommand);
+            process = Runtime.getRuntime().exec(blastCommand);
+
+            // output and errors are read on separate threads so that blast cannot block on a full pipe while the
+            // query is written or while the other stream is read
             ProcessResultReader reader = new ProcessResultReader(process.getInputStream());
+            ProcessResultReader errorReader = new ProcessResultReader(process.getErrorStream());
             reader.start();
-            BufferedWriter programInputWriter = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+            errorReader.start();
 
-            programInputWriter.write(query.getSequence());
-            programInputWriter.flush();
-            programInputWriter.close();
-            process.getOutputStream().close();
+            try (BufferedWriter programInputWriter =
+                         new BufferedWriter(new OutputStreamWriter(process.getOutputStream()))) {
+                programInputWriter.write(query.getSequence());
+            }
 
-            //TODO this should go into the thread itself & have future wait on it
             final int exitValue = process.waitFor();
+            reader.join();
+            errorReader.join();
+            String errors = errorReader.toString();
+            if (!errors.isEmpty())
+                Logger.warn("Blast reported: " + errors);
+
             switch (exitValue) {
                 case 0:
                     return reader.toString();
@@ -105,9 +124,16 @@ public class BlastPlus {
                     Logger.error("Unknown exit value " + exitValue);
             }
             return null;
+        } catch (InterruptedException | InterruptedIOException e) {
+            // query was cancelled
+            Thread.currentThread().interrupt();
+            throw new BlastException(e);
         } catch (Exception e) {
             Logger.error(e);
             throw new BlastException(e);
+        } finally {
+            if (process != null)
+                process.destroy();
         }
     }
 
@@ -131,8 +157,8 @@ public class BlastPlus {
      * @throws BlastException
      */
     public static HashMap<String, SearchResult> runBlast(BlastQuery query) throws BlastException {
-        String result = runBlastQuery(BLAST_DB_FOLDER, query, "-perc_identity", "95", "-outfmt",
-                "10 stitle qstart qend sstart send sstrand evalue bitscore score length nident");
+        String result = BlastSearchService.getInstance().runQuery(BLAST_DB_FOLDER, query, true, "-perc_identity",
+                "95", "-outfmt", "10 stitle qstart qend sstart send sstrand evalue bitscore score length nident");
         if (result == null)
             throw new BlastException("Exception running blast");
         return processBlastOutput(result, query.getSequence().length());
@@ -146,13 +172,89 @@ public class BlastPlus {
      * @throws BlastException on null result or exception processing the result
      */
     public static List<DNAFeature> runCheckFeatures(BlastQuery query) throws BlastException {   // todo add evalue
-        String result = runBlastQuery(AUTO_ANNOTATION_FOLDER_NAME, query, "-perc_identity", "100",
-                "-outfmt", "10 stitle qstart qend sstart send sstrand");
+        String result = BlastSearchService.getInstance().runQuery(AUTO_ANNOTATION_FOLDER_NAME, query, false,
+                "-perc_identity", "100", "-outfmt", "10 stitle qstart qend sstart send sstrand");
         if (result == null)
             throw new BlastException("Exception running blast");
         return processFeaturesBlastOutput(result);
     }
 
+    /**
+     * Checks multiple sequences against the auto-annotation (features) database in a single blast run. The sequences
+     * are written to a temporary multi-fasta query file, using the specified keys as the query identifiers
+     *
+     * @param sequences map of identifier (e.g. entry id) to sequence to check
+     * @return map of identifier to the features that are fully contained in its sequence. Identifiers for sequences
+     * without any features are not included
+     * @throws BlastException on exception running blast or writing the query file
+     */
+    public static Map<Long, List<DNAFeature>> runCheckFeatures(Map<Long, String> sequences) throws BlastException {
+        if (sequences.isEmpty())
+            return new HashMap<>();
+
+        Path queryFile = null;
+        try {
+            queryFile = Files.createTempFile("ice-features-", ".fasta");
+            try (BufferedWriter writer = Files.newBufferedWriter(queryFile, Charset.defaultCharset())) {
+                for (Map.Entry<Long, String> entry : sequences.entrySet()) {
+                    writer.write(">" + entry.getKey() + "\n");
+                    writer.write(entry.getValue());
+                    writer.write("\n");
+                }
+            }
+
+            // the query is read from the file instead of stdin, since blast starts writing the output for large
+            // queries before it has read all the input
+            BlastQuery query = new BlastQuery(BlastProgram.BLAST_N, "");
+            String result = BlastSearchService.getInstance().runQuery(AUTO_ANNOTATION_FOLDER_NAME, query, false,
+                    "-query", queryFile.toString(), "-perc_identity", "100", "-outfmt",
+                    "10 qseqid stitle qstart qend sstart send sstrand");
+            if (result == null)
+                throw new BlastException("Exception running blast");
+            return processBatchFeaturesBlastOutput(result);
+        } catch (IOException e) {
+            throw new BlastException(e);
+        } finally {
+            if (queryFile != null)
+                FileUtils.deleteQuietly(queryFile.toFile());
+        }
+    }
+
+    /**
+     * Process the output of a blast run for features with multiple query sequences. Same as
+     * {@link #processFeaturesBlastOutput(String)} with the query identifier as the first value of each line
+     *
+     * @param blastOutput blast program output
+     * @return map of query identifier to list of feature objects for that query
+     */
+    static Map<Long, List<DNAFeature>> processBatchFeaturesBlastOutput(String blastOutput) {
+        Map<Long, List<DNAFeature>> features = new HashMap<>();
+        HashSet<String> duplicates = new HashSet<>();
+
+        try (CSVReader reader = new CSVReader(new StringReader(blastOutput))) {
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                if (line.length != 9)
+                    continue;
+
+                long queryId = Long.decode(line[0]);
+                DNAFeature dnaFeature = parseFeatureLine(line, 1, queryId + ":", duplicates);
+                if (dnaFeature == null)
+                    continue;
+
+                List<DNAFeature> list = features.get(queryId);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    features.put(queryId, list);
+                }
+                list.add(dnaFeature);
+            }
+        } catch (IOException e) {
+            Logger.error(e);
+        }
+        return features;
+    }
+
     /**
      * Process the output of the blast run for features
      * into a list of feature objects
@@ -180,33 +282,9 @@ public class BlastPlus {
                     continue;
                 }
 
-                long id = Long.decode(line[0]);
-                String label = line[1];
-                String type = line[2];
-                int queryStart = Integer.decode(line[3]);
-                int queryEnd = Integer.decode(line[4]);
-                int subjectStart = Integer.decode(line[5]);
-                int subjectEnd = Integer.decode(line[6]);
-                int strand = "plus".equalsIgnoreCase(line[7]) ? 1 : -1;
-
-                if (!duplicates.add(label + ":" + queryStart + ":" + queryEnd)) {
-                    continue;
-                }
-
-                if (subjectStart != 1 && (queryEnd - queryStart) + 1 != subjectEnd)
-                    continue;
-
-                // check for full feature coverage
-                DNAFeature dnaFeature = new DNAFeature();
-                dnaFeature.setId(id);
-                dnaFeature.setName(label);
-                dnaFeature.setType(type);
-                DNAFeatureLocation location = new DNAFeatureLocation();
-                location.setGenbankStart(queryStart);
-                location.setEnd(queryEnd);
-                dnaFeature.getLocations().add(location);
-                dnaFeature.setStrand(strand);
-                hashMap.add(dnaFeature);
+                DNAFeature dnaFeature = parseFeatureLine(line, 0, "", duplicates);
+                if (dnaFeature != null)
+                    hashMap.add(dnaFeature);
             }
 
             return hashMap;
@@ -216,6 +294,46 @@ public class BlastPlus {
         }
     }
 
+    /**
+     * Parses a line of the blast output for features, starting at the specified offset
+     *
+     * @param line            blast output line
+     * @param offset          index of the feature id in the line
+     * @param duplicatePrefix prefix for the key used to detect duplicate hits
+     * @param duplicates      keys for the hits already parsed
+     * @return parsed feature, or null if the hit is a duplicate or does not cover the entire feature
+     */
+    private static DNAFeature parseFeatureLine(String[] line, int offset, String duplicatePrefix,
+                                               HashSet<String> duplicates) {
+        long id = Long.decode(line[offset]);
+        String label = line[offset + 1];
+        String type = line[offset + 2];
+        int queryStart = Integer.decode(line[offset + 3]);
+        int queryEnd = Integer.decode(line[offset + 4]);
+        int subjectStart = Integer.decode(line[offset + 5]);
+        int subjectEnd = Integer.decode(line[offset + 6]);
+        int strand = "plus".equalsIgnoreCase(line[offset + 7]) ? 1 : -1;
+
+        if (!duplicates.add(duplicatePrefix + label + ":" + queryStart + ":" + queryEnd)) {
+            return null;
+        }
+
+        if (subjectStart != 1 && (queryEnd - queryStart) + 1 != subjectEnd)
+            return null;
+
+        // check for full feature coverage
+        DNAFeature dnaFeature = new DNAFeature();
+        dnaFeature.setId(id);
+        dnaFeature.setName(label);
+        dnaFeature.setType(type);
+        DNAFeatureLocation location = new DNAFeatureLocation();
+        location.setGenbankStart(queryStart);
+        location.setEnd(queryEnd);
+        dnaFeature.getLocations().add(location);
+        dnaFeature.setStrand(strand);
+        return dnaFeature;
+    }
+
     /**
      * Parses a blast output that represents a single hit
      *
@@ -257,7 +375,16 @@ public class BlastPlus {
             List<String[]> lines = reader.readAll();
             reader.close();
 
+            BlastDeltaIndex deltaIndex = BlastDeltaIndex.getInstance();
+
             for (String[] line : lines) {
+                // hits from the delta volume are marked; discard stale hits from the main volume
+                boolean isDelta = line[0].endsWith(BlastDeltaIndex.DELTA_ID_SUFFIX);
+                if (isDelta)
+                    line[0] = StringUtils.removeEnd(line[0], BlastDeltaIndex.DELTA_ID_SUFFIX);
+                else if (deltaIndex.isStale(Long.decode(line[0])))
+                    continue;
+
                 SearchResult info = parseBlastOutputLine(line);
 
                 info.setQueryLength(queryLength);
@@ -404,8 +531,11 @@ public class BlastPlus {
                 if (lock == null)
                     return;
                 Logger.info("Rebuilding blast database");
-                rebuildSequenceDatabase(blastDir, blastFolder, false);
-                Logger.info("Blast database rebuild complete");
+                long rebuildStart = BlastDeltaIndex.nextChangeTime();
+                if (rebuildSequenceDatabase(blastDir, blastFolder, false)) {
+                    BlastDeltaIndex.getInstance().compact(blastDir, rebuildStart);
+                    Logger.info("Blast database rebuild complete");
+                }
             }
         } catch (OverlappingFileLockException l) {
             Logger.warn("Could not obtain lock file for blast at " + blastFolder.toString());
@@ -457,10 +587,120 @@ public class BlastPlus {
 
     /**
      * Schedule task to rebuild the blast index
+     *
+     * @return true if the task was scheduled, false if it was rejected
      */
-    public static void scheduleBlastIndexRebuildTask(boolean force) {
+    public static boolean scheduleBlastIndexRebuildTask(boolean force) {
         RebuildBlastIndexTask task = new RebuildBlastIndexTask(force);
-        IceExecutorService.getInstance().runTask(task);
+        return IceExecutorService.getInstance().runTask(task);
+    }
+
+    /**
+     * Schedule task to incrementally update the blast index with a created or updated sequence, once the current
+     * transaction has committed. Sequences for entries that are not visible are removed from the index
+     *
+     * @param sequence sequence that was created or updated
+     */
+    public static void scheduleBlastIndexUpdateTask(Sequence sequence) {
+        Entry entry = sequence.getEntry();
+        if (entry == null)
+            return;
+
+        String sequenceString = null;
+        if (entry.getVisibility() == null || entry.getVisibility() == Visibility.OK.getValue())
+            sequenceString = sequence.getSequence();
+
+        scheduleUpdateTask(entry.getId(), entry.getRecordType(), entry.getName(), entry.getPartNumber(),
+                sequenceString);
+    }
+
+    /**
+     * Schedule tasks to incrementally update the blast index after the visibility of the specified entries changed,
+     * once the current transaction has committed. The sequences of entries that are now visible are added to the
+     * index and those of entries that are no longer visible are removed. Entries without a sequence are skipped
+     *
+     * @param entries entries whose visibility changed
+     */
+    public static void scheduleBlastIndexVisibilityTasks(Collection<? extends Entry> entries) {
+        List<Long> entryIds = new ArrayList<>();
+        for (Entry entry : entries) {
+            entryIds.add(entry.getId());
+        }
+
+        SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
+        for (int i = 0; i < entryIds.size(); i += FASTA_BATCH_SIZE) {
+            List<Long> batch = entryIds.subList(i, Math.min(entryIds.size(), i + FASTA_BATCH_SIZE));
+            Set<Long> visible = new HashSet<>();
+            for (Object[] row : sequenceDAO.getSequencesForEntries(batch)) {
+                long entryId = (Long) row[0];
+                visible.add(entryId);
+                scheduleUpdateTask(entryId, (String) row[1], (String) row[2], (String) row[3], (String) row[5]);
+            }
+
+            for (long entryId : sequenceDAO.getEntriesWithSequence(batch)) {
+                if (!visible.contains(entryId))
+                    scheduleBlastIndexDeleteTask(entryId);
+            }
+        }
+    }
+
+    /**
+     * Schedule task to incrementally remove the sequence for the specified entry from the blast index, once the
+     * current transaction has committed
+     *
+     * @param entryId unique identifier for entry whose sequence was deleted
+     */
+    public static void scheduleBlastIndexDeleteTask(long entryId) {
+        scheduleUpdateTask(entryId, null, null, null, null);
+    }
+
+    // the change is queued (and stamped) after commit, since a full rebuild that starts after the change is stamped
+    // drops its tombstone and must therefore be able to read the change
+    private static void scheduleUpdateTask(final long entryId, final String recordType, final String name,
+                                           final String partNumber, final String sequence) {
+        HibernateUtil.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                UpdateBlastIndexTask.schedule(entryId, recordType, name, partNumber, sequence);
+            }
+        });
+    }
+
+    /**
+     * Incrementally updates the blast database with the (possibly deleted) sequence of a single entry, by
+     * recording the change in the delta volume. If the main blast database does not exist, a full rebuild is
+     * performed instead.
+     *
+     * @param entryId    unique identifier for entry whose sequence changed
+     * @param recordType record type of the entry
+     * @param name       name of the entry
+     * @param partNumber part number of the entry
+     * @param sequence   new sequence for the entry or <code>null</code> if it was deleted
+     * @param changeTime time stamp for the change, used to order changes to the same entry
+     * @throws BlastException on exception updating the blast database
+     */
+    static void updateDatabase(long entryId, String recordType, String name, String partNumber, String sequence,
+                               long changeTime) throws BlastException {
+        String blastInstallDir = Utils.getConfigValue(ConfigurationKey.BLAST_INSTALL_DIR);
+        if (StringUtils.isEmpty(blastInstallDir)) {
+            Logger.warn("Blast install directory not available. Aborting blast update");
+            return;
+        }
+
+        Path blastDir = Paths.get(blastInstallDir);
+        if (!Files.exists(blastDir))
+            throw new BlastException("Could not locate Blast installation in " + blastInstallDir);
+
+        if (!blastDatabaseExists()) {
+            rebuildDatabase(false);
+            return;
+        }
+
+        String record = null;
+        if (sequence != null)
+            record = createFastaRecord(entryId + BlastDeltaIndex.DELTA_ID_SUFFIX, recordType, name, partNumber,
+                    sequence);
+        BlastDeltaIndex.getInstance().update(blastDir, entryId, record, changeTime);
     }
 
     /**
@@ -500,9 +740,11 @@ public class BlastPlus {
      * @param blastDb      folder location for the blast database
      * @param isFeatures   determines which database to rebuild. True for sequence features database, false for
      *                     blast search database
+     * @return true if the database was rebuilt, false if the rebuild was skipped because another one is in progress
      * @throws BlastException
      */
-    private static void rebuildSequenceDatabase(Path blastInstall, Path blastDb, boolean isFeatures) throws BlastException {
+    private static boolean rebuildSequenceDatabase(Path blastInstall, Path blastDb, boolean isFeatures)
+            throws BlastException {
 
         Path newFastaFile = Paths.get(blastDb.toString(), "bigfastafile.new");
 
@@ -514,10 +756,10 @@ public class BlastPlus {
                 if (hoursSinceCreation > 1)
                     Files.delete(newFastaFile);
                 else
-                    return;
+                    return false;
             } catch (IOException ioe) {
                 Logger.error(ioe);
-                return;
+                return false;
             }
         }
 
@@ -531,26 +773,37 @@ public class BlastPlus {
             throw new BlastException(ioe);
         }
 
-        formatBlastDb(blastDb, blastInstall);
+        formatBlastDb(blastDb, blastInstall, newFastaFile.getFileName().toString(), BLAST_DB_NAME);
         try {
             Path fastaFile = Paths.get(blastDb.toString(), "bigfastafile");
             Files.move(newFastaFile, fastaFile, StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException ioe) {
             Logger.error(ioe);
         }
+        return true;
     }
 
-    private static void formatBlastDb(Path blastDb, Path blastInstall) throws BlastException {
+    /**
+     * Runs <code>makeblastdb</code> to create a nucleotide blast database volume from a fasta file
+     *
+     * @param blastDb      folder location for the blast database
+     * @param blastInstall the installation directory path for blast
+     * @param fastaFile    name of fasta file (in <code>blastDb</code>) to create the volume from
+     * @param dbName       name of the blast database volume to create
+     * @throws BlastException on exception running makeblastdb
+     */
+    static void formatBlastDb(Path blastDb, Path blastInstall, String fastaFile, String dbName)
+            throws BlastException {
         ArrayList<String> commands = new ArrayList<>();
         String makeBlastDbCmd = blastInstall.toAbsolutePath().toString() + File.separator + "makeblastdb";
         commands.add(makeBlastDbCmd);
         commands.add("-dbtype nucl");
         commands.add("-in");
-        commands.add("bigfastafile.new");
+        commands.add(fastaFile);
         commands.add("-logfile");
-        commands.add(BLAST_DB_NAME + ".log");
+        commands.add(dbName + ".log");
         commands.add("-out");
-        commands.add(BLAST_DB_NAME);
+        commands.add(dbName);
 //        commands.add("-title");
 //        commands.add("ICE Blast DB");
         String commandString = Utils.join(" ", commands);
@@ -587,64 +840,80 @@ public class BlastPlus {
 
     /**
      * Retrieve all the sequences from the database, and writes it out to a fasta file on disk.
+     * Sequences are retrieved in batches of {@link #FASTA_BATCH_SIZE} using keyset pagination so that the cost of
+     * a full rebuild is linear in the number of sequences.
      *
      * @throws BlastException
      */
     private static void writeBigFastaFile(BufferedWriter writer) throws BlastException {
         SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
-        long count = sequenceDAO.getSequenceCount();
-        if (count <= 0)
-            return;
-
-        int offset = 0;
-        while (offset < count) {
-            Sequence sequence = sequenceDAO.getSequence(offset++);
-            if (sequence == null || sequence.getEntry() == null)
-                continue;
-            long id = sequence.getEntry().getId();
-
-            String sequenceString = "";
-            String temp = sequence.getSequence();
-//            int sequenceLength = 0;
-            if (temp != null) {
-                SymbolList symL;
-                try {
-                    symL = DNATools.createDNA(sequence.getSequence().trim());
-                } catch (IllegalSymbolException e1) {
-                    // maybe it's rna?
-                    try {
-                        symL = RNATools.createRNA(sequence.getSequence().trim());
-                    } catch (IllegalSymbolException e2) {
-                        // skip this sequence
-                        Logger.debug("Invalid characters in sequence for " + sequence.getEntry().getId()
-                                + ". Skipped for indexing");
-                        Logger.debug(e2.toString());
-                        continue;
-                    }
-                }
-
-//                sequenceLength = symL.seqString().length();
-                sequenceString = SequenceUtils.breakUpLines(symL.seqString() + symL.seqString());
-            }
+        long lastId = 0;
+        List<Object[]> rows;
+
+        while (!(rows = sequenceDAO.getSequencesAfter(lastId, FASTA_BATCH_SIZE)).isEmpty()) {
+            for (Object[] row : rows) {
+                long entryId = (Long) row[1];
+                String recordType = (String) row[2];
+                String name = (String) row[3];
+                String partNumber = (String) row[4];
+                String sequence = (String) row[5];
+
+                String record = createFastaRecord(Long.toString(entryId), recordType, name, partNumber, sequence);
+                if (record == null)
+                    continue;
 
-            if (sequenceString.length() > 0) {
                 try {
-                    String idString = ">" + id;
-                    idString += DELIMITER + sequence.getEntry().getRecordType();
-                    String name = sequence.getEntry().getName() == null ? "None" : sequence.getEntry().getName();
-                    idString += DELIMITER + name;
-                    String pNumber = sequence.getEntry().getPartNumber();
-                    idString += DELIMITER + pNumber;
-                    idString += "\n";
-                    writer.write(idString);
-                    writer.write(sequenceString + "\n");
+                    writer.write(record);
                 } catch (IOException e) {
                     throw new BlastException(e);
                 }
             }
+            lastId = (Long) rows.get(rows.size() - 1)[0];
         }
     }
 
+    /**
+     * Creates the fasta record (header and sequence lines) for the sequence of an entry. The sequence is doubled
+     * so that matches across the origin of circular sequences are found.
+     *
+     * @param idString   identifier for the record; the entry id, with a marker for records in the delta volume
+     * @param recordType record type of the entry
+     * @param name       name of the entry
+     * @param partNumber part number of the entry
+     * @param sequence   sequence of the entry
+     * @return fasta record or <code>null</code> if the sequence is empty or contains invalid characters
+     */
+    private static String createFastaRecord(String idString, String recordType, String name, String partNumber,
+                                            String sequence) {
+        if (sequence == null)
+            return null;
+
+        SymbolList symL;
+        try {
+            symL = DNATools.createDNA(sequence.trim());
+        } catch (IllegalSymbolException e1) {
+            // maybe it's rna?
+            try {
+                symL = RNATools.createRNA(sequence.trim());
+            } catch (IllegalSymbolException e2) {
+                // skip this sequence
+                Logger.debug("Invalid characters in sequence for " + idString + ". Skipped for indexing");
+                Logger.debug(e2.toString());
+                return null;
+            }
+        }
+
+        String sequenceString = SequenceUtils.breakUpLines(symL.seqString() + symL.seqString());
+        if (sequenceString.length() == 0)
+            return null;
+
+        String header = ">" + idString;
+        header += DELIMITER + recordType;
+        header += DELIMITER + (name == null ? "None" : name);
+        header += DELIMITER + partNumber;
+        return header + "\n" + sequenceString + "\n";
+    }
+
     /**
      * Writes the fasta file (part of the blast database) that contains all the features that exists on this system.
      * This routine is expected to be called as part of the blast sequence feature database rebuild
@@ -654,33 +923,33 @@ public class BlastPlus {
      */
     private static void writeBigFastaFileForFeatures(BufferedWriter writer) throws BlastException {
         FeatureDAO featureDAO = DAOFactory.getFeatureDAO();
-        long count = featureDAO.getFeatureCount();
-        if (count <= 0)
-            return;
+        long lastId = 0;
+        List<Object[]> rows;
 
-        int offset = 0;
-        while (offset < count) {
-            List<Feature> features = featureDAO.getFeatures(offset++, 1);
-            Feature feature = features.get(0);
-            String featureName = feature.getName();
-            if (featureName == null || featureName.trim().isEmpty())
-                continue;
+        while (!(rows = featureDAO.getFeaturesAfter(lastId, FASTA_BATCH_SIZE)).isEmpty()) {
+            for (Object[] row : rows) {
+                long id = (Long) row[0];
+                String featureName = (String) row[1];
+                String genbankType = (String) row[2];
+                String sequence = (String) row[3];
 
-            if (feature.getCuration() != null && feature.getCuration().isExclude())
-                continue;
+                if (featureName == null || featureName.trim().isEmpty() || sequence == null)
+                    continue;
 
-            String sequenceString = feature.getSequence().trim();
-            try {
-                String idString = ">"
-                        + feature.getId() + DELIMITER
-                        + feature.getName() + DELIMITER
-                        + feature.getGenbankType();//+ DELIMITER
-                idString += "\n";
-                writer.write(idString);
-                writer.write(sequenceString + "\n");
-            } catch (IOException e) {
-                throw new BlastException(e);
+                String sequenceString = sequence.trim();
+                try {
+                    String idString = ">"
+                            + id + DELIMITER
+                            + featureName + DELIMITER
+                            + genbankType;
+                    idString += "\n";
+                    writer.write(idString);
+                    writer.write(sequenceString + "\n");
+                } catch (IOException e) {
+                    throw new BlastException(e);
+                }
             }
+            lastId = (Long) rows.get(rows.size() - 1)[0];
         }
     }
 
@@ -694,6 +963,7 @@ public class BlastPlus {
         ProcessResultReader(final InputStream is) {
             this.inputStream = is;
             this.sb = new StringBuilder();
+            setDaemon(true);
         }
 
         public void run() {
@@ -704,8 +974,8 @@ public class BlastPlus {
                     this.sb.append(line).append("\n");
                 }
             } catch (final IOException ioe) {
+                // the process was destroyed (e.g. the query was cancelled)
                 Logger.error(ioe.getMessage());
-                throw new RuntimeException(ioe);
             }
         }
 
@@ -0,0 +1,158 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.dto.search.BlastQuery;
+import org.jbei.ice.lib.utils.SequenceUtils;
+import org.jbei.ice.lib.utils.Utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs blast queries on a bounded pool of worker threads, so that a burst of sequence searches cannot fork an
+ * unbounded number of blast processes. Queries that cannot be queued are rejected and queries that do not complete
+ * within {@link #QUERY_TIMEOUT_SECONDS} (including time spent waiting in the queue) are cancelled.
+ * <p>
+ * The raw output of cacheable queries is kept in an LRU cache keyed on the blast program, normalized query
+ * sequence, command line options and the generation of the blast database. The generation is incremented each time
+ * the database changes so stale output is never returned.
+ * <p>
+ * The number of concurrent blast processes is set using {@link ConfigurationKey#BLAST_MAX_CONCURRENT_SEARCHES}
+ * and is read the first time the service is used.
+ *
+ * @author Hector Plahar
+ */
+public class BlastSearchService {
+
+    private static final int QUEUE_CAPACITY = 50;
+    private static final int QUERY_TIMEOUT_SECONDS = 120;
+    private static final int CACHE_SIZE = 200;
+
+    private final ThreadPoolExecutor pool;
+    private final Map<String, String> cache;
+    private final AtomicLong databaseGeneration;
+
+    private BlastSearchService() {
+        int concurrency = getConcurrency();
+        pool = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "blast-search");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        databaseGeneration = new AtomicLong(0);
+    }
+
+    private static class SingletonHolder {
+        private static final BlastSearchService INSTANCE = new BlastSearchService();
+    }
+
+    public static BlastSearchService getInstance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    private static int getConcurrency() {
+        String value = Utils.getConfigValue(ConfigurationKey.BLAST_MAX_CONCURRENT_SEARCHES);
+        try {
+            int concurrency = Integer.decode(value.trim());
+            if (concurrency > 0)
+                return concurrency;
+        } catch (NumberFormatException e) {
+            Logger.warn("Invalid value \"" + value + "\" for " + ConfigurationKey.BLAST_MAX_CONCURRENT_SEARCHES);
+        }
+        return Integer.decode(ConfigurationKey.BLAST_MAX_CONCURRENT_SEARCHES.getDefaultValue());
+    }
+
+    /**
+     * Indicates that the contents of the blast database have changed, invalidating all cached query output
+     */
+    public void databaseChanged() {
+        databaseGeneration.incrementAndGet();
+    }
+
+    /**
+     * Runs a blast query in the specified database folder on the worker pool, waiting for it to complete.
+     *
+     * @param dbFolder location of the blast database
+     * @param query    wrapper around blast query including options such as blast type
+     * @param useCache whether the output of the query can be returned from, and stored in, the cache
+     * @param options  command line options for blast
+     * @return results of the query run. See {@link BlastPlus#runBlastQuery(String, BlastQuery, String...)}
+     * @throws BlastException if the query is rejected because too many are queued, times out, or
+     *                        fails to run
+     */
+    String runQuery(String dbFolder, BlastQuery query, boolean useCache, String... options) throws BlastException {
+        String key = null;
+        if (useCache) {
+            key = cacheKey(dbFolder, query, options);
+            synchronized (cache) {
+                String output = cache.get(key);
+                if (output != null)
+                    return output;
+            }
+        }
+
+        Future<String> future;
+        try {
+            future = pool.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return BlastPlus.runBlastQuery(dbFolder, query, options);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new BlastException("Too many blast queries waiting to be run. Please try again later", e);
+        }
+
+        String output;
+        try {
+            output = future.get(QUERY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new BlastException(new ProgramTookTooLongException("Blast query did not complete in "
+                    + QUERY_TIMEOUT_SECONDS + " seconds", e));
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BlastException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BlastException)
+                throw (BlastException) e.getCause();
+            throw new BlastException(e.getCause());
+        }
+
+        if (useCache && output != null) {
+            synchronized (cache) {
+                cache.put(key, output);
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Generates the cache key for a query. The query sequence is normalized by dropping any fasta header, white space
+     * and case before it is hashed
+     */
+    private String cacheKey(String dbFolder, BlastQuery query, String... options) {
+        String sequence = StringUtils.defaultString(query.getSequence()).trim();
+        if (sequence.startsWith(">"))
+            sequence = StringUtils.substringAfter(sequence, "\n");
+        sequence = StringUtils.deleteWhitespace(sequence);
+
+        return query.getBlastProgram().getName() + ":" + dbFolder + ":" + databaseGeneration.get() + ":"
+                + StringUtils.join(options, " ") + ":" + SequenceUtils.calculateSequenceHash(sequence);
+    }
+}
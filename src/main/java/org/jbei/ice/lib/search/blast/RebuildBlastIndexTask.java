@@ -2,6 +2,7 @@ package org.jbei.ice.lib.search.blast;
 
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.executor.TaskType;
 
 /**
  * Task to rebuild the blast index
@@ -16,6 +17,11 @@ public class RebuildBlastIndexTask extends Task {
         this.force = force;
     }
 
+    @Override
+    public TaskType getType() {
+        return TaskType.INDEX;
+    }
+
     @Override
     public void execute() {
         Logger.info("Running blast rebuild task");
@@ -23,6 +29,13 @@ public class RebuildBlastIndexTask extends Task {
             BlastPlus.rebuildDatabase(force);
         } catch (BlastException e) {
             Logger.error(e);
+        } finally {
+            BlastDeltaIndex.getInstance().compactionFinished();
         }
     }
+
+    @Override
+    protected void rejected() {
+        BlastDeltaIndex.getInstance().compactionFinished();
+    }
 }
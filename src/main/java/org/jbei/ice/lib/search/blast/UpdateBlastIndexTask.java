@@ -0,0 +1,94 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.executor.IceExecutorService;
+import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.executor.TaskStatus;
+import org.jbei.ice.lib.search.kmer.KmerIndex;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Task to incrementally update the blast and k-mer indexes with the sequences of entries that changed. Changes are
+ * queued as they are committed and applied by a single pending task, so that many changes (e.g. from approving a
+ * bulk upload) do not fill the executor queue. Changes that are queued when the task is rejected or cancelled are
+ * applied by the task scheduled for the next change
+ *
+ * @author Hector Plahar
+ */
+public class UpdateBlastIndexTask extends Task {
+
+    private static final ConcurrentLinkedQueue<Change> CHANGES = new ConcurrentLinkedQueue<>();
+    private static final AtomicReference<UpdateBlastIndexTask> PENDING = new AtomicReference<>();
+
+    private UpdateBlastIndexTask() {
+    }
+
+    /**
+     * Queues the change and schedules a task to apply it, unless a task that has not yet started is already pending.
+     * The change is stamped here so this must only be called once the transaction that made the change has
+     * committed (see {@link BlastPlus#scheduleBlastIndexUpdateTask})
+     *
+     * @param entryId    unique identifier for entry whose sequence changed
+     * @param recordType record type of the entry
+     * @param name       name of the entry
+     * @param partNumber part number of the entry
+     * @param sequence   new sequence for the entry. Use <code>null</code> if the sequence was deleted
+     */
+    static void schedule(long entryId, String recordType, String name, String partNumber, String sequence) {
+        CHANGES.add(new Change(entryId, recordType, name, partNumber, sequence, BlastDeltaIndex.nextChangeTime()));
+
+        UpdateBlastIndexTask pending = PENDING.get();
+        if (pending != null && !pending.isCancelled()
+                && (pending.getStatus() == TaskStatus.NEW || pending.getStatus() == TaskStatus.PENDING))
+            return;
+
+        UpdateBlastIndexTask task = new UpdateBlastIndexTask();
+        if (PENDING.compareAndSet(pending, task))
+            IceExecutorService.getInstance().runTask(task);
+    }
+
+    @Override
+    public void execute() {
+        Change change;
+        int count = 0;
+        while (!isCancelled() && (change = CHANGES.poll()) != null) {
+            change.apply();
+            count += 1;
+        }
+        Logger.info("Applied " + count + " blast index update(s)");
+    }
+
+    /**
+     * Change to the sequence of a single entry. Changes to the same entry may be applied out of order (by tasks
+     * running concurrently); the indexes use the time stamp to keep the latest
+     */
+    private static class Change {
+
+        private final long entryId;
+        private final String recordType;
+        private final String name;
+        private final String partNumber;
+        private final String sequence;
+        private final long changeTime;
+
+        Change(long entryId, String recordType, String name, String partNumber, String sequence, long changeTime) {
+            this.entryId = entryId;
+            this.recordType = recordType;
+            this.name = name;
+            this.partNumber = partNumber;
+            this.sequence = sequence;
+            this.changeTime = changeTime;
+        }
+
+        void apply() {
+            KmerIndex.getInstance().update(entryId, sequence, changeTime);
+            try {
+                BlastPlus.updateDatabase(entryId, recordType, name, partNumber, sequence, changeTime);
+            } catch (BlastException e) {
+                Logger.error(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,725 @@
+package org.jbei.ice.lib.search.kmer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.dto.entry.EntryType;
+import org.jbei.ice.lib.dto.entry.PartData;
+import org.jbei.ice.lib.dto.search.SearchResult;
+import org.jbei.ice.lib.executor.IceExecutorService;
+import org.jbei.ice.lib.search.blast.BlastDeltaIndex;
+import org.jbei.ice.lib.utils.Utils;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In memory (memory mapped) index of the minimizers of the sequences of all visible entries, used to find exact and
+ * near exact matches for a query sequence without running blast.
+ * <p>
+ * The sequence of each entry is reduced to its set of minimizers: the smallest (by hash) canonical k-mer in each
+ * window of {@link #WINDOW} consecutive k-mers. The index maps each minimizer to the entries whose sequences contain
+ * it. Entries that share a large fraction of the query's minimizers are candidates, and are verified against their
+ * actual sequence; only hits that contain the query (on either strand, and across the origin of circular sequences)
+ * with at least {@link #MIN_IDENTITY} identity, allowing substitutions but not gaps, are returned.
+ * <p>
+ * Results are only returned when they are known to be complete: when the candidates were not truncated, no query
+ * minimizer was skipped for being too common and every candidate was verified as a hit. A candidate that fails
+ * verification may still be a gapped match, so in all other cases the query is expected to fall back to blast.
+ * <p>
+ * The index is built from the database into a file of sorted <code>(minimizer, entry id)</code> postings which is
+ * memory mapped for lookups. Changes since the last build are kept in a small delta (persisted separately) and
+ * postings in the main file for changed entries are ignored, similar to the blast delta volume. The index is rebuilt
+ * once the delta grows beyond {@link #MAX_DELTA_SIZE} entries.
+ *
+ * @author Hector Plahar
+ */
+public class KmerIndex {
+
+    static final int K = 15;
+    static final int WINDOW = 10;
+
+    private static final String INDEX_FOLDER = "kmer";
+    private static final String BASE_FILE = "base.idx";
+    private static final String DELTA_FILE = "delta.idx";
+    private static final int MAGIC = 0x4b4d4552;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;                  // magic, version, k and window (ints)
+    private static final int BATCH_SIZE = 1000;
+    private static final int RUN_SIZE = 4 * 1024 * 1024;        // postings per sorted run when building
+    private static final int MAX_DELTA_SIZE = 200;
+    private static final int MAX_POSTINGS_PER_MINIMIZER = 50000;
+    private static final int MAX_CANDIDATES = 20;
+    private static final int MIN_QUERY_LENGTH = 30;
+    private static final float MIN_CANDIDATE_CONTAINMENT = 0.2f;
+    private static final float MIN_IDENTITY = 0.95f;
+    private static final long MAX_ENTRY_ID = 0xFFFFFFFFL;
+
+    private static final KmerIndex INSTANCE = new KmerIndex();
+
+    private volatile Postings base;
+    private final Map<Long, Long> tombstones;                  // entry id -> time of change
+    private final Map<Long, int[]> deltaEntries;               // entry id -> minimizers
+    private final Map<Integer, Set<Long>> deltaPostings;       // minimizer -> entry ids
+    private final AtomicBoolean rebuildScheduled;
+    private volatile boolean loaded;
+
+    private KmerIndex() {
+        tombstones = new HashMap<>();
+        deltaEntries = new HashMap<>();
+        deltaPostings = new HashMap<>();
+        rebuildScheduled = new AtomicBoolean(false);
+    }
+
+    public static KmerIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Searches for entries whose sequences contain the query sequence, on either strand, with at least
+     * {@link #MIN_IDENTITY} identity and no gaps.
+     *
+     * @param querySequence nucleotide query sequence. An optional fasta header is ignored
+     * @return map of entry id to search result for each hit, in order of decreasing number of identical bases.
+     * <code>null</code> if the index is not available, the query is not suitable for the index (too short or not
+     * a nucleotide sequence) or the hits may be incomplete, in which case blast should be used instead
+     */
+    public LinkedHashMap<String, SearchResult> search(String querySequence) {
+        String query = normalize(querySequence);
+        if (query.length() < MIN_QUERY_LENGTH || !StringUtils.containsOnly(query, "acgtn"))
+            return null;
+
+        load();
+        Postings postings = this.base;
+        if (postings == null)
+            return null;
+
+        int[] queryMinimizers = minimizers(query);
+        if (queryMinimizers.length == 0)
+            return null;
+
+        // count the number of query minimizers each entry shares
+        HashMap<Long, Integer> counts = new HashMap<>();
+        synchronized (this) {
+            for (int minimizer : queryMinimizers) {
+                // entries sharing a skipped minimizer may be missed as candidates
+                if (!postings.collect(minimizer, tombstones.keySet(), counts))
+                    return null;
+
+                Set<Long> entryIds = deltaPostings.get(minimizer);
+                if (entryIds == null)
+                    continue;
+                for (Long entryId : entryIds) {
+                    Integer count = counts.get(entryId);
+                    counts.put(entryId, count == null ? 1 : count + 1);
+                }
+            }
+        }
+
+        // candidates are the entries sharing the most minimizers
+        int minShared = Math.max(1, (int) (queryMinimizers.length * MIN_CANDIDATE_CONTAINMENT));
+        List<Map.Entry<Long, Integer>> candidates = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() >= minShared)
+                candidates.add(entry);
+        }
+        Collections.sort(candidates, new Comparator<Map.Entry<Long, Integer>>() {
+            @Override
+            public int compare(Map.Entry<Long, Integer> o1, Map.Entry<Long, Integer> o2) {
+                return Integer.compare(o2.getValue(), o1.getValue());
+            }
+        });
+        if (candidates.isEmpty() || candidates.size() > MAX_CANDIDATES)
+            return null;
+
+        List<Long> candidateIds = new ArrayList<>();
+        for (Map.Entry<Long, Integer> candidate : candidates) {
+            candidateIds.add(candidate.getKey());
+        }
+
+        // verify against the sequences
+        String reverseQuery = reverseComplement(query);
+        List<SearchResult> hits = new ArrayList<>();
+        for (Object[] row : DAOFactory.getSequenceDAO().getSequencesForEntries(candidateIds)) {
+            String subject = StringUtils.defaultString((String) row[5]).toLowerCase();
+            if (Boolean.TRUE.equals(row[6]))
+                subject = circularize(subject, query.length());
+            int nident = Math.max(countIdentical(query, subject), countIdentical(reverseQuery, subject));
+
+            // possibly a gapped match
+            if (nident < query.length() * MIN_IDENTITY)
+                return null;
+
+            PartData view = new PartData(EntryType.nameToType((String) row[1]));
+            view.setId((Long) row[0]);
+            view.setName((String) row[2]);
+            view.setPartId((String) row[3]);
+            view.setShortDescription((String) row[4]);
+
+            SearchResult result = new SearchResult();
+            result.setEntryInfo(view);
+            result.setScore(nident);
+            result.seteValue("0");
+            result.setNident(nident);
+            result.setAlignment(Integer.toString(nident));
+            result.setQueryLength(query.length());
+            hits.add(result);
+        }
+
+        Collections.sort(hits, new Comparator<SearchResult>() {
+            @Override
+            public int compare(SearchResult o1, SearchResult o2) {
+                return Float.compare(o2.getScore(), o1.getScore());
+            }
+        });
+
+        LinkedHashMap<String, SearchResult> results = new LinkedHashMap<>();
+        for (SearchResult hit : hits) {
+            results.put(Long.toString(hit.getEntryInfo().getId()), hit);
+        }
+        return results;
+    }
+
+    /**
+     * Records a change to the sequence of the specified entry. The change is ignored if a more recent change for the
+     * same entry has already been recorded
+     *
+     * @param entryId    unique identifier for entry whose sequence changed
+     * @param sequence   new sequence for the entry. Use <code>null</code> if the sequence was deleted or is no longer
+     *                   searchable
+     * @param changeTime time stamp for the change, used to order changes to the same entry
+     */
+    public synchronized void update(long entryId, String sequence, long changeTime) {
+        load();
+        Long existing = tombstones.get(entryId);
+        if (existing != null && existing > changeTime)
+            return;
+
+        tombstones.put(entryId, changeTime);
+        removeFromDelta(entryId);
+        if (sequence != null && entryId <= MAX_ENTRY_ID)
+            addToDelta(entryId, minimizers(normalize(sequence)));
+
+        try {
+            persistDelta();
+        } catch (IOException e) {
+            Logger.error("Could not write k-mer index delta", e);
+        }
+
+        if ((base == null || tombstones.size() > MAX_DELTA_SIZE) && rebuildScheduled.compareAndSet(false, true)) {
+            Logger.info("Scheduling k-mer index rebuild");
+            if (!IceExecutorService.getInstance().runTask(new RebuildKmerIndexTask(true)))
+                rebuildFinished();
+        }
+    }
+
+    /**
+     * Allows another rebuild to be scheduled. Called when a scheduled rebuild finishes or could not be run
+     */
+    void rebuildFinished() {
+        rebuildScheduled.set(false);
+    }
+
+    /**
+     * Rebuilds the index from the sequences in the database, dropping all changes recorded before the rebuild
+     * started since those are now included in the index
+     *
+     * @param force whether to rebuild the index even if it already exists
+     * @param task  task running the rebuild, for reporting progress. Optional
+     * @throws IOException on exception writing the index
+     */
+    void rebuild(boolean force, RebuildKmerIndexTask task) throws IOException {
+        load();
+        if (!force && base != null)
+            return;
+
+        // changes are stamped after they are committed so every change stamped before this is read by the rebuild
+        long rebuildStart = BlastDeltaIndex.nextChangeTime();
+        try {
+            Path folder = getIndexFolder();
+            if (!Files.exists(folder))
+                Files.createDirectories(folder);
+
+            Path baseFile = Paths.get(folder.toString(), BASE_FILE);
+            Path newBaseFile = Paths.get(folder.toString(), BASE_FILE + ".new");
+            build(folder, newBaseFile, task);
+            Files.move(newBaseFile, baseFile, StandardCopyOption.REPLACE_EXISTING);
+            Postings postings = Postings.open(baseFile);
+
+            synchronized (this) {
+                base = postings;
+                Iterator<Map.Entry<Long, Long>> iterator = tombstones.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Long, Long> tombstone = iterator.next();
+                    if (tombstone.getValue() < rebuildStart) {
+                        removeFromDelta(tombstone.getKey());
+                        iterator.remove();
+                    }
+                }
+                persistDelta();
+            }
+            Logger.info("Rebuilt k-mer index with " + postings.size() + " postings");
+        } finally {
+            rebuildFinished();
+        }
+    }
+
+    /**
+     * Writes the postings for all sequences to the specified file. Postings are accumulated and sorted in runs of
+     * {@link #RUN_SIZE} which are merged into the file, so memory use is bounded regardless of the number of
+     * sequences
+     */
+    private void build(Path folder, Path file, RebuildKmerIndexTask task) throws IOException {
+        SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
+        int total = sequenceDAO.getSequenceCount();
+        List<Path> runs = new ArrayList<>();
+        long[] buffer = new long[RUN_SIZE];
+        int size = 0;
+        int processed = 0;
+
+        try {
+            long lastId = 0;
+            List<Object[]> rows;
+            while (!(rows = sequenceDAO.getSequencesAfter(lastId, BATCH_SIZE)).isEmpty()) {
+                if (task != null && task.isCancelled())
+                    throw new IOException("K-mer index rebuild cancelled");
+
+                for (Object[] row : rows) {
+                    long entryId = (Long) row[1];
+                    if (entryId > MAX_ENTRY_ID)
+                        continue;
+
+                    for (int minimizer : minimizers(normalize((String) row[5]))) {
+                        if (size == buffer.length) {
+                            runs.add(writeRun(folder, buffer, size, runs.size()));
+                            size = 0;
+                        }
+                        buffer[size++] = ((long) minimizer << 32) | entryId;
+                    }
+                }
+                lastId = (Long) rows.get(rows.size() - 1)[0];
+                processed += rows.size();
+                if (task != null)
+                    task.reportProgress(processed, total);
+            }
+
+            if (runs.isEmpty()) {
+                Arrays.sort(buffer, 0, size);
+                try (DataOutputStream out = openIndexFile(file)) {
+                    long previous = -1;
+                    for (int i = 0; i < size; i += 1) {
+                        if (buffer[i] != previous)
+                            out.writeLong(buffer[i]);
+                        previous = buffer[i];
+                    }
+                }
+            } else {
+                if (size > 0)
+                    runs.add(writeRun(folder, buffer, size, runs.size()));
+                buffer = null;
+                mergeRuns(runs, file);
+            }
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    private Path writeRun(Path folder, long[] buffer, int size, int number) throws IOException {
+        Arrays.sort(buffer, 0, size);
+        Path run = Paths.get(folder.toString(), "run-" + number + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+            for (int i = 0; i < size; i += 1) {
+                out.writeLong(buffer[i]);
+            }
+        }
+        return run;
+    }
+
+    private void mergeRuns(List<Path> runs, Path file) throws IOException {
+        List<DataInputStream> inputs = new ArrayList<>();
+        try (DataOutputStream out = openIndexFile(file)) {
+            PriorityQueue<long[]> queue = new PriorityQueue<>(runs.size(), new Comparator<long[]>() {
+                @Override
+                public int compare(long[] o1, long[] o2) {
+                    return Long.compare(o1[0], o2[0]);
+                }
+            });
+
+            for (int i = 0; i < runs.size(); i += 1) {
+                DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(runs.get(i))));
+                inputs.add(input);
+                readNext(input, i, queue);
+            }
+
+            long previous = -1;
+            while (!queue.isEmpty()) {
+                long[] head = queue.poll();
+                if (head[0] != previous)
+                    out.writeLong(head[0]);
+                previous = head[0];
+                readNext(inputs.get((int) head[1]), (int) head[1], queue);
+            }
+        } finally {
+            for (DataInputStream input : inputs) {
+                input.close();
+            }
+        }
+    }
+
+    private void readNext(DataInputStream input, int run, PriorityQueue<long[]> queue) throws IOException {
+        try {
+            queue.add(new long[]{input.readLong(), run});
+        } catch (EOFException e) {
+            // run exhausted
+        }
+    }
+
+    private DataOutputStream openIndexFile(Path file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(K);
+        out.writeInt(WINDOW);
+        return out;
+    }
+
+    private void addToDelta(long entryId, int[] minimizers) {
+        deltaEntries.put(entryId, minimizers);
+        for (int minimizer : minimizers) {
+            Set<Long> entryIds = deltaPostings.get(minimizer);
+            if (entryIds == null) {
+                entryIds = new HashSet<>();
+                deltaPostings.put(minimizer, entryIds);
+            }
+            entryIds.add(entryId);
+        }
+    }
+
+    private void removeFromDelta(long entryId) {
+        int[] minimizers = deltaEntries.remove(entryId);
+        if (minimizers == null)
+            return;
+
+        for (int minimizer : minimizers) {
+            Set<Long> entryIds = deltaPostings.get(minimizer);
+            if (entryIds == null)
+                continue;
+            entryIds.remove(entryId);
+            if (entryIds.isEmpty())
+                deltaPostings.remove(minimizer);
+        }
+    }
+
+    /**
+     * Writes the tombstones and delta entries to disk
+     */
+    private void persistDelta() throws IOException {
+        Path folder = getIndexFolder();
+        if (!Files.exists(folder))
+            Files.createDirectories(folder);
+
+        Path deltaFile = Paths.get(folder.toString(), DELTA_FILE);
+        Path newDeltaFile = Paths.get(folder.toString(), DELTA_FILE + ".new");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(newDeltaFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(tombstones.size());
+            for (Map.Entry<Long, Long> tombstone : tombstones.entrySet()) {
+                out.writeLong(tombstone.getKey());
+                out.writeLong(tombstone.getValue());
+            }
+            out.writeInt(deltaEntries.size());
+            for (Map.Entry<Long, int[]> entry : deltaEntries.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                for (int minimizer : entry.getValue()) {
+                    out.writeInt(minimizer);
+                }
+            }
+        }
+        Files.move(newDeltaFile, deltaFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Maps the index file and loads the delta the first time the index is used
+     */
+    private void load() {
+        if (loaded)
+            return;
+
+        synchronized (this) {
+            if (loaded)
+                return;
+
+            Path folder = getIndexFolder();
+            Path baseFile = Paths.get(folder.toString(), BASE_FILE);
+            try {
+                if (Files.exists(baseFile))
+                    base = Postings.open(baseFile);
+
+                Path deltaFile = Paths.get(folder.toString(), DELTA_FILE);
+                if (base != null && Files.exists(deltaFile)) {
+                    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(deltaFile)))) {
+                        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                            throw new IOException("Unrecognized k-mer index delta format");
+
+                        int tombstoneCount = in.readInt();
+                        for (int i = 0; i < tombstoneCount; i += 1) {
+                            tombstones.put(in.readLong(), in.readLong());
+                        }
+                        int entryCount = in.readInt();
+                        for (int i = 0; i < entryCount; i += 1) {
+                            long entryId = in.readLong();
+                            int[] minimizers = new int[in.readInt()];
+                            for (int j = 0; j < minimizers.length; j += 1) {
+                                minimizers[j] = in.readInt();
+                            }
+                            addToDelta(entryId, minimizers);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // the delta cannot be trusted without the base and vice versa
+                Logger.error("Could not load k-mer index. It will be rebuilt", e);
+                base = null;
+                tombstones.clear();
+                deltaEntries.clear();
+                deltaPostings.clear();
+            }
+            loaded = true;
+        }
+    }
+
+    private static Path getIndexFolder() {
+        String dataDir = Utils.getConfigValue(ConfigurationKey.DATA_DIRECTORY);
+        return Paths.get(dataDir, INDEX_FOLDER);
+    }
+
+    /**
+     * Lower cases the sequence and removes any fasta header and white space
+     */
+    static String normalize(String sequence) {
+        String normalized = StringUtils.defaultString(sequence).trim();
+        if (normalized.startsWith(">"))
+            normalized = StringUtils.substringAfter(normalized, "\n");
+        return StringUtils.deleteWhitespace(normalized).toLowerCase();
+    }
+
+    /**
+     * Computes the distinct minimizers of a (normalized) sequence; the canonical k-mer with the smallest hash in each
+     * window of {@link #WINDOW} consecutive k-mers. Canonical k-mers are the smaller of the 2-bit encodings of the
+     * k-mer and its reverse complement, so a sequence and its reverse complement have the same minimizers. K-mers
+     * containing characters other than a, c, g or t are skipped
+     *
+     * @param sequence normalized sequence
+     * @return sorted array of distinct minimizers
+     */
+    static int[] minimizers(String sequence) {
+        int length = sequence.length();
+        if (length < K)
+            return new int[0];
+
+        // canonical k-mer starting at each position, or -1 if invalid
+        int mask = (1 << (2 * K)) - 1;
+        int[] kmers = new int[length - K + 1];
+        int forward = 0;
+        int reverse = 0;
+        int valid = 0;
+        for (int i = 0; i < length; i += 1) {
+            int code = encode(sequence.charAt(i));
+            if (code < 0) {
+                valid = 0;
+                forward = 0;
+                reverse = 0;
+            } else {
+                forward = ((forward << 2) | code) & mask;
+                reverse = (reverse >>> 2) | ((3 - code) << (2 * (K - 1)));
+                valid += 1;
+            }
+
+            if (i >= K - 1)
+                kmers[i - K + 1] = valid >= K ? Math.min(forward, reverse) : -1;
+        }
+
+        int window = Math.min(WINDOW, kmers.length);
+        TreeSet<Integer> minimizers = new TreeSet<>();
+        for (int start = 0; start + window <= kmers.length; start += 1) {
+            int minimizer = -1;
+            int minHash = 0;
+            for (int i = start; i < start + window; i += 1) {
+                if (kmers[i] < 0)
+                    continue;
+                int hash = hash(kmers[i]);
+                if (minimizer < 0 || hash < minHash) {
+                    minimizer = kmers[i];
+                    minHash = hash;
+                }
+            }
+            if (minimizer >= 0)
+                minimizers.add(minimizer);
+        }
+
+        int[] result = new int[minimizers.size()];
+        int i = 0;
+        for (Integer minimizer : minimizers) {
+            result[i++] = minimizer;
+        }
+        return result;
+    }
+
+    /**
+     * Extends a circular sequence with its start so that matches of a query of the specified length that cross the
+     * origin are found
+     */
+    static String circularize(String sequence, int queryLength) {
+        return sequence + sequence.substring(0, Math.min(sequence.length(), Math.max(0, queryLength - 1)));
+    }
+
+    private static String reverseComplement(String sequence) {
+        StringBuilder builder = new StringBuilder(sequence.length());
+        for (int i = sequence.length() - 1; i >= 0; i -= 1) {
+            int code = encode(sequence.charAt(i));
+            builder.append(code < 0 ? sequence.charAt(i) : "acgt".charAt(3 - code));
+        }
+        return builder.toString();
+    }
+
+    private static int encode(char c) {
+        switch (c) {
+            case 'a':
+                return 0;
+            case 'c':
+                return 1;
+            case 'g':
+                return 2;
+            case 't':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    // spreads the k-mer encodings so that minimizers are not biased towards low complexity (e.g. poly-a) k-mers
+    private static int hash(int kmer) {
+        int hash = kmer * 0x9E3779B1;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Counts the number of identical bases of the best ungapped placement of the query in the subject. The query is
+     * placed using exact matches of its first, middle and last k-mers as anchors
+     *
+     * @param query   normalized query
+     * @param subject normalized subject
+     * @return number of identical bases, or 0 if the query cannot be placed in the subject
+     */
+    static int countIdentical(String query, String subject) {
+        if (query.length() > subject.length())
+            return 0;
+
+        if (subject.contains(query))
+            return query.length();
+
+        int best = 0;
+        int[] anchors = {0, (query.length() - K) / 2, query.length() - K};
+        for (int anchor : anchors) {
+            String kmer = query.substring(anchor, anchor + K);
+            int position = subject.indexOf(kmer);
+            while (position >= 0) {
+                int offset = position - anchor;
+                if (offset >= 0 && offset + query.length() <= subject.length()) {
+                    int identical = 0;
+                    for (int i = 0; i < query.length(); i += 1) {
+                        if (query.charAt(i) == subject.charAt(offset + i))
+                            identical += 1;
+                    }
+                    if (identical > best)
+                        best = identical;
+                }
+                position = subject.indexOf(kmer, position + 1);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Memory mapped file of sorted <code>(minimizer, entry id)</code> postings, each packed into a long with the
+     * minimizer in the upper 32 bits
+     */
+    static class Postings {
+
+        private final ByteBuffer buffer;
+        private final long size;
+
+        private Postings(ByteBuffer buffer, long size) {
+            this.buffer = buffer;
+            this.size = size;
+        }
+
+        static Postings open(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE)
+                    throw new IOException("K-mer index " + file + " is too large to map");
+
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                        || buffer.getInt(8) != K || buffer.getInt(12) != WINDOW)
+                    throw new IOException("Unrecognized k-mer index format " + file);
+                return new Postings(buffer, (channel.size() - HEADER_SIZE) / 8);
+            }
+        }
+
+        long size() {
+            return size;
+        }
+
+        private long get(long index) {
+            return buffer.getLong((int) (HEADER_SIZE + index * 8));
+        }
+
+        /**
+         * Increments the count for each entry that has a posting for the minimizer, skipping excluded entries.
+         * Minimizers with more than {@link #MAX_POSTINGS_PER_MINIMIZER} postings are too common to be useful and
+         * are skipped
+         *
+         * @return false if the minimizer was skipped, true otherwise
+         */
+        boolean collect(int minimizer, Set<Long> excluded, Map<Long, Integer> counts) {
+            long key = (long) minimizer << 32;
+            long low = 0;
+            long high = size;
+            while (low < high) {
+                long mid = (low + high) >>> 1;
+                if (get(mid) < key)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+
+            long end = low;
+            while (end < size && (get(end) >>> 32) == minimizer && end - low <= MAX_POSTINGS_PER_MINIMIZER) {
+                end += 1;
+            }
+            if (end - low > MAX_POSTINGS_PER_MINIMIZER)
+                return false;
+
+            for (long i = low; i < end; i += 1) {
+                long entryId = get(i) & MAX_ENTRY_ID;
+                if (excluded.contains(entryId))
+                    continue;
+                Integer count = counts.get(entryId);
+                counts.put(entryId, count == null ? 1 : count + 1);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.jbei.ice.lib.search.kmer;
+
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.executor.Task;
+import org.jbei.ice.lib.executor.TaskType;
+
+import java.io.IOException;
+
+/**
+ * Task to rebuild the k-mer index used for exact and near exact sequence searches
+ *
+ * @author Hector Plahar
+ */
+public class RebuildKmerIndexTask extends Task {
+
+    private final boolean force;
+
+    /**
+     * @param force whether to rebuild the index even if it already exists
+     */
+    public RebuildKmerIndexTask(boolean force) {
+        this.force = force;
+    }
+
+    @Override
+    public TaskType getType() {
+        return TaskType.INDEX;
+    }
+
+    @Override
+    public void execute() {
+        Logger.info("Rebuilding k-mer index in background");
+        try {
+            KmerIndex.getInstance().rebuild(force, this);
+        } catch (IOException e) {
+            Logger.error("Exception rebuilding k-mer index", e);
+        }
+    }
+
+    @Override
+    protected void rejected() {
+        KmerIndex.getInstance().rebuildFinished();
+    }
+
+    void reportProgress(long completed, long total) {
+        setProgress(completed, total);
+    }
+}
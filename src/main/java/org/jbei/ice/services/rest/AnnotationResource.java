@@ -7,6 +7,7 @@ import org.jbei.ice.lib.access.PermissionException;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.DNAFeature;
 import org.jbei.ice.lib.dto.FeaturedDNASequence;
+import org.jbei.ice.lib.dto.TaskInfo;
 import org.jbei.ice.lib.entry.sequence.annotation.Annotations;
 
 import javax.ws.rs.*;
@@ -15,6 +16,7 @@ import javax.ws.rs.core.Response;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * REST resource for annotations
@@ -67,6 +69,86 @@ public class AnnotationResource extends RestResource {
         return super.respond(annotations.generate(sequence));
     }
 
+    /**
+     * Submits a background task to generate annotations for the sequences of multiple entries. Either a folder or
+     * a list of entry ids is expected
+     *
+     * @param folderId optional unique identifier for folder whose entries are to be annotated
+     * @param entryIds unique identifiers for entries to annotate, if a folder is not specified
+     * @return information about the submitted task, used to check its progress and retrieve the annotations
+     */
+    @POST
+    @Path("/bulk")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response generateBulk(@QueryParam("folderId") final Long folderId, final List<Long> entryIds) {
+        String userId = requireUserId();
+        Annotations annotations = new Annotations(userId);
+        try {
+            if (folderId != null) {
+                log(userId, "requesting auto annotations for folder " + folderId);
+                return super.respond(annotations.generateBulkForFolder(folderId));
+            }
+
+            if (entryIds == null || entryIds.isEmpty())
+                throw new WebApplicationException(Response.Status.BAD_REQUEST);
+            log(userId, "requesting auto annotations for " + entryIds.size() + " entries");
+            return super.respond(annotations.generateBulk(entryIds));
+        } catch (IllegalArgumentException e) {
+            Logger.error(e);
+            throw new WebApplicationException(Response.Status.NOT_FOUND);
+        } catch (PermissionException e) {
+            Logger.error(e);
+            throw new WebApplicationException(Response.Status.FORBIDDEN);
+        }
+    }
+
+    /**
+     * Retrieves the status and progress of a bulk annotation task
+     *
+     * @param taskId unique identifier for task
+     * @return task information
+     */
+    @GET
+    @Path("/bulk/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getBulkStatus(@PathParam("id") final long taskId) {
+        String userId = requireUserId();
+        Annotations annotations = new Annotations(userId);
+        try {
+            TaskInfo info = annotations.getBulkStatus(taskId);
+            if (info == null)
+                throw new WebApplicationException(Response.Status.NOT_FOUND);
+            return super.respond(info);
+        } catch (PermissionException e) {
+            Logger.error(e);
+            throw new WebApplicationException(Response.Status.FORBIDDEN);
+        }
+    }
+
+    /**
+     * Retrieves the annotations generated by a completed bulk annotation task
+     *
+     * @param taskId unique identifier for task
+     * @return map of entry id to generated annotations
+     */
+    @GET
+    @Path("/bulk/{id}/results")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getBulkResults(@PathParam("id") final long taskId) {
+        String userId = requireUserId();
+        Annotations annotations = new Annotations(userId);
+        try {
+            Map<Long, FeaturedDNASequence> results = annotations.getBulkResults(taskId);
+            if (results == null)
+                throw new WebApplicationException(Response.Status.NOT_FOUND);
+            return super.respond(results);
+        } catch (PermissionException e) {
+            Logger.error(e);
+            throw new WebApplicationException(Response.Status.FORBIDDEN);
+        }
+    }
+
     @PUT
     @Path("/indexes")
     public Response rebuildAnnotations() {
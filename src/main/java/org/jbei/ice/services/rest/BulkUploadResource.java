@@ -5,9 +5,11 @@ import org.apache.commons.io.IOUtils;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
 import org.jbei.ice.lib.access.AuthorizationException;
+import org.jbei.ice.lib.access.PermissionException;
 import org.jbei.ice.lib.bulkupload.*;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.ConfigurationKey;
+import org.jbei.ice.lib.dto.TaskInfo;
 import org.jbei.ice.lib.dto.access.AccessPermission;
 import org.jbei.ice.lib.dto.entry.AttachmentInfo;
 import org.jbei.ice.lib.dto.entry.EntryType;
@@ -89,6 +91,50 @@ public class BulkUploadResource extends RestResource {
         return super.respond(permissionList);
     }
 
+    /**
+     * Retrieves the status and progress of the import of a multi-record sequence file into the upload
+     *
+     * @param id unique identifier for the upload
+     * @return task information for the import
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/{id}/import")
+    public Response getSequenceImportStatus(@PathParam("id") long id) {
+        String userId = requireUserId();
+        try {
+            TaskInfo info = controller.getSequenceImportStatus(userId, id);
+            if (info == null)
+                throw new WebApplicationException(Response.Status.NOT_FOUND);
+            return super.respond(info);
+        } catch (PermissionException e) {
+            Logger.error(e);
+            throw new WebApplicationException(Response.Status.FORBIDDEN);
+        }
+    }
+
+    /**
+     * Retrieves the messages for the records of a multi-record sequence file that could not be imported
+     *
+     * @param id unique identifier for the upload
+     * @return list of messages
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/{id}/import/errors")
+    public Response getSequenceImportErrors(@PathParam("id") long id) {
+        String userId = requireUserId();
+        try {
+            List<String> errors = controller.getSequenceImportErrors(userId, id);
+            if (errors == null)
+                throw new WebApplicationException(Response.Status.NOT_FOUND);
+            return super.respond(errors);
+        } catch (PermissionException e) {
+            Logger.error(e);
+            throw new WebApplicationException(Response.Status.FORBIDDEN);
+        }
+    }
+
     /**
      * Add upload permission
      *
@@ -1,11 +1,13 @@
 package org.jbei.ice.services.rest;
 
 import org.jbei.ice.lib.access.PermissionException;
+import org.jbei.ice.lib.dto.common.PageParameters;
 import org.jbei.ice.lib.folder.collection.Collection;
 import org.jbei.ice.lib.folder.collection.CollectionEntries;
 import org.jbei.ice.lib.folder.collection.CollectionType;
 import org.jbei.ice.lib.folder.collection.Collections;
 import org.jbei.ice.lib.shared.ColumnField;
+import org.jbei.ice.storage.InvalidContinuationException;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
@@ -86,6 +88,7 @@ public class CollectionResource extends RestResource {
                          @DefaultValue("created") @QueryParam("sort") final String sort,
                          @DefaultValue("false") @QueryParam("asc") final boolean asc,
                          @DefaultValue("") @QueryParam("filter") String filter,
+                         @QueryParam("continuation") String continuation,
                          @QueryParam("fields") List<String> queryParam) {
         CollectionType type = CollectionType.valueOf(collectionType.toUpperCase());
         ColumnField sortField = ColumnField.valueOf(sort.toUpperCase());
@@ -93,10 +96,14 @@ public class CollectionResource extends RestResource {
         String userId = getUserId();
         log(userId, "retrieving entries for collection " + type);
         CollectionEntries entries = new CollectionEntries(userId, type);
+        PageParameters pageParameters = new PageParameters(offset, limit, sortField, asc, filter);
+        pageParameters.setContinuation(continuation);
         try {
-            return super.respond(entries.getEntries(sortField, asc, offset, limit, filter));
+            return super.respond(entries.getEntries(pageParameters));
         } catch (PermissionException pe) {
             return super.respond(Response.Status.FORBIDDEN);
+        } catch (InvalidContinuationException e) {
+            return super.respond(Response.Status.BAD_REQUEST);
         }
     }
 }
@@ -5,6 +5,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
+import org.jbei.ice.lib.access.PermissionException;
 import org.jbei.ice.lib.account.UserSessions;
 import org.jbei.ice.lib.bulkupload.FileBulkUpload;
 import org.jbei.ice.lib.common.logging.Logger;
@@ -12,18 +13,20 @@ import org.jbei.ice.lib.config.ConfigurationController;
 import org.jbei.ice.lib.dto.ConfigurationKey;
 import org.jbei.ice.lib.dto.Setting;
 import org.jbei.ice.lib.dto.entry.AttachmentInfo;
+import org.jbei.ice.lib.dto.entry.ChromatogramData;
 import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.entry.SequenceInfo;
 import org.jbei.ice.lib.entry.EntriesAsCSV;
 import org.jbei.ice.lib.entry.EntrySelection;
 import org.jbei.ice.lib.entry.attachment.AttachmentController;
-import org.jbei.ice.lib.entry.sequence.ByteArrayWrapper;
+import org.jbei.ice.lib.entry.sequence.InputStreamWrapper;
 import org.jbei.ice.lib.entry.sequence.SequenceAnalysisController;
 import org.jbei.ice.lib.entry.sequence.SequenceController;
 import org.jbei.ice.lib.entry.sequence.composers.pigeon.PigeonSBOLv;
 import org.jbei.ice.lib.net.RemoteEntries;
 import org.jbei.ice.lib.utils.Utils;
 import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
 import org.jbei.ice.storage.hibernate.dao.ShotgunSequenceDAO;
 import org.jbei.ice.storage.model.Entry;
 import org.jbei.ice.storage.model.Sequence;
@@ -34,7 +37,6 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import java.io.*;
-import java.net.URI;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
@@ -184,14 +186,15 @@ public class FileResource extends RestResource {
             sessionId = sid;
 
         final String userId = getUserId(sessionId);
-        final ByteArrayWrapper wrapper = sequenceController.getSequenceFile(userId, partId, downloadType);
+        final InputStreamWrapper wrapper = sequenceController.getSequenceFileStream(userId, partId, downloadType);
 
         StreamingOutput stream = new StreamingOutput() {
             @Override
             public void write(final OutputStream output) throws IOException,
                     WebApplicationException {
-                final ByteArrayInputStream stream = new ByteArrayInputStream(wrapper.getBytes());
-                IOUtils.copy(stream, output);
+                try (InputStream inputStream = wrapper.getInputStream()) {
+                    IOUtils.copy(inputStream, output);
+                }
             }
         };
 
@@ -211,6 +214,40 @@ public class FileResource extends RestResource {
         return Response.serverError().build();
     }
 
+    /**
+     * Retrieves a range of the chromatogram of an ABI trace, downsampled so that at most <code>width</code>
+     * points are returned for the range
+     *
+     * @param fileId unique file identifier of the trace
+     * @param start  first trace point of the range
+     * @param end    last trace point of the range (exclusive). Defaults to the end of the trace
+     * @param width  maximum number of points to return
+     * @return chromatogram data for the range
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("trace/{fileId}/chromatogram")
+    public Response getTraceChromatogram(@PathParam("fileId") String fileId,
+                                         @DefaultValue("0") @QueryParam("start") int start,
+                                         @DefaultValue("0") @QueryParam("end") int end,
+                                         @DefaultValue("1000") @QueryParam("width") int width,
+                                         @QueryParam("sid") String sid) {
+        if (StringUtils.isEmpty(sessionId))
+            sessionId = sid;
+
+        final String userId = getUserId(sessionId);
+        try {
+            ChromatogramData data = new SequenceAnalysisController().getChromatogram(userId, fileId, start, end,
+                    width);
+            if (data == null)
+                throw new WebApplicationException(Response.Status.NOT_FOUND);
+            return super.respond(data);
+        } catch (PermissionException e) {
+            Logger.error(e);
+            throw new WebApplicationException(Response.Status.FORBIDDEN);
+        }
+    }
+
     @GET
     @Path("shotgunsequence/{fileId}")
     public Response getShotgunSequenceFile(@PathParam("fileId") String fileId,
@@ -230,29 +267,13 @@ public class FileResource extends RestResource {
     @Produces("image/png")
     @Path("sbolVisual/{rid}")
     public Response getSBOLVisual(@PathParam("rid") String recordId) {
-        final String tmpDir = Utils.getConfigValue(ConfigurationKey.TEMPORARY_DIRECTORY);
         final Entry entry = DAOFactory.getEntryDAO().getByRecordId(recordId);
         final Sequence sequence = entry.getSequence();
-        final String hash = sequence.getFwdHash();
-        final File png = Paths.get(tmpDir, hash + ".png").toFile();
-
-        if (png.exists()) {
-            return addHeaders(Response.ok(png), entry.getPartNumber() + ".png");
-        }
-
-        final URI uri = PigeonSBOLv.generatePigeonVisual(sequence);
-        if (uri != null) {
-            try (final InputStream in = uri.toURL().openStream();
-                 final OutputStream out = new FileOutputStream(png);) {
-                IOUtils.copy(in, out);
-            } catch (IOException e) {
-                Logger.error(e);
-                return respond(false);
-            }
+        final InputStream png = PigeonSBOLv.generatePigeonImage(sequence);
+        if (png == null)
+            return respond(false);
 
-            return addHeaders(Response.ok(png), entry.getPartNumber() + ".png");
-        }
-        return respond(false);
+        return addHeaders(Response.ok(png), entry.getPartNumber() + ".png");
     }
 
     /**
@@ -287,8 +308,8 @@ public class FileResource extends RestResource {
     }
 
     /**
-     * Extracts the csv information and writes it to the temp dir and returns the file uuid. Then
-     * the client is expected to make another rest call with the uuid in a separate window. This
+     * Resolves the entries in the selection and returns a token for the export. Then the client is expected to
+     * make another rest call with the token in a separate window, which streams the csv (or zip) file. This
      * workaround is due to not being able to download files using XHR or sumsuch
      */
     @POST
@@ -299,15 +320,38 @@ public class FileResource extends RestResource {
                                 EntrySelection selection) {
         String userId = super.requireUserId();
         EntriesAsCSV entriesAsCSV = new EntriesAsCSV(sequenceFormats.toArray(new String[sequenceFormats.size()]));
-        boolean success = entriesAsCSV.setSelectedEntries(userId, selection);
-        if (!success)
-            return super.respond(false);
+        String token = entriesAsCSV.prepare(userId, selection);
+        return Response.ok(new Setting("key", token)).build();
+    }
 
-        final File file = entriesAsCSV.getFilePath().toFile();
-        if (file.exists()) {
-            return Response.ok(new Setting("key", file.getName())).build();
-        }
+    /**
+     * Streams an export prepared using {@link #downloadCSV(List, EntrySelection)}. The entries are written in
+     * batches, and sequence files are formatted in parallel, directly to the response without a temporary file
+     *
+     * @param token unique token for the prepared export
+     * @return csv file, or zip file containing the csv file and sequence files
+     */
+    @GET
+    @Path("csv/{token}")
+    public Response getCSV(@PathParam("token") final String token) {
+        final EntriesAsCSV entriesAsCSV = EntriesAsCSV.getPrepared(token);
+        if (entriesAsCSV == null)
+            return super.respond(Response.Status.NOT_FOUND);
 
-        return Response.serverError().build();
+        StreamingOutput stream = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                // the request transaction is committed before the response entity is written
+                HibernateUtil.beginTransaction();
+                try {
+                    entriesAsCSV.write(output);
+                    HibernateUtil.commitTransaction();
+                } catch (IOException | RuntimeException e) {
+                    HibernateUtil.rollbackTransaction();
+                    throw e;
+                }
+            }
+        };
+        return addHeaders(Response.ok(stream), entriesAsCSV.getFileName());
     }
 }
@@ -12,6 +12,7 @@ import org.jbei.ice.lib.dto.web.RegistryPartner;
 import org.jbei.ice.lib.entry.EntrySelection;
 import org.jbei.ice.lib.folder.*;
 import org.jbei.ice.lib.shared.ColumnField;
+import org.jbei.ice.storage.InvalidContinuationException;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
@@ -188,7 +189,9 @@ public class FolderResource extends RestResource {
 
     /**
      * Retrieves the entries for specified folder. Handles request
-     * from a local client (ui) or from a remote ice instance
+     * from a local client (ui) or from a remote ice instance. Entries are paged by offset unless a
+     * continuation token (empty for the first page) is specified, in which case the folder object includes
+     * the token for the next page
      *
      * @return list of retrieved entries wrapped in folder object
      */
@@ -203,6 +206,7 @@ public class FolderResource extends RestResource {
                               @DefaultValue("") @QueryParam("filter") String filter,
                               @QueryParam("token") String token,   // todo: move to headers
                               @QueryParam("userId") String remoteUserId,                   // todo : ditto
+                              @QueryParam("continuation") String continuation,
                               @QueryParam("fields") List<String> queryParam) {
         final ColumnField field = ColumnField.valueOf(sort.toUpperCase());
         if (folderId.equalsIgnoreCase("public")) {   // todo : move to separate rest resource path
@@ -221,6 +225,7 @@ public class FolderResource extends RestResource {
                 message += " filtered by \"" + filter + "\"";
             FolderContents folderContents = new FolderContents();
             PageParameters pageParameters = new PageParameters(offset, limit, field, asc, filter);
+            pageParameters.setContinuation(continuation);
 
             if (StringUtils.isEmpty(userId)) {
                 if (StringUtils.isEmpty(token))  // todo :verify partner?
@@ -237,6 +242,8 @@ public class FolderResource extends RestResource {
         } catch (final NumberFormatException nfe) {
             Logger.error("Passed folder id " + folderId + " is not a number");
             return null;
+        } catch (InvalidContinuationException e) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
         }
     }
 
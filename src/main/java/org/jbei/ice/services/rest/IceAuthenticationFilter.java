@@ -1,6 +1,7 @@
 package org.jbei.ice.services.rest;
 
 import org.glassfish.jersey.server.ContainerRequest;
+import org.jbei.ice.lib.account.PrincipalContext;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
 
 import javax.ws.rs.container.ContainerRequestContext;
@@ -30,6 +31,7 @@ public class IceAuthenticationFilter implements ContainerRequestFilter {
             }
         }
 
+        PrincipalContext.begin();
         HibernateUtil.beginTransaction();
     }
 
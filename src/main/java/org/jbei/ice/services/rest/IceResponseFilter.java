@@ -1,5 +1,6 @@
 package org.jbei.ice.services.rest;
 
+import org.jbei.ice.lib.account.PrincipalContext;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
 
 import javax.ws.rs.container.ContainerRequestContext;
@@ -11,7 +12,7 @@ import java.io.IOException;
 
 /**
  * Rolls back the transaction if http status is 500
- * otherwise commits transaction if started
+ * otherwise commits transaction if started. Ends the principal context of the request
  *
  * @author Hector Plahar
  */
@@ -25,6 +26,7 @@ public class IceResponseFilter implements ContainerResponseFilter {
         // 500 = request failed
         // 204 = no content ???
         int status = responseContext.getStatus();
+        PrincipalContext.end();
         if (status != 401) {
             if(status == 500)
                 HibernateUtil.rollbackTransaction();
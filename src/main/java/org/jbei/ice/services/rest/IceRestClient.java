@@ -3,6 +3,7 @@ package org.jbei.ice.services.rest;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
 import org.glassfish.jersey.media.multipart.FormDataMultiPart;
 import org.glassfish.jersey.media.multipart.MultiPartFeature;
 import org.jbei.ice.lib.common.logging.Logger;
@@ -14,6 +15,7 @@ import javax.ws.rs.client.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * ICE REST client
@@ -75,6 +77,27 @@ public class IceRestClient extends RestClient {
         return null;
     }
 
+    /**
+     * Posts the object without waiting for the response. The request is sent and the response read on a client
+     * thread, and the callback is notified when the response arrives or the request fails (including a response
+     * status other than OK, or a timeout)
+     *
+     * @param url          url of the remote instance
+     * @param resourcePath path of the resource
+     * @param object       object to post
+     * @param timeout      connect and read timeout in milliseconds
+     * @param callback     notified with the response entity or the failure
+     * @return future for the response entity. Can be used to cancel the request
+     */
+    public <T> Future<T> postAsync(String url, String resourcePath, Object object, int timeout,
+                                   InvocationCallback<T> callback) {
+        WebTarget target = client.target("https://" + url).path(resourcePath);
+        Invocation.Builder invocationBuilder = target.request(MediaType.APPLICATION_JSON_TYPE)
+                .property(ClientProperties.CONNECT_TIMEOUT, timeout)
+                .property(ClientProperties.READ_TIMEOUT, timeout);
+        return invocationBuilder.async().post(Entity.entity(object, MediaType.APPLICATION_JSON_TYPE), callback);
+    }
+
     // post to Wor
     public <T> T postWor(String url, String resourcePath, Object object, Class<T> responseClass,
                          Map<String, Object> queryParams, String token) {
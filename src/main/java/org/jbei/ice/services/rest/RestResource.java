@@ -3,6 +3,7 @@ package org.jbei.ice.services.rest;
 import org.apache.commons.lang3.StringUtils;
 import org.jbei.auth.hmac.HmacSignature;
 import org.jbei.ice.lib.access.TokenVerification;
+import org.jbei.ice.lib.account.PrincipalContext;
 import org.jbei.ice.lib.account.UserSessions;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.web.RegistryPartner;
@@ -93,15 +94,20 @@ public class RestResource {
     }
 
     /**
-     * Extract the User ID from a query parameter value or header values in the resource request.
+     * Extract the User ID from a query parameter value or header values in the resource request. The resolved user
+     * is recorded in the principal context of the request so it is only resolved once per request
      */
     protected String getUserId(String sessionId) {
         if (StringUtils.isEmpty(sessionId) && !StringUtils.isEmpty(querySessionId))
             sessionId = querySessionId;
 
+        PrincipalContext context = PrincipalContext.current();
+        if (context != null && context.isResolved(sessionId))
+            return context.getUserId();
+
         String userId = UserSessions.getUserIdBySession(sessionId);
         if (!StringUtils.isEmpty(userId))
-            return userId;
+            return setPrincipal(context, sessionId, userId);
 
         // check api key
         if (!StringUtils.isEmpty(apiToken)) {
@@ -112,7 +118,7 @@ public class RestResource {
 
             // being a bit generous in terms of allowing other auth methods to be attempted even though apiToken is set
             if (userId != null)
-                return userId;
+                return setPrincipal(context, sessionId, userId);
         }
 
         // check hmac signature
@@ -127,6 +133,12 @@ public class RestResource {
             }
         }
 
+        return setPrincipal(context, sessionId, userId);
+    }
+
+    private String setPrincipal(PrincipalContext context, String sessionId, String userId) {
+        if (context != null && userId != null)
+            context.setPrincipal(sessionId, userId);
         return userId;
     }
 
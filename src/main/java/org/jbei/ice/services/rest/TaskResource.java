@@ -0,0 +1,58 @@
+package org.jbei.ice.services.rest;
+
+import org.jbei.ice.lib.access.PermissionException;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.executor.Tasks;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * REST resource for administering background tasks
+ *
+ * @author Hector Plahar
+ */
+@Path("/tasks")
+public class TaskResource extends RestResource {
+
+    /**
+     * Retrieves the pending, running and recently finished background tasks with their progress and timings
+     *
+     * @return list of tasks
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response get() {
+        String userId = requireUserId();
+        Tasks tasks = new Tasks(userId);
+        try {
+            return super.respond(tasks.get());
+        } catch (PermissionException e) {
+            Logger.error(e);
+            throw new WebApplicationException(Response.Status.FORBIDDEN);
+        }
+    }
+
+    /**
+     * Cancels a pending or running background task
+     *
+     * @param id unique identifier for task
+     * @return OK if the task was cancelled, NOT FOUND if there is no pending or running task with the id
+     */
+    @DELETE
+    @Path("/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response cancel(@PathParam("id") final long id) {
+        String userId = requireUserId();
+        log(userId, "cancelling task " + id);
+        Tasks tasks = new Tasks(userId);
+        try {
+            boolean cancelled = tasks.cancel(id);
+            return super.respond(cancelled ? Response.Status.OK : Response.Status.NOT_FOUND);
+        } catch (PermissionException e) {
+            Logger.error(e);
+            throw new WebApplicationException(Response.Status.FORBIDDEN);
+        }
+    }
+}
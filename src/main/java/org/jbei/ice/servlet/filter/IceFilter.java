@@ -1,5 +1,6 @@
 package org.jbei.ice.servlet.filter;
 
+import org.jbei.ice.lib.account.PrincipalContext;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
 
@@ -23,6 +24,7 @@ public class IceFilter implements Filter {
         if (config == null)
             return;
 
+        PrincipalContext.begin();
         try {
             HibernateUtil.beginTransaction();
             chain.doFilter(request, response);
@@ -37,6 +39,8 @@ public class IceFilter implements Filter {
                 HibernateUtil.rollbackTransaction();
                 Logger.warn("Could not log error " + e.getMessage());
             }
+        } finally {
+            PrincipalContext.end();
         }
     }
 
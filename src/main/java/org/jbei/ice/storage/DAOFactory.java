@@ -37,6 +37,7 @@ public class DAOFactory {
     private static SequenceFeatureDAO sequenceFeatureDAO;
     private static FeatureDAO featureDAO;
     private static FeatureCurationModelDAO featureCurationModelDAO;
+    private static EntryAccessDAO entryAccessDAO;
 
     public static AccountDAO getAccountDAO() {
         if (accountDAO == null)
@@ -217,4 +218,10 @@ public class DAOFactory {
             featureCurationModelDAO = new FeatureCurationModelDAO();
         return featureCurationModelDAO;
     }
+
+    public static EntryAccessDAO getEntryAccessDAO() {
+        if (entryAccessDAO == null)
+            entryAccessDAO = new EntryAccessDAO();
+        return entryAccessDAO;
+    }
 }
@@ -0,0 +1,16 @@
+package org.jbei.ice.storage;
+
+/**
+ * Unchecked exception thrown when the continuation token of a request for a page of entries is malformed or was
+ * not created for the sort parameters of the request
+ *
+ * @author Hector Plahar
+ */
+public class InvalidContinuationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidContinuationException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,8 @@ package org.jbei.ice.storage;
 
 import org.apache.commons.lang3.StringUtils;
 import org.jbei.ice.lib.account.AccountController;
+import org.jbei.ice.lib.account.AccountType;
+import org.jbei.ice.lib.account.PrincipalContext;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.entry.*;
 import org.jbei.ice.lib.entry.EntryAuthorization;
@@ -11,8 +13,7 @@ import org.jbei.ice.storage.model.*;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * Factory for converting {@link Entry}s to a {@link org.jbei.ice.lib.dto.entry.PartData}
@@ -253,7 +254,7 @@ public class ModelToInfoFactory {
         if (email == null || email.isEmpty())
             return 0;
 
-        Account account = DAOFactory.getAccountDAO().getByEmail(email);
+        Account account = PrincipalContext.getAccount(email);
         if (account == null)
             return 0;
 
@@ -264,18 +265,7 @@ public class ModelToInfoFactory {
         if (entry == null)
             return null;
 
-        EntryType type = EntryType.nameToType(entry.getRecordType());
-        PartData view = new PartData(type);
-        view.setId(entry.getId());
-        view.setRecordId(entry.getRecordId());
-        view.setPartId(entry.getPartNumber());
-        view.setName(entry.getName());
-        view.setShortDescription(entry.getShortDescription());
-        view.setCreationTime(entry.getCreationTime().getTime());
-        view.setStatus(entry.getStatus());
-        view.setAlias(entry.getAlias());
-        view.setOwnerEmail(entry.getOwnerEmail());
-        view.setVisibility(Visibility.valueToEnum(entry.getVisibility()));
+        PartData view = getTableViewCommon(entry);
 
         if (userId != null) {
             EntryAuthorization authorization = new EntryAuthorization();
@@ -304,6 +294,139 @@ public class ModelToInfoFactory {
         return view;
     }
 
+    /**
+     * Converts a page of entries to their table view representation. Equivalent to calling
+     * {@link #createTableViewData(String, Entry, boolean)} for each entry but the information that requires
+     * additional lookups is retrieved for the entire page using {@link #setTableViewAccessData(String, List, boolean)}
+     *
+     * @param userId           unique identifier for user requesting the data. Used to determine if the user can
+     *                         edit each entry. Use <code>null</code> to skip the check
+     * @param entries          page of entries to convert. <code>null</code> elements are skipped
+     * @param includeOwnerInfo whether to include the owner and creator information
+     * @return list of table views in the same order as the entries
+     */
+    public static List<PartData> createTableViewData(String userId, List<Entry> entries, boolean includeOwnerInfo) {
+        List<PartData> views = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry != null)
+                views.add(createTableViewFields(entry, includeOwnerInfo));
+        }
+
+        setTableViewAccessData(userId, views, includeOwnerInfo);
+        return views;
+    }
+
+    /**
+     * Converts the fields of an entry that are displayed in table views. No additional lookups are performed
+     *
+     * @param entry            entry to convert
+     * @param includeOwnerInfo whether to include the owner and creator names and the creator email
+     * @return table view without the values set by {@link #setTableViewAccessData(String, List, boolean)}
+     */
+    public static PartData createTableViewFields(Entry entry, boolean includeOwnerInfo) {
+        PartData view = getTableViewCommon(entry);
+        if (includeOwnerInfo) {
+            view.setOwner(entry.getOwner());
+            view.setCreator(entry.getCreator());
+            view.setCreatorEmail(entry.getCreatorEmail());
+        }
+        return view;
+    }
+
+    /**
+     * Sets the values of a page of table views that are not part of the entry itself; whether the user can edit
+     * the entry, the owner and creator account ids, and whether the entry has samples, a sequence or an original
+     * sequence file. These are retrieved using a fixed number of set based queries for the entire page instead of
+     * a few queries per entry. The views are expected to have the id, owner email and (if owner information is
+     * included) creator email set
+     *
+     * @param userId           unique identifier for user requesting the data. Used to determine if the user can
+     *                         edit each entry. Use <code>null</code> to skip the check
+     * @param views            page of table views
+     * @param includeOwnerInfo whether to include the owner and creator account ids
+     */
+    public static void setTableViewAccessData(String userId, List<PartData> views, boolean includeOwnerInfo) {
+        if (views.isEmpty())
+            return;
+
+        List<Long> entryIds = new ArrayList<>();
+        for (PartData view : views) {
+            entryIds.add(view.getId());
+        }
+
+        // write permissions
+        boolean isAdmin = false;
+        Set<Long> writableEntries = Collections.emptySet();
+        if (userId != null) {
+            Account account = PrincipalContext.getAccount(userId);
+            if (account == null)
+                throw new IllegalArgumentException("Could not retrieve account information for user " + userId);
+            isAdmin = account.getType() == AccountType.ADMIN;
+            if (!isAdmin)
+                writableEntries = DAOFactory.getPermissionDAO().getCanWriteEntries(account, entryIds);
+        }
+
+        // owner and creator account ids
+        Map<String, Long> accountIds = Collections.emptyMap();
+        if (includeOwnerInfo) {
+            Set<String> emails = new HashSet<>();
+            for (PartData view : views) {
+                if (!StringUtils.isEmpty(view.getOwnerEmail()))
+                    emails.add(view.getOwnerEmail());
+                if (!StringUtils.isEmpty(view.getCreatorEmail()))
+                    emails.add(view.getCreatorEmail());
+            }
+            accountIds = DAOFactory.getAccountDAO().getAccountIds(emails);
+        }
+
+        // samples and sequences
+        Set<Long> withSample = DAOFactory.getSampleDAO().getEntriesWithSamples(entryIds);
+        SequenceDAO sequenceDAO = DAOFactory.getSequenceDAO();
+        Set<Long> withSequence = sequenceDAO.getEntriesWithSequence(entryIds);
+        Set<Long> withOriginalSequence = sequenceDAO.getEntriesWithOriginalSequence(entryIds);
+
+        for (PartData view : views) {
+            if (userId != null) {
+                String owner = view.getOwnerEmail();
+                view.setCanEdit(isAdmin || owner == null || userId.equals(owner)
+                        || writableEntries.contains(view.getId()));
+            }
+
+            if (includeOwnerInfo) {
+                view.setOwnerId(getAccountId(accountIds, view.getOwnerEmail()));
+                view.setCreatorId(getAccountId(accountIds, view.getCreatorEmail()));
+            }
+
+            view.setHasSample(withSample.contains(view.getId()));
+            view.setHasSequence(withSequence.contains(view.getId()));
+            view.setHasOriginalSequence(withOriginalSequence.contains(view.getId()));
+        }
+    }
+
+    private static PartData getTableViewCommon(Entry entry) {
+        EntryType type = EntryType.nameToType(entry.getRecordType());
+        PartData view = new PartData(type);
+        view.setId(entry.getId());
+        view.setRecordId(entry.getRecordId());
+        view.setPartId(entry.getPartNumber());
+        view.setName(entry.getName());
+        view.setShortDescription(entry.getShortDescription());
+        view.setCreationTime(entry.getCreationTime().getTime());
+        view.setStatus(entry.getStatus());
+        view.setAlias(entry.getAlias());
+        view.setOwnerEmail(entry.getOwnerEmail());
+        view.setVisibility(Visibility.valueToEnum(entry.getVisibility()));
+        return view;
+    }
+
+    private static long getAccountId(Map<String, Long> accountIds, String email) {
+        if (email == null || email.isEmpty())
+            return 0;
+
+        Long id = accountIds.get(email.toLowerCase());
+        return id == null ? 0 : id;
+    }
+
     public static PartData createTipView(Entry entry) {
         EntryType type = EntryType.nameToType(entry.getRecordType());
         if (type == null)
@@ -2,12 +2,16 @@ package org.jbei.ice.storage.hibernate;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.service.ServiceRegistry;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.storage.model.FeatureCurationModel;
 
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
 /**
  * Helper class to Initialize Hibernate, and obtain new sessions.
  *
@@ -51,6 +55,39 @@ public class HibernateUtil {
         getSessionFactory().getCurrentSession().getTransaction().rollback();
     }
 
+    /**
+     * Runs the specified action once the transaction bound to the current session has been committed, or immediately
+     * if there is no active transaction. The action is not run if the transaction is rolled back. It must not use the
+     * session
+     *
+     * @param action action to run
+     */
+    public static void afterCommit(final Runnable action) {
+        Transaction transaction = getSessionFactory().getCurrentSession().getTransaction();
+        if (transaction == null || !transaction.isActive()) {
+            action.run();
+            return;
+        }
+
+        transaction.registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != Status.STATUS_COMMITTED)
+                    return;
+
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    Logger.error(e);
+                }
+            }
+        });
+    }
+
     /**
      * Initialize a in-memory mock database for testing.
      */
@@ -120,6 +157,7 @@ public class HibernateUtil {
                 configuration.addAnnotatedClass(org.jbei.ice.storage.model.RemoteAccessModel.class);
                 configuration.addAnnotatedClass(org.jbei.ice.storage.model.ManuscriptModel.class);
                 configuration.addAnnotatedClass(FeatureCurationModel.class);
+                configuration.addAnnotatedClass(org.jbei.ice.storage.model.EntryAccess.class);
 
                 sessionFactory = configuration.buildSessionFactory(serviceRegistry);
             } catch (Throwable e) {
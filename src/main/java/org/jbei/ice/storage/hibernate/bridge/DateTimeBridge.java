@@ -0,0 +1,29 @@
+package org.jbei.ice.storage.hibernate.bridge;
+
+import org.hibernate.search.bridge.TwoWayStringBridge;
+
+import java.util.Date;
+
+/**
+ * Two way bridge for storing dates in the index with millisecond precision, so that they can be
+ * retrieved using projections. Dates that are used for searching and sorting use
+ * {@link org.hibernate.search.annotations.DateBridge} with a coarser resolution
+ *
+ * @author Hector Plahar
+ */
+public class DateTimeBridge implements TwoWayStringBridge {
+
+    @Override
+    public Object stringToObject(String stringValue) {
+        if (stringValue == null || stringValue.isEmpty())
+            return null;
+        return new Date(Long.parseLong(stringValue));
+    }
+
+    @Override
+    public String objectToString(Object object) {
+        if (object == null)
+            return null;
+        return Long.toString(((Date) object).getTime());
+    }
+}
@@ -3,15 +3,14 @@ package org.jbei.ice.storage.hibernate.dao;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
+import org.hibernate.Query;
 import org.hibernate.criterion.*;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.storage.DAOException;
 import org.jbei.ice.storage.hibernate.HibernateRepository;
 import org.jbei.ice.storage.model.Account;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Data accessor object to manipulate {@link Account} objects in the database.
@@ -82,6 +81,41 @@ public class AccountDAO extends HibernateRepository<Account> {
         }
     }
 
+    /**
+     * Retrieves the unique identifiers of the accounts with the specified emails in a single query
+     *
+     * @param emails email identifiers for accounts. Matching is case insensitive
+     * @return map of lower cased email to account id. Emails without a matching account are not included
+     * @throws DAOException on {@link HibernateException} retrieving account ids
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Long> getAccountIds(Collection<String> emails) {
+        Map<String, Long> ids = new HashMap<>();
+        if (emails == null || emails.isEmpty())
+            return ids;
+
+        Set<String> lowerCaseEmails = new HashSet<>();
+        for (String email : emails) {
+            if (email != null)
+                lowerCaseEmails.add(email.toLowerCase());
+        }
+        if (lowerCaseEmails.isEmpty())
+            return ids;
+
+        try {
+            Query query = currentSession().createQuery("select lower(a.email), a.id from " + Account.class.getName()
+                    + " a where lower(a.email) in (:emails)");
+            query.setParameterList("emails", lowerCaseEmails);
+            for (Object[] row : (List<Object[]>) query.list()) {
+                ids.put((String) row[0], (Long) row[1]);
+            }
+            return ids;
+        } catch (HibernateException e) {
+            Logger.error(e);
+            throw new DAOException("Failed to retrieve account ids", e);
+        }
+    }
+
     /**
      * Retrieves list of pageable accounts, matching the parameter values
      *
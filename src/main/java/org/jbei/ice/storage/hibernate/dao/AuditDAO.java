@@ -12,7 +12,10 @@ import org.jbei.ice.storage.hibernate.HibernateRepository;
 import org.jbei.ice.storage.model.Audit;
 import org.jbei.ice.storage.model.Entry;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Accessor for {@link Audit} objects
@@ -55,6 +58,31 @@ public class AuditDAO extends HibernateRepository<Audit> {
         return 0;
     }
 
+    /**
+     * Retrieves the number of audit records (views) for each of the specified entries in a single query
+     *
+     * @param entryIds unique identifiers for entries
+     * @return map of entry id to number of audit records. Entries without audit records are not included
+     */
+    public Map<Long, Integer> getHistoryCounts(Collection<Long> entryIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        if (entryIds == null || entryIds.isEmpty())
+            return counts;
+
+        try {
+            Query query = currentSession().createQuery("select a.entry.id, count(a.id) from " + Audit.class.getName()
+                    + " a where a.entry.id in (:ids) group by a.entry.id");
+            query.setParameterList("ids", entryIds);
+            for (Object[] row : (List<Object[]>) query.list()) {
+                counts.put((Long) row[0], ((Number) row[1]).intValue());
+            }
+            return counts;
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
     public int deleteAll(Entry entry) {
         try {
             Session session = currentSession();
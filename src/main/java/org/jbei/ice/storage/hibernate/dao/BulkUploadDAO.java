@@ -126,6 +126,32 @@ public class BulkUploadDAO extends HibernateRepository<BulkUpload> {
         }
     }
 
+    /**
+     * Adds entries to the contents of a bulk upload without loading its existing contents, which are otherwise
+     * initialized when the (lazy) contents collection is modified. Pending inserts for the entries are flushed first
+     *
+     * @param upload   bulk upload
+     * @param entryIds unique identifiers for entries to add
+     */
+    public void addEntries(BulkUpload upload, List<Long> entryIds) throws DAOException {
+        if (entryIds.isEmpty())
+            return;
+
+        try {
+            currentSession().flush();
+            StringBuilder builder = new StringBuilder("insert into bulk_upload_entry (bulk_upload_id, entry_id) values ");
+            for (int i = 0; i < entryIds.size(); i += 1) {
+                if (i > 0)
+                    builder.append(", ");
+                builder.append("(").append(upload.getId()).append(", ").append(entryIds.get(i)).append(")");
+            }
+            currentSession().createSQLQuery(builder.toString()).executeUpdate();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
     @Override
     public BulkUpload get(long id) throws DAOException {
         return super.get(BulkUpload.class, id);
@@ -0,0 +1,433 @@
+package org.jbei.ice.storage.hibernate.dao;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Query;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.folder.FolderType;
+import org.jbei.ice.lib.group.GroupController;
+import org.jbei.ice.storage.DAOException;
+import org.jbei.ice.storage.hibernate.HibernateRepository;
+import org.jbei.ice.storage.model.*;
+
+import java.util.*;
+
+/**
+ * Data accessor object for the materialized index of effective entry permissions ({@link EntryAccess}).
+ * <p>
+ * The index has a row for each account or group that is granted access to an entry by a permission on the entry, by
+ * a permission on a folder that contains the entry or by the entry being in a public folder, so that checking access
+ * to an entry is a single indexed lookup. Group hierarchies are resolved by the caller, which passes the ids of all
+ * the groups the account belongs to (including their parent groups).
+ * <p>
+ * Rows are derived from the permissions and folder contents with set based <code>insert ... select</code>
+ * statements and are maintained incrementally by {@link PermissionDAO} and {@link FolderDAO} as permissions and
+ * folder contents change. Rows derived from a folder record the folder, so they can be recomputed per folder
+ *
+ * @author Hector Plahar
+ */
+@SuppressWarnings("unchecked")
+public class EntryAccessDAO extends HibernateRepository<EntryAccess> {
+
+    // maximum number of entry ids bound to a single "in" clause
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String INSERT_ENTRY_PERMISSIONS = "insert into " + EntryAccess.class.getName()
+            + " (entryId, accountId, groupId, canWrite) select p.entry.id, p.account.id, p.group.id, p.canWrite from "
+            + Permission.class.getName() + " p where p.entry is not null"
+            + " and (p.account is not null or p.group is not null) and (p.canRead = true or p.canWrite = true)";
+
+    private static final String INSERT_FOLDER_PERMISSIONS = "insert into " + EntryAccess.class.getName()
+            + " (entryId, accountId, groupId, folderId, canWrite) select e.id, p.account.id, p.group.id, f.id,"
+            + " p.canWrite from " + Folder.class.getName() + " f join f.contents e, " + Permission.class.getName()
+            + " p where p.folder.id = f.id and p.entry is null"
+            + " and (p.account is not null or p.group is not null) and (p.canRead = true or p.canWrite = true)";
+
+    private static final String INSERT_PUBLIC_FOLDERS = "insert into " + EntryAccess.class.getName()
+            + " (entryId, groupId, folderId, canWrite) select e.id, g.id, f.id, false from " + Folder.class.getName()
+            + " f join f.contents e, " + Group.class.getName() + " g where f.type = :type and g.uuid = :uuid";
+
+    @Override
+    public EntryAccess get(long id) {
+        return super.get(EntryAccess.class, id);
+    }
+
+    /**
+     * Determines if the account, or any of the specified groups, can read the entry. Write access implies read access
+     *
+     * @param entryId  unique identifier for entry
+     * @param account  account whose access is being checked. Can be null
+     * @param groupIds ids of the groups the account belongs to, including parent groups. Can be null or empty
+     * @return true if the index has any access row for the entry and the account or one of the groups
+     * @throws DAOException on hibernate exception
+     */
+    public boolean hasReadAccess(long entryId, Account account, Set<Long> groupIds) {
+        return hasAccess(entryId, account, groupIds, false, false);
+    }
+
+    /**
+     * Determines if the account, or any of the specified groups, can write the entry, through a permission on the
+     * entry or on a folder that contains it
+     *
+     * @param entryId  unique identifier for entry
+     * @param account  account whose access is being checked. Can be null
+     * @param groupIds ids of the groups the account belongs to, including parent groups. Can be null or empty
+     * @return true if the index has a write access row for the entry and the account or one of the groups
+     * @throws DAOException on hibernate exception
+     */
+    public boolean hasWriteAccess(long entryId, Account account, Set<Long> groupIds) {
+        return hasAccess(entryId, account, groupIds, true, false);
+    }
+
+    /**
+     * Determines if the account has been explicitly granted write access on the entry (i.e. not through a group or
+     * a folder)
+     *
+     * @param entryId unique identifier for entry
+     * @param account account whose access is being checked
+     * @return true if the index has a direct write access row for the entry and account
+     * @throws DAOException on hibernate exception
+     */
+    public boolean hasEntryWriteAccess(long entryId, Account account) {
+        return hasAccess(entryId, account, null, true, true);
+    }
+
+    /**
+     * Retrieves the subset of the specified entries that the account, or any of the specified groups, can read. This
+     * is the set based equivalent of {@link #hasReadAccess(long, Account, Set)}
+     *
+     * @param account  account whose access is being checked. Can be null
+     * @param groupIds ids of the groups the account belongs to, including parent groups. Can be null or empty
+     * @param entryIds unique identifiers for entries to filter
+     * @return ids of the entries in the list that can be read
+     * @throws DAOException on hibernate exception
+     */
+    public Set<Long> filterReadable(Account account, Set<Long> groupIds, Collection<Long> entryIds) {
+        return filter(account, groupIds, entryIds, false, false);
+    }
+
+    /**
+     * Retrieves the subset of the specified entries that the account, or any of the specified groups, can write. This
+     * is the set based equivalent of {@link #hasWriteAccess(long, Account, Set)}
+     *
+     * @param account  account whose access is being checked. Can be null
+     * @param groupIds ids of the groups the account belongs to, including parent groups. Can be null or empty
+     * @param entryIds unique identifiers for entries to filter
+     * @return ids of the entries in the list that can be written
+     * @throws DAOException on hibernate exception
+     */
+    public Set<Long> filterWritable(Account account, Set<Long> groupIds, Collection<Long> entryIds) {
+        return filter(account, groupIds, entryIds, true, false);
+    }
+
+    /**
+     * Determines if the entry has been shared with any of the specified groups through a permission on the entry
+     * itself. This is the single entry equivalent of {@link #filterSharedWithGroups(Set, Collection)}
+     *
+     * @param entryId  unique identifier for entry
+     * @param groupIds ids of the groups
+     * @return true if the index has a row for the entry and one of the groups that is not derived from a folder
+     * @throws DAOException on hibernate exception
+     */
+    public boolean isSharedWithGroups(long entryId, Set<Long> groupIds) {
+        return hasAccess(entryId, null, groupIds, false, true);
+    }
+
+    /**
+     * Retrieves the subset of the specified entries that have been shared with any of the specified groups through a
+     * permission on the entry itself (e.g. entries made public by sharing them with the public group)
+     *
+     * @param groupIds ids of the groups
+     * @param entryIds unique identifiers for entries to filter
+     * @return ids of the entries in the list that have been shared with any of the groups
+     * @throws DAOException on hibernate exception
+     */
+    public Set<Long> filterSharedWithGroups(Set<Long> groupIds, Collection<Long> entryIds) {
+        return filter(null, groupIds, entryIds, false, true);
+    }
+
+    /**
+     * Adds the rows for a newly created permission to the index
+     *
+     * @param permission created permission
+     * @throws DAOException on hibernate exception
+     */
+    public void add(Permission permission) {
+        if (permission.getAccount() == null && permission.getGroup() == null)
+            return;
+
+        if (!permission.isCanRead() && !permission.isCanWrite())
+            return;
+
+        if (permission.getEntry() != null) {
+            Long accountId = permission.getAccount() == null ? null : permission.getAccount().getId();
+            Long groupId = permission.getGroup() == null ? null : permission.getGroup().getId();
+            create(new EntryAccess(permission.getEntry().getId(), accountId, groupId, null, permission.isCanWrite()));
+            return;
+        }
+
+        if (permission.getFolder() != null) {
+            Query query = currentSession().createQuery(INSERT_FOLDER_PERMISSIONS + " and p.id = :id");
+            query.setParameter("id", permission.getId());
+            executeUpdate(query);
+        }
+    }
+
+    /**
+     * Updates the index after a permission has been deleted. Since other permissions can grant the same access, the
+     * rows for the entry or folder of the permission are recomputed
+     *
+     * @param permission deleted permission
+     * @throws DAOException on hibernate exception
+     */
+    public void remove(Permission permission) {
+        if (permission.getEntry() != null)
+            indexEntry(permission.getEntry().getId());
+        else if (permission.getFolder() != null)
+            indexFolder(permission.getFolder().getId());
+    }
+
+    /**
+     * Recomputes the rows for the permissions set on the entry itself
+     *
+     * @param entryId unique identifier for entry
+     * @throws DAOException on hibernate exception
+     */
+    public void indexEntry(long entryId) {
+        Query query = currentSession().createQuery("delete from " + EntryAccess.class.getName()
+                + " where entryId = :entry and folderId is null");
+        query.setParameter("entry", entryId);
+        executeUpdate(query);
+
+        query = currentSession().createQuery(INSERT_ENTRY_PERMISSIONS + " and p.entry.id = :entry");
+        query.setParameter("entry", entryId);
+        executeUpdate(query);
+    }
+
+    /**
+     * Recomputes the rows for the permissions set on each of the specified entries, in batches. This is the set based
+     * equivalent of calling {@link #indexEntry(long)} for each entry
+     *
+     * @param entryIds unique identifiers for entries
+     * @throws DAOException on hibernate exception
+     */
+    public void indexEntries(Collection<Long> entryIds) {
+        List<Long> list = new ArrayList<>(entryIds);
+        for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+            List<Long> batch = list.subList(i, Math.min(list.size(), i + BATCH_SIZE));
+            Query query = currentSession().createQuery("delete from " + EntryAccess.class.getName()
+                    + " where entryId in (:ids) and folderId is null");
+            query.setParameterList("ids", batch);
+            executeUpdate(query);
+
+            query = currentSession().createQuery(INSERT_ENTRY_PERMISSIONS + " and p.entry.id in (:ids)");
+            query.setParameterList("ids", batch);
+            executeUpdate(query);
+        }
+    }
+
+    /**
+     * Recomputes the rows for the permissions on, and the public status of, the folder. Call when the permissions or
+     * type of the folder change, or when the folder is deleted
+     *
+     * @param folderId unique identifier for folder
+     * @throws DAOException on hibernate exception
+     */
+    public void indexFolder(long folderId) {
+        Query query = currentSession().createQuery("delete from " + EntryAccess.class.getName()
+                + " where folderId = :folder");
+        query.setParameter("folder", folderId);
+        executeUpdate(query);
+
+        query = currentSession().createQuery(INSERT_FOLDER_PERMISSIONS + " and f.id = :folder");
+        query.setParameter("folder", folderId);
+        executeUpdate(query);
+
+        query = currentSession().createQuery(INSERT_PUBLIC_FOLDERS + " and f.id = :folder");
+        query.setParameter("folder", folderId);
+        setPublicParameters(query);
+        executeUpdate(query);
+    }
+
+    /**
+     * Adds the rows for entries that have been added to a folder
+     *
+     * @param folderId unique identifier for folder
+     * @param entryIds unique identifiers for entries added to the folder
+     * @throws DAOException on hibernate exception
+     */
+    public void addFolderEntries(long folderId, Collection<Long> entryIds) {
+        List<Long> list = new ArrayList<>(entryIds);
+        for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+            List<Long> batch = list.subList(i, Math.min(list.size(), i + BATCH_SIZE));
+
+            // entries that were already in the folder
+            deleteFolderEntries(folderId, batch);
+
+            Query query = currentSession().createQuery(INSERT_FOLDER_PERMISSIONS
+                    + " and f.id = :folder and e.id in (:ids)");
+            query.setParameter("folder", folderId);
+            query.setParameterList("ids", batch);
+            executeUpdate(query);
+
+            query = currentSession().createQuery(INSERT_PUBLIC_FOLDERS + " and f.id = :folder and e.id in (:ids)");
+            query.setParameter("folder", folderId);
+            query.setParameterList("ids", batch);
+            setPublicParameters(query);
+            executeUpdate(query);
+        }
+    }
+
+    /**
+     * Removes the rows for entries that have been removed from a folder
+     *
+     * @param folderId unique identifier for folder
+     * @param entryIds unique identifiers for entries removed from the folder
+     * @throws DAOException on hibernate exception
+     */
+    public void removeFolderEntries(long folderId, Collection<Long> entryIds) {
+        List<Long> list = new ArrayList<>(entryIds);
+        for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+            deleteFolderEntries(folderId, list.subList(i, Math.min(list.size(), i + BATCH_SIZE)));
+        }
+    }
+
+    /**
+     * Removes all the rows for a group. Call when all the permissions for the group are cleared
+     *
+     * @param groupId unique identifier for group
+     * @throws DAOException on hibernate exception
+     */
+    public void removeGroup(long groupId) {
+        Query query = currentSession().createQuery("delete from " + EntryAccess.class.getName()
+                + " where groupId = :group");
+        query.setParameter("group", groupId);
+        executeUpdate(query);
+    }
+
+    /**
+     * @return true if the index has no rows (e.g. it has not been built yet)
+     * @throws DAOException on hibernate exception
+     */
+    public boolean isEmpty() {
+        try {
+            Query query = currentSession().createQuery("select a.id from " + EntryAccess.class.getName() + " a");
+            query.setMaxResults(1);
+            return query.list().isEmpty();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Rebuilds the whole index from the permissions and folder contents
+     *
+     * @return number of rows in the rebuilt index
+     * @throws DAOException on hibernate exception
+     */
+    public int rebuild() {
+        executeUpdate(currentSession().createQuery("delete from " + EntryAccess.class.getName()));
+        int count = executeUpdate(currentSession().createQuery(INSERT_ENTRY_PERMISSIONS));
+        count += executeUpdate(currentSession().createQuery(INSERT_FOLDER_PERMISSIONS));
+        Query query = currentSession().createQuery(INSERT_PUBLIC_FOLDERS);
+        setPublicParameters(query);
+        count += executeUpdate(query);
+        return count;
+    }
+
+    private boolean hasAccess(long entryId, Account account, Set<Long> groupIds, boolean write, boolean entryOnly) {
+        String principals = getPrincipalClause(account, groupIds);
+        if (principals == null)
+            return false;
+
+        try {
+            String queryString = "select a.id from " + EntryAccess.class.getName() + " a where a.entryId = :entry and "
+                    + principals;
+            if (write)
+                queryString += " and a.canWrite = true";
+            if (entryOnly)
+                queryString += " and a.folderId is null";
+
+            Query query = currentSession().createQuery(queryString);
+            query.setParameter("entry", entryId);
+            setPrincipalParameters(query, account, groupIds);
+            query.setMaxResults(1);
+            return !query.list().isEmpty();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    private Set<Long> filter(Account account, Set<Long> groupIds, Collection<Long> entryIds, boolean write,
+                             boolean entryOnly) {
+        Set<Long> result = new HashSet<>();
+        String principals = getPrincipalClause(account, groupIds);
+        if (principals == null || entryIds == null || entryIds.isEmpty())
+            return result;
+
+        String queryString = "select distinct a.entryId from " + EntryAccess.class.getName()
+                + " a where a.entryId in (:ids) and " + principals;
+        if (write)
+            queryString += " and a.canWrite = true";
+        if (entryOnly)
+            queryString += " and a.folderId is null";
+
+        List<Long> list = new ArrayList<>(entryIds);
+        try {
+            Query query = currentSession().createQuery(queryString);
+            setPrincipalParameters(query, account, groupIds);
+            for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+                query.setParameterList("ids", list.subList(i, Math.min(list.size(), i + BATCH_SIZE)));
+                result.addAll(query.list());
+            }
+            return result;
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    private String getPrincipalClause(Account account, Set<Long> groupIds) {
+        boolean hasGroups = groupIds != null && !groupIds.isEmpty();
+        if (account == null && !hasGroups)
+            return null;
+
+        if (account == null)
+            return "a.groupId in (:groups)";
+
+        if (!hasGroups)
+            return "a.accountId = :account";
+
+        return "(a.accountId = :account or a.groupId in (:groups))";
+    }
+
+    private void setPrincipalParameters(Query query, Account account, Set<Long> groupIds) {
+        if (account != null)
+            query.setParameter("account", account.getId());
+        if (groupIds != null && !groupIds.isEmpty())
+            query.setParameterList("groups", groupIds);
+    }
+
+    private void setPublicParameters(Query query) {
+        query.setParameter("type", FolderType.PUBLIC);
+        query.setParameter("uuid", GroupController.PUBLIC_GROUP_UUID);
+    }
+
+    private void deleteFolderEntries(long folderId, List<Long> entryIds) {
+        Query query = currentSession().createQuery("delete from " + EntryAccess.class.getName()
+                + " where folderId = :folder and entryId in (:ids)");
+        query.setParameter("folder", folderId);
+        query.setParameterList("ids", entryIds);
+        executeUpdate(query);
+    }
+
+    private int executeUpdate(Query query) {
+        try {
+            return query.executeUpdate();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+}
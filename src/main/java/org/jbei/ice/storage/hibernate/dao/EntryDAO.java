@@ -6,6 +6,7 @@ import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.criterion.*;
 import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.lib.dto.common.PageParameters;
 import org.jbei.ice.lib.dto.entry.AutoCompleteField;
 import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.entry.Visibility;
@@ -13,6 +14,7 @@ import org.jbei.ice.lib.entry.EntryUtil;
 import org.jbei.ice.lib.group.GroupController;
 import org.jbei.ice.lib.shared.ColumnField;
 import org.jbei.ice.storage.DAOException;
+import org.jbei.ice.storage.InvalidContinuationException;
 import org.jbei.ice.storage.hibernate.HibernateRepository;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
 import org.jbei.ice.storage.model.*;
@@ -184,8 +186,23 @@ public class EntryDAO extends HibernateRepository<Entry> {
      */
     public Set<Entry> retrieveVisibleEntries(Account account, Set<Group> groups, ColumnField sortField, boolean asc,
                                              int start, int count, String filter) throws DAOException {
+        return retrieveVisibleEntries(account, groups, new PageParameters(start, count, sortField, asc, filter));
+    }
+
+    /**
+     * Retrieves a page of the entries visible to the specified account or groups
+     *
+     * @param account        account entries are visible to. If null, only group permissions are checked
+     * @param groups         groups entries are visible to
+     * @param pageParameters paging parameters; pages are retrieved by offset or by continuation token
+     * @return entries, in sort order
+     * @throws DAOException             on hibernate exception
+     * @throws InvalidContinuationException if the continuation token is not valid for the sort parameters
+     */
+    public Set<Entry> retrieveVisibleEntries(Account account, Set<Group> groups, PageParameters pageParameters)
+            throws DAOException {
         try {
-            String fieldName = columnFieldToString(sortField);
+            String filter = pageParameters.getFilter();
             DetachedCriteria detachedCriteria = DetachedCriteria.forClass(Entry.class)
                     .createAlias("permissions", "p")
                     .add(Restrictions.eq("visibility", Visibility.OK.getValue()));
@@ -211,10 +228,7 @@ public class EntryDAO extends HibernateRepository<Entry> {
 
             Criteria criteria = currentSession().createCriteria(Entry.class);
             criteria.add(Subqueries.propertyIn("id", detachedCriteria));
-
-            criteria.addOrder(asc ? Order.asc(fieldName) : Order.desc(fieldName));
-            criteria.setFirstResult(start);
-            criteria.setMaxResults(count);
+            addPage(criteria, null, pageParameters);
             return new LinkedHashSet<>(criteria.list());
         } catch (HibernateException he) {
             Logger.error(he);
@@ -319,14 +333,17 @@ public class EntryDAO extends HibernateRepository<Entry> {
     // retrieves list of entries based on the paging parameters and the different ways entries can be shared
     public List<Entry> sharedWithUserEntries(Account requester, Set<Group> accountGroups, ColumnField sort,
                                              boolean asc, int start, int limit, String filter) throws DAOException {
+        return sharedWithUserEntries(requester, accountGroups, new PageParameters(start, limit, sort, asc, filter));
+    }
+
+    // retrieves a page (by offset or continuation token) of the entries shared with user
+    public List<Entry> sharedWithUserEntries(Account requester, Set<Group> accountGroups,
+                                             PageParameters pageParameters) throws DAOException {
         try {
             Criteria criteria = getSharedWithUserCriteria(requester, accountGroups);
             criteria.setProjection(Projections.property("entry"));
-            String fieldName = sort == ColumnField.CREATED ? "entry.id" : columnFieldToString(sort);
-            checkAddFilter(criteria, filter, "entry");
-            criteria.addOrder(asc ? Order.asc(fieldName) : Order.desc(fieldName));
-            criteria.setFirstResult(start);
-            criteria.setMaxResults(limit);
+            checkAddFilter(criteria, pageParameters.getFilter(), "entry");
+            addPage(criteria, "entry", pageParameters);
             return new ArrayList<>(criteria.list());
         } catch (HibernateException he) {
             Logger.error(he);
@@ -358,10 +375,26 @@ public class EntryDAO extends HibernateRepository<Entry> {
      * @return list of entries matching specified criteria
      * @throws DAOException
      */
-    @SuppressWarnings("unchecked")
     public List<Entry> retrieveUserEntries(Account requester, String owner, Set<Group> requesterGroups,
                                            ColumnField sortField, boolean asc, int start, int limit, String filter)
             throws DAOException {
+        return retrieveUserEntries(requester, owner, requesterGroups,
+                new PageParameters(start, limit, sortField, asc, filter));
+    }
+
+    /**
+     * Retrieves a page of the entries for the specified owner, that the requester has read access to
+     *
+     * @param requester       account for user making request
+     * @param owner           user id of entries' owner
+     * @param requesterGroups groups that the requester is a member of. Used to check access permissions
+     * @param pageParameters  paging parameters; pages are retrieved by offset or by continuation token
+     * @return list of entries matching specified criteria
+     * @throws DAOException
+     */
+    @SuppressWarnings("unchecked")
+    public List<Entry> retrieveUserEntries(Account requester, String owner, Set<Group> requesterGroups,
+                                           PageParameters pageParameters) throws DAOException {
         Criteria criteria = currentSession().createCriteria(Permission.class);
         criteria.setProjection(Projections.property("entry"));
 
@@ -374,12 +407,8 @@ public class EntryDAO extends HibernateRepository<Entry> {
         criteria.add(Restrictions.eq("entry.visibility", Visibility.OK.getValue()));
         criteria.add(Restrictions.eq("entry.ownerEmail", owner));
 
-        // sort
-        String fieldName = sortField == ColumnField.CREATED ? "entry.id" : "entry." + columnFieldToString(sortField);
-        criteria.addOrder(asc ? Order.asc(fieldName) : Order.desc(fieldName));
-        checkAddFilter(criteria, filter, "entry");
-        criteria.setFirstResult(start);
-        criteria.setMaxResults(limit);
+        checkAddFilter(criteria, pageParameters.getFilter(), "entry");
+        addPage(criteria, "entry", pageParameters);
         criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
         return criteria.list();
     }
@@ -467,9 +496,15 @@ public class EntryDAO extends HibernateRepository<Entry> {
         currentSession().update(entry);
     }
 
-    @SuppressWarnings("unchecked")
     public List<Entry> getByVisibility(String ownerEmail, Visibility visibility, ColumnField field, boolean asc,
                                        int start, int limit, String filter) throws DAOException {
+        return getByVisibility(ownerEmail, visibility, new PageParameters(start, limit, field, asc, filter));
+    }
+
+    // retrieves a page (by offset or continuation token) of the entries with the specified visibility
+    @SuppressWarnings("unchecked")
+    public List<Entry> getByVisibility(String ownerEmail, Visibility visibility, PageParameters pageParameters)
+            throws DAOException {
         try {
             Criteria criteria = currentSession().createCriteria(Entry.class)
                     .add(Restrictions.eq("visibility", visibility.getValue()));
@@ -477,11 +512,8 @@ public class EntryDAO extends HibernateRepository<Entry> {
             if (ownerEmail != null) {
                 criteria.add(Restrictions.eq("ownerEmail", ownerEmail));
             }
-            checkAddFilter(criteria, filter, null);
-            String fieldName = columnFieldToString(field);
-            criteria.addOrder(asc ? Order.asc(fieldName) : Order.desc(fieldName));
-            criteria.setMaxResults(limit);
-            criteria.setFirstResult(start);
+            checkAddFilter(criteria, pageParameters.getFilter(), null);
+            addPage(criteria, null, pageParameters);
             return new LinkedList<>(criteria.list());
         } catch (HibernateException he) {
             Logger.error(he);
@@ -530,6 +562,31 @@ public class EntryDAO extends HibernateRepository<Entry> {
         }
     }
 
+    /**
+     * Adds the sort order and the bounds of the requested page to the criteria. Pages are retrieved by offset, or
+     * by seeking past the entry encoded in the continuation token if one is specified (see {@link EntryKeyset})
+     *
+     * @param criteria       criteria for retrieving entries
+     * @param alias          alias of the entry in the criteria, or null if the criteria is for entries
+     * @param pageParameters paging parameters
+     * @throws InvalidContinuationException if the continuation token is not valid for the sort parameters
+     */
+    protected void addPage(Criteria criteria, String alias, PageParameters pageParameters) {
+        if (EntryKeyset.isKeysetPage(pageParameters)) {
+            EntryKeyset.apply(criteria, alias, pageParameters);
+        } else {
+            ColumnField sort = pageParameters.getSortField();
+            String prefix = alias == null ? "" : alias + ".";
+            String fieldName = prefix + columnFieldToString(sort);
+            criteria.addOrder(pageParameters.isAscending() ? Order.asc(fieldName) : Order.desc(fieldName));
+
+            // ties are ordered by id, as in keyset paging
+            criteria.addOrder(pageParameters.isAscending() ? Order.asc(prefix + "id") : Order.desc(prefix + "id"));
+            criteria.setFirstResult(pageParameters.getOffset());
+        }
+        criteria.setMaxResults(pageParameters.getLimit());
+    }
+
     /**
      * Retrieves entries owned by account with specified email and with visibility of "pending" or "ok"
      *
@@ -544,8 +601,20 @@ public class EntryDAO extends HibernateRepository<Entry> {
      */
     public List<Entry> retrieveOwnerEntries(String ownerEmail, ColumnField sort, boolean asc, int start,
                                             int limit, String filter) throws DAOException {
+        return retrieveOwnerEntries(ownerEmail, new PageParameters(start, limit, sort, asc, filter));
+    }
+
+    /**
+     * Retrieves a page of the entries owned by account with specified email and with visibility of "pending" or "ok"
+     *
+     * @param ownerEmail     email for account whose entries are to be retrieved
+     * @param pageParameters paging parameters; pages are retrieved by offset or by continuation token
+     * @return list of matching entries
+     * @throws DAOException
+     */
+    public List<Entry> retrieveOwnerEntries(String ownerEmail, PageParameters pageParameters) throws DAOException {
         try {
-            String fieldName = columnFieldToString(sort);
+            String filter = pageParameters.getFilter();
             Criteria criteria = currentSession().createCriteria(Entry.class)
                     .add(Restrictions.disjunction()
                             .add(Restrictions.eq("visibility", Visibility.OK.getValue()))
@@ -557,9 +626,7 @@ public class EntryDAO extends HibernateRepository<Entry> {
                         .add(Restrictions.ilike("alias", filter, MatchMode.ANYWHERE))
                         .add(Restrictions.ilike("partNumber", filter, MatchMode.ANYWHERE)));
             }
-            criteria.setMaxResults(limit);
-            criteria.setFirstResult(start);
-            criteria.addOrder(asc ? Order.asc(fieldName) : Order.desc(fieldName));
+            addPage(criteria, null, pageParameters);
             return criteria.list();
         } catch (HibernateException he) {
             Logger.error(he);
@@ -613,17 +680,18 @@ public class EntryDAO extends HibernateRepository<Entry> {
 
     public Set<Entry> retrieveAllEntries(ColumnField sort, boolean asc, int start, int limit, String filter)
             throws DAOException {
-        try {
-            if (sort == null)
-                sort = ColumnField.CREATED;
+        if (sort == null)
+            sort = ColumnField.CREATED;
+        return retrieveAllEntries(new PageParameters(start, limit, sort, asc, filter));
+    }
 
-            String fieldName = columnFieldToString(sort);
+    // retrieves a page (by offset or continuation token) of all entries with "OK" visibility
+    public Set<Entry> retrieveAllEntries(PageParameters pageParameters) throws DAOException {
+        try {
             Criteria criteria = currentSession().createCriteria(Entry.class)
                     .add(Restrictions.eq("visibility", Visibility.OK.getValue()));
-            checkAddFilter(criteria, filter, null);
-            criteria.addOrder(asc ? Order.asc(fieldName) : Order.desc(fieldName));
-            criteria.setMaxResults(limit);
-            criteria.setFirstResult(start);
+            checkAddFilter(criteria, pageParameters.getFilter(), null);
+            addPage(criteria, null, pageParameters);
             return new LinkedHashSet<>(criteria.list());
         } catch (HibernateException he) {
             Logger.error(he);
@@ -716,6 +784,43 @@ public class EntryDAO extends HibernateRepository<Entry> {
         return query.executeUpdate();
     }
 
+    /**
+     * Retrieves the specified entries along with their links and selection markers in a single query, for
+     * exporting their fields. The entries should be evicted (see {@link #evict(Collection)}) once processed when
+     * exporting large numbers of entries, to bound the size of the session
+     *
+     * @param ids unique identifiers for entries
+     * @return list of entries found. The order is not guaranteed to match the order of the ids
+     * @throws DAOException on hibernate exception
+     */
+    public List<Entry> getEntriesForExport(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty())
+            return new ArrayList<>();
+
+        try {
+            Query query = currentSession().createQuery("select distinct e from " + Entry.class.getName()
+                    + " e left join fetch e.links left join fetch e.selectionMarkers where e.id in (:ids)");
+            query.setParameterList("ids", ids);
+            query.setReadOnly(true);
+            return query.list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
+    /**
+     * Removes the specified entries (and their cascaded associations) from the session
+     *
+     * @param entries entries to evict
+     */
+    public void evict(Collection<Entry> entries) {
+        Session session = currentSession();
+        for (Entry entry : entries) {
+            session.evict(entry);
+        }
+    }
+
     public List<String> getRecordTypes(List<Long> list) {
         return currentSession().createCriteria(Entry.class)
                 .add(Restrictions.in("id", list))
@@ -0,0 +1,231 @@
+package org.jbei.ice.storage.hibernate.dao;
+
+import org.apache.commons.codec.binary.Base64;
+import org.hibernate.Criteria;
+import org.hibernate.NullPrecedence;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.jbei.ice.lib.dto.common.PageParameters;
+import org.jbei.ice.lib.shared.ColumnField;
+import org.jbei.ice.storage.InvalidContinuationException;
+import org.jbei.ice.storage.model.Entry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Seek (keyset) pagination for entry listings. Instead of skipping the rows of the preceding pages with an offset,
+ * a page is retrieved by seeking directly to the rows that follow the last entry of the previous page in the sort
+ * order, so the cost of retrieving a page does not depend on how deep it is.
+ * <p>
+ * Entries are ordered by the sort field and then by id to make the order total; null sort values are last in
+ * ascending order (and first in descending order). The position of the last entry of a page is handed to clients as
+ * an opaque continuation token that encodes the sort field, sort order, id and sort value of the entry. A token is
+ * only valid for the sort parameters it was created with. The sort fields match those used when paging by offset
+ * so that a listing is in the same order in either paging mode. The number of matching entries is only counted for
+ * the first page, since counting is not constant time (see {@link #isContinuedPage(PageParameters)})
+ *
+ * @author Hector Plahar
+ */
+public class EntryKeyset {
+
+    private static final String VERSION = "1";
+    private static final char SEPARATOR = ':';
+
+    private static final String CREATION_TIME = "creationTime";
+
+    private final boolean ascending;
+    private final long lastId;
+    private final Object lastValue;
+
+    private EntryKeyset(boolean ascending, long lastId, Object lastValue) {
+        this.ascending = ascending;
+        this.lastId = lastId;
+        this.lastValue = lastValue;
+    }
+
+    /**
+     * @param pageParameters paging parameters
+     * @return true if the parameters request a page by continuation token instead of by offset. An empty token
+     * requests the first page
+     */
+    public static boolean isKeysetPage(PageParameters pageParameters) {
+        return pageParameters.getContinuation() != null;
+    }
+
+    /**
+     * @param pageParameters paging parameters
+     * @return true if the parameters request a page after the first page by continuation token. The total number of
+     * entries is not retrieved for these pages
+     */
+    public static boolean isContinuedPage(PageParameters pageParameters) {
+        return isKeysetPage(pageParameters) && !pageParameters.getContinuation().isEmpty();
+    }
+
+    /**
+     * Creates the continuation token for the page that follows the specified page of entries
+     *
+     * @param pageParameters paging parameters the entries were retrieved with
+     * @param entries        retrieved page of entries, in sort order
+     * @return opaque continuation token, or null if the entries were retrieved by offset or if there are no more
+     * entries. Listings based on permissions may return fewer entries than the limit (duplicates are removed) before
+     * the last page so the end of the listing is only signalled by an empty page
+     */
+    public static String createContinuation(PageParameters pageParameters, Collection<? extends Entry> entries) {
+        if (!isKeysetPage(pageParameters) || entries.isEmpty())
+            return null;
+
+        Entry last = null;
+        for (Entry entry : entries) {
+            last = entry;
+        }
+
+        ColumnField sortField = pageParameters.getSortField();
+        String value = getSortValue(sortField, last);
+        StringBuilder builder = new StringBuilder();
+        builder.append(VERSION).append(SEPARATOR)
+                .append(getSortProperty(sortField)).append(SEPARATOR)
+                .append(pageParameters.isAscending() ? 'a' : 'd').append(SEPARATOR)
+                .append(last.getId()).append(SEPARATOR);
+        if (value == null)
+            builder.append('n');
+        else
+            builder.append('v').append(value);
+        return Base64.encodeBase64URLSafeString(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Adds the sort order and, unless the first page is requested, the restriction to the entries that follow the
+     * position encoded in the continuation token of the parameters. The caller sets the maximum number of results
+     *
+     * @param criteria       criteria for retrieving entries
+     * @param alias          alias of the entry in the criteria, or null if the criteria is for entries
+     * @param pageParameters paging parameters with continuation token
+     * @throws InvalidContinuationException if the token is not valid for the sort parameters
+     */
+    static void apply(Criteria criteria, String alias, PageParameters pageParameters) {
+        EntryKeyset keyset = decode(pageParameters);
+        String prefix = alias == null ? "" : alias + ".";
+        String id = prefix + "id";
+        String property = prefix + getSortProperty(pageParameters.getSortField());
+        boolean sortById = property.equals(id);
+        boolean ascending = pageParameters.isAscending();
+
+        if (keyset != null)
+            criteria.add(sortById ? keyset.seekById(id) : keyset.seek(property, id));
+
+        if (!sortById) {
+            criteria.addOrder(ascending ? Order.asc(property).nulls(NullPrecedence.LAST)
+                    : Order.desc(property).nulls(NullPrecedence.FIRST));
+        }
+        criteria.addOrder(ascending ? Order.asc(id) : Order.desc(id));
+    }
+
+    private static EntryKeyset decode(PageParameters pageParameters) {
+        String token = pageParameters.getContinuation();
+        if (token == null || token.isEmpty())
+            return null;
+
+        String[] parts = new String(Base64.decodeBase64(token), StandardCharsets.UTF_8).split(String.valueOf(SEPARATOR), 5);
+        if (parts.length != 5 || !VERSION.equals(parts[0]) || parts[4].isEmpty())
+            throw new InvalidContinuationException("Invalid continuation token");
+
+        ColumnField sortField = pageParameters.getSortField();
+        boolean ascending = pageParameters.isAscending();
+        if (!getSortProperty(sortField).equals(parts[1]) || !(ascending ? "a" : "d").equals(parts[2]))
+            throw new InvalidContinuationException("Continuation token does not match sort parameters");
+
+        long lastId;
+        try {
+            lastId = Long.parseLong(parts[3]);
+        } catch (NumberFormatException e) {
+            throw new InvalidContinuationException("Invalid continuation token");
+        }
+
+        Object value = parts[4].charAt(0) == 'v' ? parts[4].substring(1) : null;
+        if (value != null && CREATION_TIME.equals(parts[1])) {
+            try {
+                value = new Date(Long.parseLong((String) value));
+            } catch (NumberFormatException e) {
+                throw new InvalidContinuationException("Invalid continuation token");
+            }
+        }
+        return new EntryKeyset(ascending, lastId, value);
+    }
+
+    private Criterion seekById(String id) {
+        return ascending ? Restrictions.gt(id, lastId) : Restrictions.lt(id, lastId);
+    }
+
+    private Criterion seek(String property, String id) {
+        if (ascending) {
+            if (lastValue == null)
+                return Restrictions.and(Restrictions.isNull(property), Restrictions.gt(id, lastId));
+
+            return Restrictions.or(Restrictions.gt(property, lastValue),
+                    Restrictions.and(Restrictions.eq(property, lastValue), Restrictions.gt(id, lastId)),
+                    Restrictions.isNull(property));
+        }
+
+        if (lastValue == null) {
+            return Restrictions.or(Restrictions.and(Restrictions.isNull(property), Restrictions.lt(id, lastId)),
+                    Restrictions.isNotNull(property));
+        }
+
+        return Restrictions.or(Restrictions.lt(property, lastValue),
+                Restrictions.and(Restrictions.eq(property, lastValue), Restrictions.lt(id, lastId)));
+    }
+
+    private static String getSortProperty(ColumnField field) {
+        if (field == null)
+            return "id";
+
+        switch (field) {
+            case TYPE:
+                return "recordType";
+
+            case STATUS:
+                return "status";
+
+            case PART_ID:
+                return "partNumber";
+
+            case NAME:
+                return "name";
+
+            case SUMMARY:
+                return "shortDescription";
+
+            case CREATED:
+            default:
+                return CREATION_TIME;
+        }
+    }
+
+    private static String getSortValue(ColumnField field, Entry entry) {
+        switch (getSortProperty(field)) {
+            case "recordType":
+                return entry.getRecordType();
+
+            case "status":
+                return entry.getStatus();
+
+            case "partNumber":
+                return entry.getPartNumber();
+
+            case "name":
+                return entry.getName();
+
+            case "shortDescription":
+                return entry.getShortDescription();
+
+            case CREATION_TIME:
+                return entry.getCreationTime() == null ? null : Long.toString(entry.getCreationTime().getTime());
+
+            default:
+                return null;
+        }
+    }
+}
@@ -1,15 +1,17 @@
 package org.jbei.ice.storage.hibernate.dao;
 
+import org.hibernate.HibernateException;
+import org.hibernate.Query;
 import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.jbei.ice.lib.common.logging.Logger;
+import org.jbei.ice.storage.DAOException;
 import org.jbei.ice.storage.hibernate.HibernateRepository;
 import org.jbei.ice.storage.model.Feature;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Hibernate data accessor object for {@link Feature}s
@@ -19,6 +21,9 @@ import java.util.Map;
 @SuppressWarnings("unchecked")
 public class FeatureDAO extends HibernateRepository<Feature> {
 
+    // maximum number of hashes bound to a single "in" query
+    private static final int HASH_BATCH_SIZE = 500;
+
     @Override
     public Feature get(long id) {
         return super.get(Feature.class, id);
@@ -40,6 +45,52 @@ public class FeatureDAO extends HibernateRepository<Feature> {
                 .list();
     }
 
+    /**
+     * Retrieves a batch of named features that have not been excluded by curation, using keyset pagination on the
+     * feature id. Each returned row is of the form <code>[feature id, name, genbank type, sequence]</code>, in
+     * ascending order of feature id.
+     *
+     * @param lastId id of the last feature retrieved in the previous batch. Use 0 to start from the beginning
+     * @param limit  maximum number of rows to return
+     * @return list of projected feature rows with feature id greater than <code>lastId</code>
+     */
+    public List<Object[]> getFeaturesAfter(long lastId, int limit) {
+        Query query = currentSession().createQuery("select f.id, f.name, f.genbankType, f.sequence from "
+                + Feature.class.getName() + " f left join f.curation c where f.name is not null and f.name <> '' "
+                + "and (c is null or c.exclude = false) and f.id > :lastId order by f.id asc");
+        query.setParameter("lastId", lastId);
+        query.setMaxResults(limit);
+        query.setReadOnly(true);
+        return query.list();
+    }
+
+    /**
+     * Retrieves the features with the specified sequence hashes. The hashes are looked up in batches of
+     * {@link #HASH_BATCH_SIZE} so a sequence with thousands of features needs only a few queries
+     *
+     * @param hashes sequence hashes of features to retrieve
+     * @return list of features whose hash is one of the specified hashes
+     * @throws DAOException on hibernate exception
+     */
+    public List<Feature> getByHashes(Collection<String> hashes) {
+        List<Feature> result = new ArrayList<>();
+        if (hashes == null || hashes.isEmpty())
+            return result;
+
+        List<String> list = new ArrayList<>(hashes);
+        try {
+            Query query = currentSession().createQuery("from " + Feature.class.getName() + " where hash in (:hashes)");
+            for (int i = 0; i < list.size(); i += HASH_BATCH_SIZE) {
+                query.setParameterList("hashes", list.subList(i, Math.min(list.size(), i + HASH_BATCH_SIZE)));
+                result.addAll(query.list());
+            }
+            return result;
+        } catch (HibernateException e) {
+            Logger.error(e);
+            throw new DAOException("Failed to retrieve features by hash", e);
+        }
+    }
+
     public long getFeaturesGroupByCount() {
         Number number = (Number) currentSession().createCriteria(Feature.class)
                 .add(Restrictions.neOrIsNotNull("name", ""))
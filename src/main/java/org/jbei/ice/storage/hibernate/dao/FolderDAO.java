@@ -1,8 +1,10 @@
 package org.jbei.ice.storage.hibernate.dao;
 
+import org.apache.commons.lang3.StringUtils;
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
 import org.hibernate.Query;
+import org.hibernate.SQLQuery;
 import org.hibernate.Session;
 import org.hibernate.criterion.*;
 import org.jbei.ice.lib.common.logging.Logger;
@@ -11,13 +13,12 @@ import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.lib.dto.folder.FolderType;
 import org.jbei.ice.storage.DAOException;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.InvalidContinuationException;
 import org.jbei.ice.storage.hibernate.HibernateRepository;
 import org.jbei.ice.storage.model.*;
 
-import java.util.Date;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Manipulate {@link Folder} objects in the database.
@@ -27,6 +28,23 @@ import java.util.Set;
 @SuppressWarnings("unchecked")
 public class FolderDAO extends HibernateRepository<Folder> {
 
+    // maximum number of entry ids bound to a single "in" clause
+    private static final int BATCH_SIZE = 1000;
+
+    // adds entries to a folder, skipping those already in it
+    private static final String INSERT_FOLDER_ENTRIES = "insert into folder_entry (folder_id, entry_id)"
+            + " select f.id, e.id from folder f, entries e where f.id = :folder and e.id in (:ids)"
+            + " and not exists (select fe.entry_id from folder_entry fe where fe.folder_id = f.id"
+            + " and fe.entry_id = e.id)";
+
+    private static final String DELETE_FOLDER_ENTRIES = "delete from folder_entry where folder_id = :folder"
+            + " and entry_id in (:ids)";
+
+    // adjusts the entry counter after its entries change, counting the entries if the counter is not initialized
+    private static final String UPDATE_ENTRY_COUNT = "update folder set entry_count = case when entry_count is null"
+            + " then (select count(*) from folder_entry fe where fe.folder_id = :folder) else entry_count + :delta end,"
+            + " modification_time = :time where id = :folder";
+
     /**
      * Retrieves stored folder by locally unique identifier
      *
@@ -40,7 +58,8 @@ public class FolderDAO extends HibernateRepository<Folder> {
 
     /**
      * Removes, from the list of entries in the specified folder, those whose ids match the ids passed in the
-     * parameter
+     * parameter. The rows are deleted from the folder membership table in batches without loading the contents of
+     * the folder
      *
      * @param folder  folder to remove entries from
      * @param entries unique identifiers for list of entries to remove from the folder
@@ -50,16 +69,17 @@ public class FolderDAO extends HibernateRepository<Folder> {
         Session session = currentSession();
         try {
             folder = session.get(Folder.class, folder.getId());
-            Iterator<Entry> it = folder.getContents().iterator();
-
-            while (it.hasNext()) {
-                Entry entry = it.next();
-                if (entries.contains(entry.getId()))
-                    it.remove();
+            List<Long> list = new ArrayList<>(new LinkedHashSet<>(entries));
+            int removed = 0;
+            SQLQuery query = createMembershipQuery(DELETE_FOLDER_ENTRIES);
+            query.setParameter("folder", folder.getId());
+            for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+                query.setParameterList("ids", list.subList(i, Math.min(list.size(), i + BATCH_SIZE)));
+                removed += query.executeUpdate();
             }
 
-            folder.setModificationTime(new Date());
-            session.update(folder);
+            updateEntryCount(folder, -removed);
+            DAOFactory.getEntryAccessDAO().removeFolderEntries(folder.getId(), list);
             return folder;
         } catch (HibernateException he) {
             Logger.error(he);
@@ -72,12 +92,26 @@ public class FolderDAO extends HibernateRepository<Folder> {
      * Currently, it is assumed that the contents of folders are only entries. The entries
      * that are counted are those that have a visibility of "OK"
      *
+     * <p>
+     * The entry counter maintained for the folder only covers entries of any visibility, so it is only used for
+     * the unfiltered size of transferred folders (the only callers that pass <code>visibleOnly=false</code>). Other
+     * sizes are counted, since a counter of visible entries would have to be adjusted for every folder containing
+     * an entry whenever the visibility of the entry changes
+     *
      * @param id          unique folder identifier
      * @param filter      optional filter for entry fields
      * @param visibleOnly if true, counts only entries with visibility "OK"
-     * @return number of child contents in the folder
+     * @return number of child contents in the folder. Without a filter or visibility restriction, this is the entry
+     * counter maintained for the folder once the counter has been initialized by a change to the folder's entries
      */
     public Long getFolderSize(long id, String filter, boolean visibleOnly) {
+        // the maintained counter covers entries of any visibility
+        if (StringUtils.isEmpty(filter) && !visibleOnly) {
+            Folder folder = get(id);
+            if (folder != null && folder.getEntryCount() != null)
+                return folder.getEntryCount();
+        }
+
         try {
             Criteria criteria = currentSession().createCriteria(Entry.class);
             if (visibleOnly)
@@ -120,10 +154,11 @@ public class FolderDAO extends HibernateRepository<Folder> {
      * Retrieves list of entries that conforms to the parameters
      *
      * @param folderId       unique identifier for folder whose entries are being retrieved
-     * @param pageParameters paging params
+     * @param pageParameters paging params. Pages are retrieved by offset, or by continuation token if one is set
      * @param visibleOnly    whether to only include entries with "OK" visibility
      * @return list of found entries
-     * @throws DAOException on HibernateException retrieving
+     * @throws DAOException             on HibernateException retrieving
+     * @throws InvalidContinuationException if the continuation token is not valid for the sort parameters
      */
     public List<Entry> retrieveFolderContents(long folderId, PageParameters pageParameters, boolean visibleOnly) {
         try {
@@ -131,7 +166,7 @@ public class FolderDAO extends HibernateRepository<Folder> {
             switch (pageParameters.getSortField()) {
                 default:
                 case CREATED:
-                    sortString = "id";
+                    sortString = "creationTime";
                     break;
 
                 case STATUS:
@@ -159,9 +194,14 @@ public class FolderDAO extends HibernateRepository<Folder> {
 
             addFilter(criteria, pageParameters.getFilter());
 
-            criteria.addOrder(pageParameters.isAscending() ? Order.asc(sortString) : Order.desc(sortString));
+            if (EntryKeyset.isKeysetPage(pageParameters)) {
+                EntryKeyset.apply(criteria, null, pageParameters);
+            } else {
+                criteria.addOrder(pageParameters.isAscending() ? Order.asc(sortString) : Order.desc(sortString));
+                criteria.addOrder(pageParameters.isAscending() ? Order.asc("id") : Order.desc("id"));
+                criteria.setFirstResult(pageParameters.getOffset());
+            }
             criteria.setMaxResults(pageParameters.getLimit());
-            criteria.setFirstResult(pageParameters.getOffset());
             return criteria.list();
         } catch (HibernateException he) {
             Logger.error(he);
@@ -180,13 +220,34 @@ public class FolderDAO extends HibernateRepository<Folder> {
                 .add(Restrictions.ilike("partNumber", filterText, MatchMode.ANYWHERE)));
     }
 
+    /**
+     * Adds the specified entries to the folder. The entries are inserted into the folder membership table in batches,
+     * skipping those that are already in the folder, without loading the contents of the folder
+     *
+     * @param folder folder to add entries to
+     * @param entrys entries to add
+     * @return folder the entries were added to
+     */
     public Folder addFolderContents(Folder folder, List<Entry> entrys) {
+        Set<Long> entryIds = new LinkedHashSet<>();
+        for (Entry entry : entrys) {
+            entryIds.add(entry.getId());
+        }
+
         Session session = currentSession();
         try {
             folder = session.get(Folder.class, folder.getId());
-            folder.getContents().addAll(entrys);
-            folder.setModificationTime(new Date());
-            session.saveOrUpdate(folder);
+            List<Long> list = new ArrayList<>(entryIds);
+            int added = 0;
+            SQLQuery query = createMembershipQuery(INSERT_FOLDER_ENTRIES);
+            query.setParameter("folder", folder.getId());
+            for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+                query.setParameterList("ids", list.subList(i, Math.min(list.size(), i + BATCH_SIZE)));
+                added += query.executeUpdate();
+            }
+
+            updateEntryCount(folder, added);
+            DAOFactory.getEntryAccessDAO().addFolderEntries(folder.getId(), list);
             return folder;
         } catch (HibernateException e) {
             Logger.error(e);
@@ -194,6 +255,25 @@ public class FolderDAO extends HibernateRepository<Folder> {
         }
     }
 
+    private SQLQuery createMembershipQuery(String sql) {
+        SQLQuery query = currentSession().createSQLQuery(sql);
+        query.addSynchronizedEntityClass(Folder.class);
+        query.addSynchronizedEntityClass(Entry.class);
+        return query;
+    }
+
+    // atomically adjusts (or initializes) the entry counter and the modification time in a single statement, then
+    // reloads the folder so that its state, and its contents collection, reflect the membership changes
+    private void updateEntryCount(Folder folder, int delta) {
+        SQLQuery query = currentSession().createSQLQuery(UPDATE_ENTRY_COUNT);
+        query.addSynchronizedEntityClass(Folder.class);
+        query.setParameter("delta", (long) delta);
+        query.setParameter("time", new Date());
+        query.setParameter("folder", folder.getId());
+        query.executeUpdate();
+        currentSession().refresh(folder);
+    }
+
     /**
      * Retrieve all {@link Folder}s owned by given the {@link Account}.
      *
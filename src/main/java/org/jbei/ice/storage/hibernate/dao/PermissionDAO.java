@@ -12,21 +12,98 @@ import org.hibernate.sql.JoinType;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.storage.DAOException;
+import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.HibernateRepository;
+import org.jbei.ice.storage.hibernate.search.HibernateSearch;
 import org.jbei.ice.storage.model.*;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
- * {@link Permission} data accessor Object
+ * {@link Permission} data accessor Object. Permissions created or removed through this class are reflected in the
+ * effective entry permission index maintained by {@link EntryAccessDAO}
  *
  * @author Hector Plahar
  */
 @SuppressWarnings("unchecked")
 public class PermissionDAO extends HibernateRepository<Permission> {
 
+    // maximum number of entry ids bound to a single "in" clause
+    private static final int BATCH_SIZE = 1000;
+
+    // permissions of a folder that entries do not already have an identical permission for
+    private static final String FOLDER_ENTRY_PERMISSIONS = " from "
+            + Entry.class.getName() + " e, " + Permission.class.getName() + " p left join p.account a"
+            + " left join p.group g where p.folder.id = :folder and p.entry is null and e.id in (:ids)"
+            + " and (p.canRead = true or p.canWrite = true)"
+            + " and not exists (select q.id from " + Permission.class.getName() + " q where q.entry = e"
+            + " and q.folder is null and q.upload is null and q.canRead = p.canRead and q.canWrite = p.canWrite"
+            + " and (q.account = p.account or (q.account is null and p.account is null))"
+            + " and (q.group = p.group or (q.group is null and p.group is null)))";
+
+    // copies the missing permissions of a folder to entries
+    private static final String INSERT_FOLDER_ENTRY_PERMISSIONS = "insert into " + Permission.class.getName()
+            + " (entry, account, group, canRead, canWrite) select e, a, g, p.canRead, p.canWrite"
+            + FOLDER_ENTRY_PERMISSIONS;
+
+    // entries that are missing at least one of the permissions of a folder
+    private static final String SELECT_FOLDER_ENTRY_PERMISSION_IDS = "select distinct e.id" + FOLDER_ENTRY_PERMISSIONS;
+
+    @Override
+    public Permission create(Permission permission) {
+        permission = super.create(permission);
+        DAOFactory.getEntryAccessDAO().add(permission);
+        return permission;
+    }
+
+    @Override
+    public void delete(Permission permission) {
+        super.delete(permission);
+        DAOFactory.getEntryAccessDAO().remove(permission);
+    }
+
+    /**
+     * Copies the permissions set on a folder to the specified entries, skipping the permissions that an entry already
+     * has. The permissions are inserted with a single set based statement for each batch of entries and the effective
+     * entry permission index and search index are then updated for the entries in the batch that received a
+     * permission
+     *
+     * @param folder   folder whose permissions are propagated
+     * @param entryIds unique identifiers for entries (typically contained in the folder) to add the permissions to
+     * @return number of permissions created
+     * @throws DAOException on hibernate exception
+     */
+    @SuppressWarnings("unchecked")
+    public int propagateFolderPermissions(Folder folder, Collection<Long> entryIds) {
+        List<Long> list = new ArrayList<>(entryIds);
+        int count = 0;
+
+        for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+            List<Long> batch = list.subList(i, Math.min(list.size(), i + BATCH_SIZE));
+            List<Long> updated;
+            try {
+                Query query = currentSession().createQuery(SELECT_FOLDER_ENTRY_PERMISSION_IDS);
+                query.setParameter("folder", folder.getId());
+                query.setParameterList("ids", batch);
+                updated = query.list();
+                if (updated.isEmpty())
+                    continue;
+
+                query = currentSession().createQuery(INSERT_FOLDER_ENTRY_PERMISSIONS);
+                query.setParameter("folder", folder.getId());
+                query.setParameterList("ids", updated);
+                count += query.executeUpdate();
+            } catch (HibernateException he) {
+                Logger.error(he);
+                throw new DAOException(he);
+            }
+
+            DAOFactory.getEntryAccessDAO().indexEntries(updated);
+            HibernateSearch.getInstance().indexEntries(updated);
+        }
+        return count;
+    }
+
     public boolean hasPermission(Entry entry, Folder folder, BulkUpload upload, Account account, Group group,
                                  boolean canRead, boolean canWrite) {
         try {
@@ -245,7 +322,9 @@ public class PermissionDAO extends HibernateRepository<Permission> {
         Query query = session.createQuery("delete " + Permission.class.getName() + " where entry = :entry");
         query.setParameter("entry", entry);
         try {
-            return query.executeUpdate();
+            int count = query.executeUpdate();
+            DAOFactory.getEntryAccessDAO().indexEntry(entry.getId());
+            return count;
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -257,7 +336,9 @@ public class PermissionDAO extends HibernateRepository<Permission> {
         Query query = session.createQuery("delete " + Permission.class.getName() + " where folder = :folder");
         query.setParameter("folder", folder);
         try {
-            return query.executeUpdate();
+            int count = query.executeUpdate();
+            DAOFactory.getEntryAccessDAO().indexFolder(folder.getId());
+            return count;
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -269,7 +350,9 @@ public class PermissionDAO extends HibernateRepository<Permission> {
         Query query = session.createQuery("delete " + Permission.class.getName() + " where group = :group");
         query.setParameter("group", group);
         try {
-            return query.executeUpdate();
+            int count = query.executeUpdate();
+            DAOFactory.getEntryAccessDAO().removeGroup(group.getId());
+            return count;
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -380,6 +463,35 @@ public class PermissionDAO extends HibernateRepository<Permission> {
         return number.intValue() == entries.size();
     }
 
+    /**
+     * Retrieves the subset of the specified entries for which the account has been explicitly granted write
+     * privileges (i.e. not through a group or folder). This is the set based equivalent of calling
+     * {@link #hasPermissionMulti(Entry, Set, Account, Set, boolean, boolean)} for each entry with only the account
+     * and <code>canWrite</code> set
+     *
+     * @param account user account
+     * @param entries list of entry ids to check
+     * @return ids of entries in the list that the account has explicit write permissions for
+     */
+    public Set<Long> getCanWriteEntries(Account account, List<Long> entries) {
+        Set<Long> result = new HashSet<>();
+        if (account == null || entries == null || entries.isEmpty())
+            return result;
+
+        try {
+            Query query = currentSession().createQuery("select distinct p.entry.id from " + Permission.class.getName()
+                    + " p where p.account = :account and p.group is null and p.folder is null"
+                    + " and p.canWrite = true and p.canRead = false and p.entry.id in (:entries)");
+            query.setParameter("account", account);
+            query.setParameterList("entries", entries);
+            result.addAll(query.list());
+            return result;
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
+
     @Override
     public Permission get(long id) {
         return super.get(Permission.class, id);
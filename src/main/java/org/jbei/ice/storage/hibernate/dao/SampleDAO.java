@@ -12,8 +12,7 @@ import org.jbei.ice.storage.model.Entry;
 import org.jbei.ice.storage.model.Sample;
 import org.jbei.ice.storage.model.Storage;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * @author Timothy Ham, Zinovii Dmytriv, Hector Plahar
@@ -37,6 +36,31 @@ public class SampleDAO extends HibernateRepository<Sample> {
         }
     }
 
+    /**
+     * Retrieves the subset of the specified entries that have at least one sample
+     *
+     * @param entryIds unique identifiers for entries
+     * @return ids of entries in the list that have samples
+     * @throws DAOException on hibernate exception
+     */
+    @SuppressWarnings("unchecked")
+    public Set<Long> getEntriesWithSamples(Collection<Long> entryIds) throws DAOException {
+        Set<Long> result = new HashSet<>();
+        if (entryIds == null || entryIds.isEmpty())
+            return result;
+
+        try {
+            Query query = currentSession().createQuery("select distinct s.entry.id from " + Sample.class.getName()
+                    + " s where s.entry.id in (:ids)");
+            query.setParameterList("ids", entryIds);
+            result.addAll(query.list());
+            return result;
+        } catch (HibernateException e) {
+            Logger.error(e);
+            throw new DAOException("Failed to retrieve samples for entries", e);
+        }
+    }
+
     public int getSampleCount(Entry entry) {
         Number itemCount = (Number) currentSession().createCriteria(Sample.class)
                 .setProjection(Projections.countDistinct("id"))
@@ -8,19 +8,14 @@ import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.entry.Visibility;
-import org.jbei.ice.lib.utils.SequenceUtils;
-import org.jbei.ice.lib.utils.UtilityException;
+import org.jbei.ice.lib.entry.sequence.FeatureResolver;
+import org.jbei.ice.lib.entry.sequence.SequenceFileCache;
 import org.jbei.ice.storage.DAOException;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.HibernateRepository;
 import org.jbei.ice.storage.model.*;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Manipulate {@link Sequence} and associated objects in the database.
@@ -38,6 +33,20 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
      * @throws DAOException
      */
     public Sequence saveSequence(Sequence sequence) {
+        return saveSequence(sequence, new FeatureResolver());
+    }
+
+    /**
+     * Save the given {@link Sequence} object in the database, resolving its features to existing features using the
+     * specified resolver. Operations that save many sequences in the same transaction should share a resolver
+     *
+     * @param sequence sequence to save
+     * @param resolver resolver for the features of the sequence
+     * @return Saved Sequence object
+     * @throws IllegalArgumentException if the sequence object is null or does not have a valid entry associated with it
+     * @throws DAOException
+     */
+    public Sequence saveSequence(Sequence sequence, FeatureResolver resolver) {
         if (sequence == null || sequence.getEntry() == null)
             throw new IllegalArgumentException("Cannot save null sequence or sequence without entry");
 
@@ -54,6 +63,8 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
 
         // separate out sequence features and uniquely create features
         if (sequenceFeatureSet != null) {
+            resolver.prefetch(sequenceFeatureSet);
+
             for (SequenceFeature sequenceFeature : sequenceFeatureSet) {
                 Feature feature = sequenceFeature.getFeature();
 
@@ -61,18 +72,11 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
                     throw new DAOException("SequenceFeature has no feature");
                 }
 
-                Feature existingFeature = getFeatureBySequence(feature.getSequence());
-
-                if (existingFeature == null) {
-                    // new feature -> save it
-                    FeatureDAO featureDAO = DAOFactory.getFeatureDAO();
-                    existingFeature = featureDAO.create(feature);
-                } else {
-                    if (!sameFeatureUri(existingFeature, feature)) {
-                        // same sequence feature but different uri
-                        // sequence hash fwa uniqueness causes problems when trying to save a new feature with same seq
-                        existingFeature.setUri(feature.getUri());
-                    }
+                Feature existingFeature = resolver.resolve(feature);
+                if (existingFeature != feature && !sameFeatureUri(existingFeature, feature)) {
+                    // same sequence feature but different uri
+                    // sequence hash fwa uniqueness causes problems when trying to save a new feature with same seq
+                    existingFeature.setUri(feature.getUri());
                 }
 
                 sequenceFeature.setFeature(existingFeature);
@@ -118,15 +122,15 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
 
         sequence.setSequenceFeatures(null);
         sequence = update(sequence);
+        SequenceFileCache.getInstance().invalidate(sequence.getId());
 
         // add new features
         if (newFeatures != null) {
+            FeatureResolver resolver = new FeatureResolver();
+            resolver.prefetch(newFeatures);
+
             for (SequenceFeature sequenceFeature : newFeatures) {
-                Feature newFeature = sequenceFeature.getFeature();
-                Feature newFeatureExisting = getFeatureBySequence(newFeature.getSequence());
-                if (newFeatureExisting == null) {
-                    newFeatureExisting = DAOFactory.getFeatureDAO().create(newFeature);
-                }
+                Feature newFeatureExisting = resolver.resolve(sequenceFeature.getFeature());
                 sequenceFeature.setFeature(newFeatureExisting);
                 sequenceFeature.setSequence(sequence);
                 DAOFactory.getSequenceFeatureDAO().create(sequenceFeature);
@@ -139,19 +143,15 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
     /**
      * Delete the given {@link Sequence} object in the database.
      *
-     * @param sequence          sequence to delete
-     * @param pigeonImageFolder path of the image folder where the pigeon images are cached
+     * @param sequence sequence to delete
      */
-    public void deleteSequence(Sequence sequence, String pigeonImageFolder) {
-        String sequenceHash = sequence.getFwdHash();
+    public void deleteSequence(Sequence sequence) {
+        SequenceFileCache.getInstance().invalidate(sequence.getId());
         try {
             sequence.setEntry(null);
             sequence.getSequenceFeatures();
             super.delete(sequence);
             currentSession().flush();
-            Files.deleteIfExists(Paths.get(pigeonImageFolder, sequenceHash + ".png"));
-        } catch (IOException e) {
-            Logger.warn(e.getMessage());
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -195,6 +195,79 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
         }
     }
 
+    /**
+     * Retrieves the subset of the specified entries that have a sequence associated with them
+     *
+     * @param entryIds unique identifiers for entries
+     * @return ids of entries in the list that have a sequence
+     * @throws DAOException on hibernate exception
+     */
+    public Set<Long> getEntriesWithSequence(Collection<Long> entryIds) {
+        return getEntriesWithSequence(entryIds, false);
+    }
+
+    /**
+     * Retrieves the subset of the specified entries that have a sequence file that was originally uploaded by the
+     * user. This is the set based equivalent of {@link #hasOriginalSequence(long)}
+     *
+     * @param entryIds unique identifiers for entries
+     * @return ids of entries in the list that have an original sequence file
+     * @throws DAOException on hibernate exception
+     */
+    public Set<Long> getEntriesWithOriginalSequence(Collection<Long> entryIds) {
+        return getEntriesWithSequence(entryIds, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Long> getEntriesWithSequence(Collection<Long> entryIds, boolean originalOnly) {
+        Set<Long> result = new HashSet<>();
+        if (entryIds == null || entryIds.isEmpty())
+            return result;
+
+        try {
+            String queryString = "select distinct s.entry.id from " + Sequence.class.getName()
+                    + " s where s.entry.id in (:ids)";
+            if (originalOnly)
+                queryString += " and s.sequenceUser is not null and s.sequenceUser <> ''";
+            Query query = currentSession().createQuery(queryString);
+            query.setParameterList("ids", entryIds);
+            result.addAll(query.list());
+            return result;
+        } catch (HibernateException e) {
+            Logger.error(e);
+            throw new DAOException("Failed to retrieve sequences for entries", e);
+        }
+    }
+
+    /**
+     * Retrieves the sequence file names for the specified entries in a single query. This is the set based
+     * equivalent of {@link #hasSequence(long)} and {@link #getSequenceFilename(Entry)}
+     *
+     * @param entryIds unique identifiers for entries
+     * @return map of entry id to sequence file name (empty if not set) for each entry that has a sequence
+     * @throws DAOException on hibernate exception
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Long, String> getSequenceFilenames(Collection<Long> entryIds) {
+        Map<Long, String> result = new HashMap<>();
+        if (entryIds == null || entryIds.isEmpty())
+            return result;
+
+        try {
+            Query query = currentSession().createQuery("select s.entry.id, s.fileName from "
+                    + Sequence.class.getName() + " s where s.entry.id in (:ids)");
+            query.setParameterList("ids", entryIds);
+            query.setReadOnly(true);
+            for (Object[] row : (List<Object[]>) query.list()) {
+                result.put((Long) row[0], row[1] == null ? "" : (String) row[1]);
+            }
+            return result;
+        } catch (HibernateException e) {
+            Logger.error(e);
+            throw new DAOException("Failed to retrieve sequence file names for entries", e);
+        }
+    }
+
     public String getSequenceFilename(Entry entry) {
         return (String) currentSession().createCriteria(Sequence.class)
                 .setProjection(Projections.property("fileName"))
@@ -227,33 +300,65 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
     }
 
     /**
-     * Enables retrieving sequences in the database without loading everything memory
+     * Retrieves a batch of sequences for valid (visibility=9) entries using keyset pagination on the sequence id.
+     * Only the values required to write out the blast fasta file are projected, so no entities are loaded into the
+     * session. Each returned row is of the form <code>[sequence id, entry id, entry record type, entry name,
+     * entry part number, sequence]</code>, in ascending order of sequence id.
      * <p>
      * Expected usage is
      * <code>
-     * long count = getSequenceCount();
-     * int offset = 0;
-     * while( offset < count ) {
-     * Sequence sequence = dao.getSequence(offset);
-     * // do something with sequence
+     * long lastId = 0;
+     * List&lt;Object[]&gt; rows;
+     * while (!(rows = dao.getSequencesAfter(lastId, 1000)).isEmpty()) {
+     * // do something with rows
+     * lastId = (Long) rows.get(rows.size() - 1)[0];
      * }
      * </code>
      *
-     * @return Sequence at the specified offset
-     * @throws DAOException
+     * @param lastId id of the last sequence retrieved in the previous batch. Use 0 to start from the beginning
+     * @param limit  maximum number of rows to return
+     * @return list of projected sequence rows with sequence id greater than <code>lastId</code>
+     * @throws DAOException on hibernate exception
      */
-    @SuppressWarnings("unchecked")
-    public Sequence getSequence(int offset) throws DAOException {
-        Session session = currentSession();
+    public List<Object[]> getSequencesAfter(long lastId, int limit) {
         try {
-            Criteria criteria = session.createCriteria(Sequence.class);
+            Query query = currentSession().createQuery("select s.id, e.id, e.recordType, e.name, e.partNumber, "
+                    + "s.sequence from " + Sequence.class.getName() + " s join s.entry e where e.visibility = "
+                    + ":visibility and s.id > :lastId order by s.id asc");
+            query.setParameter("visibility", Visibility.OK.getValue());
+            query.setParameter("lastId", lastId);
+            query.setMaxResults(limit);
+            query.setReadOnly(true);
+            return query.list();
+        } catch (HibernateException he) {
+            Logger.error(he);
+            throw new DAOException(he);
+        }
+    }
 
-            Criteria entryC = criteria.createCriteria("entry", "entry");
-            entryC.add(Restrictions.disjunction()
-                    .add(Restrictions.eq("visibility", Visibility.OK.getValue())));
-            criteria.setFirstResult(offset);
-            criteria.setMaxResults(1);
-            return (Sequence) criteria.uniqueResult();
+    /**
+     * Retrieves the sequences for the specified valid (visibility=9) entries along with the entry values that are
+     * displayed in sequence search results. Each returned row is of the form <code>[entry id, entry record type,
+     * entry name, entry part number, entry short description, sequence, circular]</code>. Circular is null for
+     * entries that are not plasmids
+     *
+     * @param entryIds unique identifiers for entries
+     * @return list of projected sequence rows. Entries without a sequence are not included
+     * @throws DAOException on hibernate exception
+     */
+    public List<Object[]> getSequencesForEntries(Collection<Long> entryIds) {
+        if (entryIds == null || entryIds.isEmpty())
+            return new ArrayList<>();
+
+        try {
+            Query query = currentSession().createQuery("select e.id, e.recordType, e.name, e.partNumber, "
+                    + "e.shortDescription, s.sequence, (select p.circular from " + Plasmid.class.getName()
+                    + " p where p.id = e.id) from " + Sequence.class.getName() + " s join s.entry e "
+                    + "where e.visibility = :visibility and e.id in (:ids)");
+            query.setParameter("visibility", Visibility.OK.getValue());
+            query.setParameterList("ids", entryIds);
+            query.setReadOnly(true);
+            return query.list();
         } catch (HibernateException he) {
             Logger.error(he);
             throw new DAOException(he);
@@ -280,46 +385,6 @@ public class SequenceDAO extends HibernateRepository<Sequence> {
         }
     }
 
-    /**
-     * Retrieve the {@link Feature} object with the given DNA sequence string.
-     *
-     * @param featureDnaSequence dna sequence of feature
-     * @return Feature object.
-     * @throws DAOException
-     */
-    private Feature getFeatureBySequence(String featureDnaSequence) {
-        featureDnaSequence = featureDnaSequence.toLowerCase();
-        Feature result;
-        Session session = currentSession();
-
-        try {
-            String queryString = "from " + Feature.class.getName() + " where hash = :hash";
-            Query query = session.createQuery(queryString);
-            query.setParameter("hash", SequenceUtils.calculateSequenceHash(featureDnaSequence));
-
-            Object queryResult = query.uniqueResult();
-
-            if (queryResult != null) {
-                result = (Feature) queryResult;
-            } else {
-                String reverseComplement = SequenceUtils.reverseComplement(featureDnaSequence);
-                String sequenceHash = SequenceUtils.calculateSequenceHash(reverseComplement);
-                query.setParameter("hash", sequenceHash);
-                queryResult = query.uniqueResult();
-                if (queryResult != null) {
-                    result = (Feature) queryResult;
-                } else {
-                    result = null;
-                }
-            }
-        } catch (HibernateException | UtilityException e) {
-            Logger.error(e);
-            throw new DAOException("Failed to get Feature by sequence!", e);
-        }
-
-        return result;
-    }
-
     /**
      * Normalize {@link AnnotationLocation}s by fixing strangely defined annotationLocations.
      * <p>
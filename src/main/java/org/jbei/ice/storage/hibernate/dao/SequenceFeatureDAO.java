@@ -7,7 +7,7 @@ import org.jbei.ice.storage.model.Entry;
 import org.jbei.ice.storage.model.Feature;
 import org.jbei.ice.storage.model.SequenceFeature;
 
-import java.util.List;
+import java.util.*;
 
 /**
  * Hibernate Data accessor object for {@link SequenceFeature}s
@@ -29,6 +29,49 @@ public class SequenceFeatureDAO extends HibernateRepository<SequenceFeature> {
                 .list();
     }
 
+    /**
+     * Retrieves the ids of the entries whose sequences contain each of the specified features in a single query
+     *
+     * @param featureIds unique identifiers for features
+     * @return map of feature id to the ids of entries whose sequences contain it. Features that are not associated
+     * with any sequence are not included
+     */
+    public Map<Long, Set<Long>> getEntryIdsByFeatures(Collection<Long> featureIds) {
+        Map<Long, Set<Long>> result = new HashMap<>();
+        if (featureIds == null || featureIds.isEmpty())
+            return result;
+
+        List<Object[]> rows = currentSession().createQuery("select distinct sf.feature.id, s.entry.id from "
+                + SequenceFeature.class.getName() + " sf join sf.sequence s where sf.feature.id in (:ids)")
+                .setParameterList("ids", featureIds)
+                .setReadOnly(true)
+                .list();
+        for (Object[] row : rows) {
+            Set<Long> entryIds = result.get((Long) row[0]);
+            if (entryIds == null) {
+                entryIds = new HashSet<>();
+                result.put((Long) row[0], entryIds);
+            }
+            entryIds.add((Long) row[1]);
+        }
+        return result;
+    }
+
+    /**
+     * Determines the version of the feature set of the specified sequence, without loading the features. Features
+     * are re-created (with new ids) when a sequence is updated, so the version changes whenever the set changes
+     *
+     * @param sequenceId unique identifier for sequence
+     * @return version of the feature set, as the number of features and the largest feature id
+     */
+    public String getFeatureSetVersion(long sequenceId) {
+        Object[] row = (Object[]) currentSession().createQuery("select count(sf.id), max(sf.id) from "
+                + SequenceFeature.class.getName() + " sf where sf.sequence.id = :id")
+                .setParameter("id", sequenceId)
+                .uniqueResult();
+        return row[0] + "-" + row[1];
+    }
+
     public List<SequenceFeature> getByFeature(Feature feature) {
         return currentSession().createCriteria(SequenceFeature.class)
                 .add(Restrictions.eq("feature", feature))
@@ -3,11 +3,13 @@ package org.jbei.ice.storage.hibernate.dao;
 import org.apache.commons.io.IOUtils;
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
+import org.hibernate.LockOptions;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.storage.DAOException;
 import org.jbei.ice.storage.hibernate.HibernateRepository;
 import org.jbei.ice.storage.model.Entry;
@@ -82,6 +84,28 @@ public class TraceSequenceDAO extends HibernateRepository<TraceSequence> {
         }
     }
 
+    /**
+     * Locks the row of the trace sequence until the current transaction completes and reloads its state (including
+     * its alignment). Serializes the transactions that save an alignment for the same trace sequence, so that an
+     * alignment committed by another transaction is updated instead of being created again
+     *
+     * @param traceSequence trace sequence to lock
+     * @return the trace sequence
+     * @throws DAOException on hibernate exception
+     */
+    public TraceSequence lock(TraceSequence traceSequence) throws DAOException {
+        Session session = currentSession();
+        try {
+            // a trace sequence created in this transaction must exist as a row before it can be locked
+            session.flush();
+            session.refresh(traceSequence, LockOptions.UPGRADE);
+            return traceSequence;
+        } catch (HibernateException e) {
+            Logger.error(e);
+            throw new DAOException(e);
+        }
+    }
+
     /**
      * Retrieve the {@link TraceSequence} object by its fileId.
      *
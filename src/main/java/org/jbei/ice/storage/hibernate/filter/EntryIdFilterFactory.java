@@ -0,0 +1,36 @@
+package org.jbei.ice.storage.hibernate.filter;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.TermsQuery;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.hibernate.search.annotations.Factory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Restricts results to a set of entries (e.g. the hits of a blast search). The set of ids is matched using a single
+ * terms query over the <code>id</code> field, so it is not subject to the boolean query clause limit
+ *
+ * @author Hector Plahar
+ */
+public class EntryIdFilterFactory {
+
+    private Collection<String> entryIds;
+
+    // injected
+    public void setEntryIds(Collection<String> entryIds) {
+        this.entryIds = entryIds;
+    }
+
+    @Factory
+    public Filter getFilter() {
+        List<Term> terms = new ArrayList<>(entryIds.size());
+        for (String entryId : entryIds) {
+            terms.add(new Term("id", entryId));
+        }
+        return new QueryWrapperFilter(new TermsQuery(terms));
+    }
+}
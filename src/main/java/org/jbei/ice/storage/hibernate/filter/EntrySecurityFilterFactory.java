@@ -3,6 +3,9 @@ package org.jbei.ice.storage.hibernate.filter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
 import org.hibernate.search.annotations.Factory;
+import org.hibernate.search.annotations.Key;
+import org.hibernate.search.filter.FilterKey;
+import org.hibernate.search.filter.StandardFilterKey;
 
 import java.util.HashSet;
 
@@ -24,6 +27,19 @@ public class EntrySecurityFilterFactory {
         this.groupUUids = groupUUids;
     }
 
+    /**
+     * Key for caching the filter (and the document id sets it produces); one per account and set of groups
+     *
+     * @return filter key
+     */
+    @Key
+    public FilterKey getKey() {
+        StandardFilterKey key = new StandardFilterKey();
+        key.addParameter(accountId);
+        key.addParameter(groupUUids);
+        return key;
+    }
+
     @Factory
     public Filter getFilter() {
         BooleanQuery.Builder builder = new BooleanQuery.Builder();
@@ -7,9 +7,13 @@ import org.hibernate.Session;
 import org.hibernate.search.FullTextQuery;
 import org.hibernate.search.FullTextSession;
 import org.hibernate.search.Search;
+import org.hibernate.search.exception.SearchException;
+import org.hibernate.search.query.engine.spi.DocumentExtractor;
+import org.hibernate.search.query.engine.spi.HSQuery;
+import org.hibernate.search.spi.SearchIntegrator;
 import org.hibernate.search.query.dsl.QueryBuilder;
 import org.hibernate.search.query.dsl.TermContext;
-import org.jbei.ice.lib.account.AccountController;
+import org.jbei.ice.lib.account.PrincipalCache;
 import org.jbei.ice.lib.common.logging.Logger;
 import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.entry.PartData;
@@ -28,6 +32,7 @@ import org.jbei.ice.storage.ModelToInfoFactory;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
 import org.jbei.ice.storage.model.Entry;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -39,6 +44,13 @@ import java.util.*;
 @SuppressWarnings("unchecked")
 public class HibernateSearch {
 
+    // fields projected to render search results. the positions are relied on by createTableViews()
+    private static final String[] TABLE_VIEW_PROJECTION = {
+            FullTextQuery.SCORE, FullTextQuery.ID, "recordId", "recordType", "name", "partNumber", "alias",
+            "shortDescription", "status", "ownerEmail", "owner", "creator", "creatorEmail", "visibility",
+            "creationTime_stored"
+    };
+
     private HibernateSearch() {
     }
 
@@ -55,6 +67,31 @@ public class HibernateSearch {
         return SingletonHolder.INSTANCE;
     }
 
+    /**
+     * Updates the search index documents for entries whose associations (e.g. permissions) were modified with
+     * bulk statements, which bypass the automatic indexing of changes. The entries are reloaded in the current
+     * session and the index work is applied when the transaction is committed
+     *
+     * @param entryIds unique identifiers for entries to index
+     */
+    public void indexEntries(Collection<Long> entryIds) {
+        Session session = HibernateUtil.getSessionFactory().getCurrentSession();
+        FullTextSession fullTextSession = Search.getFullTextSession(session);
+
+        // refreshing discards changes that have not been written
+        session.flush();
+
+        for (Long entryId : entryIds) {
+            Entry entry = session.get(Entry.class, entryId);
+            if (entry == null)
+                continue;
+
+            // collections loaded before the bulk statement are stale
+            session.refresh(entry);
+            fullTextSession.index(entry);
+        }
+    }
+
     public SearchResults executeSearchNoTerms(String userId, HashMap<String, SearchResult> blastResults, SearchQuery searchQuery) {
         ArrayList<EntryType> entryTypes = searchQuery.getEntryTypes();
         if (entryTypes == null || entryTypes.isEmpty()) {
@@ -111,6 +148,7 @@ public class HibernateSearch {
 
         // wrap Lucene query in a org.hibernate.Query
         FullTextQuery fullTextQuery = fullTextSession.createFullTextQuery(builder.build(), Entry.class);
+        enableBlastFilter(fullTextQuery, blastResults);
 
         // get sorting values
         Sort sort = getSort(searchQuery.getParameters().isSortAscending(), searchQuery.getParameters().getSortField());
@@ -126,27 +164,31 @@ public class HibernateSearch {
         fullTextQuery.setFirstResult(searchQuery.getParameters().getStart());
         fullTextQuery.setMaxResults(searchQuery.getParameters().getRetrieveCount());
 
+        // projection (specified properties must be stored in the index @Field(store=Store.YES))
+        fullTextQuery.setProjection(TABLE_VIEW_PROJECTION);
+
         resultCount = fullTextQuery.getResultSize();
-        List result = fullTextQuery.list();
+        List<Object[]> result = fullTextQuery.list();
 
         LinkedList<SearchResult> searchResults = new LinkedList<>();
 
-        for (Object object : result) {
-            Entry entry = (Entry) object;
-            SearchResult searchResult;
-            if (blastResults != null) {
-                searchResult = blastResults.get(Long.toString(entry.getId()));
+        if (blastResults != null) {
+            for (Object[] objects : result) {
+                SearchResult searchResult = blastResults.get(objects[1].toString());
                 if (searchResult == null) // this should not really happen since we already filter
                     continue;
-            } else {
-                searchResult = new SearchResult();
+                searchResult.setMaxScore(1f);
+                searchResults.add(searchResult);
+            }
+        } else {
+            List<PartData> views = createTableViews(session, userId, result);
+            for (PartData info : views) {
+                SearchResult searchResult = new SearchResult();
                 searchResult.setScore(1f);
-                PartData info = ModelToInfoFactory.createTableViewData(userId, entry, true);
                 searchResult.setEntryInfo(info);
+                searchResult.setMaxScore(1f);
+                searchResults.add(searchResult);
             }
-
-            searchResult.setMaxScore(1f);
-            searchResults.add(searchResult);
         }
 
         SearchResults results = new SearchResults();
@@ -177,28 +219,30 @@ public class HibernateSearch {
         QueryBuilder qb = fullTextSession.getSearchFactory().buildQueryBuilder().forEntity(Entry.class).get();
         Query query = qb.keyword().onField("visibility").matching(Visibility.OK.getValue()).createQuery();
 
-        // todo : there is a limit of 1024 boolean clauses so return only return top blast results
         BooleanQuery.Builder builder = new BooleanQuery.Builder();
         builder.add(query, BooleanClause.Occur.FILTER);
 
+        // bio-safety level
+        if (searchQuery.getBioSafetyOption() != null) {
+            TermContext levelContext = qb.keyword();
+            Query biosafetyQuery = levelContext.onField("bioSafetyLevel").ignoreFieldBridge()
+                    .matching(searchQuery.getBioSafetyOption().getValue()).createQuery();
+            builder.add(biosafetyQuery, BooleanClause.Occur.MUST);
+        }
+
         // wrap Lucene query in a org.hibernate.Query
         Class<?>[] classes = SearchFieldFactory.classesForTypes(searchQuery.getEntryTypes());
         FullTextQuery fullTextQuery = fullTextSession.createFullTextQuery(builder.build(), classes);
 
+        // restrict to the blast hits
+        enableBlastFilter(fullTextQuery, blastResults);
+
         // enable security filter if an admin
         checkEnableSecurityFilter(userId, fullTextQuery);
 
         // enable has attachment/sequence/sample (if needed)
         checkEnableHasAttribute(fullTextQuery, searchQuery.getParameters());
 
-        // bio-safety level
-        if (searchQuery.getBioSafetyOption() != null) {
-            TermContext levelContext = qb.keyword();
-            Query biosafetyQuery = levelContext.onField("bioSafetyLevel").ignoreFieldBridge()
-                    .matching(searchQuery.getBioSafetyOption().getValue()).createQuery();
-            builder.add(biosafetyQuery, BooleanClause.Occur.MUST);
-        }
-
         // execute search
         fullTextQuery.setProjection("id");
 
@@ -256,64 +300,96 @@ public class HibernateSearch {
         // check for blast search results filter
         createBlastFilterQuery(fullTextSession, blastResults, builder);
 
-        // wrap Lucene query in a org.hibernate.Query
-        FullTextQuery fullTextQuery = fullTextSession.createFullTextQuery(builder.build(), classes);
-
-        // get max score
-        fullTextQuery.setFirstResult(0);
-        fullTextQuery.setMaxResults(1);
-        fullTextQuery.setProjection(FullTextQuery.SCORE);
-        List result = fullTextQuery.list();
-        float maxScore = -1f;
-        if (result.size() == 1) {
-            maxScore = (Float) ((Object[]) (result.get(0)))[0];
+        // wrap Lucene query in an engine level query. Unlike org.hibernate.Query, this exposes the top docs of the
+        // single collector pass from which the page of hits, the total hit count and the max score are all obtained
+        SearchIntegrator searchIntegrator = fullTextSession.getSearchFactory().unwrap(SearchIntegrator.class);
+        HSQuery hsQuery = searchIntegrator.createHSQuery()
+                .luceneQuery(builder.build())
+                .targetedEntities(Arrays.<Class<?>>asList(classes));
+        if (blastResults != null) {
+            hsQuery.enableFullTextFilter("entryIds").setParameter("entryIds", new HashSet<>(blastResults.keySet()));
         }
-        // end get max score
 
         // get sorting values
         Sort sort = getSort(searchQuery.getParameters().isSortAscending(), searchQuery.getParameters().getSortField());
-        fullTextQuery.setSort(sort);
+        hsQuery.sort(sort);
 
         // projection (specified properties must be stored in the index @Field(store=Store.YES))
-        fullTextQuery.setProjection(FullTextQuery.SCORE, FullTextQuery.THIS);
+        hsQuery.projection(TABLE_VIEW_PROJECTION);
 
         // enable security filter if needed
-        fullTextQuery = checkEnableSecurityFilter(userId, fullTextQuery);
+        HashSet<String> groupUUIDs = getSecurityFilterGroups(userId);
+        if (groupUUIDs != null) {
+            hsQuery.enableFullTextFilter("security")
+                    .setParameter("account", userId)
+                    .setParameter("groupUUids", groupUUIDs);
+        }
 
         // check sample
-        checkEnableHasAttribute(fullTextQuery, searchQuery.getParameters());
+        ArrayList<String> hasFields = getHasAttributeFields(searchQuery.getParameters());
+        if (!hasFields.isEmpty()) {
+            hsQuery.enableFullTextFilter("boolean").setParameter("field", hasFields);
+        }
 
         // set paging params
-        fullTextQuery.setFirstResult(searchQuery.getParameters().getStart());
-        fullTextQuery.setMaxResults(searchQuery.getParameters().getRetrieveCount());
-
-        resultCount = fullTextQuery.getResultSize();
+        hsQuery.firstResult(searchQuery.getParameters().getStart());
+        hsQuery.maxResults(searchQuery.getParameters().getRetrieveCount());
 
         // execute search
-        result = fullTextQuery.list();
+        List<Object[]> result = new ArrayList<>();
+        float maxScore;
+        DocumentExtractor extractor = hsQuery.queryDocumentExtractor();
+        try {
+            TopDocs topDocs = extractor.getTopDocs();
+            resultCount = topDocs.totalHits;
+            maxScore = topDocs.getMaxScore();
+            for (int i = extractor.getFirstIndex(); i <= extractor.getMaxIndex(); i += 1) {
+                result.add(extractor.extract(i).getProjection());
+            }
+        } catch (IOException e) {
+            throw new SearchException("Could not retrieve search results", e);
+        } finally {
+            extractor.close();
+        }
+
+        // max score is not tracked when sorting on a field other than relevance. fall back to the page
+        if (Float.isNaN(maxScore)) {
+            maxScore = -1f;
+            for (Object[] objects : result) {
+                Float score = (Float) objects[0];
+                if (score != null && !Float.isNaN(score) && score > maxScore)
+                    maxScore = score;
+            }
+        }
         Logger.info(resultCount + " results for \"" + searchQuery.getQueryString() + "\"");
 
         LinkedList<SearchResult> searchResults = new LinkedList<>();
-        for (Object[] objects : (Iterable<Object[]>) result) {
-            float score = (Float) objects[0];
-            Entry entry = (Entry) objects[1];
-            SearchResult searchResult;
-            if (blastResults != null) {
-                searchResult = blastResults.get(Long.toString(entry.getId()));
+        if (blastResults != null) {
+            for (Object[] objects : (Iterable<Object[]>) result) {
+                SearchResult searchResult = blastResults.get(objects[1].toString());
                 if (searchResult == null) // this should not really happen since we already filter
                     continue;
-            } else {
-                searchResult = new SearchResult();
-                searchResult.setScore(score);
-                PartData info = ModelToInfoFactory.createTableViewData(userId, entry, true);
-                if (info == null)
-                    continue;
-                info.setViewCount(DAOFactory.getAuditDAO().getHistoryCount(entry));
-                searchResult.setEntryInfo(info);
+                searchResult.setMaxScore(maxScore);
+                searchResults.add(searchResult);
+            }
+        } else {
+            Map<Long, Float> scores = new HashMap<>();
+            for (Object[] objects : (Iterable<Object[]>) result) {
+                scores.put((Long) objects[1], (Float) objects[0]);
             }
 
-            searchResult.setMaxScore(maxScore);
-            searchResults.add(searchResult);
+            List<PartData> views = createTableViews(session, userId, result);
+            Map<Long, Integer> viewCounts = DAOFactory.getAuditDAO().getHistoryCounts(scores.keySet());
+            for (PartData info : views) {
+                Integer viewCount = viewCounts.get(info.getId());
+                info.setViewCount(viewCount == null ? 0 : viewCount);
+
+                SearchResult searchResult = new SearchResult();
+                searchResult.setScore(scores.get(info.getId()));
+                searchResult.setEntryInfo(info);
+                searchResult.setMaxScore(maxScore);
+                searchResults.add(searchResult);
+            }
         }
 
         SearchResults results = new SearchResults();
@@ -322,6 +398,51 @@ public class HibernateSearch {
         return results;
     }
 
+    /**
+     * Converts a page of hits projected using {@link #TABLE_VIEW_PROJECTION} to table views. The views are created
+     * from the values stored in the index so the entries are not loaded. The values that are not stored in the
+     * index are retrieved for the entire page using set based queries.
+     * <p>
+     * Hits for documents that were indexed before the table view fields were stored (i.e. the index has not been
+     * rebuilt since) are created from the entry instead
+     *
+     * @param session current hibernate session
+     * @param userId  identifier for account of user performing search
+     * @param rows    projected hits
+     * @return table views in the same order as the hits
+     */
+    protected List<PartData> createTableViews(Session session, String userId, List<Object[]> rows) {
+        List<PartData> views = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Long id = (Long) row[1];
+            if (row[14] == null) {
+                Entry entry = (Entry) session.get(Entry.class, id);
+                if (entry != null)
+                    views.add(ModelToInfoFactory.createTableViewFields(entry, true));
+                continue;
+            }
+
+            PartData view = new PartData(EntryType.nameToType((String) row[3]));
+            view.setId(id);
+            view.setRecordId((String) row[2]);
+            view.setName((String) row[4]);
+            view.setPartId((String) row[5]);
+            view.setAlias((String) row[6]);
+            view.setShortDescription((String) row[7]);
+            view.setStatus((String) row[8]);
+            view.setOwnerEmail((String) row[9]);
+            view.setOwner((String) row[10]);
+            view.setCreator((String) row[11]);
+            view.setCreatorEmail((String) row[12]);
+            view.setVisibility(Visibility.valueToEnum((Integer) row[13]));
+            view.setCreationTime(((Date) row[14]).getTime());
+            views.add(view);
+        }
+
+        ModelToInfoFactory.setTableViewAccessData(userId, views, true);
+        return views;
+    }
+
     protected BooleanQuery.Builder generateQueriesForType(FullTextSession fullTextSession, HashSet<String> fields,
                                                           BooleanQuery.Builder builder, String term, QueryType type,
                                                           BioSafetyOption option) {
@@ -395,47 +516,79 @@ public class HibernateSearch {
         if (blastResults == null)
             return;
 
-        // enable blast filter
+        // only visible entries; the hit ids are restricted by the filter enabled in enableBlastFilter()
         QueryBuilder qb = fullTextSession.getSearchFactory().buildQueryBuilder().forEntity(Entry.class).get();
         Query query = qb.keyword().onField("visibility").matching(Visibility.OK.getValue()).createQuery();
         builder.add(query, BooleanClause.Occur.FILTER);
-        for (String id : blastResults.keySet()) {
-            Query filterQuery = qb.keyword().onField("id").matching(id).createQuery();
-            builder.add(filterQuery, BooleanClause.Occur.FILTER);
-        }
     }
 
     /**
-     * Enables the security filter if the account does not have administrative privileges
+     * Restricts the results of the query to the entries that are blast hits using the <code>entryIds</code>
+     * full text filter. This handles any number of hits in a single pass, unlike adding a boolean clause per hit
+     *
+     * @param fullTextQuery query to enable the filter on
+     * @param blastResults  results of blast search. Null indicates no blast query and the filter is not enabled
+     */
+    protected void enableBlastFilter(FullTextQuery fullTextQuery, final HashMap<String, SearchResult> blastResults) {
+        if (blastResults == null)
+            return;
+
+        fullTextQuery.enableFullTextFilter("entryIds")
+                .setParameter("entryIds", new HashSet<>(blastResults.keySet()));
+    }
+
+    /**
+     * Enables the security filter if the account does not have administrative privileges.
+     * The admin flag and group memberships are obtained from the {@link PrincipalCache} and the document id sets
+     * produced by the filter are cached by hibernate search per index segment for each (account, groups) pair
      *
      * @param userId        identifier for account which is checked for administrative privs
      * @param fullTextQuery search fulltextquery for which filter is enabled
      */
     protected FullTextQuery checkEnableSecurityFilter(String userId, FullTextQuery fullTextQuery) {
-        Set<String> groupUUIDs;
+        HashSet<String> groupUUIDs = getSecurityFilterGroups(userId);
+        if (groupUUIDs == null)
+            return fullTextQuery;
+
+        fullTextQuery.enableFullTextFilter("security")
+                .setParameter("account", userId)
+                .setParameter("groupUUids", groupUUIDs);
+        return fullTextQuery;
+    }
+
+    /**
+     * @param userId identifier for account which is checked for administrative privs
+     * @return uuids of the groups to pass to the security filter, or <code>null</code> if the filter is not
+     * required because the account has administrative privileges
+     */
+    protected HashSet<String> getSecurityFilterGroups(String userId) {
+        HashSet<String> groupUUIDs;
 
         if (StringUtils.isEmpty(userId)) {
             groupUUIDs = new HashSet<>();
             groupUUIDs.add(GroupController.PUBLIC_GROUP_UUID);
         } else {
-            AccountController accountController = new AccountController();
-            if (accountController.isAdministrator(userId)) {
-                return fullTextQuery;
-            }
-            groupUUIDs = new GroupController().retrieveAccountGroupUUIDs(userId);
+            PrincipalCache principalCache = PrincipalCache.getInstance();
+            if (principalCache.isAdministrator(userId))
+                return null;
+            groupUUIDs = new HashSet<>(principalCache.getGroupUUIDs(userId));
         }
-
-        fullTextQuery.enableFullTextFilter("security")
-                .setParameter("account", userId)
-                .setParameter("groupUUids", groupUUIDs);
-        return fullTextQuery;
+        return groupUUIDs;
     }
 
     protected void checkEnableHasAttribute(FullTextQuery fullTextQuery, SearchQuery.Parameters parameters) {
-        if (parameters == null)
+        ArrayList<String> terms = getHasAttributeFields(parameters);
+        if (terms.isEmpty())
             return;
 
+        fullTextQuery.enableFullTextFilter("boolean")
+                .setParameter("field", terms);
+    }
+
+    protected ArrayList<String> getHasAttributeFields(SearchQuery.Parameters parameters) {
         ArrayList<String> terms = new ArrayList<>();
+        if (parameters == null)
+            return terms;
 
         if (parameters.getHasSample()) {
             terms.add("hasSample");
@@ -449,11 +602,7 @@ public class HibernateSearch {
             terms.add("hasSequence");
         }
 
-        if (terms.isEmpty())
-            return;
-
-        fullTextQuery.enableFullTextFilter("boolean")
-                .setParameter("field", terms);
+        return terms;
     }
 
     protected static String cleanQuery(String query) {
@@ -11,8 +11,10 @@ import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.storage.DataModel;
 import org.jbei.ice.storage.ModelToInfoFactory;
+import org.jbei.ice.storage.hibernate.bridge.DateTimeBridge;
 import org.jbei.ice.storage.hibernate.filter.EntryHasFilterFactory;
 import org.jbei.ice.storage.hibernate.filter.EntrySecurityFilterFactory;
+import org.jbei.ice.storage.hibernate.filter.EntryIdFilterFactory;
 
 import javax.persistence.*;
 import java.util.*;
@@ -71,8 +73,10 @@ import org.jbei.ice.storage.model.Parameter;
 @Entity
 @Indexed(index = "Entry")
 @FullTextFilterDefs({
-        @FullTextFilterDef(name = "security", impl = EntrySecurityFilterFactory.class, cache = FilterCacheModeType.INSTANCE_ONLY),
-        @FullTextFilterDef(name = "boolean", impl = EntryHasFilterFactory.class, cache = FilterCacheModeType.INSTANCE_ONLY)
+        @FullTextFilterDef(name = "security", impl = EntrySecurityFilterFactory.class,
+                cache = FilterCacheModeType.INSTANCE_AND_DOCIDSETRESULTS),
+        @FullTextFilterDef(name = "boolean", impl = EntryHasFilterFactory.class, cache = FilterCacheModeType.INSTANCE_ONLY),
+        @FullTextFilterDef(name = "entryIds", impl = EntryIdFilterFactory.class, cache = FilterCacheModeType.NONE)
 })
 @AnalyzerDef(name = "customanalyzer",
         tokenizer = @TokenizerDef(factory = StandardTokenizerFactory.class),
@@ -143,14 +147,15 @@ public class Entry implements DataModel {
     private String keywords;
 
     @Column(name = "status", length = 127)
+    @Field(index = Index.NO, analyze = Analyze.NO, store = Store.YES)
     private String status;
 
     @Column(name = "visibility")
-    @Field(analyze = Analyze.NO)
+    @Field(analyze = Analyze.NO, store = Store.YES)
     private Integer visibility = Visibility.OK.getValue();
 
     @Column(name = "short_description")
-    @Field
+    @Field(store = Store.YES)
     @Lob
     @Type(type = "org.hibernate.type.TextType")
     private String shortDescription;
@@ -172,7 +177,11 @@ public class Entry implements DataModel {
 
     @Column(name = "creation_time")
     @Temporal(TemporalType.TIMESTAMP)
-    @Field(index = Index.YES, analyze = Analyze.NO, store = Store.YES)
+    @Fields({
+            @Field(index = Index.YES, analyze = Analyze.NO, store = Store.YES),
+            @Field(name = "creationTime_stored", index = Index.NO, analyze = Analyze.NO, store = Store.YES,
+                    bridge = @FieldBridge(impl = DateTimeBridge.class))
+    })
     @DateBridge(resolution = Resolution.DAY)
     @SortableField(forField = "creationTime")
     private Date creationTime;
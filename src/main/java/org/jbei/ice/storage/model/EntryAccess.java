@@ -0,0 +1,87 @@
+package org.jbei.ice.storage.model;
+
+import org.jbei.ice.storage.DataModel;
+import org.jbei.ice.storage.IDataTransferModel;
+
+import javax.persistence.*;
+
+/**
+ * Row of the materialized index of effective entry permissions; records that an account or group can read (or
+ * write) an entry, either through a permission set on the entry itself or, when <code>folderId</code> is set, through
+ * a permission on (or the public status of) a folder that contains the entry.
+ * <p>
+ * The index is derived from {@link Permission}s and folder contents and is maintained by the data accessor objects
+ * that modify them. References are stored as plain identifiers, without foreign keys, so that the index never
+ * prevents an entry, folder, account or group from being deleted
+ *
+ * @author Hector Plahar
+ */
+@Entity
+@Table(name = "ENTRY_ACCESS", indexes = {
+        @Index(name = "entry_access_entry_idx", columnList = "entry_id"),
+        @Index(name = "entry_access_folder_idx", columnList = "folder_id"),
+        @Index(name = "entry_access_group_idx", columnList = "group_id")
+})
+@SequenceGenerator(name = "sequence", sequenceName = "entry_access_id_seq", allocationSize = 1)
+public class EntryAccess implements DataModel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "sequence")
+    private long id;
+
+    @Column(name = "entry_id", nullable = false)
+    private long entryId;
+
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Column(name = "group_id")
+    private Long groupId;
+
+    @Column(name = "folder_id")
+    private Long folderId;
+
+    @Column(name = "can_write", nullable = false)
+    private boolean canWrite;
+
+    public EntryAccess() {
+    }
+
+    public EntryAccess(long entryId, Long accountId, Long groupId, Long folderId, boolean canWrite) {
+        this.entryId = entryId;
+        this.accountId = accountId;
+        this.groupId = groupId;
+        this.folderId = folderId;
+        this.canWrite = canWrite;
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public Long getGroupId() {
+        return groupId;
+    }
+
+    public Long getFolderId() {
+        return folderId;
+    }
+
+    public boolean isCanWrite() {
+        return canWrite;
+    }
+
+    @Override
+    public IDataTransferModel toDataTransferObject() {
+        return null;
+    }
+}
@@ -54,6 +54,11 @@ public class Folder implements DataModel {
     @Column(name = "propagate_permissions")
     private Boolean propagatePermissions = Boolean.FALSE;
 
+    // number of entries (of any visibility) in the folder. null until first counted. only used for the size of
+    // transferred folders; sizes restricted to visible entries are counted (see FolderDAO#getFolderSize)
+    @Column(name = "entry_count")
+    private Long entryCount;
+
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "folder_entry", joinColumns = {@JoinColumn(name = "folder_id", nullable = false)},
                inverseJoinColumns = {@JoinColumn(name = "entry_id", nullable = false)})
@@ -137,6 +142,14 @@ public class Folder implements DataModel {
         this.propagatePermissions = propagatePermissions;
     }
 
+    public Long getEntryCount() {
+        return entryCount;
+    }
+
+    public void setEntryCount(Long entryCount) {
+        this.entryCount = entryCount;
+    }
+
     public Folder getParent() {
         return parent;
     }
@@ -185,7 +185,7 @@ iceControllers.controller('ActionMenuController', function ($stateParams, $uibMo
         // retrieve from server
         Util.post("rest/file/csv", selection, function (result) {
             if (result && result.value) {
-                $window.open("rest/file/tmp/" + result.value, "_self");
+                $window.open("rest/file/csv/" + result.value, "_self");
                 Selection.reset();
             }
         }, formats);
@@ -0,0 +1,48 @@
+package org.jbei.ice.lib.account;
+
+import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.model.Account;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Hector Plahar
+ */
+public class PrincipalCacheTest {
+
+    @Before
+    public void setUp() throws Exception {
+        HibernateUtil.initializeMock();
+        HibernateUtil.beginTransaction();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        HibernateUtil.commitTransaction();
+    }
+
+    @Test
+    public void testInvalidateAfterCommit() throws Exception {
+        Account account = AccountCreator.createTestAccount("PrincipalCacheTest.testInvalidateAfterCommit", false);
+        PrincipalCache cache = PrincipalCache.getInstance();
+        Assert.assertFalse(cache.isAdministrator(account.getEmail()));
+
+        account.setType(AccountType.ADMIN);
+        DAOFactory.getAccountDAO().update(account);
+        cache.invalidate(account.getEmail());
+        Assert.assertTrue(cache.isAdministrator(account.getEmail()));
+
+        // values cached after the invalidation but before the commit are removed when the transaction commits
+        account.setType(AccountType.NORMAL);
+        DAOFactory.getAccountDAO().update(account);
+        Assert.assertTrue(cache.isAdministrator(account.getEmail()));
+        HibernateUtil.commitTransaction();
+
+        HibernateUtil.beginTransaction();
+        Assert.assertFalse(cache.isAdministrator(account.getEmail()));
+    }
+}
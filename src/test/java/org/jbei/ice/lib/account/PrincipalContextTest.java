@@ -0,0 +1,80 @@
+package org.jbei.ice.lib.account;
+
+import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.lib.group.GroupController;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.model.Account;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+
+/**
+ * @author Hector Plahar
+ */
+public class PrincipalContextTest {
+
+    @Before
+    public void setUp() throws Exception {
+        HibernateUtil.initializeMock();
+        HibernateUtil.beginTransaction();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        PrincipalContext.end();
+        HibernateUtil.commitTransaction();
+    }
+
+    @Test
+    public void testGetAccount() throws Exception {
+        Account account = AccountCreator.createTestAccount("PrincipalContextTest.testGetAccount", false);
+        Assert.assertNull(PrincipalContext.current());
+        Assert.assertEquals(account, PrincipalContext.getAccount(account.getEmail()));
+
+        PrincipalContext.begin();
+        Assert.assertNotNull(PrincipalContext.current());
+        Assert.assertEquals(account, PrincipalContext.getAccount(account.getEmail()));
+        Assert.assertEquals(account, PrincipalContext.getAccount(account.getEmail().toUpperCase()));
+        Assert.assertNull(PrincipalContext.getAccount("PrincipalContextTest.testGetAccount.missing"));
+        Assert.assertFalse(PrincipalContext.isAdministrator(account.getEmail()));
+
+        PrincipalContext.end();
+        Assert.assertNull(PrincipalContext.current());
+    }
+
+    @Test
+    public void testIsAdministrator() throws Exception {
+        Account account = AccountCreator.createTestAccount("PrincipalContextTest.testIsAdministrator", true);
+        Assert.assertTrue(PrincipalContext.isAdministrator(account.getEmail()));
+
+        PrincipalContext.begin();
+        Assert.assertTrue(PrincipalContext.isAdministrator(account.getEmail()));
+        Assert.assertFalse(PrincipalContext.isAdministrator(null));
+    }
+
+    @Test
+    public void testGetGroupIds() throws Exception {
+        Account account = AccountCreator.createTestAccount("PrincipalContextTest.testGetGroupIds", false);
+        long publicGroupId = new GroupController().createOrRetrievePublicGroup().getId();
+        Set<Long> groupIds = PrincipalContext.getGroupIds(account);
+        Assert.assertTrue(groupIds.contains(publicGroupId));
+
+        PrincipalContext.begin();
+        Assert.assertEquals(groupIds, PrincipalContext.getGroupIds(account));
+    }
+
+    @Test
+    public void testSetPrincipal() throws Exception {
+        PrincipalContext.begin();
+        PrincipalContext context = PrincipalContext.current();
+        Assert.assertFalse(context.isResolved("session"));
+
+        context.setPrincipal("session", "PrincipalContextTest.testSetPrincipal");
+        Assert.assertTrue(context.isResolved("session"));
+        Assert.assertFalse(context.isResolved("other"));
+        Assert.assertEquals("PrincipalContextTest.testSetPrincipal", context.getUserId());
+    }
+}
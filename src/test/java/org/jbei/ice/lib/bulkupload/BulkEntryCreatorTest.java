@@ -1,14 +1,21 @@
 package org.jbei.ice.lib.bulkupload;
 
 import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.lib.dto.DNAFeature;
+import org.jbei.ice.lib.dto.FeaturedDNASequence;
 import org.jbei.ice.lib.dto.entry.EntryType;
 import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
 import org.jbei.ice.storage.model.Account;
 import org.jbei.ice.storage.model.BulkUpload;
+import org.jbei.ice.storage.model.Entry;
 import org.junit.*;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
 /**
  * @author Hector Plahar
  */
@@ -88,6 +95,34 @@ public class BulkEntryCreatorTest {
         Assert.assertTrue(retrievedPart.getLinkedParts().size() == 1);
     }
 
+    @Test
+    public void testCreateSequenceEntries() throws Exception {
+        Account account = AccountCreator.createTestAccount("testCreateSequenceEntries", false);
+        long uploadId = creator.createBulkUpload(account.getEmail(), EntryType.PART);
+
+        List<SequenceRecord> records = new ArrayList<>();
+        for (int i = 1; i <= 3; i += 1) {
+            SequenceRecord record = new SequenceRecord(i, ">part" + i + "\nacgtacgtacgt\n");
+            FeaturedDNASequence sequence = new FeaturedDNASequence("acgtacgtacgt", new LinkedList<DNAFeature>());
+            sequence.setName("part" + i);
+            record.setSequence(sequence);
+            records.add(record);
+        }
+        records.add(new SequenceRecord(4, ">unparsed\n"));
+
+        creator.createSequenceEntries(account.getEmail(), uploadId, EntryType.PART, ".fasta", records);
+        for (int i = 0; i < 3; i += 1) {
+            Assert.assertTrue(records.get(i).getEntryId() > 0);
+            Entry entry = DAOFactory.getEntryDAO().get(records.get(i).getEntryId());
+            Assert.assertEquals("part" + (i + 1), entry.getName());
+            Assert.assertTrue(DAOFactory.getSequenceDAO().hasSequence(entry.getId()));
+        }
+        Assert.assertEquals(0, records.get(3).getEntryId());
+
+        BulkUpload upload = DAOFactory.getBulkUploadDAO().get(uploadId);
+        Assert.assertEquals(3, DAOFactory.getBulkUploadDAO().getEntryIds(upload).size());
+    }
+
     @After
     public void tearDown() throws Exception {
         HibernateUtil.commitTransaction();
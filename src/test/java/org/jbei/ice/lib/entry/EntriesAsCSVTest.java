@@ -1,10 +1,28 @@
 package org.jbei.ice.lib.entry;
 
+import org.apache.commons.io.IOUtils;
+import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.lib.TestEntryCreator;
+import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.model.Account;
+import org.jbei.ice.storage.model.Sequence;
+import org.jbei.ice.storage.model.Strain;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
 /**
  * @author Hector Plahar
  */
@@ -23,6 +41,92 @@ public class EntriesAsCSVTest {
 
     @Test
     public void testSetEntries() throws Exception {
+        Account account = AccountCreator.createTestAccount("EntriesAsCSVTest.testSetEntries", false);
+        Strain strain = TestEntryCreator.createTestStrain(account);
+        Strain strain2 = TestEntryCreator.createTestStrain(account);
+
+        List<Long> entries = new ArrayList<>();
+        entries.add(strain.getId());
+        entries.add(strain2.getId());
+
+        EntriesAsCSV entriesAsCSV = new EntriesAsCSV();
+        Assert.assertTrue(entriesAsCSV.setEntries(account.getEmail(), entries));
+        List<String> lines = Files.readAllLines(entriesAsCSV.getFilePath(), Charset.defaultCharset());
+        Assert.assertEquals(3, lines.size());
+        Assert.assertTrue(lines.get(1).contains(strain.getPartNumber()));
+        Assert.assertTrue(lines.get(2).contains(strain2.getPartNumber()));
+        Files.deleteIfExists(entriesAsCSV.getFilePath());
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        Account account = AccountCreator.createTestAccount("EntriesAsCSVTest.testWrite", false);
+        Strain strain = TestEntryCreator.createTestStrain(account);
+
+        EntriesAsCSV entriesAsCSV = new EntriesAsCSV("genbank");
+        List<Long> entries = new ArrayList<>();
+        entries.add(strain.getId());
+        Assert.assertTrue(entriesAsCSV.setEntries(account.getEmail(), entries));
+        Assert.assertTrue(entriesAsCSV.getFilePath().toString().endsWith(".zip"));
+        Files.deleteIfExists(entriesAsCSV.getFilePath());
+
+        // csv only, streamed
+        entriesAsCSV = new EntriesAsCSV();
+        entriesAsCSV.setEntries(account.getEmail(), entries);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        entriesAsCSV.write(outputStream);
+        Assert.assertTrue(outputStream.toString().contains(strain.getPartNumber()));
+        Assert.assertEquals("entries.csv", entriesAsCSV.getFileName());
+        Files.deleteIfExists(entriesAsCSV.getFilePath());
+    }
+
+    @Test
+    public void testWriteWithSequences() throws Exception {
+        Account account = AccountCreator.createTestAccount("EntriesAsCSVTest.testWriteWithSequences", false);
+        Strain strain = TestEntryCreator.createTestStrain(account);
+        Strain noSequence = TestEntryCreator.createTestStrain(account);
+        String sequenceString = "atgtcgaaagctttcgacatgcatgcatgc";
+        Sequence sequence = new Sequence(sequenceString, null, "EntriesAsCSVTest.fwd", "EntriesAsCSVTest.rev",
+                strain);
+        Assert.assertNotNull(DAOFactory.getSequenceDAO().saveSequence(sequence));
+
+        // sequence files are formatted in separate sessions
+        HibernateUtil.commitTransaction();
+        HibernateUtil.beginTransaction();
+
+        List<Long> entries = new ArrayList<>();
+        entries.add(strain.getId());
+        entries.add(noSequence.getId());
+        EntriesAsCSV entriesAsCSV = new EntriesAsCSV("genbank", "fasta");
+        Assert.assertTrue(entriesAsCSV.setEntries(account.getEmail(), entries));
+        Assert.assertEquals("entries.zip", entriesAsCSV.getFileName());
+
+        Map<String, String> zipEntries = new LinkedHashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(entriesAsCSV.getFilePath()))) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zis.getNextEntry()) != null) {
+                zipEntries.put(zipEntry.getName(), IOUtils.toString(zis));
+            }
+        }
+        Files.deleteIfExists(entriesAsCSV.getFilePath());
+
+        // csv first, then a file per format only for the entry with a sequence
+        List<String> names = new ArrayList<>(zipEntries.keySet());
+        Assert.assertEquals(3, names.size());
+        Assert.assertEquals("entries.csv", names.get(0));
+        Assert.assertEquals(strain.getName() + ".gb", names.get(1));
+        Assert.assertEquals(strain.getName() + ".fasta", names.get(2));
+
+        String csv = zipEntries.get("entries.csv");
+        Assert.assertTrue(csv.contains(strain.getPartNumber()));
+        Assert.assertTrue(csv.contains(noSequence.getPartNumber()));
+
+        String genbank = zipEntries.get(strain.getName() + ".gb");
+        Assert.assertTrue(genbank.startsWith("LOCUS"));
+        Assert.assertTrue(genbank.contains("ORIGIN"));
 
+        String fasta = zipEntries.get(strain.getName() + ".fasta");
+        Assert.assertTrue(fasta.startsWith(">"));
+        Assert.assertTrue(fasta.replaceAll("\\s", "").toLowerCase().contains(sequenceString));
     }
-}
\ No newline at end of file
+}
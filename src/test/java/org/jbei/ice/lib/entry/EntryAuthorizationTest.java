@@ -0,0 +1,74 @@
+package org.jbei.ice.lib.entry;
+
+import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.lib.TestEntryCreator;
+import org.jbei.ice.lib.dto.folder.FolderType;
+import org.jbei.ice.lib.group.GroupController;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.model.*;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Hector Plahar
+ */
+public class EntryAuthorizationTest {
+
+    @Before
+    public void setUp() throws Exception {
+        HibernateUtil.initializeMock();
+        HibernateUtil.beginTransaction();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        HibernateUtil.commitTransaction();
+    }
+
+    @Test
+    public void testPublicRead() throws Exception {
+        Account owner = AccountCreator.createTestAccount("EntryAuthorizationTest.testPublicRead", false);
+        Strain shared = TestEntryCreator.createTestStrain(owner);
+        Strain inPublicFolder = TestEntryCreator.createTestStrain(owner);
+        Strain unshared = TestEntryCreator.createTestStrain(owner);
+
+        Permission permission = new Permission();
+        permission.setEntry(shared);
+        permission.setGroup(new GroupController().createOrRetrievePublicGroup());
+        permission.setCanRead(true);
+        DAOFactory.getPermissionDAO().create(permission);
+
+        Folder folder = new Folder("EntryAuthorizationTest");
+        folder.setOwnerEmail(owner.getEmail());
+        folder.setType(FolderType.PUBLIC);
+        folder = DAOFactory.getFolderDAO().create(folder);
+        List<Entry> folderEntries = new ArrayList<>();
+        folderEntries.add(inPublicFolder);
+        DAOFactory.getFolderDAO().addFolderContents(folder, folderEntries);
+
+        // without a user, only entries shared with the public group on the entry itself can be read
+        EntryAuthorization authorization = new EntryAuthorization();
+        Assert.assertTrue(authorization.canRead(null, shared));
+        Assert.assertFalse(authorization.canRead(null, inPublicFolder));
+        Assert.assertFalse(authorization.canRead(null, unshared));
+
+        List<Entry> entries = new ArrayList<>();
+        entries.add(shared);
+        entries.add(inPublicFolder);
+        entries.add(unshared);
+        Set<Long> readable = authorization.filterReadable(null, entries);
+        for (Entry entry : entries) {
+            Assert.assertEquals(authorization.canRead(null, entry), readable.contains(entry.getId()));
+        }
+
+        // the owner can read all of them
+        Assert.assertEquals(3, authorization.filterReadable(owner.getEmail(), entries).size());
+    }
+}
@@ -0,0 +1,95 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.lib.TestEntryCreator;
+import org.jbei.ice.lib.entry.sequence.composers.formatters.FastaFormatter;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.model.Account;
+import org.jbei.ice.storage.model.Plasmid;
+import org.jbei.ice.storage.model.Sequence;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * @author Hector Plahar
+ */
+public class SequenceFileCacheTest {
+
+    @Before
+    public void setUp() throws Exception {
+        HibernateUtil.initializeMock();
+        HibernateUtil.beginTransaction();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        HibernateUtil.commitTransaction();
+    }
+
+    @Test
+    public void testComposedFileKey() {
+        Plasmid plasmid = new Plasmid();
+        plasmid.setName("pTest");
+        plasmid.setPartNumber("TEST_000001");
+        plasmid.setShortDescription("summary");
+        Sequence sequence = new Sequence("atgtcgaaag", null, "fwd", "rev", plasmid);
+        sequence.setId(1);
+
+        String key = SequenceController.getComposedFileKey(plasmid, sequence, "genbank", "1", "prefix");
+        Assert.assertEquals(key, SequenceController.getComposedFileKey(plasmid, sequence, "genbank", "1", "prefix"));
+
+        // every value included in the composed output changes the key
+        Assert.assertNotEquals(key, SequenceController.getComposedFileKey(plasmid, sequence, "fasta", "1", "prefix"));
+        Assert.assertNotEquals(key, SequenceController.getComposedFileKey(plasmid, sequence, "genbank", "2", "prefix"));
+        Assert.assertNotEquals(key, SequenceController.getComposedFileKey(plasmid, sequence, "genbank", "1", "other"));
+
+        plasmid.setCircular(Boolean.FALSE);
+        Assert.assertNotEquals(key, SequenceController.getComposedFileKey(plasmid, sequence, "genbank", "1", "prefix"));
+        plasmid.setCircular(Boolean.TRUE);
+
+        plasmid.setName("pTest2");
+        Assert.assertNotEquals(key, SequenceController.getComposedFileKey(plasmid, sequence, "genbank", "1", "prefix"));
+        plasmid.setName("pTest");
+
+        plasmid.setShortDescription("new summary");
+        Assert.assertNotEquals(key, SequenceController.getComposedFileKey(plasmid, sequence, "genbank", "1", "prefix"));
+        plasmid.setShortDescription("summary");
+
+        sequence.setFwdHash("fwd2");
+        Assert.assertNotEquals(key, SequenceController.getComposedFileKey(plasmid, sequence, "genbank", "1", "prefix"));
+        sequence.setFwdHash("fwd");
+
+        Assert.assertEquals(key, SequenceController.getComposedFileKey(plasmid, sequence, "genbank", "1", "prefix"));
+    }
+
+    @Test
+    public void testSupersededFiles() throws Exception {
+        Account account = AccountCreator.createTestAccount("SequenceFileCacheTest.testSupersededFiles", false);
+        Plasmid plasmid = TestEntryCreator.createTestPlasmid(account);
+        Sequence sequence = new Sequence("atgtcgaaagctttcgacat", null, "fwd", "rev", plasmid);
+        sequence = DAOFactory.getSequenceDAO().saveSequence(sequence);
+
+        SequenceFileCache cache = SequenceFileCache.getInstance();
+        Path first = cache.get(sequence, "fasta", "key1", new FastaFormatter("name"));
+        Path other = cache.get(sequence, "genbank", "key1", new FastaFormatter("name"));
+        Assert.assertTrue(Files.exists(first));
+        Assert.assertEquals(first, cache.get(sequence, "fasta", "key1", new FastaFormatter("name")));
+
+        // a new key replaces the file of the same format only
+        Path second = cache.get(sequence, "fasta", "key2", new FastaFormatter("name2"));
+        Assert.assertNotEquals(first, second);
+        Assert.assertTrue(Files.exists(second));
+        Assert.assertFalse(Files.exists(first));
+        Assert.assertTrue(Files.exists(other));
+
+        cache.invalidate(sequence.getId());
+        Assert.assertFalse(Files.exists(second));
+        Assert.assertFalse(Files.exists(other));
+    }
+}
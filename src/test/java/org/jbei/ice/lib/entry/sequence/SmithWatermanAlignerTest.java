@@ -0,0 +1,102 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.parsers.bl2seq.Bl2SeqResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * @author Hector Plahar
+ */
+public class SmithWatermanAlignerTest {
+
+    private static String randomSequence(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i += 1) {
+            builder.append("acgt".charAt(random.nextInt(4)));
+        }
+        return builder.toString();
+    }
+
+    private static String reverseComplement(String sequence) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = sequence.length() - 1; i >= 0; i -= 1) {
+            builder.append("tgca".charAt("acgt".indexOf(sequence.charAt(i))));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testAlignExact() throws Exception {
+        String reference = randomSequence(3000, 1);
+        String read = reference.substring(1000, 1600);
+
+        Bl2SeqResult result = SmithWatermanAligner.align(reference, read);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(0, result.getOrientation());
+        Assert.assertEquals(1001, result.getQueryStart());
+        Assert.assertEquals(1600, result.getQueryEnd());
+        Assert.assertEquals(1, result.getSubjectStart());
+        Assert.assertEquals(600, result.getSubjectEnd());
+        Assert.assertEquals(read, result.getQuerySequence());
+        Assert.assertEquals(read, result.getSubjectSequence());
+        Assert.assertEquals(1200, result.getScore());
+    }
+
+    @Test
+    public void testAlignWithGaps() throws Exception {
+        String reference = randomSequence(3000, 2);
+        // read with a deletion of 3 bases, an insertion of 2 and a mismatch, and unaligned bases at each end
+        String read = "nnnnn" + reference.substring(500, 700) + reference.substring(703, 900) + "gg"
+                + reference.substring(900, 1000) + "nnnnn";
+        String mismatch = read.charAt(100) == 'a' ? "c" : "a";
+        read = read.substring(0, 100) + mismatch + read.substring(101);
+
+        Bl2SeqResult result = SmithWatermanAligner.align(reference, read);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(0, result.getOrientation());
+        Assert.assertEquals(501, result.getQueryStart());
+        Assert.assertEquals(1000, result.getQueryEnd());
+        Assert.assertEquals(6, result.getSubjectStart());
+        Assert.assertEquals(read.length() - 5, result.getSubjectEnd());
+        Assert.assertEquals(result.getQuerySequence().length(), result.getSubjectSequence().length());
+        Assert.assertEquals(reference.substring(500, 1000), result.getQuerySequence().replace("-", ""));
+        Assert.assertEquals(read.substring(5, read.length() - 5), result.getSubjectSequence().replace("-", ""));
+    }
+
+    @Test
+    public void testAlignMinusStrand() throws Exception {
+        String reference = randomSequence(5000, 3);
+        String read = reverseComplement(reference.substring(2000, 2800));
+
+        Bl2SeqResult result = SmithWatermanAligner.align(reference.toUpperCase(), read);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(1, result.getOrientation());
+        Assert.assertEquals(2001, result.getQueryStart());
+        Assert.assertEquals(2800, result.getQueryEnd());
+        Assert.assertEquals(800, result.getSubjectStart());
+        Assert.assertEquals(1, result.getSubjectEnd());
+        Assert.assertEquals(reference.substring(2000, 2800), result.getSubjectSequence());
+    }
+
+    @Test
+    public void testNoAlignment() throws Exception {
+        Assert.assertNull(SmithWatermanAligner.align("aaaaaaaaaaaa", "cccc"));
+        Assert.assertNull(SmithWatermanAligner.align("", "acgt"));
+
+        // unrelated sequences have local alignments that score above zero but are not significant
+        Assert.assertNull(SmithWatermanAligner.align(randomSequence(5000, 4), randomSequence(800, 5)));
+
+        // significant score but shorter than the blastn seed
+        String reference = randomSequence(1000, 6);
+        Assert.assertNull(SmithWatermanAligner.align(reference, reference.substring(100, 120)));
+        Assert.assertNotNull(SmithWatermanAligner.align(reference, reference.substring(100, 140)));
+
+        Assert.assertTrue(SmithWatermanAligner.expectValue(1200, 3000, 600) < 1e-100);
+        Assert.assertTrue(SmithWatermanAligner.expectValue(15, 5000, 800) > 10);
+        Assert.assertTrue(SmithWatermanAligner.canAlign(20000, 1000));
+        Assert.assertFalse(SmithWatermanAligner.canAlign(20000, 5000));
+    }
+}
@@ -0,0 +1,156 @@
+package org.jbei.ice.lib.entry.sequence;
+
+import org.jbei.ice.lib.dto.entry.ChromatogramData;
+import org.jbei.ice.lib.parsers.abi.ABITrace;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * @author Hector Plahar
+ */
+public class TraceChromatogramTest {
+
+    private static final int TRACE_LENGTH = 1000;
+    private static final String CHANNEL_ORDER = "GATC";
+
+    private static int value(char base, int x) {
+        return ("ACGT".indexOf(base) + 1) * (x % 37);
+    }
+
+    /**
+     * Writes a minimal ABI file with the records read by {@link ABITrace}: 12 DATA records (the last four holding
+     * the traces in {@link #CHANNEL_ORDER}), FWO_ and two each of PBAS and PLOC
+     */
+    private static byte[] createABIFile() throws Exception {
+        int seqLength = TRACE_LENGTH / 10;
+        int records = 12 + 1 + 2 + 2;
+        int indexBase = 128;
+        int dataStart = indexBase + records * 28;
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(data);
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+
+        for (int i = 1; i <= 12; i += 1) {
+            int offset = dataStart + data.size();
+            if (i > 8) {
+                char base = CHANNEL_ORDER.charAt(i - 9);
+                for (int x = 0; x < TRACE_LENGTH; x += 1) {
+                    dataOut.writeShort(value(base, x));
+                }
+            }
+            writeRecord(indexOut, "DATA", i, TRACE_LENGTH, TRACE_LENGTH * 2, offset);
+        }
+
+        indexOut.writeBytes("FWO_");
+        indexOut.writeInt(1);
+        indexOut.writeInt(0);
+        indexOut.writeInt(4);
+        indexOut.writeInt(4);
+        indexOut.writeBytes(CHANNEL_ORDER);
+        indexOut.writeInt(0);
+
+        for (int i = 1; i <= 2; i += 1) {
+            int offset = dataStart + data.size();
+            for (int b = 0; b < seqLength; b += 1) {
+                dataOut.writeByte("ACGT".charAt(b % 4));
+            }
+            writeRecord(indexOut, "PBAS", i, seqLength, seqLength, offset);
+        }
+
+        for (int i = 1; i <= 2; i += 1) {
+            int offset = dataStart + data.size();
+            for (int b = 0; b < seqLength; b += 1) {
+                dataOut.writeShort(b * 10 + 5);
+            }
+            writeRecord(indexOut, "PLOC", i, seqLength, seqLength * 2, offset);
+        }
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(file);
+        out.writeBytes("ABIF");
+        out.writeShort(101);
+        writeRecord(out, "tdir", 1, records, records * 28, indexBase);
+        while (file.size() < indexBase) {
+            out.writeByte(0);
+        }
+        out.write(index.toByteArray());
+        out.write(data.toByteArray());
+        return file.toByteArray();
+    }
+
+    private static void writeRecord(DataOutputStream out, String name, int number, int elements, int size,
+                                    int offset) throws Exception {
+        out.writeBytes(name);
+        out.writeInt(number);
+        out.writeShort(4);
+        out.writeShort(2);
+        out.writeInt(elements);
+        out.writeInt(size);
+        out.writeInt(offset);
+        out.writeInt(0);
+    }
+
+    @Test
+    public void testReadABI() throws Exception {
+        Path abiFile = Files.createTempFile("trace", ".ab1");
+        try {
+            Files.write(abiFile, createABIFile());
+            ABITrace trace = new ABITrace(abiFile.toFile());
+            Assert.assertEquals(TRACE_LENGTH, trace.getTraceLength());
+            Assert.assertEquals(TRACE_LENGTH / 10, trace.getSequenceLength());
+            Assert.assertEquals(value('T', 123), trace.getTraceValue('T', 123));
+            Assert.assertEquals(value('G', 999), trace.getTraceValue('g', 999));
+            Assert.assertEquals(15, trace.getBasecalls()[1]);
+        } finally {
+            Files.deleteIfExists(abiFile);
+        }
+    }
+
+    @Test
+    public void testBuildAndRead() throws Exception {
+        Path abiFile = Files.createTempFile("trace", ".ab1");
+        File chromatogram = new File(abiFile.toString() + TraceChromatogram.FILE_EXTENSION);
+        try {
+            Files.write(abiFile, createABIFile());
+            TraceChromatogram.build(new ABITrace(abiFile.toFile()), chromatogram.toPath());
+
+            // full resolution
+            ChromatogramData data = TraceChromatogram.read(chromatogram.toPath(), 0, 0, 2000);
+            Assert.assertEquals(TRACE_LENGTH, data.getTraceLength());
+            Assert.assertEquals(1, data.getBinSize());
+            Assert.assertEquals(0, data.getStart());
+            Assert.assertEquals(TRACE_LENGTH, data.getEnd());
+            Assert.assertEquals(4, data.getChannels().size());
+            ChromatogramData.Channel c = data.getChannels().get(1);
+            Assert.assertEquals("C", c.getBase());
+            Assert.assertEquals(TRACE_LENGTH, c.getMinima().length);
+            Assert.assertEquals(value('C', 123), c.getMinima()[123]);
+            Assert.assertEquals(value('C', 123), c.getMaxima()[123]);
+            Assert.assertEquals(TRACE_LENGTH / 10, data.getBasecallPositions().size());
+
+            // downsampled range
+            data = TraceChromatogram.read(chromatogram.toPath(), 400, 600, 100);
+            Assert.assertEquals(4, data.getBinSize());
+            Assert.assertEquals(400, data.getStart());
+            Assert.assertEquals(600, data.getEnd());
+            ChromatogramData.Channel a = data.getChannels().get(0);
+            Assert.assertEquals(50, a.getMinima().length);
+            Assert.assertEquals(value('A', 400), a.getMinima()[0]);
+            Assert.assertEquals(value('A', 403), a.getMaxima()[0]);
+            Assert.assertEquals(20, data.getBasecallPositions().size());
+            Assert.assertEquals(405, (int) data.getBasecallPositions().get(0));
+            Assert.assertEquals(20, data.getBases().length());
+        } finally {
+            Files.deleteIfExists(abiFile);
+            Files.deleteIfExists(chromatogram.toPath());
+        }
+    }
+}
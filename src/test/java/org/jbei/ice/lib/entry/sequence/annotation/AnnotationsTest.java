@@ -2,11 +2,14 @@ package org.jbei.ice.lib.entry.sequence.annotation;
 
 import org.jbei.ice.lib.AccountCreator;
 import org.jbei.ice.lib.TestEntryCreator;
+import org.jbei.ice.lib.access.PermissionException;
 import org.jbei.ice.lib.dto.Curation;
 import org.jbei.ice.lib.dto.DNAFeature;
 import org.jbei.ice.lib.dto.DNASequence;
+import org.jbei.ice.lib.dto.folder.FolderType;
 import org.jbei.ice.lib.entry.sequence.SequenceController;
 import org.jbei.ice.lib.parsers.GeneralParser;
+import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
 import org.jbei.ice.storage.hibernate.dao.SequenceDAO;
 import org.jbei.ice.storage.hibernate.dao.SequenceFeatureDAO;
@@ -16,8 +19,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * @author Hector Plahar
@@ -71,6 +73,60 @@ public class AnnotationsTest {
         Assert.assertTrue(feature.getCuration().isExclude());
     }
 
+    @Test
+    public void testGetEntryIdsByFeatures() throws Exception {
+        Account account = AccountCreator.createTestAccount("AnnotationsTest.testGetEntryIdsByFeatures", false);
+        Plasmid plasmid = TestEntryCreator.createTestPlasmid(account);
+
+        SequenceDAO sequenceDAO = new SequenceDAO();
+        DNASequence dnaSequence = GeneralParser.getInstance().parse(sequenceString);
+        Sequence sequence = SequenceController.dnaSequenceToSequence(dnaSequence);
+        sequence.setEntry(plasmid);
+        sequenceDAO.saveSequence(sequence);
+
+        SequenceFeatureDAO sequenceFeatureDAO = new SequenceFeatureDAO();
+        List<SequenceFeature> sequenceFeatures = sequenceFeatureDAO.getEntrySequenceFeatures(plasmid);
+        Assert.assertEquals(1, sequenceFeatures.size());
+        long featureId = sequenceFeatures.get(0).getFeature().getId();
+
+        Map<Long, Set<Long>> entryIds = sequenceFeatureDAO.getEntryIdsByFeatures(Arrays.asList(featureId, -1L));
+        Assert.assertEquals(1, entryIds.size());
+        Assert.assertTrue(entryIds.get(featureId).contains(plasmid.getId()));
+        Assert.assertTrue(sequenceFeatureDAO.getEntryIdsByFeatures(new ArrayList<Long>()).isEmpty());
+    }
+
+    @Test(expected = PermissionException.class)
+    public void testGenerateBulkForFolderPermission() throws Exception {
+        Account owner = AccountCreator.createTestAccount("AnnotationsTest.testGenerateBulkForFolderPermission", false);
+        Account other = AccountCreator.createTestAccount("AnnotationsTest.testGenerateBulkForFolderPermission2", false);
+
+        Folder folder = new Folder("AnnotationsTest");
+        folder.setOwnerEmail(owner.getEmail());
+        folder.setType(FolderType.PRIVATE);
+        folder = DAOFactory.getFolderDAO().create(folder);
+
+        // folder has not been shared with the other user
+        new Annotations(other.getEmail()).generateBulkForFolder(folder.getId());
+    }
+
+    @Test
+    public void testBulkResultsReleased() throws Exception {
+        Account account = AccountCreator.createTestAccount("AnnotationsTest.testBulkResultsReleased", false);
+        Plasmid plasmid = TestEntryCreator.createTestPlasmid(account);
+        List<Long> entryIds = Collections.singletonList(plasmid.getId());
+
+        BulkAnnotationTask first = new BulkAnnotationTask(account.getEmail(), entryIds);
+        first.execute();
+        Assert.assertNotNull(first.getResults());
+
+        // only the results of the most recently completed tasks are kept
+        for (int i = 0; i < BulkAnnotationTask.RETAINED_RESULTS; i += 1) {
+            BulkAnnotationTask task = new BulkAnnotationTask(account.getEmail(), entryIds);
+            task.execute();
+            Assert.assertNotNull(task.getResults());
+        }
+        Assert.assertNull(first.getResults());
+    }
 
     static String sequenceString =
             "LOCUS       pj5_00001                804 bp    dna     circular UNK \n" +
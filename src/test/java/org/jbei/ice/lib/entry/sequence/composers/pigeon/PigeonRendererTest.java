@@ -0,0 +1,58 @@
+package org.jbei.ice.lib.entry.sequence.composers.pigeon;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+/**
+ * @author Hector Plahar
+ */
+public class PigeonRendererTest {
+
+    private static final String SCRIPT =
+            "p pLac 4 nl\n" +
+                    "r RBS 13 nl\n" +
+                    "<c gfp_mut3 8 nl\n" +
+                    "t term 6\n" +
+                    "# Arcs\n" +
+                    "r1 rep p1\n";
+
+    @Test
+    public void testParse() throws Exception {
+        List<PigeonRenderer.Part> parts = PigeonRenderer.parse(SCRIPT);
+        Assert.assertEquals(4, parts.size());
+
+        PigeonRenderer.Part cds = parts.get(2);
+        Assert.assertEquals('c', cds.glyph);
+        Assert.assertEquals("gfp mut3", cds.name);
+        Assert.assertEquals(8, cds.color);
+        Assert.assertTrue(cds.reverse);
+        Assert.assertFalse(cds.label);
+
+        PigeonRenderer.Part terminator = parts.get(3);
+        Assert.assertFalse(terminator.reverse);
+        Assert.assertTrue(terminator.label);
+
+        Assert.assertTrue(PigeonRenderer.parse("# Arcs").isEmpty());
+        Assert.assertTrue(PigeonRenderer.parse(null).isEmpty());
+    }
+
+    @Test
+    public void testRender() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PigeonRenderer.render(SCRIPT, out);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertNotNull(image);
+        Assert.assertTrue(image.getWidth() > 100);
+
+        // empty design renders just the backbone
+        out = new ByteArrayOutputStream();
+        PigeonRenderer.render("# Arcs\n", out);
+        Assert.assertNotNull(ImageIO.read(new ByteArrayInputStream(out.toByteArray())));
+    }
+}
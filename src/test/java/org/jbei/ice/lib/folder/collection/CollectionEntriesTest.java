@@ -2,11 +2,13 @@ package org.jbei.ice.lib.folder.collection;
 
 import org.jbei.ice.lib.AccountCreator;
 import org.jbei.ice.lib.TestEntryCreator;
+import org.jbei.ice.lib.dto.common.PageParameters;
 import org.jbei.ice.lib.dto.common.Results;
 import org.jbei.ice.lib.dto.entry.PartData;
 import org.jbei.ice.lib.dto.entry.Visibility;
 import org.jbei.ice.lib.shared.ColumnField;
 import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.InvalidContinuationException;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
 import org.jbei.ice.storage.model.Account;
 import org.jbei.ice.storage.model.Entry;
@@ -15,6 +17,11 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * @author Hector Plahar
  */
@@ -42,7 +49,73 @@ public class CollectionEntriesTest {
 
     @Test
     public void testGetPersonalEntries() throws Exception {
+        Account account = AccountCreator.createTestAccount("CollectionEntriesTest.testGetPersonalEntries", false);
+        Assert.assertNotNull(account);
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 5; i += 1)
+            ids.add(TestEntryCreator.createTestPart(account.getEmail()));
+
+        // page through entries with continuation tokens
+        CollectionEntries collectionEntries = new CollectionEntries(account.getEmail(), CollectionType.PERSONAL);
+        PageParameters pageParameters = new PageParameters(0, 2, ColumnField.NAME, true, null);
+        pageParameters.setContinuation("");
+        Set<Long> retrieved = new HashSet<>();
+        int pages = 0;
+        Results<PartData> results;
+        do {
+            results = collectionEntries.getEntries(pageParameters);
+
+            // the count is only retrieved with the first page
+            Assert.assertEquals(pages == 0 ? 5 : -1, results.getResultCount());
+            for (PartData data : results.getData())
+                Assert.assertTrue(retrieved.add(data.getId()));
+            pageParameters.setContinuation(results.getContinuation());
+            pages += 1;
+        } while (results.getContinuation() != null);
+
+        Assert.assertEquals(ids, retrieved);
+        Assert.assertEquals(4, pages);
+
+        // entries sorted by creation time are in the same order in either paging mode
+        List<Long> offsetOrder = new ArrayList<>();
+        for (PartData data : collectionEntries.getEntries(ColumnField.CREATED, false, 0, 10).getData())
+            offsetOrder.add(data.getId());
+
+        List<Long> keysetOrder = new ArrayList<>();
+        pageParameters = new PageParameters(0, 2, ColumnField.CREATED, false, null);
+        pageParameters.setContinuation("");
+        do {
+            results = collectionEntries.getEntries(pageParameters);
+            for (PartData data : results.getData())
+                keysetOrder.add(data.getId());
+            pageParameters.setContinuation(results.getContinuation());
+        } while (results.getContinuation() != null);
+        Assert.assertEquals(offsetOrder, keysetOrder);
+
+        // offset paging does not return a token
+        results = collectionEntries.getEntries(ColumnField.NAME, true, 0, 2);
+        Assert.assertEquals(2, results.getData().size());
+        Assert.assertNull(results.getContinuation());
+
+        // token is only valid for the sort it was created with
+        pageParameters = new PageParameters(0, 2, ColumnField.NAME, true, null);
+        pageParameters.setContinuation("");
+        pageParameters.setContinuation(collectionEntries.getEntries(pageParameters).getContinuation());
+        pageParameters.setAscending(false);
+        try {
+            collectionEntries.getEntries(pageParameters);
+            Assert.fail("Expected invalid continuation token");
+        } catch (InvalidContinuationException e) {
+            // expected
+        }
 
+        pageParameters.setContinuation("not a token");
+        try {
+            collectionEntries.getEntries(pageParameters);
+            Assert.fail("Expected invalid continuation token");
+        } catch (InvalidContinuationException e) {
+            // expected
+        }
     }
 
     @Test
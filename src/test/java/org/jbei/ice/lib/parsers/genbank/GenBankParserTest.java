@@ -2,9 +2,13 @@ package org.jbei.ice.lib.parsers.genbank;
 
 import org.jbei.ice.lib.dto.DNASequence;
 import org.jbei.ice.lib.dto.FeaturedDNASequence;
+import org.jbei.ice.lib.parsers.InvalidFormatParserException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.BufferedReader;
+import java.io.StringReader;
+
 /**
  * @author Hector Plahar
  */
@@ -25,6 +29,30 @@ public class GenBankParserTest {
         Assert.assertEquals(3, sequence2.getFeatures().size());
     }
 
+    @Test
+    public void testParseNext() throws Exception {
+        GenBankParser parser = new GenBankParser();
+        BufferedReader reader = new BufferedReader(new StringReader(genbank + "\n" + getGenbank2));
+        FeaturedDNASequence first = parser.parseNext(reader);
+        Assert.assertNotNull(first);
+        Assert.assertEquals("BBa_I0462", first.getName());
+        Assert.assertEquals(936, first.getSequence().length());
+        Assert.assertEquals(3, first.getFeatures().size());
+
+        FeaturedDNASequence second = parser.parseNext(reader);
+        Assert.assertNotNull(second);
+        Assert.assertEquals("AB648464", second.getName());
+        Assert.assertEquals(452, second.getSequence().length());
+        Assert.assertEquals(3, second.getFeatures().size());
+
+        Assert.assertNull(parser.parseNext(reader));
+    }
+
+    @Test(expected = InvalidFormatParserException.class)
+    public void testParseNoLocus() throws Exception {
+        new GenBankParser().parse(">fasta\nacgt\n");
+    }
+
     @Test
     public void testParseFeaturesTag() throws Exception {
         GenBankParser parser = new GenBankParser();
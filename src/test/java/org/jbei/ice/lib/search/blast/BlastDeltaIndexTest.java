@@ -0,0 +1,66 @@
+package org.jbei.ice.lib.search.blast;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Hector Plahar
+ */
+public class BlastDeltaIndexTest {
+
+    @Test
+    public void testNextChangeTime() {
+        long first = BlastDeltaIndex.nextChangeTime();
+        long second = BlastDeltaIndex.nextChangeTime();
+        Assert.assertTrue(second > first);
+    }
+
+    @Test
+    public void testRecordOrdering() {
+        BlastDeltaIndex index = new BlastDeltaIndex(true);
+        long older = BlastDeltaIndex.nextChangeTime();
+        long newer = BlastDeltaIndex.nextChangeTime();
+
+        // tasks can run out of order; the older change must not replace the newer one
+        Assert.assertTrue(index.record(1, ">1d\nacgt\n", newer));
+        Assert.assertFalse(index.record(1, null, older));
+        Assert.assertTrue(index.isStale(1));
+        Assert.assertFalse(index.isStale(2));
+    }
+
+    @Test
+    public void testCompaction() {
+        BlastDeltaIndex index = new BlastDeltaIndex(true);
+
+        // committed (and stamped) before the rebuild started, so the rebuild includes it
+        index.record(1, ">1d\nacgt\n", BlastDeltaIndex.nextChangeTime());
+        long rebuildStart = BlastDeltaIndex.nextChangeTime();
+
+        // committed while the rebuild was running; the rebuild may not have read it
+        index.record(2, null, BlastDeltaIndex.nextChangeTime());
+
+        index.drop(rebuildStart);
+        Assert.assertFalse(index.isStale(1));
+        Assert.assertTrue(index.isStale(2));
+
+        // a later change to a compacted entry is tombstoned again
+        index.record(1, null, BlastDeltaIndex.nextChangeTime());
+        Assert.assertTrue(index.isStale(1));
+    }
+
+    @Test
+    public void testStartCompaction() {
+        BlastDeltaIndex index = new BlastDeltaIndex(true);
+        Assert.assertFalse(index.startCompaction());
+
+        for (long id = 1; id <= 501; id += 1)
+            index.record(id, null, BlastDeltaIndex.nextChangeTime());
+
+        Assert.assertTrue(index.startCompaction());
+        Assert.assertFalse(index.startCompaction());
+
+        // a compaction that failed or could not be scheduled can be scheduled again
+        index.compactionFinished();
+        Assert.assertTrue(index.startCompaction());
+    }
+}
@@ -0,0 +1,62 @@
+package org.jbei.ice.lib.search.kmer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * @author Hector Plahar
+ */
+public class KmerIndexTest {
+
+    private static final String SEQUENCE = "atggctagcaaaggagaagaacttttcactggagttgtcccaattcttgttgaattagatggtgatgttaatgggcaca";
+    private static final String REVERSE_COMPLEMENT = "tgtgcccattaacatcaccatctaattcaacaagaattgggacaactccagtgaaaagttcttctcctttgctagccat";
+
+    @Test
+    public void testNormalize() {
+        Assert.assertEquals("acgtacgt", KmerIndex.normalize(">header line\nACGT acgt\n"));
+        Assert.assertEquals("", KmerIndex.normalize(null));
+    }
+
+    @Test
+    public void testMinimizers() {
+        int[] minimizers = KmerIndex.minimizers(SEQUENCE);
+        Assert.assertTrue(minimizers.length > 0);
+
+        // canonical k-mers make the minimizers strand independent
+        Assert.assertArrayEquals(minimizers, KmerIndex.minimizers(REVERSE_COMPLEMENT));
+
+        int[] sorted = Arrays.copyOf(minimizers, minimizers.length);
+        Arrays.sort(sorted);
+        Assert.assertArrayEquals(sorted, minimizers);
+
+        Assert.assertEquals(0, KmerIndex.minimizers("acgt").length);
+        Assert.assertEquals(0, KmerIndex.minimizers("acgtacgnacgtacgnacgtacgn").length);
+    }
+
+    @Test
+    public void testCountIdentical() {
+        String subject = "ccccc" + SEQUENCE + "ggggg";
+        Assert.assertEquals(SEQUENCE.length(), KmerIndex.countIdentical(SEQUENCE, subject));
+
+        // two substitutions
+        String query = "c" + SEQUENCE.substring(1, 40) + "a" + SEQUENCE.substring(41);
+        Assert.assertEquals(SEQUENCE.length() - 2, KmerIndex.countIdentical(query, subject));
+
+        Assert.assertEquals(0, KmerIndex.countIdentical(SEQUENCE, "acgt"));
+    }
+
+    @Test
+    public void testCircularize() {
+        // query crosses the origin of the circular subject
+        String subject = SEQUENCE.substring(30) + SEQUENCE.substring(0, 30);
+        Assert.assertTrue(KmerIndex.countIdentical(SEQUENCE, subject) < SEQUENCE.length());
+        String circular = KmerIndex.circularize(subject, SEQUENCE.length());
+        Assert.assertEquals(SEQUENCE.length(), KmerIndex.countIdentical(SEQUENCE, circular));
+
+        Assert.assertEquals("acgtac", KmerIndex.circularize("acgt", 3));
+        Assert.assertEquals("acgtacgt", KmerIndex.circularize("acgt", 10));
+        Assert.assertEquals("acgt", KmerIndex.circularize("acgt", 0));
+    }
+}
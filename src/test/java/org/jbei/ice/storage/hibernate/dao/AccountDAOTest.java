@@ -5,8 +5,7 @@ import org.jbei.ice.storage.hibernate.HibernateUtil;
 import org.jbei.ice.storage.model.Account;
 import org.junit.*;
 
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 public class AccountDAOTest {
 
@@ -102,6 +101,19 @@ public class AccountDAOTest {
         Assert.assertEquals(5, dao.getAccountsCount("testGetAccountsCount1"));
     }
 
+    @Test
+    public void testGetAccountIds() throws DAOException {
+        Account account1 = dao.create(createAccountObject("testGetAccountIds1"));
+        Account account2 = dao.create(createAccountObject("testGetAccountIds2"));
+
+        Map<String, Long> ids = dao.getAccountIds(Arrays.asList("TestGetAccountIds1", "testGetAccountIds2",
+                "testGetAccountIdsMissing"));
+        Assert.assertEquals(2, ids.size());
+        Assert.assertEquals(account1.getId(), ids.get("testgetaccountids1").longValue());
+        Assert.assertEquals(account2.getId(), ids.get("testgetaccountids2").longValue());
+        Assert.assertTrue(dao.getAccountIds(new ArrayList<String>()).isEmpty());
+    }
+
     private Account createAccountObject(String email) {
         Account account = new Account();
         account.setEmail(email);
@@ -0,0 +1,121 @@
+package org.jbei.ice.storage.hibernate.dao;
+
+import org.jbei.ice.lib.AccountCreator;
+import org.jbei.ice.lib.TestEntryCreator;
+import org.jbei.ice.lib.dto.folder.FolderType;
+import org.jbei.ice.lib.group.GroupController;
+import org.jbei.ice.storage.DAOFactory;
+import org.jbei.ice.storage.hibernate.HibernateUtil;
+import org.jbei.ice.storage.model.*;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * @author Hector Plahar
+ */
+public class EntryAccessDAOTest {
+
+    private EntryAccessDAO dao;
+
+    @Before
+    public void setUp() throws Exception {
+        HibernateUtil.initializeMock();
+        HibernateUtil.beginTransaction();
+        dao = new EntryAccessDAO();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        HibernateUtil.commitTransaction();
+    }
+
+    @Test
+    public void testEntryPermission() throws Exception {
+        Account owner = AccountCreator.createTestAccount("EntryAccessDAOTest.testEntryPermission", false);
+        Account reader = AccountCreator.createTestAccount("EntryAccessDAOTest.testEntryPermission2", false);
+        Strain strain = TestEntryCreator.createTestStrain(owner);
+        Assert.assertFalse(dao.hasReadAccess(strain.getId(), reader, null));
+
+        Permission permission = new Permission();
+        permission.setEntry(strain);
+        permission.setAccount(reader);
+        permission.setCanRead(true);
+        permission = DAOFactory.getPermissionDAO().create(permission);
+
+        Assert.assertTrue(dao.hasReadAccess(strain.getId(), reader, null));
+        Assert.assertFalse(dao.hasWriteAccess(strain.getId(), reader, null));
+        Assert.assertFalse(dao.hasEntryWriteAccess(strain.getId(), reader));
+        Assert.assertEquals(1, dao.filterReadable(reader, null, Collections.singletonList(strain.getId())).size());
+
+        DAOFactory.getPermissionDAO().delete(permission);
+        Assert.assertFalse(dao.hasReadAccess(strain.getId(), reader, null));
+    }
+
+    @Test
+    public void testFolderPermission() throws Exception {
+        Account owner = AccountCreator.createTestAccount("EntryAccessDAOTest.testFolderPermission", false);
+        Account writer = AccountCreator.createTestAccount("EntryAccessDAOTest.testFolderPermission2", false);
+        Strain strain = TestEntryCreator.createTestStrain(owner);
+
+        Folder folder = new Folder("EntryAccessDAOTest");
+        folder.setOwnerEmail(owner.getEmail());
+        folder.setType(FolderType.PRIVATE);
+        folder = DAOFactory.getFolderDAO().create(folder);
+
+        Permission permission = new Permission();
+        permission.setFolder(folder);
+        permission.setAccount(writer);
+        permission.setCanWrite(true);
+        DAOFactory.getPermissionDAO().create(permission);
+        Assert.assertFalse(dao.hasReadAccess(strain.getId(), writer, null));
+
+        // entry added to folder
+        List<Entry> entries = new ArrayList<>();
+        entries.add(strain);
+        DAOFactory.getFolderDAO().addFolderContents(folder, entries);
+        Assert.assertTrue(dao.hasReadAccess(strain.getId(), writer, null));
+        Assert.assertTrue(dao.hasWriteAccess(strain.getId(), writer, null));
+        Assert.assertFalse(dao.hasEntryWriteAccess(strain.getId(), writer));
+
+        // entry removed from folder
+        DAOFactory.getFolderDAO().removeFolderEntries(folder, Collections.singletonList(strain.getId()));
+        Assert.assertFalse(dao.hasReadAccess(strain.getId(), writer, null));
+    }
+
+    @Test
+    public void testPublicFolder() throws Exception {
+        Account owner = AccountCreator.createTestAccount("EntryAccessDAOTest.testPublicFolder", false);
+        Account reader = AccountCreator.createTestAccount("EntryAccessDAOTest.testPublicFolder2", false);
+        Strain strain = TestEntryCreator.createTestStrain(owner);
+        Group publicGroup = new GroupController().createOrRetrievePublicGroup();
+        Set<Long> groupIds = new HashSet<>();
+        groupIds.add(publicGroup.getId());
+
+        Folder folder = new Folder("EntryAccessDAOTest");
+        folder.setOwnerEmail(owner.getEmail());
+        folder.setType(FolderType.PUBLIC);
+        folder = DAOFactory.getFolderDAO().create(folder);
+        List<Entry> entries = new ArrayList<>();
+        entries.add(strain);
+        DAOFactory.getFolderDAO().addFolderContents(folder, entries);
+
+        Assert.assertTrue(dao.hasReadAccess(strain.getId(), reader, groupIds));
+        Assert.assertFalse(dao.hasWriteAccess(strain.getId(), reader, groupIds));
+
+        // only permissions set on the entry itself make an entry publicly visible
+        Assert.assertTrue(dao.filterSharedWithGroups(groupIds, Collections.singletonList(strain.getId())).isEmpty());
+
+        // rebuilt index has the same rows
+        dao.rebuild();
+        Assert.assertTrue(dao.hasReadAccess(strain.getId(), reader, groupIds));
+
+        folder.setType(FolderType.PRIVATE);
+        DAOFactory.getFolderDAO().update(folder);
+        dao.indexFolder(folder.getId());
+        Assert.assertFalse(dao.hasReadAccess(strain.getId(), reader, groupIds));
+    }
+}
@@ -116,6 +116,45 @@ public class FolderDAOTest {
         Assert.assertEquals(10, dao.getFolderSize(folder.getId(), null, true).intValue());
     }
 
+    @Test
+    public void testFolderEntryCount() throws Exception {
+        Account account = AccountCreator.createTestAccount("testFolderEntryCount", false);
+        Folder folder = createFolderObject("testFolderEntryCount");
+        folder = dao.create(folder);
+
+        List<Entry> entries = new ArrayList<>();
+        EntryCreator creator = new EntryCreator();
+        for (int i = 0; i < 5; i += 1) {
+            Part part = new Part();
+            part.setName("name" + i);
+            part.setOwnerEmail(account.getEmail());
+            part.setShortDescription("short description");
+            entries.add(creator.createEntry(account, part, null));
+        }
+
+        // counting does not initialize the counter
+        Assert.assertNull(folder.getEntryCount());
+        Assert.assertEquals(0, dao.getFolderSize(folder.getId(), null, false).intValue());
+        Assert.assertNull(folder.getEntryCount());
+
+        // counter is initialized by the first change to the entries
+        folder = dao.addFolderContents(folder, entries.subList(0, 3));
+        Assert.assertEquals(3, folder.getEntryCount().intValue());
+
+        // entries already in the folder are not added again
+        folder = dao.addFolderContents(folder, entries);
+        Assert.assertEquals(5, folder.getEntryCount().intValue());
+        Assert.assertEquals(5, folder.getContents().size());
+
+        List<Long> entriesToRemove = new ArrayList<>();
+        entriesToRemove.add(entries.get(0).getId());
+        entriesToRemove.add(entries.get(4).getId());
+        folder = dao.removeFolderEntries(folder, entriesToRemove);
+        Assert.assertEquals(3, folder.getEntryCount().intValue());
+        Assert.assertEquals(3, dao.getFolderSize(folder.getId(), null, false).intValue());
+        Assert.assertEquals(3, dao.getFolderSize(folder.getId(), null, true).intValue());
+    }
+
     @Test
     public void testGetFolderContentIds() throws Exception {
 
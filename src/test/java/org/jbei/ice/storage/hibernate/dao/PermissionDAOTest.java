@@ -3,8 +3,12 @@ package org.jbei.ice.storage.hibernate.dao;
 import org.jbei.ice.lib.AccountCreator;
 import org.jbei.ice.lib.TestEntryCreator;
 import org.jbei.ice.lib.account.AccountController;
+import org.jbei.ice.lib.dto.folder.FolderType;
+import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
 import org.jbei.ice.storage.model.Account;
+import org.jbei.ice.storage.model.Folder;
+import org.jbei.ice.storage.model.Permission;
 import org.jbei.ice.storage.model.Strain;
 import org.junit.After;
 import org.junit.Assert;
@@ -47,4 +51,26 @@ public class PermissionDAOTest {
         List<Long> entryIds = makePrivateEntryIds(adminAccount);
         Assert.assertArrayEquals(new Object[0], dao.getCanReadEntries(regularAccount, regularAccount.getGroups(), entryIds).toArray());
     }
+
+    @Test
+    public void testPropagateFolderPermissions() throws Exception {
+        List<Long> entryIds = makePrivateEntryIds(adminAccount);
+        Folder folder = new Folder("PermissionDAOTest");
+        folder.setOwnerEmail(adminAccount.getEmail());
+        folder.setType(FolderType.PRIVATE);
+        folder = DAOFactory.getFolderDAO().create(folder);
+
+        Permission permission = new Permission();
+        permission.setFolder(folder);
+        permission.setAccount(regularAccount);
+        permission.setCanRead(true);
+        dao.create(permission);
+
+        Assert.assertEquals(3, dao.propagateFolderPermissions(folder, entryIds));
+        Assert.assertEquals(3, dao.getCanReadEntries(regularAccount, regularAccount.getGroups(), entryIds).size());
+        Assert.assertTrue(DAOFactory.getEntryAccessDAO().hasReadAccess(entryIds.get(0), regularAccount, null));
+
+        // existing permissions are not duplicated
+        Assert.assertEquals(0, dao.propagateFolderPermissions(folder, entryIds));
+    }
 }
@@ -3,7 +3,10 @@ package org.jbei.ice.storage.hibernate.dao;
 import org.jbei.ice.lib.AccountCreator;
 import org.jbei.ice.lib.TestEntryCreator;
 import org.jbei.ice.lib.dto.DNASequence;
+import org.jbei.ice.lib.entry.sequence.FeatureResolver;
 import org.jbei.ice.lib.entry.sequence.SequenceController;
+import org.jbei.ice.lib.entry.sequence.SequenceFileCache;
+import org.jbei.ice.lib.entry.sequence.composers.formatters.FastaFormatter;
 import org.jbei.ice.lib.parsers.GeneralParser;
 import org.jbei.ice.storage.DAOFactory;
 import org.jbei.ice.storage.hibernate.HibernateUtil;
@@ -13,6 +16,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.List;
 
@@ -89,16 +94,69 @@ public class SequenceDAOTest {
         sequenceFeature.getAnnotationLocations().add(location);
         newFeatures.add(sequenceFeature);
 
+        // composed files cached before the update are removed
+        Path cached = SequenceFileCache.getInstance().get(sequence, "fasta", "key", new FastaFormatter("name"));
+        Assert.assertTrue(Files.exists(cached));
+
         sequence = sequenceDAO.updateSequence(sequence, new HashSet<>(newFeatures));
         Assert.assertNotNull(sequence);
+        Assert.assertFalse(Files.exists(cached));
         newFeatures = DAOFactory.getSequenceFeatureDAO().getEntrySequenceFeatures(plasmid);
         Assert.assertEquals(2, newFeatures.size());
         Assert.assertNotEquals(newFeatures.get(0).getFeature(), newFeatures.get(1).getFeature());
     }
 
+    @Test
+    public void testSaveSequenceWithResolver() throws Exception {
+        Account account = AccountCreator.createTestAccount("SequenceDAOTest.testSaveSequenceWithResolver", false);
+        FeatureResolver resolver = new FeatureResolver();
+
+        // features on opposite strands of the same sequence resolve to a single feature
+        Plasmid plasmid = TestEntryCreator.createTestPlasmid(account);
+        Sequence sequence = new Sequence("atgtcgaaagctttcgacat", null, "fwd", "rev", plasmid);
+        sequence.getSequenceFeatures().add(createSequenceFeature(sequence, "atgtcgaaag", 1));
+        sequence.getSequenceFeatures().add(createSequenceFeature(sequence, "ctttcgacat", 11));
+        Assert.assertNotNull(sequenceDAO.saveSequence(sequence, resolver));
+
+        List<SequenceFeature> features = DAOFactory.getSequenceFeatureDAO().getEntrySequenceFeatures(plasmid);
+        Assert.assertEquals(2, features.size());
+        Assert.assertEquals(features.get(0).getFeature(), features.get(1).getFeature());
+
+        // a sequence saved with the same resolver shares the features
+        Plasmid plasmid2 = TestEntryCreator.createTestPlasmid(account);
+        sequence = new Sequence("atgtcgaaag", null, "fwd2", "rev2", plasmid2);
+        sequence.getSequenceFeatures().add(createSequenceFeature(sequence, "ATGTCGAAAG", 1));
+        Assert.assertNotNull(sequenceDAO.saveSequence(sequence, resolver));
+
+        List<SequenceFeature> features2 = DAOFactory.getSequenceFeatureDAO().getEntrySequenceFeatures(plasmid2);
+        Assert.assertEquals(1, features2.size());
+        Assert.assertEquals(features.get(0).getFeature(), features2.get(0).getFeature());
+    }
+
+    private SequenceFeature createSequenceFeature(Sequence sequence, String featureSequence, int start) {
+        Feature feature = new Feature("test", "", featureSequence, "misc_feature");
+        SequenceFeature sequenceFeature = new SequenceFeature(sequence, feature, 1, "test", "misc_feature", null);
+        sequenceFeature.getAnnotationLocations().add(
+                new AnnotationLocation(start, start + featureSequence.length() - 1, sequenceFeature));
+        return sequenceFeature;
+    }
+
     @Test
     public void testDeleteSequence() throws Exception {
+        Account account = AccountCreator.createTestAccount("SequenceDAOTest.testDeleteSequence", false);
+        Plasmid plasmid = TestEntryCreator.createTestPlasmid(account);
+        DNASequence dnaSequence = GeneralParser.getInstance().parse(sequenceString);
+        Sequence sequence = SequenceController.dnaSequenceToSequence(dnaSequence);
+        sequence.setEntry(plasmid);
+        sequence = sequenceDAO.saveSequence(sequence);
+        long id = sequence.getId();
+
+        Path cached = SequenceFileCache.getInstance().get(sequence, "fasta", "key", new FastaFormatter("name"));
+        Assert.assertTrue(Files.exists(cached));
 
+        sequenceDAO.deleteSequence(sequence);
+        Assert.assertNull(sequenceDAO.get(id));
+        Assert.assertFalse(Files.exists(cached));
     }
 
     @Test
@@ -147,8 +205,24 @@ public class SequenceDAOTest {
     }
 
     @Test
-    public void testGetSequence() throws Exception {
+    public void testGetSequencesAfter() throws Exception {
+        Account account = AccountCreator.createTestAccount("SequenceDAOTest.testGetSequencesAfter", false);
+        Plasmid plasmid = TestEntryCreator.createTestPlasmid(account);
+        DNASequence dnaSequence = GeneralParser.getInstance().parse(sequenceString);
+        Sequence sequence = SequenceController.dnaSequenceToSequence(dnaSequence);
+        sequence.setEntry(plasmid);
+        sequence = sequenceDAO.saveSequence(sequence);
+        Assert.assertNotNull(sequence);
+
+        List<Object[]> rows = sequenceDAO.getSequencesAfter(sequence.getId() - 1, 10);
+        Assert.assertEquals(1, rows.size());
+        Object[] row = rows.get(0);
+        Assert.assertEquals(sequence.getId(), ((Long) row[0]).longValue());
+        Assert.assertEquals(plasmid.getId(), ((Long) row[1]).longValue());
+        Assert.assertEquals(plasmid.getPartNumber(), row[4]);
+        Assert.assertEquals(sequence.getSequence(), row[5]);
 
+        Assert.assertTrue(sequenceDAO.getSequencesAfter(sequence.getId(), 10).isEmpty());
     }
 
     static String sequenceString =